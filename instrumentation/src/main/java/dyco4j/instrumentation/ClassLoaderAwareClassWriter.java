@@ -0,0 +1,89 @@
+/*
+ * Copyright (c) 2017, Venkatesh-Prasad Ranganath
+ *
+ * BSD 3-clause License
+ *
+ * Author: Venkatesh-Prasad Ranganath (rvprasad)
+ */
+
+package dyco4j.instrumentation;
+
+import org.objectweb.asm.ClassReader;
+import org.objectweb.asm.ClassWriter;
+import org.objectweb.asm.Opcodes;
+
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.UncheckedIOException;
+import java.util.HashMap;
+import java.util.Map;
+
+/*
+ * INFO
+ *
+ * When computing frames, ClassWriter loads classes via the class loader of ClassWriter.  At load time, the classes
+ * being instrumented are often not visible to this loader and loading classes from within a transformer may
+ * re-enter the transformer (and fail with ClassCircularityError).  So, this class writer resolves the hierarchy of
+ * classes by reading their class files via the loader of the class being instrumented (as the CLI reads program
+ * data) without loading them.  If the class file of a type cannot be found, TypeNotPresentException is thrown as
+ * guessing the common super class may yield frames that do not verify.
+ */
+public final class ClassLoaderAwareClassWriter extends ClassWriter {
+    private static final String OBJECT = "java/lang/Object";
+    private final ClassLoader loader;
+    private final Map<String, ClassReader> name2reader = new HashMap<>();
+
+    public ClassLoaderAwareClassWriter(final ClassReader cr, final int flags, final ClassLoader loader) {
+        super(cr, flags);
+        this.loader = loader;
+        this.name2reader.put(cr.getClassName(), cr);
+    }
+
+    @Override
+    protected String getCommonSuperClass(final String type1, final String type2) {
+        if (isAssignableFrom(type1, type2))
+            return type1;
+        if (isAssignableFrom(type2, type1))
+            return type2;
+        if (isInterface(type1) || isInterface(type2))
+            return OBJECT;
+
+        String _tmp = type1;
+        do {
+            _tmp = getReader(_tmp).getSuperName();
+        } while (!isAssignableFrom(_tmp, type2));
+        return _tmp;
+    }
+
+    private boolean isAssignableFrom(final String type1, final String type2) {
+        if (type1.equals(type2) || type1.equals(OBJECT))
+            return true;
+        if (type2.equals(OBJECT))
+            return false;
+
+        final ClassReader _cr = getReader(type2);
+        for (final String _tmp : _cr.getInterfaces())
+            if (isAssignableFrom(type1, _tmp))
+                return true;
+        final String _superName = _cr.getSuperName();
+        return _superName != null && isAssignableFrom(type1, _superName);
+    }
+
+    private boolean isInterface(final String type) {
+        return (getReader(type).getAccess() & Opcodes.ACC_INTERFACE) != 0;
+    }
+
+    private ClassReader getReader(final String type) {
+        return this.name2reader.computeIfAbsent(type, k -> {
+            final String _name = k + ".class";
+            try (final InputStream _in = this.loader != null ? this.loader.getResourceAsStream(_name) :
+                    ClassLoader.getSystemResourceAsStream(_name)) {
+                if (_in == null)
+                    throw new TypeNotPresentException(k.replace('/', '.'), null);
+                return new ClassReader(Helper.readAllBytes(_in));
+            } catch (final IOException _ex) {
+                throw new UncheckedIOException(_ex);
+            }
+        });
+    }
+}
@@ -11,26 +11,80 @@ package dyco4j.instrumentation;
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
 
-import java.io.IOException;
+import java.io.*;
+import java.net.URISyntaxException;
 import java.nio.file.Files;
 import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.security.CodeSource;
+import java.security.ProtectionDomain;
 import java.text.MessageFormat;
-import java.util.function.BiConsumer;
-import java.util.function.Predicate;
-import java.util.stream.Stream;
+import java.util.*;
+import java.util.function.UnaryOperator;
+import java.util.stream.Collectors;
+import java.util.zip.ZipEntry;
+import java.util.zip.ZipOutputStream;
 
 public class Helper {
     private static final Logger LOGGER = LoggerFactory.getLogger(Helper.class);
+    // INFO: classes of the JDK, of the dependences of the agents, and of the logger are not instrumented at load time
+    private static final String[] EXCLUDED_PACKAGE_PREFIXES = {"java/", "javax/", "jdk/", "sun/", "com/sun/",
+            "org/objectweb/asm/", "org/apache/commons/cli/", "org/slf4j/", "com/google/gson/", "dyco4j/logging/",
+            "dyco4j/utility/"};
+    private static final Path AGENT_LOCATION = getLocation(Helper.class.getProtectionDomain());
+    private static final int BUFFER_LENGTH = 65536;
+    // INFO: number of archive entries transformed in parallel (and held in memory) before they are written
+    private static final int ARCHIVE_BATCH_LENGTH = 256;
+    // INFO: signatures of archives are invalidated by instrumentation
+    private static final String SIGNATURE_FILE_REGEX = "META-INF/[^/]*\\.(SF|DSA|RSA|EC)";
+
     private Helper() {
     }
 
-    public static void processFiles(final Path srcRoot, final Path trgRoot, final Predicate<Path> pathSelector,
-                                    final BiConsumer<Path, Path> transformer) throws IOException {
-        final Stream<Path> _srcPaths = Files.walk(srcRoot).filter(pathSelector);
-        _srcPaths.parallel().forEach(_srcPath -> {
+    /*
+     * Instruments the classes and copies the other files in the given source roots (folders and archives) into the
+     * given target.  If the target is an archive, all files are written into the archive.  Otherwise, the files in
+     * a folder are written into the target folder and the files in an archive are written into an archive with the
+     * same name in the target folder.  Archives are read and written entry by entry without extracting them.
+     */
+    public static void processRoots(final Collection<SourceRoot> srcRoots, final Path trgRoot,
+                                    final UnaryOperator<byte[]> classTransformer) throws IOException {
+        if (isArchive(trgRoot)) {
+            processArchive(srcRoots, trgRoot, classTransformer);
+            return;
+        }
+
+        for (final SourceRoot _srcRoot : srcRoots) {
+            if (_srcRoot.isArchive())
+                processArchive(Collections.singleton(_srcRoot), trgRoot.resolve(_srcRoot.getPath().getFileName()),
+                        classTransformer);
+            else
+                processFolder(_srcRoot, trgRoot, classTransformer);
+        }
+    }
+
+    public static boolean isArchive(final Path path) {
+        final String _name = path.getFileName().toString().toLowerCase();
+        return _name.endsWith(".jar") || _name.endsWith(".zip");
+    }
+
+    static boolean isClassFile(final String name) {
+        return name.endsWith(".class");
+    }
+
+    static byte[] readAllBytes(final InputStream in) throws IOException {
+        final ByteArrayOutputStream _ret = new ByteArrayOutputStream();
+        final byte[] _tmp = new byte[BUFFER_LENGTH];
+        for (int _n = in.read(_tmp); _n != -1; _n = in.read(_tmp))
+            _ret.write(_tmp, 0, _n);
+        return _ret.toByteArray();
+    }
+
+    private static void processFolder(final SourceRoot srcRoot, final Path trgRoot,
+                                      final UnaryOperator<byte[]> classTransformer) {
+        srcRoot.getNames().parallelStream().forEach(_name -> {
             try {
-                final Path _relativeSrcPath = srcRoot.relativize(_srcPath);
-                final Path _trgPath = trgRoot.resolve(_relativeSrcPath);
+                final Path _trgPath = trgRoot.resolve(_name);
                 final Path _parent = _trgPath.getParent();
                 if (!Files.exists(_parent))
                     Files.createDirectories(_parent);
@@ -40,10 +94,176 @@ public class Helper {
                 else
                     LOGGER.info(MessageFormat.format("Writing {0}", _trgPath));
 
-                transformer.accept(_srcPath, _trgPath);
+                if (isClassFile(_name))
+                    Files.write(_trgPath, classTransformer.apply(srcRoot.getClassBytes(_name)));
+                else
+                    Files.copy(srcRoot.getPath().resolve(_name), _trgPath);
             } catch (final IOException _ex) {
                 throw new RuntimeException(_ex);
             }
         });
     }
+
+    private static void processArchive(final Collection<SourceRoot> srcRoots, final Path trgArchive,
+                                       final UnaryOperator<byte[]> classTransformer) throws IOException {
+        final Path _parent = trgArchive.toAbsolutePath().getParent();
+        if (!Files.exists(_parent))
+            Files.createDirectories(_parent);
+
+        if (Files.exists(trgArchive))
+            LOGGER.info(MessageFormat.format("Overwriting {0}", trgArchive));
+        else
+            LOGGER.info(MessageFormat.format("Writing {0}", trgArchive));
+
+        final Set<String> _names = new HashSet<>();
+        try (final ZipOutputStream _out = new ZipOutputStream(new BufferedOutputStream(
+                Files.newOutputStream(trgArchive), BUFFER_LENGTH))) {
+            for (final SourceRoot _srcRoot : srcRoots) {
+                final List<String> _entryNames = new ArrayList<>();
+                for (final String _name : _srcRoot.getNames()) {
+                    if (_name.matches(SIGNATURE_FILE_REGEX))
+                        continue;
+                    if (_names.add(_name))
+                        _entryNames.add(_name);
+                    else {
+                        LOGGER.warn(MessageFormat.format("Skipping duplicate entry {0}", _name));
+                        // INFO: the bytecode of skipped classes would otherwise hold the budget of the cache
+                        _srcRoot.release(_name);
+                    }
+                }
+
+                /*
+                 * INFO
+                 *
+                 * Like folders, classes of archives are transformed in parallel.  However, entries are written in
+                 * their order in the source root.  So, classes are transformed batch by batch (to bound the memory
+                 * held by transformed classes) and then the entries of the batch are written in order.
+                 */
+                for (int _i = 0; _i < _entryNames.size(); _i += ARCHIVE_BATCH_LENGTH) {
+                    final List<String> _batch = _entryNames.subList(_i,
+                            Math.min(_i + ARCHIVE_BATCH_LENGTH, _entryNames.size()));
+                    final List<byte[]> _classBytes = _batch.parallelStream()
+                            .map(n -> isClassFile(n) ? transformClass(_srcRoot, n, classTransformer) : null)
+                            .collect(Collectors.toList());
+                    for (int _j = 0; _j < _batch.size(); _j++)
+                        writeEntry(_out, _srcRoot, _batch.get(_j), _classBytes.get(_j));
+                }
+            }
+        } catch (final UncheckedIOException _ex) {
+            throw _ex.getCause();
+        }
+    }
+
+    private static byte[] transformClass(final SourceRoot srcRoot, final String name,
+                                         final UnaryOperator<byte[]> classTransformer) {
+        try {
+            return classTransformer.apply(srcRoot.getClassBytes(name));
+        } catch (final IOException _ex) {
+            throw new UncheckedIOException(_ex);
+        }
+    }
+
+    /*
+     * Classes are written from the given (transformed) bytecode.  Other entries are streamed into entries with the
+     * same properties (e.g., compression method).
+     */
+    private static void writeEntry(final ZipOutputStream out, final SourceRoot srcRoot, final String name,
+                                   final byte[] classBytes) throws IOException {
+        final ZipEntry _srcEntry = srcRoot.getEntry(name);
+        if (classBytes != null) {
+            final ZipEntry _entry = new ZipEntry(name);
+            if (_srcEntry.getTime() != -1)
+                _entry.setTime(_srcEntry.getTime());
+            out.putNextEntry(_entry);
+            out.write(classBytes);
+        } else {
+            final ZipEntry _entry = new ZipEntry(_srcEntry);
+            // INFO: the size of recompressed data may differ
+            _entry.setCompressedSize(-1);
+            out.putNextEntry(_entry);
+            try (final InputStream _in = srcRoot.open(name)) {
+                final byte[] _tmp = new byte[BUFFER_LENGTH];
+                for (int _n = _in.read(_tmp); _n != -1; _n = _in.read(_tmp))
+                    out.write(_tmp, 0, _n);
+            }
+        }
+        out.closeEntry();
+    }
+
+    /*
+     * Parses agent arguments of the form "name1=value1,name2,..." into a map from names to values.  Flags (names
+     * without values) are mapped to empty strings.
+     */
+    public static Map<String, String> parseAgentArgs(final String agentArgs) {
+        final Map<String, String> _ret = new HashMap<>();
+        if (agentArgs == null)
+            return _ret;
+
+        for (final String _tmp : agentArgs.split(",")) {
+            final String _arg = _tmp.trim();
+            if (_arg.isEmpty())
+                continue;
+            final int _i = _arg.indexOf('=');
+            if (_i == -1)
+                _ret.put(_arg, "");
+            else
+                _ret.put(_arg.substring(0, _i).trim(), _arg.substring(_i + 1).trim());
+        }
+        return _ret;
+    }
+
+    /*
+     * Returns the (absolute) paths in the given list of paths separated by the path separator.
+     */
+    public static Collection<Path> parsePaths(final String paths) {
+        final Collection<Path> _ret = new ArrayList<>();
+        if (paths != null)
+            for (final String _tmp : paths.split(File.pathSeparator))
+                if (!_tmp.trim().isEmpty())
+                    _ret.add(Paths.get(_tmp.trim()).toAbsolutePath().normalize());
+        return _ret;
+    }
+
+    /*
+     * Returns true if the given class (that is being loaded) should be instrumented by an agent.  Classes loaded by
+     * the bootstrap class loader, classes in excluded packages, and classes of the agent are not instrumented.  If
+     * in-folders are given, only classes loaded from these folders (or jars) are instrumented.
+     */
+    public static boolean shouldInstrumentLoadedClass(final String className, final ClassLoader loader,
+                                                      final ProtectionDomain protectionDomain,
+                                                      final Collection<Path> inFolders) {
+        if (className == null || loader == null)
+            return false;
+
+        for (final String _prefix : EXCLUDED_PACKAGE_PREFIXES)
+            if (className.startsWith(_prefix))
+                return false;
+
+        final Path _location = getLocation(protectionDomain);
+        if (_location != null && _location.equals(AGENT_LOCATION))
+            return false;
+
+        if (inFolders.isEmpty())
+            return true;
+
+        if (_location == null)
+            return false;
+
+        for (final Path _folder : inFolders)
+            if (_location.startsWith(_folder))
+                return true;
+        return false;
+    }
+
+    private static Path getLocation(final ProtectionDomain protectionDomain) {
+        final CodeSource _codeSource = protectionDomain == null ? null : protectionDomain.getCodeSource();
+        if (_codeSource == null || _codeSource.getLocation() == null)
+            return null;
+
+        try {
+            return Paths.get(_codeSource.getLocation().toURI()).toAbsolutePath().normalize();
+        } catch (final URISyntaxException | IllegalArgumentException _ex) {
+            return null;
+        }
+    }
 }
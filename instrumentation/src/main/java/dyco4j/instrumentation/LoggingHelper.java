@@ -10,6 +10,8 @@ package dyco4j.instrumentation;
 
 import dyco4j.logging.Logger;
 import dyco4j.logging.LoggerInitializer;
+import dyco4j.logging.TraceSwitch;
+import org.objectweb.asm.Label;
 import org.objectweb.asm.MethodVisitor;
 import org.objectweb.asm.Opcodes;
 import org.objectweb.asm.Type;
@@ -17,9 +19,16 @@ import org.objectweb.asm.commons.Method;
 
 import java.text.MessageFormat;
 import java.util.OptionalInt;
+import java.util.regex.Matcher;
+import java.util.regex.Pattern;
 
 public class LoggingHelper {
     public static final String UNINITIALIZED_THIS = "<uninitializedThis>";
+    private static final Pattern ID_PATTERN = Pattern.compile("^[mf](\\d{1,9})$");
+    private static final Type OBJECT_TYPE = Type.getType(Object.class);
+    private static final Type STRING_TYPE = Type.getType(String.class);
+    private static final Type ARRAY_ACTION_TYPE = Type.getType(Logger.ArrayAction.class);
+    private static final Type FIELD_ACTION_TYPE = Type.getType(Logger.FieldAction.class);
     private static final String LOGGER;
     private static final String LOGGER_INITIALIZER;
     private static final Method LOGGER_INITIALIZER_INITIALIZE;
@@ -28,10 +37,13 @@ public class LoggingHelper {
     private static final Method LOG_EXCEPTION;
     private static final Method LOG_FIELD;
     private static final Method LOG_METHOD_CALL;
+    private static final Method LOG_METHOD_COVERAGE;
     private static final Method LOG_METHOD_ENTRY;
     private static final Method LOG_METHOD_EXIT;
     private static final Method LOG_RETURN;
     private static final Method LOG_STRING;
+    private static final String TRACE_SWITCH;
+    private static final String TRACE_SWITCH_ENABLED_KINDS;
 
     static {
         try {
@@ -42,6 +54,7 @@ public class LoggingHelper {
             LOG_ARGUMENT = Method.getMethod(Logger.class.getMethod("logArgument", Byte.TYPE, String.class));
             LOG_RETURN = Method.getMethod(Logger.class.getMethod("logReturn", String.class));
             LOG_METHOD_CALL = Method.getMethod(Logger.class.getMethod("logMethodCall", String.class));
+            LOG_METHOD_COVERAGE = Method.getMethod(Logger.class.getMethod("logMethodCoverage", Integer.TYPE));
             LOG_FIELD = Method.getMethod(Logger.class.getMethod("logField", Object.class, String.class, String.class,
                     Logger.FieldAction.class));
             LOG_ARRAY = Method.getMethod(Logger.class.getMethod("logArray", Object.class, Integer.TYPE, String.class,
@@ -49,7 +62,9 @@ public class LoggingHelper {
             LOG_EXCEPTION = Method.getMethod(Logger.class.getMethod("logException", Throwable.class));
             LOGGER_INITIALIZER = LoggerInitializer.class.getName().replace("" + ".", "/");
             LOGGER_INITIALIZER_INITIALIZE = Method.getMethod(LoggerInitializer.class.getMethod("initialize"));
-        } catch (final NoSuchMethodException | SecurityException _ex) {
+            TRACE_SWITCH = TraceSwitch.class.getName().replace(".", "/");
+            TRACE_SWITCH_ENABLED_KINDS = TraceSwitch.class.getField("enabledKinds").getName();
+        } catch (final NoSuchMethodException | NoSuchFieldException | SecurityException _ex) {
             throw new RuntimeException(_ex);
         }
     }
@@ -130,18 +145,18 @@ public class LoggingHelper {
         } else {
             mv.visitLdcInsn(Logger.UNINITIALIZED_THIS);
         }
-        emitConvertToString(mv, argType);
 
-        emitInvokeLog(mv, LOG_ARGUMENT);
+        emitInvokeLog(mv, LOG_ARGUMENT.getName(), Type.BYTE_TYPE, getValueType(argType));
 
         return _typeLength;
     }
 
-    public static void emitLogArray(final MethodVisitor mv, final Logger.ArrayAction action) {
-        final Type _a = Type.getType(Logger.ArrayAction.class);
+    public static void emitLogArray(final MethodVisitor mv, final Type valueType, final Logger.ArrayAction action) {
         final String _name = action.toString();
-        mv.visitFieldInsn(Opcodes.GETSTATIC, _a.getInternalName(), _name, _a.getDescriptor());
-        emitInvokeLog(mv, LOG_ARRAY);
+        mv.visitFieldInsn(Opcodes.GETSTATIC, ARRAY_ACTION_TYPE.getInternalName(), _name,
+                ARRAY_ACTION_TYPE.getDescriptor());
+        emitInvokeLog(mv, LOG_ARRAY.getName(), OBJECT_TYPE, Type.INT_TYPE, getValueType(valueType),
+                ARRAY_ACTION_TYPE);
     }
 
     public static void emitLogException(final MethodVisitor mv) {
@@ -158,30 +173,69 @@ public class LoggingHelper {
             mv.visitInsn(Opcodes.DUP_X1);
         }
 
-        emitConvertToString(mv, fieldType);
-        mv.visitLdcInsn(fieldName);
+        final OptionalInt _fieldId = getId(fieldName);
+        if (_fieldId.isPresent()) {
+            mv.visitLdcInsn(_fieldId.getAsInt());
+        } else {
+            emitConvertToString(mv, fieldType);
+            mv.visitLdcInsn(fieldName);
+        }
 
-        final Type _a = Type.getType(Logger.FieldAction.class);
         final String _name = action.toString();
-        mv.visitFieldInsn(Opcodes.GETSTATIC, _a.getInternalName(), _name, _a.getDescriptor());
-        emitInvokeLog(mv, LOG_FIELD);
+        mv.visitFieldInsn(Opcodes.GETSTATIC, FIELD_ACTION_TYPE.getInternalName(), _name,
+                FIELD_ACTION_TYPE.getDescriptor());
+        if (_fieldId.isPresent())
+            emitInvokeLog(mv, LOG_FIELD.getName(), OBJECT_TYPE, getValueType(fieldType), Type.INT_TYPE,
+                    FIELD_ACTION_TYPE);
+        else
+            emitInvokeLog(mv, LOG_FIELD);
     }
 
     public static void emitLogMethodCall(final MethodVisitor mv, final String methodId, final int callsiteId) {
-        final String _stmt = MessageFormat.format("{0},{1}", methodId, callsiteId);
-        mv.visitLdcInsn(_stmt);
-        emitInvokeLog(mv, LOG_METHOD_CALL);
+        final OptionalInt _methodId = getId(methodId);
+        if (_methodId.isPresent()) {
+            mv.visitLdcInsn(_methodId.getAsInt());
+            mv.visitLdcInsn(callsiteId);
+            emitInvokeLog(mv, LOG_METHOD_CALL.getName(), Type.INT_TYPE, Type.INT_TYPE);
+        } else {
+            final String _stmt = MessageFormat.format("{0},{1}", methodId, String.valueOf(callsiteId));
+            mv.visitLdcInsn(_stmt);
+            emitInvokeLog(mv, LOG_METHOD_CALL);
+        }
+    }
+
+    public static void emitLogMethodCoverage(final MethodVisitor mv, final String methodId) {
+        final OptionalInt _methodId = getId(methodId);
+        if (_methodId.isPresent()) {
+            mv.visitLdcInsn(_methodId.getAsInt());
+            emitInvokeLog(mv, LOG_METHOD_COVERAGE);
+        } else {
+            emitLogString(mv, MessageFormat.format("{0},{1}", Logger.METHOD_COVERAGE_TAG, methodId));
+        }
     }
 
     public static void emitLogMethodEntry(final MethodVisitor mv, final String methodId) {
-        mv.visitLdcInsn(methodId);
-        emitInvokeLog(mv, LOG_METHOD_ENTRY);
+        final OptionalInt _methodId = getId(methodId);
+        if (_methodId.isPresent()) {
+            mv.visitLdcInsn(_methodId.getAsInt());
+            emitInvokeLog(mv, LOG_METHOD_ENTRY.getName(), Type.INT_TYPE);
+        } else {
+            mv.visitLdcInsn(methodId);
+            emitInvokeLog(mv, LOG_METHOD_ENTRY);
+        }
     }
 
     public static void emitLogMethodExit(final MethodVisitor mv, final String methodId, final ExitKind exitKind) {
-        mv.visitLdcInsn(methodId);
-        mv.visitLdcInsn(exitKind.getAbbreviatedName());
-        emitInvokeLog(mv, LOG_METHOD_EXIT);
+        final OptionalInt _methodId = getId(methodId);
+        if (_methodId.isPresent()) {
+            mv.visitLdcInsn(_methodId.getAsInt());
+            mv.visitLdcInsn(exitKind.getAbbreviatedName());
+            emitInvokeLog(mv, LOG_METHOD_EXIT.getName(), Type.INT_TYPE, STRING_TYPE);
+        } else {
+            mv.visitLdcInsn(methodId);
+            mv.visitLdcInsn(exitKind.getAbbreviatedName());
+            emitInvokeLog(mv, LOG_METHOD_EXIT);
+        }
     }
 
     public static void emitLogReturn(final MethodVisitor mv, final Type returnType) {
@@ -192,8 +246,7 @@ public class LoggingHelper {
             } else {
                 mv.visitInsn(Opcodes.DUP);
             }
-            emitConvertToString(mv, returnType);
-            emitInvokeLog(mv, LOG_RETURN);
+            emitInvokeLog(mv, LOG_RETURN.getName(), getValueType(returnType));
         }
     }
 
@@ -202,6 +255,19 @@ public class LoggingHelper {
         emitInvokeLog(mv, LOG_STRING);
     }
 
+    /*
+     * Emits a test of the given kind of events (see TraceSwitch) and returns the label to which the emitted code
+     * jumps if the kind is not traced.  The label should be visited after the code that logs the events.
+     */
+    public static Label emitTraceGuard(final MethodVisitor mv, final int kind) {
+        final Label _ret = new Label();
+        mv.visitFieldInsn(Opcodes.GETSTATIC, TRACE_SWITCH, TRACE_SWITCH_ENABLED_KINDS, Type.INT_TYPE.getDescriptor());
+        mv.visitLdcInsn(kind);
+        mv.visitInsn(Opcodes.IAND);
+        mv.visitJumpInsn(Opcodes.IFEQ, _ret);
+        return _ret;
+    }
+
     public static void emitSwapOneWordAndTwoWords(final MethodVisitor mv, final Type tos) {
         if (tos.getSort() == Type.LONG || tos.getSort() == Type.DOUBLE) {
             mv.visitInsn(Opcodes.DUP_X2);
@@ -229,6 +295,27 @@ public class LoggingHelper {
         mv.visitMethodInsn(Opcodes.INVOKESTATIC, LOGGER, method.getName(), method.getDescriptor(), false);
     }
 
+    private static void emitInvokeLog(final MethodVisitor mv, final String name, final Type... argTypes) {
+        emitInvokeLog(mv, new Method(name, Type.VOID_TYPE, argTypes));
+    }
+
+    /*
+     * INFO
+     *
+     * Logger provides overloads of logging methods that accept primitive values and int ids of methods and fields
+     * to log them without creating strings.  Since the ids of methods and fields are of the form m<n> and f<n>, the
+     * instrumentation uses these overloads whenever n fits in an int.
+     */
+    private static OptionalInt getId(final String id) {
+        final Matcher _matcher = ID_PATTERN.matcher(id);
+        return _matcher.matches() ? OptionalInt.of(Integer.parseInt(_matcher.group(1))) : OptionalInt.empty();
+    }
+
+    private static Type getValueType(final Type type) {
+        final int _sort = type.getSort();
+        return _sort == Type.ARRAY || _sort == Type.OBJECT ? OBJECT_TYPE : type;
+    }
+
     public enum ExitKind {
         NORMAL,
         EXCEPTIONAL;
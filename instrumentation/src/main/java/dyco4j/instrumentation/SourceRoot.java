@@ -0,0 +1,166 @@
+/*
+ * Copyright (c) 2017, Venkatesh-Prasad Ranganath
+ *
+ * BSD 3-clause License
+ *
+ * Author: Venkatesh-Prasad Ranganath (rvprasad)
+ */
+
+package dyco4j.instrumentation;
+
+import java.io.*;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.Collections;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.function.Consumer;
+import java.util.stream.Collectors;
+import java.util.stream.Stream;
+import java.util.zip.ZipEntry;
+import java.util.zip.ZipFile;
+
+/*
+ * INFO
+ *
+ * A source root is a folder or an archive (jar or zip) containing classes (and other files) to be instrumented.  The
+ * files in a source root are listed once when it is opened.  The bytecode of classes read by forEachClass() is held
+ * in memory (up to a limit shared by the source roots opened together) until it is read by getClassBytes().  So, when
+ * classes are read to collect information and then instrumented, each class is read from the disk only once unless
+ * the limit is exceeded.
+ *
+ * Methods of this class are thread-safe.
+ */
+public final class SourceRoot implements Closeable {
+    private final Path path;
+    private final ZipFile archive;
+    private final List<String> names;
+    private final Map<String, byte[]> name2bytes = new ConcurrentHashMap<>();
+    private final AtomicLong cacheBudget;
+
+    private SourceRoot(final Path path, final AtomicLong cacheBudget) throws IOException {
+        this.path = path;
+        this.cacheBudget = cacheBudget;
+        if (Helper.isArchive(path)) {
+            this.archive = new ZipFile(path.toFile());
+            this.names = Collections.unmodifiableList(this.archive.stream().map(ZipEntry::getName)
+                    .collect(Collectors.toList()));
+        } else {
+            this.archive = null;
+            try (final Stream<Path> _tmp = Files.walk(path)) {
+                this.names = Collections.unmodifiableList(_tmp.filter(Files::isRegularFile)
+                        .map(p -> path.relativize(p).toString().replace(File.separatorChar, '/'))
+                        .collect(Collectors.toList()));
+            }
+        }
+    }
+
+    /**
+     * @param cacheLength is the number of bytes of bytecode held in memory across the given source roots.
+     */
+    public static List<SourceRoot> open(final Collection<Path> paths, final long cacheLength) throws IOException {
+        final AtomicLong _cacheBudget = new AtomicLong(cacheLength);
+        final List<SourceRoot> _ret = new ArrayList<>();
+        try {
+            for (final Path _path : paths)
+                _ret.add(new SourceRoot(_path, _cacheBudget));
+        } catch (final IOException _ex) {
+            closeAll(_ret);
+            throw _ex;
+        }
+        return _ret;
+    }
+
+    public static void closeAll(final Collection<SourceRoot> sourceRoots) throws IOException {
+        for (final SourceRoot _tmp : sourceRoots)
+            _tmp.close();
+    }
+
+    public Path getPath() {
+        return this.path;
+    }
+
+    public boolean isArchive() {
+        return this.archive != null;
+    }
+
+    /*
+     * Returns the names of the files (or entries) in this source root relative to the source root and separated by /.
+     */
+    public List<String> getNames() {
+        return this.names;
+    }
+
+    /*
+     * Calls the given consumer with the bytecode of each class in this source root.  The consumer is called in
+     * parallel.
+     */
+    public void forEachClass(final Consumer<byte[]> consumer) {
+        this.names.parallelStream().filter(Helper::isClassFile).forEach(n -> {
+            try {
+                final byte[] _tmp = read(n);
+                if (this.cacheBudget.addAndGet(-_tmp.length) >= 0)
+                    this.name2bytes.put(n, _tmp);
+                else
+                    this.cacheBudget.addAndGet(_tmp.length);
+                consumer.accept(_tmp);
+            } catch (final IOException _ex) {
+                throw new UncheckedIOException(_ex);
+            }
+        });
+    }
+
+    /*
+     * Returns the bytecode of the given class.  If the bytecode is held in memory, it is released.
+     */
+    public byte[] getClassBytes(final String name) throws IOException {
+        final byte[] _ret = this.name2bytes.remove(name);
+        if (_ret == null)
+            return read(name);
+
+        this.cacheBudget.addAndGet(_ret.length);
+        return _ret;
+    }
+
+    /*
+     * Releases the bytecode of the given class if it is held in memory, e.g., when the class will not be read by
+     * getClassBytes().
+     */
+    public void release(final String name) {
+        final byte[] _tmp = this.name2bytes.remove(name);
+        if (_tmp != null)
+            this.cacheBudget.addAndGet(_tmp.length);
+    }
+
+    /*
+     * Returns the properties of the given file as an archive entry.
+     */
+    public ZipEntry getEntry(final String name) {
+        return this.archive == null ? new ZipEntry(name) : this.archive.getEntry(name);
+    }
+
+    public InputStream open(final String name) throws IOException {
+        return this.archive == null ? Files.newInputStream(this.path.resolve(name)) :
+                this.archive.getInputStream(this.archive.getEntry(name));
+    }
+
+    @Override
+    public void close() throws IOException {
+        this.name2bytes.clear();
+        if (this.archive != null)
+            this.archive.close();
+    }
+
+    private byte[] read(final String name) throws IOException {
+        if (this.archive == null)
+            return Files.readAllBytes(this.path.resolve(name));
+
+        try (final InputStream _in = open(name)) {
+            return Helper.readAllBytes(_in);
+        }
+    }
+}
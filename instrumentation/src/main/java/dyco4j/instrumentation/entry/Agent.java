@@ -0,0 +1,83 @@
+/*
+ * Copyright (c) 2017, Venkatesh-Prasad Ranganath
+ *
+ * BSD 3-clause License
+ *
+ * Author: Venkatesh-Prasad Ranganath (rvprasad)
+ */
+package dyco4j.instrumentation.entry;
+
+import org.objectweb.asm.ClassReader;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import java.lang.instrument.ClassFileTransformer;
+import java.lang.instrument.Instrumentation;
+import java.nio.file.Path;
+import java.security.ProtectionDomain;
+import java.text.MessageFormat;
+import java.util.Collection;
+import java.util.Map;
+
+import static dyco4j.instrumentation.Helper.parseAgentArgs;
+import static dyco4j.instrumentation.Helper.parsePaths;
+import static dyco4j.instrumentation.Helper.shouldInstrumentLoadedClass;
+
+/*
+ * INFO
+ *
+ * This agent instruments classes as they are loaded, e.g., -javaagent:dyco4j-entry-cli.jar=method-name-regex=.*Test
+ * Agent arguments are comma-separated options of CLI (without --) with values given after =.  Except out-folder,
+ * the options have the same meaning as in CLI; in-folder is optional and restricts instrumentation to the classes
+ * loaded from the given folders (or jars) separated by the path separator.
+ *
+ * When attached to a running JVM, only the classes loaded after the agent is attached are instrumented.
+ */
+public final class Agent {
+    private static final Logger LOGGER = LoggerFactory.getLogger(Agent.class);
+
+    private Agent() {
+    }
+
+    public static void premain(final String agentArgs, final Instrumentation instrumentation) {
+        final Map<String, String> _args = parseAgentArgs(agentArgs);
+        final Collection<Path> _inFolders = parsePaths(_args.get(CLI.IN_FOLDER_OPTION));
+        final String _methodNameRegex = _args.getOrDefault(CLI.METHOD_NAME_REGEX_OPTION, CLI.METHOD_NAME_REGEX);
+        final boolean _onlyAnnotatedTests = _args.containsKey(CLI.ONLY_ANNOTATED_TESTS_OPTION);
+        instrumentation.addTransformer(new Transformer(_inFolders, _methodNameRegex, _onlyAnnotatedTests));
+    }
+
+    public static void agentmain(final String agentArgs, final Instrumentation instrumentation) {
+        premain(agentArgs, instrumentation);
+    }
+
+    private static final class Transformer implements ClassFileTransformer {
+        private final Collection<Path> inFolders;
+        private final String methodNameRegex;
+        private final boolean onlyAnnotatedTests;
+
+        Transformer(final Collection<Path> inFolders, final String methodNameRegex,
+                    final boolean onlyAnnotatedTests) {
+            this.inFolders = inFolders;
+            this.methodNameRegex = methodNameRegex;
+            this.onlyAnnotatedTests = onlyAnnotatedTests;
+        }
+
+        @Override
+        public byte[] transform(final ClassLoader loader, final String className, final Class<?> classBeingRedefined,
+                                final ProtectionDomain protectionDomain, final byte[] classfileBuffer) {
+            if (classBeingRedefined != null ||
+                    !shouldInstrumentLoadedClass(className, loader, protectionDomain, this.inFolders))
+                return null;
+
+            try {
+                return CLI.instrumentClass(new ClassReader(classfileBuffer), this.methodNameRegex,
+                        this.onlyAnnotatedTests);
+            } catch (final RuntimeException _ex) {
+                // INFO: exceptions thrown by transformers are silently dropped by the JVM
+                LOGGER.warn(MessageFormat.format("Could not instrument {0}", className), _ex);
+                return null;
+            }
+        }
+    }
+}
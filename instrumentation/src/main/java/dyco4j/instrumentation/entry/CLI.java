@@ -8,20 +8,20 @@
 package dyco4j.instrumentation.entry;
 
 import dyco4j.instrumentation.LoggerInitializingClassVisitor;
+import dyco4j.instrumentation.SourceRoot;
 import org.apache.commons.cli.*;
 import org.objectweb.asm.ClassReader;
 import org.objectweb.asm.ClassVisitor;
 import org.objectweb.asm.ClassWriter;
 
 import java.io.IOException;
-import java.nio.file.Files;
 import java.nio.file.Path;
 import java.nio.file.Paths;
 import java.text.MessageFormat;
-import java.util.function.BiConsumer;
-import java.util.function.Predicate;
+import java.util.List;
 
-import static dyco4j.instrumentation.Helper.processFiles;
+import static dyco4j.instrumentation.Helper.parsePaths;
+import static dyco4j.instrumentation.Helper.processRoots;
 import static org.objectweb.asm.Opcodes.ASM5;
 
 public final class CLI {
@@ -30,14 +30,15 @@ public final class CLI {
     static final String OUT_FOLDER_OPTION = "out-folder";
     static final String METHOD_NAME_REGEX_OPTION = "method-name-regex";
     static final String ONLY_ANNOTATED_TESTS_OPTION = "only-annotated-tests";
-    private final static String METHOD_NAME_REGEX = "^test.*";
+    final static String METHOD_NAME_REGEX = "^test.*";
 
     public static void main(final String[] args) throws IOException {
         final Options _options = new Options();
         _options.addOption(Option.builder().longOpt(IN_FOLDER_OPTION).required().hasArg()
-                                 .desc("Folder containing the classes (as descendants) to be instrumented.").build());
+                                 .desc("Folders or jars (separated by the path separator) containing the classes to be " +
+                                       "instrumented.").build());
         _options.addOption(Option.builder().longOpt(OUT_FOLDER_OPTION).required().hasArg()
-                                 .desc("Folder containing the classes (as descendants) with instrumentation.").build());
+                                 .desc("Folder or jar to contain the classes with instrumentation.").build());
         final String _msg = MessageFormat
                 .format("Regex identifying the methods to be instrumented. Default: {0}.", METHOD_NAME_REGEX);
         _options.addOption(Option.builder().longOpt(METHOD_NAME_REGEX_OPTION).hasArg(true).desc(_msg).build());
@@ -52,36 +53,28 @@ public final class CLI {
     }
 
     private static void processCommandLine(final CommandLine cmdLine) throws IOException {
-        final Path _srcRoot = Paths.get(cmdLine.getOptionValue(IN_FOLDER_OPTION));
         final Path _trgRoot = Paths.get(cmdLine.getOptionValue(OUT_FOLDER_OPTION));
-
-        final Predicate<Path> _nonClassFileSelector = p -> !p.toString().endsWith(".class") && Files.isRegularFile(p);
-        final BiConsumer<Path, Path> _fileCopier = (srcPath, trgPath) -> {
-            try {
-                Files.copy(srcPath, trgPath);
-            } catch (final IOException _ex) {
-                throw new RuntimeException(_ex);
-            }
-        };
-        processFiles(_srcRoot, _trgRoot, _nonClassFileSelector, _fileCopier);
-
-        final Predicate<Path> _classFileSelector = p -> p.toString().endsWith(".class");
         final String _methodNameRegex = cmdLine.getOptionValue(METHOD_NAME_REGEX_OPTION, METHOD_NAME_REGEX);
         final Boolean _onlyAnnotatedTests = cmdLine.hasOption(ONLY_ANNOTATED_TESTS_OPTION);
-        final BiConsumer<Path, Path> _classInstrumenter = (srcPath, trgPath) -> {
-            try {
-                final byte[] _bytecode = Files.readAllBytes(srcPath);
-                final ClassReader _cr = new ClassReader(_bytecode);
-                final ClassWriter _cw = new ClassWriter(_cr, ClassWriter.COMPUTE_MAXS);
-                final ClassVisitor _cv1 = new LoggerInitializingClassVisitor(CLI.ASM_VERSION, _cw);
-                final ClassVisitor _cv2 = new TracingClassVisitor(_cv1, _methodNameRegex, _onlyAnnotatedTests);
-                _cr.accept(_cv2, 0);
-                final byte[] _out = _cw.toByteArray();
-                Files.write(trgPath, _out);
-            } catch (final IOException _ex) {
-                throw new RuntimeException(_ex);
-            }
-        };
-        processFiles(_srcRoot, _trgRoot, _classFileSelector, _classInstrumenter);
+        // INFO: classes are read only once; so, their bytecode is not held in memory
+        final List<SourceRoot> _srcRoots = SourceRoot.open(parsePaths(cmdLine.getOptionValue(IN_FOLDER_OPTION)), 0);
+        try {
+            processRoots(_srcRoots, _trgRoot,
+                    b -> instrumentClass(new ClassReader(b), _methodNameRegex, _onlyAnnotatedTests));
+        } finally {
+            SourceRoot.closeAll(_srcRoots);
+        }
+    }
+
+    /*
+     * Returns the instrumented version of the given class.  This is used by both CLI and Agent.
+     */
+    static byte[] instrumentClass(final ClassReader cr, final String methodNameRegex,
+                                  final boolean onlyAnnotatedTests) {
+        final ClassWriter _cw = new ClassWriter(cr, ClassWriter.COMPUTE_MAXS);
+        final ClassVisitor _cv1 = new LoggerInitializingClassVisitor(CLI.ASM_VERSION, _cw);
+        final ClassVisitor _cv2 = new TracingClassVisitor(_cv1, methodNameRegex, onlyAnnotatedTests);
+        cr.accept(_cv2, 0);
+        return _cw.toByteArray();
     }
 }
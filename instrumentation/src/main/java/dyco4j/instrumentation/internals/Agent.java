@@ -0,0 +1,120 @@
+/*
+ * Copyright (c) 2017, Venkatesh-Prasad Ranganath
+ *
+ * BSD 3-clause License
+ *
+ * Author: Venkatesh-Prasad Ranganath (rvprasad)
+ */
+
+package dyco4j.instrumentation.internals;
+
+import dyco4j.instrumentation.ClassLoaderAwareClassWriter;
+import dyco4j.utility.ProgramData;
+import org.objectweb.asm.ClassReader;
+import org.objectweb.asm.ClassWriter;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import java.io.IOException;
+import java.lang.instrument.ClassFileTransformer;
+import java.lang.instrument.Instrumentation;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.security.ProtectionDomain;
+import java.text.MessageFormat;
+import java.util.Collection;
+import java.util.Map;
+
+import static dyco4j.instrumentation.Helper.parseAgentArgs;
+import static dyco4j.instrumentation.Helper.parsePaths;
+import static dyco4j.instrumentation.Helper.shouldInstrumentLoadedClass;
+
+/*
+ * INFO
+ *
+ * This agent instruments classes as they are loaded, e.g., -javaagent:dyco4j-internals-cli.jar=trace-field-access
+ * Agent arguments are comma-separated options of CLI (without --) with values given after =.  Except out-folder and
+ * classpath-config, the options have the same meaning as in CLI; in-folder is optional and restricts
+ * instrumentation to the classes loaded from the given folders (or jars) separated by the path separator.
+ *
+ * Program data is loaded from program_data.json in the current folder at start up.  As each class is loaded, the
+ * data about the class is collected and merged into the program data (new members get new ids) and the class is
+ * instrumented with the merged ids.  The program data is saved at exit.
+ *
+ * When attached to a running JVM, only the classes loaded after the agent is attached are instrumented.
+ */
+public final class Agent {
+    private static final Logger LOGGER = LoggerFactory.getLogger(Agent.class);
+
+    private Agent() {
+    }
+
+    public static void premain(final String agentArgs, final Instrumentation instrumentation) throws IOException {
+        final Map<String, String> _args = parseAgentArgs(agentArgs);
+        final Collection<Path> _inFolders = parsePaths(_args.get(CLI.IN_FOLDER_OPTION));
+        final String _methodNameRegex = _args.getOrDefault(CLI.METHOD_NAME_REGEX_OPTION, CLI.METHOD_NAME_REGEX);
+        final CLI.CommandLineOptions _cmdLineOptions =
+                new CLI.CommandLineOptions(_args.containsKey(CLI.TRACE_ARRAY_ACCESS_OPTION),
+                        _args.containsKey(CLI.TRACE_FIELD_ACCESS_OPTION),
+                        _args.containsKey(CLI.TRACE_METHOD_ARGUMENTS_OPTION),
+                        _args.containsKey(CLI.TRACE_METHOD_CALL_OPTION),
+                        _args.containsKey(CLI.TRACE_METHOD_RETURN_VALUE_OPTION),
+                        _args.containsKey(CLI.COVER_METHODS_OPTION));
+
+        final Path _programDataFile = Paths.get(CLI.PROGRAM_DATA_FILE_NAME);
+        final ProgramData _programData = ProgramData.loadData(_programDataFile);
+        Runtime.getRuntime().addShutdownHook(new Thread(() -> {
+            try {
+                synchronized (_programData) {
+                    ProgramData.saveData(_programData, _programDataFile);
+                }
+            } catch (final IOException _ex) {
+                LOGGER.error(MessageFormat.format("Could not save {0}", _programDataFile), _ex);
+            }
+        }));
+
+        instrumentation.addTransformer(new Transformer(_inFolders, _methodNameRegex, _cmdLineOptions,
+                _programData));
+    }
+
+    public static void agentmain(final String agentArgs, final Instrumentation instrumentation) throws IOException {
+        premain(agentArgs, instrumentation);
+    }
+
+    private static final class Transformer implements ClassFileTransformer {
+        private final Collection<Path> inFolders;
+        private final String methodNameRegex;
+        private final CLI.CommandLineOptions cmdLineOptions;
+        private final ProgramData programData;
+
+        Transformer(final Collection<Path> inFolders, final String methodNameRegex,
+                    final CLI.CommandLineOptions cmdLineOptions, final ProgramData programData) {
+            this.inFolders = inFolders;
+            this.methodNameRegex = methodNameRegex;
+            this.cmdLineOptions = cmdLineOptions;
+            this.programData = programData;
+        }
+
+        @Override
+        public byte[] transform(final ClassLoader loader, final String className, final Class<?> classBeingRedefined,
+                                final ProtectionDomain protectionDomain, final byte[] classfileBuffer) {
+            if (classBeingRedefined != null ||
+                    !shouldInstrumentLoadedClass(className, loader, protectionDomain, this.inFolders))
+                return null;
+
+            try {
+                final ClassReader _cr = new ClassReader(classfileBuffer);
+                final ProgramData _classData = new ProgramData();
+                _cr.accept(new ProgramDataCollectingClassVisitor(_classData), 0);
+                final ProgramData _mergedClassData = CLI.mergeProgramData(this.programData, _classData);
+
+                final ClassWriter _cw = new ClassLoaderAwareClassWriter(_cr, ClassWriter.COMPUTE_FRAMES, loader);
+                return CLI.instrumentClass(_cr, _cw, _mergedClassData, this.methodNameRegex, this.cmdLineOptions);
+            } catch (final RuntimeException _ex) {
+                // INFO: exceptions thrown by transformers are silently dropped by the JVM
+                LOGGER.warn(MessageFormat.format("Could not instrument {0}", className), _ex);
+                return null;
+            }
+        }
+    }
+}
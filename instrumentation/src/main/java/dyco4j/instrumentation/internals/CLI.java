@@ -9,6 +9,7 @@
 package dyco4j.instrumentation.internals;
 
 import dyco4j.instrumentation.LoggerInitializingClassVisitor;
+import dyco4j.instrumentation.SourceRoot;
 import dyco4j.utility.ProgramData;
 import org.apache.commons.cli.*;
 import org.objectweb.asm.ClassReader;
@@ -28,16 +29,15 @@ import java.nio.file.Files;
 import java.nio.file.Path;
 import java.nio.file.Paths;
 import java.text.MessageFormat;
-import java.util.Collection;
-import java.util.Collections;
-import java.util.Map;
-import java.util.Set;
-import java.util.function.BiConsumer;
-import java.util.function.Predicate;
-import java.util.stream.Collectors;
-import java.util.stream.Stream;
-
-import static dyco4j.instrumentation.Helper.processFiles;
+import java.util.*;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentMap;
+import java.util.concurrent.ConcurrentNavigableMap;
+import java.util.concurrent.ConcurrentSkipListMap;
+import java.util.function.Supplier;
+
+import static dyco4j.instrumentation.Helper.parsePaths;
+import static dyco4j.instrumentation.Helper.processRoots;
 import static org.objectweb.asm.Opcodes.ASM5;
 
 public final class CLI {
@@ -52,15 +52,20 @@ public final class CLI {
     static final String TRACE_METHOD_ARGUMENTS_OPTION = "trace-method-arguments";
     static final String TRACE_METHOD_CALL_OPTION = "trace-method-call";
     static final String TRACE_METHOD_RETURN_VALUE_OPTION = "trace-method-return-value";
-    private static final String METHOD_NAME_REGEX = ".*";
+    static final String COVER_METHODS_OPTION = "cover-methods";
+    static final String CACHE_FOLDER_OPTION = "cache-folder";
+    static final String METHOD_NAME_REGEX = ".*";
+    // INFO: the number of bytes of bytecode read while collecting program data that is held for instrumentation
+    private static final long CLASS_BYTES_CACHE_LENGTH = 268435456;
     private static final Logger LOGGER = LoggerFactory.getLogger(CLI.class);
 
     public static void main(final String[] args) throws IOException {
         final Options _options = new Options();
         _options.addOption(Option.builder().longOpt(IN_FOLDER_OPTION).required().hasArg(true)
-                .desc("Folders containing the classes to be instrumented.").build());
+                .desc("Folders or jars (separated by the path separator) containing the classes to be instrumented.")
+                .build());
         _options.addOption(Option.builder().longOpt(OUT_FOLDER_OPTION).required().hasArg(true)
-                .desc("Folder containing the classes (as descendants) with instrumentation.").build());
+                .desc("Folder or jar to contain the classes with instrumentation.").build());
         _options.addOption(Option.builder().longOpt(CLASSPATH_CONFIG_OPTION).hasArg(true)
                 .desc("File containing class path (1 entry per line) used by classes to be instrumented.")
                 .build());
@@ -77,6 +82,12 @@ public final class CLI {
                 .desc("Instrument to trace method calls (compile-time signatures).").build());
         _options.addOption(Option.builder().longOpt(TRACE_METHOD_RETURN_VALUE_OPTION).hasArg(false)
                 .desc("Instrument to trace method return values.").build());
+        _options.addOption(Option.builder().longOpt(COVER_METHODS_OPTION).hasArg(false)
+                .desc("Instrument to only record covered methods in a bitmap. Other trace options are ignored.")
+                .build());
+        _options.addOption(Option.builder().longOpt(CACHE_FOLDER_OPTION).hasArg(true)
+                .desc("Folder to cache instrumented classes across invocations. Only changed classes are " +
+                        "instrumented.").build());
 
         try {
             final CommandLine _cmdLine = new DefaultParser().parse(_options, args);
@@ -93,7 +104,8 @@ public final class CLI {
             final Class<URLClassLoader> _urlClass = URLClassLoader.class;
             final Method _method = _urlClass.getDeclaredMethod("addURL", URL.class);
             _method.setAccessible(true);
-            addEntryToClassPath(_urlClassLoader, _method, cmdLine.getOptionValue(IN_FOLDER_OPTION));
+            for (final Path _p : parsePaths(cmdLine.getOptionValue(IN_FOLDER_OPTION)))
+                addEntryToClassPath(_urlClassLoader, _method, _p.toString());
             final String _classpathConfig = cmdLine.getOptionValue(CLASSPATH_CONFIG_OPTION);
             if (_classpathConfig != null) {
                 for (final String _s : Files.readAllLines(Paths.get(_classpathConfig))) {
@@ -117,72 +129,122 @@ public final class CLI {
     }
 
     private static void processCommandLine(final CommandLine cmdLine) throws IOException {
-        final Path _srcRoot = Paths.get(cmdLine.getOptionValue(IN_FOLDER_OPTION));
         final Path _trgRoot = Paths.get(cmdLine.getOptionValue(OUT_FOLDER_OPTION));
 
-        final Predicate<Path> _nonClassFileSelector = p -> !p.toString().endsWith(".class") && Files.isRegularFile(p);
-        final BiConsumer<Path, Path> _fileCopier = (srcPath, trgPath) -> {
-            try {
-                Files.copy(srcPath, trgPath);
-            } catch (final IOException _ex) {
-                throw new RuntimeException(_ex);
-            }
-        };
-        processFiles(_srcRoot, _trgRoot, _nonClassFileSelector, _fileCopier);
-
         final CommandLineOptions _cmdLineOptions =
                 new CommandLineOptions(cmdLine.hasOption(TRACE_ARRAY_ACCESS_OPTION),
                         cmdLine.hasOption(TRACE_FIELD_ACCESS_OPTION),
                         cmdLine.hasOption(TRACE_METHOD_ARGUMENTS_OPTION),
                         cmdLine.hasOption(TRACE_METHOD_CALL_OPTION),
-                        cmdLine.hasOption(TRACE_METHOD_RETURN_VALUE_OPTION));
-        final Set<Path> _filenames = getFilenames(_srcRoot);
+                        cmdLine.hasOption(TRACE_METHOD_RETURN_VALUE_OPTION),
+                        cmdLine.hasOption(COVER_METHODS_OPTION));
         final Path _programDataFile = Paths.get(PROGRAM_DATA_FILE_NAME);
         final ProgramData _programData = ProgramData.loadData(_programDataFile);
-        getMemberId2NameMapping(_filenames, _programData);
-
-        final Predicate<Path> _classFileSelector = p -> p.toString().endsWith(".class");
         final String _methodNameRegex = cmdLine.getOptionValue(METHOD_NAME_REGEX_OPTION, METHOD_NAME_REGEX);
-        final BiConsumer<Path, Path> _classInstrumenter = (srcPath, trgPath) -> {
-            try {
-                final ClassReader _cr = new ClassReader(Files.readAllBytes(srcPath));
-                final ClassWriter _cw = new ClassWriter(_cr, ClassWriter.COMPUTE_FRAMES);
-                final Map<String, String> _shortFieldName2Id =
-                        Collections.unmodifiableMap(_programData.shortFieldName2Id);
-                final Map<String, String> _shortMethodName2Id =
-                        Collections.unmodifiableMap(_programData.shortMethodName2Id);
-                final Map<String, String> _class2superClass =
-                        Collections.unmodifiableMap(_programData.class2superClass);
-                final ClassVisitor _cv1 = new LoggerInitializingClassVisitor(CLI.ASM_VERSION, _cw);
-                final ClassVisitor _cv2 =
-                        new TracingClassVisitor(_cv1, _shortFieldName2Id, _shortMethodName2Id, _class2superClass,
-                                _methodNameRegex, _cmdLineOptions);
-                _cr.accept(_cv2, ClassReader.SKIP_FRAMES);
-
-                Files.write(trgPath, _cw.toByteArray());
-            } catch (final IOException _ex) {
-                throw new RuntimeException(_ex);
-            }
-        };
-        processFiles(_srcRoot, _trgRoot, _classFileSelector, _classInstrumenter);
+        final String _cacheFolder = cmdLine.getOptionValue(CACHE_FOLDER_OPTION);
+        final InstrumentationCache _cache = _cacheFolder == null ? null :
+                new InstrumentationCache(Paths.get(_cacheFolder), MessageFormat.format("{0},{1}",
+                        _methodNameRegex, _cmdLineOptions));
+
+        final List<SourceRoot> _srcRoots = SourceRoot.open(parsePaths(cmdLine.getOptionValue(IN_FOLDER_OPTION)),
+                CLASS_BYTES_CACHE_LENGTH);
+        try {
+            final Map<String, ProgramData> _class2Data = collectProgramData(_srcRoots, _programData);
+            processRoots(_srcRoots, _trgRoot, b -> {
+                final ClassReader _cr = new ClassReader(b);
+                final Supplier<byte[]> _instrumenter = () -> {
+                    final ClassWriter _cw = new ClassWriter(_cr, ClassWriter.COMPUTE_FRAMES);
+                    return instrumentClass(_cr, _cw, _programData, _methodNameRegex, _cmdLineOptions);
+                };
+                return _cache == null ? _instrumenter.get() :
+                        _cache.get(b, _class2Data.get(_cr.getClassName()), _instrumenter);
+            });
+        } finally {
+            SourceRoot.closeAll(_srcRoots);
+        }
+        if (_cache != null)
+            _cache.prune();
 
         ProgramData.saveData(_programData, _programDataFile);
     }
 
-    private static Set<Path> getFilenames(final Path folder) throws IOException {
-        final Stream<Path> _tmp1 = Files.walk(folder).filter(p -> p.toString().endsWith(".class"));
-        return _tmp1.collect(Collectors.toSet());
+    /*
+     * Returns the instrumented version of the given class.  The given program data should contain the ids of the
+     * members of the class and the members used in the class.  This is used by both CLI and Agent.
+     */
+    static byte[] instrumentClass(final ClassReader cr, final ClassWriter cw, final ProgramData programData,
+                                  final String methodNameRegex, final CommandLineOptions cmdLineOptions) {
+        final Map<String, String> _shortFieldName2Id = Collections.unmodifiableMap(programData.shortFieldName2Id);
+        final Map<String, String> _shortMethodName2Id = Collections.unmodifiableMap(programData.shortMethodName2Id);
+        final Map<String, String> _class2superClass = Collections.unmodifiableMap(programData.class2superClass);
+        final ClassVisitor _cv1 = new LoggerInitializingClassVisitor(CLI.ASM_VERSION, cw);
+        final ClassVisitor _cv2 = new TracingClassVisitor(_cv1, _shortFieldName2Id, _shortMethodName2Id,
+                _class2superClass, methodNameRegex, cmdLineOptions);
+        cr.accept(_cv2, ClassReader.SKIP_FRAMES);
+        return cw.toByteArray();
     }
 
-    private static void getMemberId2NameMapping(final Collection<Path> filenames, final ProgramData programData) {
-        for (final Path _arg : filenames) {
-            try {
-                final ClassReader _cr = new ClassReader(Files.readAllBytes(_arg));
-                final ClassVisitor _cv = new ProgramDataCollectingClassVisitor(programData);
-                _cr.accept(_cv, 0);
-            } catch (final Exception _ex) {
-                throw new RuntimeException(_ex);
+    /*
+     * Collects the data about the classes in the given source roots into the given program data and returns
+     * the data about each class with the ids of the program data.
+     *
+     * The data about classes is collected in parallel and then merged in the order of class names.  So, ids do not
+     * depend on the order of files or on the scheduling of threads.  If a class occurs in more than one folder or
+     * archive, the first occurrence is used.
+     */
+    private static Map<String, ProgramData> collectProgramData(final Collection<SourceRoot> srcRoots,
+                                                               final ProgramData programData) {
+        final ConcurrentNavigableMap<String, ProgramData> _class2Data = new ConcurrentSkipListMap<>();
+        for (final SourceRoot _srcRoot : srcRoots) {
+            final ConcurrentMap<String, ProgramData> _tmp = new ConcurrentHashMap<>();
+            _srcRoot.forEachClass(b -> {
+                final ClassReader _cr = new ClassReader(b);
+                final ProgramData _classData = new ProgramData();
+                _cr.accept(new ProgramDataCollectingClassVisitor(_classData), 0);
+                _tmp.putIfAbsent(_cr.getClassName(), _classData);
+            });
+            _tmp.forEach(_class2Data::putIfAbsent);
+        }
+
+        final Map<String, ProgramData> _ret = new HashMap<>();
+        for (final Map.Entry<String, ProgramData> _e : _class2Data.entrySet())
+            _ret.put(_e.getKey(), mergeProgramData(programData, _e.getValue()));
+        return _ret;
+    }
+
+    /*
+     * Merges the data collected from a class into the given program data and returns the data about the class with
+     * the ids of the program data.  New members are added in the order they were collected from the class.  So,
+     * merging the data of classes in an order assigns the same ids as collecting the data of classes in that order.
+     */
+    static ProgramData mergeProgramData(final ProgramData programData, final ProgramData classData) {
+        final ProgramData _ret = new ProgramData();
+        synchronized (programData) {
+            mergeMembers(programData.fieldId2Name, programData.shortFieldName2Id, classData.fieldId2Name,
+                    classData.shortFieldName2Id, _ret.shortFieldName2Id, "f");
+            mergeMembers(programData.methodId2Name, programData.shortMethodName2Id, classData.methodId2Name,
+                    classData.shortMethodName2Id, _ret.shortMethodName2Id, "m");
+            programData.class2superClass.putAll(classData.class2superClass);
+        }
+        _ret.class2superClass.putAll(classData.class2superClass);
+        return _ret;
+    }
+
+    private static void mergeMembers(final Map<String, String> id2Name, final Map<String, String> shortName2Id,
+                                     final Map<String, String> classId2Name,
+                                     final Map<String, String> classShortName2Id,
+                                     final Map<String, String> mergedShortName2Id, final String prefix) {
+        final List<Map.Entry<String, String>> _entries = new ArrayList<>(classShortName2Id.entrySet());
+        _entries.sort(Comparator.comparingInt(e -> Integer.parseInt(e.getValue().substring(prefix.length()))));
+        for (final Map.Entry<String, String> _e : _entries) {
+            final String _shortName = _e.getKey();
+            String _id = shortName2Id.get(_shortName);
+            if (_id == null) {
+                _id = prefix + String.valueOf(shortName2Id.size());
+                shortName2Id.put(_shortName, _id);
+                id2Name.put(_id, classId2Name.get(_e.getValue()));
             }
+            mergedShortName2Id.put(_shortName, _id);
         }
     }
 
@@ -192,15 +254,25 @@ public final class CLI {
         final boolean traceMethodArgs;
         final boolean traceMethodCall;
         final boolean traceMethodRetValue;
+        final boolean coverMethods;
 
         CommandLineOptions(final boolean traceArrayAccess, final boolean traceFieldAccess,
                            final boolean traceMethodArgs, final boolean traceMethodCall,
-                           final boolean traceMethodRetValue) {
+                           final boolean traceMethodRetValue, final boolean coverMethods) {
             this.traceArrayAccess = traceArrayAccess;
             this.traceFieldAccess = traceFieldAccess;
             this.traceMethodArgs = traceMethodArgs;
             this.traceMethodCall = traceMethodCall;
             this.traceMethodRetValue = traceMethodRetValue;
+            this.coverMethods = coverMethods;
+        }
+
+        @Override
+        public String toString() {
+            return MessageFormat.format("traceArrayAccess={0},traceFieldAccess={1},traceMethodArgs={2}," +
+                            "traceMethodCall={3},traceMethodRetValue={4},coverMethods={5}", this.traceArrayAccess,
+                    this.traceFieldAccess, this.traceMethodArgs, this.traceMethodCall, this.traceMethodRetValue,
+                    this.coverMethods);
         }
     }
 }
@@ -0,0 +1,38 @@
+/*
+ * Copyright (c) 2017, Venkatesh-Prasad Ranganath
+ *
+ * BSD 3-clause License
+ *
+ * Author: Venkatesh-Prasad Ranganath (rvprasad)
+ */
+
+package dyco4j.instrumentation.internals;
+
+import dyco4j.instrumentation.LoggingHelper;
+import dyco4j.logging.TraceSwitch;
+import org.objectweb.asm.Label;
+import org.objectweb.asm.MethodVisitor;
+
+/*
+ * INFO
+ *
+ * This visitor only adds a probe at the beginning of the method to mark the method as covered.  Since the probe
+ * neither logs exits nor handles exceptions, constructors can be probed before the receiver is initialized.
+ */
+final class CoverageMethodVisitor extends MethodVisitor {
+    private final String methodId;
+
+    CoverageMethodVisitor(final String name, final String desc, final MethodVisitor mv,
+                          final TracingClassVisitor owner) {
+        super(CLI.ASM_VERSION, mv);
+        this.methodId = owner.getMethodId(name, desc);
+    }
+
+    @Override
+    public void visitCode() {
+        super.visitCode();
+        final Label _untraced = LoggingHelper.emitTraceGuard(this.mv, TraceSwitch.METHOD_COVERAGE);
+        LoggingHelper.emitLogMethodCoverage(this.mv, this.methodId);
+        super.visitLabel(_untraced);
+    }
+}
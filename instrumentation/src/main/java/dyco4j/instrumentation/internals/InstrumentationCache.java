@@ -0,0 +1,146 @@
+/*
+ * Copyright (c) 2017, Venkatesh-Prasad Ranganath
+ *
+ * BSD 3-clause License
+ *
+ * Author: Venkatesh-Prasad Ranganath (rvprasad)
+ */
+
+package dyco4j.instrumentation.internals;
+
+import dyco4j.utility.ProgramData;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.*;
+import java.security.MessageDigest;
+import java.security.NoSuchAlgorithmException;
+import java.text.MessageFormat;
+import java.util.Map;
+import java.util.Set;
+import java.util.TreeMap;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.function.Supplier;
+import java.util.stream.Stream;
+
+/*
+ * INFO
+ *
+ * An instrumentation cache keeps the instrumented versions of classes in a folder across invocations of CLI.  An
+ * instrumented class is identified by the hash of the class, the instrumentation options, and the ids of the members
+ * of (and used in) the class.  So, a class is instrumented again only if it changed, the options changed, or the
+ * ids of its members changed (e.g., program_data.json was deleted).  As the frames of instrumented classes depend
+ * on the class hierarchy, the cache folder should be cleared when the superclasses of dependences change.
+ *
+ * Entries that were not used in an invocation are deleted at the end of the invocation.  So, a cache folder should
+ * be used with only one set of input folders.  Other files in the cache folder are not deleted except for temporary
+ * entries left behind (for a day) by failed invocations.
+ *
+ * Methods of this class are thread-safe.
+ */
+final class InstrumentationCache {
+    private static final Logger LOGGER = LoggerFactory.getLogger(InstrumentationCache.class);
+    // INFO: bump this version when the instrumentation changes so that stale entries are not used
+    private static final String VERSION = "1";
+    private static final String ENTRY_SUFFIX = ".class";
+    // INFO: entries are named by the hex SHA-256 keys of classes
+    private static final String ENTRY_NAME_REGEX = "[0-9a-f]{64}\\.class";
+    private static final String TMP_ENTRY_NAME_REGEX = ENTRY_NAME_REGEX + "[0-9]*\\.tmp";
+    // INFO: temporary entries of concurrent invocations are younger than this
+    private static final long TMP_ENTRY_MAX_AGE = TimeUnit.DAYS.toMillis(1);
+    private final Path folder;
+    private final String options;
+    private final Set<String> usedEntries = ConcurrentHashMap.newKeySet();
+    private final AtomicInteger numOfHits = new AtomicInteger();
+
+    /**
+     * @param options identifies the instrumentation options.
+     */
+    InstrumentationCache(final Path folder, final String options) throws IOException {
+        this.folder = folder;
+        this.options = options;
+        Files.createDirectories(folder);
+    }
+
+    /*
+     * Returns the cached instrumented version of the given class if it exists.  Otherwise, returns the instrumented
+     * version provided by the given instrumenter after caching it.
+     */
+    byte[] get(final byte[] bytecode, final ProgramData classData, final Supplier<byte[]> instrumenter) {
+        final String _name = getKey(bytecode, classData) + ENTRY_SUFFIX;
+        final Path _entry = this.folder.resolve(_name);
+        this.usedEntries.add(_name);
+        try {
+            if (Files.exists(_entry)) {
+                final byte[] _ret = Files.readAllBytes(_entry);
+                this.numOfHits.incrementAndGet();
+                return _ret;
+            }
+        } catch (final IOException _ex) {
+            LOGGER.warn(MessageFormat.format("Could not read {0}", _entry), _ex);
+        }
+
+        final byte[] _ret = instrumenter.get();
+        try {
+            // INFO: the entry is written atomically as classes are instrumented in parallel
+            final Path _tmp = Files.createTempFile(this.folder, _name, ".tmp");
+            Files.write(_tmp, _ret);
+            Files.move(_tmp, _entry, StandardCopyOption.REPLACE_EXISTING, StandardCopyOption.ATOMIC_MOVE);
+        } catch (final IOException _ex) {
+            LOGGER.warn(MessageFormat.format("Could not write {0}", _entry), _ex);
+        }
+        return _ret;
+    }
+
+    /*
+     * Deletes the entries that were not used since this cache was created and the stale temporary entries.
+     */
+    void prune() throws IOException {
+        final int _numOfEntries = this.usedEntries.size();
+        LOGGER.info(MessageFormat.format("Reused {0} of {1} instrumented classes from {2}", this.numOfHits.get(),
+                _numOfEntries, this.folder));
+        final long _staleTime = System.currentTimeMillis() - TMP_ENTRY_MAX_AGE;
+        try (final Stream<Path> _tmp = Files.list(this.folder)) {
+            for (final Path _entry : (Iterable<Path>) _tmp::iterator) {
+                final String _name = _entry.getFileName().toString();
+                if (_name.matches(ENTRY_NAME_REGEX) && !this.usedEntries.contains(_name) ||
+                        _name.matches(TMP_ENTRY_NAME_REGEX) &&
+                                Files.getLastModifiedTime(_entry).toMillis() < _staleTime)
+                    Files.deleteIfExists(_entry);
+            }
+        }
+    }
+
+    private String getKey(final byte[] bytecode, final ProgramData classData) {
+        final MessageDigest _digest;
+        try {
+            _digest = MessageDigest.getInstance("SHA-256");
+        } catch (final NoSuchAlgorithmException _ex) {
+            throw new RuntimeException(_ex);
+        }
+
+        _digest.update(VERSION.getBytes(StandardCharsets.UTF_8));
+        _digest.update(this.options.getBytes(StandardCharsets.UTF_8));
+        _digest.update(bytecode);
+        updateDigest(_digest, classData.shortFieldName2Id);
+        updateDigest(_digest, classData.shortMethodName2Id);
+
+        final StringBuilder _ret = new StringBuilder();
+        for (final byte _b : _digest.digest())
+            _ret.append(String.format("%02x", _b));
+        return _ret.toString();
+    }
+
+    private static void updateDigest(final MessageDigest digest, final Map<String, String> shortName2Id) {
+        for (final Map.Entry<String, String> _e : new TreeMap<>(shortName2Id).entrySet()) {
+            digest.update(_e.getKey().getBytes(StandardCharsets.UTF_8));
+            digest.update((byte) '=');
+            digest.update(_e.getValue().getBytes(StandardCharsets.UTF_8));
+            digest.update((byte) '\n');
+        }
+    }
+}
@@ -48,6 +48,9 @@ final class TracingClassVisitor extends ClassVisitor {
                                      final String[] exceptions) {
         final MethodVisitor _mv1 = super.visitMethod(access, name, desc, signature, exceptions);
         if (_mv1 != null && shouldInstrumentMethod(name)) {
+            if (this.cmdLineOptions.coverMethods)
+                return new CoverageMethodVisitor(name, desc, _mv1, this);
+
             final boolean _isInit = name.equals("<init>");
             final TracingMethodVisitor _mv2 = new TracingMethodVisitor(access, name, desc, _mv1, this, !_isInit);
             return _isInit ? new InitTracingMethodVisitor(access, name, _mv2) : _mv2;
@@ -10,11 +10,12 @@ package dyco4j.instrumentation.internals;
 
 import dyco4j.instrumentation.LoggingHelper;
 import dyco4j.logging.Logger;
+import dyco4j.logging.TraceSwitch;
 import dyco4j.utility.ClassNameHelper;
 import org.objectweb.asm.*;
 import org.objectweb.asm.commons.Method;
 
-import java.util.HashMap;
+import java.util.LinkedHashMap;
 import java.util.Map;
 import java.util.OptionalInt;
 
@@ -36,7 +37,8 @@ final class TracingMethodVisitor extends MethodVisitor {
         this.methodId = owner.getMethodId(name, desc);
         this.cv = owner;
         this.thisInitialized = thisInitialized;
-        this.beginLabel2endLabel = new HashMap<>();
+        // INFO: handlers are emitted in the order of their ranges so that instrumented bytes are deterministic
+        this.beginLabel2endLabel = new LinkedHashMap<>();
     }
 
     @Override
@@ -50,9 +52,12 @@ final class TracingMethodVisitor extends MethodVisitor {
     public final void visitInsn(final int opcode) {
         if (opcode == Opcodes.IRETURN || opcode == Opcodes.LRETURN || opcode == Opcodes.FRETURN ||
                 opcode == Opcodes.DRETURN || opcode == Opcodes.ARETURN || opcode == Opcodes.RETURN) {
-            if (this.cv.cmdLineOptions.traceMethodRetValue)
+            if (this.cv.cmdLineOptions.traceMethodRetValue && opcode != Opcodes.RETURN) {
+                final Label _untraced = LoggingHelper.emitTraceGuard(this.mv, TraceSwitch.METHOD_RETURN);
                 LoggingHelper.emitLogReturn(this.mv, method.getReturnType());
-            LoggingHelper.emitLogMethodExit(this.mv, this.methodId, LoggingHelper.ExitKind.NORMAL);
+                super.visitLabel(_untraced);
+            }
+            emitLogMethodExit(LoggingHelper.ExitKind.NORMAL);
             super.visitInsn(opcode);
         } else if (opcode == Opcodes.AASTORE || opcode == Opcodes.BASTORE || opcode == Opcodes.CASTORE ||
                 opcode == Opcodes.DASTORE || opcode == Opcodes.FASTORE || opcode == Opcodes.IASTORE ||
@@ -79,6 +84,7 @@ final class TracingMethodVisitor extends MethodVisitor {
             final String _fieldId = this.cv.getFieldId(name, owner, desc);
             final boolean _isFieldStatic = opcode == Opcodes.GETSTATIC || opcode == Opcodes.PUTSTATIC;
             if (opcode == Opcodes.GETSTATIC || opcode == Opcodes.GETFIELD) {
+                final Label _untraced = LoggingHelper.emitTraceGuard(this.mv, TraceSwitch.FIELD_GET);
                 if (_isFieldStatic)
                     super.visitInsn(Opcodes.ACONST_NULL);
                 else if (this.thisInitialized)
@@ -90,7 +96,9 @@ final class TracingMethodVisitor extends MethodVisitor {
 
                 super.visitFieldInsn(opcode, owner, name, desc);
                 LoggingHelper.emitLogField(this.mv, _fieldId, _fieldType, Logger.FieldAction.GETF);
+                emitUntracedInsn(_untraced, () -> super.visitFieldInsn(opcode, owner, name, desc));
             } else if (opcode == Opcodes.PUTSTATIC || opcode == Opcodes.PUTFIELD) {
+                final Label _untraced = LoggingHelper.emitTraceGuard(this.mv, TraceSwitch.FIELD_PUT);
                 if (_isFieldStatic) {
                     super.visitInsn(Opcodes.ACONST_NULL);
                 } else if (this.thisInitialized) {
@@ -107,6 +115,7 @@ final class TracingMethodVisitor extends MethodVisitor {
                 LoggingHelper.emitSwapOneWordAndTwoWords(this.mv, _fieldType);
                 LoggingHelper.emitLogField(this.mv, _fieldId, _fieldType, Logger.FieldAction.PUTF);
                 super.visitFieldInsn(opcode, owner, name, desc);
+                emitUntracedInsn(_untraced, () -> super.visitFieldInsn(opcode, owner, name, desc));
             }
         } else
             super.visitFieldInsn(opcode, owner, name, desc);
@@ -119,8 +128,10 @@ final class TracingMethodVisitor extends MethodVisitor {
             final Label _handlerLabel = new Label();
             super.visitLabel(_handlerLabel);
             super.visitTryCatchBlock(_e.getKey(), _e.getValue(), _handlerLabel, "java/lang/Throwable");
+            final Label _untraced = LoggingHelper.emitTraceGuard(this.mv, TraceSwitch.METHOD_EXCEPTION);
             LoggingHelper.emitLogException(this.mv);
-            LoggingHelper.emitLogMethodExit(this.mv, this.methodId, LoggingHelper.ExitKind.EXCEPTIONAL);
+            super.visitLabel(_untraced);
+            emitLogMethodExit(LoggingHelper.ExitKind.EXCEPTIONAL);
             super.visitInsn(Opcodes.ATHROW);
         }
         super.visitMaxs(maxStack, maxLocals);
@@ -130,7 +141,7 @@ final class TracingMethodVisitor extends MethodVisitor {
     public void visitMethodInsn(final int opcode, final String owner, final String name, final String desc,
                                 final boolean itf) {
         if (this.cv.cmdLineOptions.traceMethodCall)
-            LoggingHelper.emitLogMethodCall(this.mv, this.cv.getMethodId(name, owner, desc), this.callsiteId++);
+            emitLogMethodCall(this.cv.getMethodId(name, owner, desc));
         super.visitMethodInsn(opcode, owner, name, desc, itf);
     }
 
@@ -138,8 +149,7 @@ final class TracingMethodVisitor extends MethodVisitor {
     public void visitInvokeDynamicInsn(final String name, final String desc, final Handle bsm,
                                        final Object... bsmArgs) {
         if (this.cv.cmdLineOptions.traceMethodCall)
-            LoggingHelper.emitLogMethodCall(this.mv,
-                    this.cv.getMethodId(name, ClassNameHelper.DYNAMIC_METHOD_OWNER, desc), this.callsiteId++);
+            emitLogMethodCall(this.cv.getMethodId(name, ClassNameHelper.DYNAMIC_METHOD_OWNER, desc));
         super.visitInvokeDynamicInsn(name, desc, bsm, bsmArgs);
     }
 
@@ -160,13 +170,28 @@ final class TracingMethodVisitor extends MethodVisitor {
         this.outermostExceptionHandlerBeginLabel = null;
     }
 
+    private void emitLogMethodCall(final String calleeId) {
+        final Label _untraced = LoggingHelper.emitTraceGuard(this.mv, TraceSwitch.METHOD_CALL);
+        LoggingHelper.emitLogMethodCall(this.mv, calleeId, this.callsiteId++);
+        super.visitLabel(_untraced);
+    }
+
     private void emitLogMethodEntry() {
         super.visitCode();
+        final Label _untraced = LoggingHelper.emitTraceGuard(this.mv, TraceSwitch.METHOD_ENTRY_EXIT);
         LoggingHelper.emitLogMethodEntry(this.mv, this.methodId);
+        super.visitLabel(_untraced);
+    }
+
+    private void emitLogMethodExit(final LoggingHelper.ExitKind exitKind) {
+        final Label _untraced = LoggingHelper.emitTraceGuard(this.mv, TraceSwitch.METHOD_ENTRY_EXIT);
+        LoggingHelper.emitLogMethodExit(this.mv, this.methodId, exitKind);
+        super.visitLabel(_untraced);
     }
 
     private void emitLogMethodArguments() {
         if (this.cv.cmdLineOptions.traceMethodArgs) {
+            final Label _untraced = LoggingHelper.emitTraceGuard(this.mv, TraceSwitch.METHOD_ARGUMENT);
             // emit code to trace each arg
             int _position = 0;
             int _localVarIndex = 0;
@@ -182,10 +207,26 @@ final class TracingMethodVisitor extends MethodVisitor {
                         _argType);
                 _position++;
             }
+            super.visitLabel(_untraced);
         }
     }
 
+    /*
+     * INFO
+     *
+     * Since the logging of field and array accesses rearranges the operand stack around the access, the untraced
+     * access is a copy of the access without logging.  The traced access jumps over the copy.
+     */
+    private void emitUntracedInsn(final Label untraced, final Runnable insn) {
+        final Label _end = new Label();
+        super.visitJumpInsn(Opcodes.GOTO, _end);
+        super.visitLabel(untraced);
+        insn.run();
+        super.visitLabel(_end);
+    }
+
     private void visitArrayStoreInsn(final int opcode) {
+        final Label _untraced = LoggingHelper.emitTraceGuard(this.mv, TraceSwitch.ARRAY_PUT);
         if (opcode == Opcodes.LASTORE || opcode == Opcodes.DASTORE) {
             super.visitInsn(Opcodes.DUP2_X2);
             super.visitInsn(Opcodes.POP2);
@@ -202,39 +243,14 @@ final class TracingMethodVisitor extends MethodVisitor {
             super.visitInsn(Opcodes.DUP_X2);
         }
 
-        switch (opcode) {
-            case Opcodes.AASTORE:
-                LoggingHelper.emitConvertToString(this.mv, Type.getObjectType("java/lang/Object"));
-                break;
-            case Opcodes.BASTORE:
-                LoggingHelper.emitConvertToString(this.mv, Type.BYTE_TYPE);
-                break;
-            case Opcodes.CASTORE:
-                LoggingHelper.emitConvertToString(this.mv, Type.CHAR_TYPE);
-                break;
-            case Opcodes.FASTORE:
-                LoggingHelper.emitConvertToString(this.mv, Type.FLOAT_TYPE);
-                break;
-            case Opcodes.IASTORE:
-                LoggingHelper.emitConvertToString(this.mv, Type.INT_TYPE);
-                break;
-            case Opcodes.SASTORE:
-                LoggingHelper.emitConvertToString(this.mv, Type.SHORT_TYPE);
-                break;
-            case Opcodes.DASTORE:
-                LoggingHelper.emitConvertToString(this.mv, Type.DOUBLE_TYPE);
-                break;
-            case Opcodes.LASTORE:
-                LoggingHelper.emitConvertToString(this.mv, Type.LONG_TYPE);
-                break;
-        }
-
-        LoggingHelper.emitLogArray(this.mv, Logger.ArrayAction.PUTA);
+        LoggingHelper.emitLogArray(this.mv, getArrayElementType(opcode), Logger.ArrayAction.PUTA);
 
         super.visitInsn(opcode);
+        emitUntracedInsn(_untraced, () -> super.visitInsn(opcode));
     }
 
     private void visitArrayLoadInsn(final int opcode) {
+        final Label _untraced = LoggingHelper.emitTraceGuard(this.mv, TraceSwitch.ARRAY_GET);
         super.visitInsn(Opcodes.DUP2);
 
         super.visitInsn(opcode);
@@ -244,34 +260,39 @@ final class TracingMethodVisitor extends MethodVisitor {
         else
             super.visitInsn(Opcodes.DUP_X2);
 
+        LoggingHelper.emitLogArray(this.mv, getArrayElementType(opcode), Logger.ArrayAction.GETA);
+        emitUntracedInsn(_untraced, () -> super.visitInsn(opcode));
+    }
+
+    private static Type getArrayElementType(final int opcode) {
         switch (opcode) {
             case Opcodes.AALOAD:
-                LoggingHelper.emitConvertToString(this.mv, Type.getObjectType("java/lang/Object"));
-                break;
+            case Opcodes.AASTORE:
+                return Type.getObjectType("java/lang/Object");
             case Opcodes.BALOAD:
-                LoggingHelper.emitConvertToString(this.mv, Type.BYTE_TYPE);
-                break;
+            case Opcodes.BASTORE:
+                return Type.BYTE_TYPE;
             case Opcodes.CALOAD:
-                LoggingHelper.emitConvertToString(this.mv, Type.CHAR_TYPE);
-                break;
+            case Opcodes.CASTORE:
+                return Type.CHAR_TYPE;
             case Opcodes.FALOAD:
-                LoggingHelper.emitConvertToString(this.mv, Type.FLOAT_TYPE);
-                break;
+            case Opcodes.FASTORE:
+                return Type.FLOAT_TYPE;
             case Opcodes.IALOAD:
-                LoggingHelper.emitConvertToString(this.mv, Type.INT_TYPE);
-                break;
+            case Opcodes.IASTORE:
+                return Type.INT_TYPE;
             case Opcodes.SALOAD:
-                LoggingHelper.emitConvertToString(this.mv, Type.SHORT_TYPE);
-                break;
+            case Opcodes.SASTORE:
+                return Type.SHORT_TYPE;
             case Opcodes.DALOAD:
-                LoggingHelper.emitConvertToString(this.mv, Type.DOUBLE_TYPE);
-                break;
+            case Opcodes.DASTORE:
+                return Type.DOUBLE_TYPE;
             case Opcodes.LALOAD:
-                LoggingHelper.emitConvertToString(this.mv, Type.LONG_TYPE);
-                break;
+            case Opcodes.LASTORE:
+                return Type.LONG_TYPE;
+            default:
+                throw new IllegalArgumentException("Not an array access opcode " + opcode);
         }
-
-        LoggingHelper.emitLogArray(this.mv, Logger.ArrayAction.GETA);
     }
 
 }
@@ -21,7 +21,13 @@ import org.junit.BeforeClass
 import java.nio.file.Files
 import java.nio.file.Path
 import java.nio.file.Paths
+import java.util.jar.Attributes
+import java.util.jar.JarOutputStream
+import java.util.jar.Manifest
 import java.util.zip.GZIPInputStream
+import java.util.zip.ZipEntry
+import java.util.zip.ZipFile
+import java.util.zip.ZipOutputStream
 
 abstract class AbstractCLITest {
     private static final String LOGGING_LIBRARY = System.getProperty('logging.jar').toString()
@@ -185,10 +191,10 @@ abstract class AbstractCLITest {
      * execute instrumented code in a different process
      * @return a quadruple of process return status, standard output, standard error, and generated trace
      */
-    protected static executeInstrumentedCode(final Class clazz) {
+    protected static executeInstrumentedCode(final Class clazz, final List<String> jvmArgs = []) {
         final _path = Paths.get(System.getProperty("java.home"), "bin", "java").toString()
         final _cp = fixupPath([OUT_FOLDER, LOGGING_LIBRARY, TEST_CLASS_FOLDER].join(File.pathSeparator))
-        final _proc = [_path, "-cp", _cp, clazz.name].execute()
+        final _proc = ([_path] + jvmArgs + ["-cp", _cp, clazz.name]).execute()
         final _ret = new ExecutionResult(
                 _proc.waitFor(),
                 _proc.inputStream.readLines(),
@@ -198,6 +204,61 @@ abstract class AbstractCLITest {
         _ret
     }
 
+    /**
+     * create a jar to load the given agent class from the class path of the tests
+     * @return the path to the jar
+     */
+    protected static createAgentJar(final Class agentClass) {
+        final _manifest = new Manifest()
+        final _attributes = _manifest.mainAttributes
+        _attributes.put(Attributes.Name.MANIFEST_VERSION, "1.0")
+        _attributes.put(new Attributes.Name("Premain-Class"), agentClass.name)
+        _attributes.put(Attributes.Name.CLASS_PATH, System.getProperty("java.class.path").split(File.pathSeparator)
+                .collect { new File(it).toURI().toURL().toString() }.join(' '))
+        final _ret = resolveUnderRootFolder("agent.jar")
+        new JarOutputStream(Files.newOutputStream(_ret), _manifest).close()
+        _ret
+    }
+
+    /**
+     * create a jar with the files in the in folder
+     * @return the path to the jar
+     */
+    protected static createJarFromInFolder(final String name) {
+        createJar(name, IN_FOLDER)
+    }
+
+    /**
+     * create a jar with the files (with matching names) in the given folder
+     * @return the path to the jar
+     */
+    protected static createJar(final String name, final Path folder, final pattern = /.*/) {
+        final _ret = resolveUnderRootFolder(name)
+        new ZipOutputStream(Files.newOutputStream(_ret)).withStream { out ->
+            Files.walk(folder).filter { Files.isRegularFile(it) && it.fileName ==~ pattern }.each {
+                out.putNextEntry(new ZipEntry(folder.relativize(it).toString().replace(File.separator, '/')))
+                out.write(Files.readAllBytes(it))
+                out.closeEntry()
+            }
+        }
+        _ret
+    }
+
+    /**
+     * extract the files in the given jar into the out folder
+     * @return the names of the entries in the jar
+     */
+    protected static extractJarIntoOutFolder(final Path jar) {
+        new ZipFile(jar.toFile()).withCloseable { zip ->
+            zip.entries().collect { entry ->
+                final _trg = OUT_FOLDER.resolve(entry.name)
+                Files.createDirectories(_trg.parent)
+                zip.getInputStream(entry).withStream { Files.copy(it, _trg) }
+                entry.name
+            }
+        }
+    }
+
     protected static copyFilesIntoInFolder(final pathsToFiles, final Path srcFolder) {
         for (final Path _pathToFile in pathsToFiles) {
             final _trg = IN_FOLDER.resolve(_pathToFile)
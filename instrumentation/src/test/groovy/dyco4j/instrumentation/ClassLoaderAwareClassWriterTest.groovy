@@ -0,0 +1,49 @@
+/*
+ * Copyright (c) 2017, Venkatesh-Prasad Ranganath
+ *
+ * BSD 3-clause License
+ *
+ * Author: Venkatesh-Prasad Ranganath (rvprasad)
+ */
+
+package dyco4j.instrumentation
+
+import org.junit.Test
+import org.objectweb.asm.ClassReader
+import org.objectweb.asm.ClassWriter
+
+class ClassLoaderAwareClassWriterTest {
+    // INFO: the loader fails on class loading to check that the hierarchy is resolved from class files
+    private static final LOADER = new ClassLoader(ClassLoaderAwareClassWriterTest.classLoader) {
+        @Override
+        protected Class<?> loadClass(final String name, final boolean resolve) {
+            throw new AssertionError("Loaded " + name)
+        }
+    }
+
+    private static createWriter() {
+        new ClassLoaderAwareClassWriter(new ClassReader(SourceRoot.name), ClassWriter.COMPUTE_FRAMES, LOADER)
+    }
+
+    @Test
+    void withClasses() {
+        final _cw = createWriter()
+        assert _cw.getCommonSuperClass("java/util/ArrayList", "java/util/LinkedList") == "java/util/AbstractList"
+        assert _cw.getCommonSuperClass("java/util/ArrayList", "java/util/AbstractList") == "java/util/AbstractList"
+        assert _cw.getCommonSuperClass("java/lang/Integer", "java/lang/String") == "java/lang/Object"
+        assert _cw.getCommonSuperClass("dyco4j/instrumentation/SourceRoot", "java/lang/Object") == "java/lang/Object"
+    }
+
+    @Test
+    void withInterfaces() {
+        final _cw = createWriter()
+        assert _cw.getCommonSuperClass("java/util/List", "java/util/ArrayList") == "java/util/List"
+        assert _cw.getCommonSuperClass("java/util/Collection", "java/util/List") == "java/util/Collection"
+        assert _cw.getCommonSuperClass("java/util/List", "java/util/Set") == "java/lang/Object"
+    }
+
+    @Test(expected = TypeNotPresentException)
+    void withMissingClass() {
+        createWriter().getCommonSuperClass("a/Missing", "java/lang/String")
+    }
+}
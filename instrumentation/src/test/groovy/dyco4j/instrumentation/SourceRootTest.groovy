@@ -0,0 +1,92 @@
+/*
+ * Copyright (c) 2017, Venkatesh-Prasad Ranganath
+ *
+ * BSD 3-clause License
+ *
+ * Author: Venkatesh-Prasad Ranganath (rvprasad)
+ */
+
+package dyco4j.instrumentation
+
+import org.junit.After
+import org.junit.Before
+import org.junit.Test
+
+import java.nio.file.Files
+import java.nio.file.NoSuchFileException
+import java.nio.file.Paths
+
+class SourceRootTest {
+    private static final FOLDER = Paths.get("build", "tmp", "source_root")
+    private static final CLASS_NAMES = ["a/A.class", "a/b/B.class"]
+    private static final byte[] BYTECODE = (0..99).collect { it as byte } as byte[]
+
+    @Before
+    void createClassFiles() {
+        CLASS_NAMES.each {
+            final _path = FOLDER.resolve(it)
+            Files.createDirectories(_path.parent)
+            Files.write(_path, BYTECODE)
+        }
+        Files.write(FOLDER.resolve("resource.txt"), [1, 2] as byte[])
+    }
+
+    @After
+    void deleteFolder() {
+        Files.walk(FOLDER).sorted { a, b -> b <=> a }.each { Files.delete(it) }
+    }
+
+    @Test
+    void withCachedClasses() {
+        final _srcRoot = SourceRoot.open([FOLDER], 1000)[0]
+        assert _srcRoot.names.sort(false) == CLASS_NAMES + ["resource.txt"]
+
+        final _read = Collections.synchronizedList([])
+        _srcRoot.forEachClass { _read << it }
+        assert _read.size() == 2
+
+        // INFO: classes read by forEachClass are not read again
+        CLASS_NAMES.each { Files.delete(FOLDER.resolve(it)) }
+        CLASS_NAMES.each { assert _srcRoot.getClassBytes(it) == BYTECODE }
+        _srcRoot.close()
+    }
+
+    @Test
+    void withCacheLimit() {
+        final _srcRoot = SourceRoot.open([FOLDER], 150)[0]
+        _srcRoot.forEachClass {}
+
+        // INFO: only one of the classes fits in the cache
+        CLASS_NAMES.each { Files.delete(FOLDER.resolve(it)) }
+        final _results = CLASS_NAMES.collect {
+            try {
+                _srcRoot.getClassBytes(it)
+            } catch (final NoSuchFileException _ex) {
+                null
+            }
+        }
+        assert _results.count { it == BYTECODE } == 1
+        assert _results.count { it == null } == 1
+        _srcRoot.close()
+    }
+
+    @Test
+    void withReleasedClasses() {
+        final _srcRoot = SourceRoot.open([FOLDER], 150)[0]
+        _srcRoot.forEachClass {}
+
+        // INFO: released classes give their bytes back to the cache
+        CLASS_NAMES.each { _srcRoot.release(it) }
+        _srcRoot.forEachClass {}
+        CLASS_NAMES.each { Files.delete(FOLDER.resolve(it)) }
+        final _results = CLASS_NAMES.collect {
+            try {
+                _srcRoot.getClassBytes(it)
+            } catch (final NoSuchFileException _ex) {
+                null
+            }
+        }
+        assert _results.count { it == BYTECODE } == 1
+        _srcRoot.close()
+    }
+}
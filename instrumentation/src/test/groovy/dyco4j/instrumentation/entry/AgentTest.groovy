@@ -0,0 +1,55 @@
+/*
+ * Copyright (c) 2017, Venkatesh-Prasad Ranganath
+ *
+ * BSD 3-clause License
+ *
+ * Author: Venkatesh-Prasad Ranganath (rvprasad)
+ */
+
+package dyco4j.instrumentation.entry
+
+import dyco4j.instrumentation.AbstractCLITest
+import org.junit.BeforeClass
+import org.junit.Test
+
+class AgentTest extends AbstractCLITest {
+    private static agentJar
+
+    @BeforeClass
+    static void createAgentJar() {
+        agentJar = createAgentJar(Agent)
+    }
+
+    private static executeInstrumentedCode(final String agentArgs = "") {
+        executeInstrumentedCode(CLITestSubject, ["-javaagent:$agentJar=$agentArgs".toString()])
+    }
+
+    @Test
+    void withNoAgentArgs() {
+        final _executionResult = executeInstrumentedCode()
+        assert _executionResult.exitCode == 0
+
+        final String[] _traceLines = _executionResult.traceLines
+        assert _traceLines.length == 3
+
+        // should not raise exception
+        Date.parseToStringDate(_traceLines[0])
+
+        assert _traceLines[1] ==~ /\d+,marker:dyco4j\/instrumentation\/entry\/CLITestSubject\/test2\(\)V/
+        assert _traceLines[2] ==~ /\d+,marker:dyco4j\/instrumentation\/entry\/CLITestSubject\/testSuffix2\(\)V/
+    }
+
+    @Test
+    void withMethodNameRegexAgentArg() {
+        final _executionResult = executeInstrumentedCode("$CLI.METHOD_NAME_REGEX_OPTION=.*Suffix.\$")
+        assert _executionResult.exitCode == 0
+
+        final String[] _traceLines = _executionResult.traceLines
+        assert _traceLines.length == 2
+
+        // should not raise exception
+        Date.parseToStringDate(_traceLines[0])
+
+        assert _traceLines[1] ==~ /\d+,marker:dyco4j\/instrumentation\/entry\/CLITestSubject\/testSuffix2\(\)V/
+    }
+}
@@ -0,0 +1,77 @@
+/*
+ * Copyright (c) 2017, Venkatesh-Prasad Ranganath
+ *
+ * BSD 3-clause License
+ *
+ * Author: Venkatesh-Prasad Ranganath (rvprasad)
+ */
+
+package dyco4j.instrumentation.internals
+
+import dyco4j.instrumentation.AbstractCLITest
+import org.junit.BeforeClass
+import org.junit.Test
+
+import static dyco4j.logging.Logger.METHOD_EXCEPTION_TAG
+import static dyco4j.logging.Logger.THROWABLE_TYPE_TAG
+
+class AgentTest extends AbstractCLITest {
+    private static agentJar
+
+    @BeforeClass
+    static void createAgentJar() {
+        agentJar = createAgentJar(Agent)
+    }
+
+    private static executeInstrumentedCode(final String agentArgs = "") {
+        executeInstrumentedCode(CLITestSubject, ["-javaagent:$agentJar=$agentArgs".toString()])
+    }
+
+    @Test
+    void withNoAgentArgs() {
+        final ExecutionResult _executionResult = executeInstrumentedCode()
+        assert _executionResult.exitCode == 0
+
+        // INFO: the trace is the same as that of classes instrumented by CLI
+        assertTraceLengthIs(_executionResult, 55)
+
+        final String[] _traceLines = removeThreadIdFromLog(_executionResult.traceLines)
+        assertFreqOfLogs([numOfExceptionLogs: 4], _traceLines, 25)
+
+        assertPropertiesAboutExit(_traceLines)
+
+        [4 : 'java.io.IOException', 7: 'java.lang.IllegalStateException', 30: 'java.io.IOException',
+         33: 'java.lang.IllegalStateException'].each {
+            assert _traceLines[it.key] ==~ /^$METHOD_EXCEPTION_TAG,$THROWABLE_TYPE_TAG\d+,${it.value}$/
+        }
+    }
+
+    @Test
+    void withMethodNameRegexAgentArg() {
+        final _methodNameRegex = ".*exercise.*"
+        final ExecutionResult _executionResult = executeInstrumentedCode(
+                "$CLI.METHOD_NAME_REGEX_OPTION=$_methodNameRegex")
+        assert _executionResult.exitCode == 0
+
+        assertTraceLengthIs(_executionResult, 5)
+
+        final String[] _traceLines = removeThreadIdFromLog(_executionResult.traceLines)
+        assertFreqOfLogs(_traceLines, 2)
+
+        // INFO: program data is collected as classes are loaded and saved at exit
+        assertAllAndOnlyMatchingMethodsAreTraced(_traceLines, _methodNameRegex)
+    }
+
+    @Test
+    void withTraceFieldAccessAgentArg() {
+        final ExecutionResult _executionResult = executeInstrumentedCode(CLI.TRACE_FIELD_ACCESS_OPTION)
+        assert _executionResult.exitCode == 0
+
+        assertTraceLengthIs(_executionResult, 61)
+
+        final String[] _traceLines = removeThreadIdFromLog(_executionResult.traceLines)
+        assertFreqOfLogs([numOfExceptionLogs: 4, numOfGetFieldLogs: 4, numOfPutFieldLogs: 2], _traceLines, 25)
+
+        assertPropertiesAboutExit(_traceLines)
+    }
+}
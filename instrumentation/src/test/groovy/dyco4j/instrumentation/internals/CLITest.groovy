@@ -9,10 +9,14 @@
 package dyco4j.instrumentation.internals
 
 import dyco4j.instrumentation.AbstractCLITest
+import dyco4j.logging.TraceSwitch
 import org.junit.BeforeClass
 import org.junit.Test
 
+import java.nio.file.Files
 import java.nio.file.Paths
+import java.nio.file.attribute.FileTime
+import java.util.zip.ZipFile
 
 import static dyco4j.logging.Logger.*
 
@@ -25,6 +29,8 @@ class CLITest extends AbstractCLITest {
     static final String TRACE_METHOD_ARGUMENTS_OPTION = "--$CLI.TRACE_METHOD_ARGUMENTS_OPTION"
     static final String TRACE_METHOD_RETURN_VALUE_OPTION = "--$CLI.TRACE_METHOD_RETURN_VALUE_OPTION"
     static final String TRACE_METHOD_CALL_OPTION = "--$CLI.TRACE_METHOD_CALL_OPTION"
+    static final String COVER_METHODS_OPTION = "--$CLI.COVER_METHODS_OPTION"
+    static final String CACHE_FOLDER_OPTION = "--$CLI.CACHE_FOLDER_OPTION"
 
     @BeforeClass
     static void copyClassesToBeInstrumentedIntoInFolder() {
@@ -73,8 +79,8 @@ class CLITest extends AbstractCLITest {
         }
     }
 
-    private static executeInstrumentedCode() {
-        executeInstrumentedCode(CLITestSubject)
+    private static executeInstrumentedCode(final List<String> jvmArgs = []) {
+        executeInstrumentedCode(CLITestSubject, jvmArgs)
     }
 
     @Test
@@ -112,6 +118,114 @@ class CLITest extends AbstractCLITest {
                                           33: 'java.lang.IllegalStateException',])
     }
 
+    @Test
+    void withInJarAndOutFolderOptions() {
+        final _inJar = createJarFromInFolder("in_classes.jar")
+        assert instrumentCode([IN_FOLDER_OPTION, _inJar, OUT_FOLDER_OPTION, OUT_FOLDER]) == [0L, 0L]
+
+        final _outJar = OUT_FOLDER.resolve(_inJar.fileName)
+        assert Files.exists(_outJar)
+        final _entries = extractJarIntoOutFolder(_outJar)
+        Files.delete(_outJar)
+        assert _entries.count { it.endsWith(".class") } == 1
+        assert _entries.count { it.endsWith(RESOURCE_FILE_NAME) } == 1
+
+        final ExecutionResult _executionResult = executeInstrumentedCode()
+        assert _executionResult.exitCode == 0
+
+        assertTraceLengthIs(_executionResult, 55)
+
+        final String[] _traceLines = removeThreadIdFromLog(_executionResult.traceLines)
+        assertFreqOfLogs([numOfExceptionLogs: 4], _traceLines, 25)
+        Files.delete(_inJar)
+    }
+
+    @Test
+    void withInFolderAndOutJarOptions() {
+        final _outJar = resolveUnderRootFolder("out_classes.jar")
+        assert instrumentCode([IN_FOLDER_OPTION, IN_FOLDER, OUT_FOLDER_OPTION, _outJar]) == [0L, 0L]
+
+        assert extractJarIntoOutFolder(_outJar).size() == 2
+        Files.delete(_outJar)
+
+        final ExecutionResult _executionResult = executeInstrumentedCode()
+        assert _executionResult.exitCode == 0
+
+        assertTraceLengthIs(_executionResult, 55)
+    }
+
+    @Test
+    void withCacheFolderOption() {
+        final _cacheFolder = resolveUnderRootFolder("cache")
+        final _classFile = OUT_FOLDER.resolve(Paths.get("dyco4j", "instrumentation", "internals",
+                "CLITestSubject.class"))
+        final _args = [IN_FOLDER_OPTION, IN_FOLDER, OUT_FOLDER_OPTION, OUT_FOLDER, CACHE_FOLDER_OPTION, _cacheFolder]
+        assert instrumentCode(_args) == [1L, 1L]
+        final _entries1 = Files.list(_cacheFolder).collect { it }
+        assert _entries1.size() == 1
+        assert Files.readAllBytes(_entries1[0]) == Files.readAllBytes(_classFile)
+        final _time = Files.getLastModifiedTime(_entries1[0])
+
+        // INFO: unchanged classes are copied from the cache
+        setUpFixture()
+        assert instrumentCode(_args) == [1L, 1L]
+        assert Files.list(_cacheFolder).collect { it } == _entries1
+        assert Files.getLastModifiedTime(_entries1[0]) == _time
+        assert Files.readAllBytes(_entries1[0]) == Files.readAllBytes(_classFile)
+
+        final ExecutionResult _executionResult = executeInstrumentedCode()
+        assert _executionResult.exitCode == 0
+        assertTraceLengthIs(_executionResult, 55)
+
+        // INFO: only unused entries and stale temporary entries are deleted from the cache folder
+        final _otherFile = Files.write(_cacheFolder.resolve("notes.txt"), [1, 2] as byte[])
+        final _tmpEntry = Files.write(_cacheFolder.resolve(_entries1[0].fileName.toString() + "123.tmp"),
+                [1, 2] as byte[])
+        final _staleTmpEntry = Files.write(_cacheFolder.resolve(_entries1[0].fileName.toString() + "456.tmp"),
+                [1, 2] as byte[])
+        Files.setLastModifiedTime(_staleTmpEntry, FileTime.fromMillis(System.currentTimeMillis() - 2 * 86400000L))
+
+        // INFO: classes are instrumented again when options change and unused entries are deleted
+        setUpFixture()
+        assert instrumentCode(_args + [TRACE_FIELD_ACCESS_OPTION]) == [1L, 1L]
+        assert Files.exists(_otherFile) && Files.exists(_tmpEntry) && !Files.exists(_staleTmpEntry)
+        Files.delete(_otherFile)
+        Files.delete(_tmpEntry)
+        final _entries2 = Files.list(_cacheFolder).collect { it }
+        assert _entries2.size() == 1 && _entries2 != _entries1
+        assertTraceLengthIs(executeInstrumentedCode(), 61)
+
+        _entries2.each { Files.delete(it) }
+        Files.delete(_cacheFolder)
+    }
+
+    @Test
+    void withRepeatedInvocations() {
+        final _inJar = createJar("subjects.jar", resolveUnderTestClassFolder(""), /.*TestSubject.*\.class/)
+        final _outJar = resolveUnderRootFolder("out_subjects.jar")
+        final _programDataFile = Paths.get(CLI.PROGRAM_DATA_FILE_NAME)
+        final _inNames = new ZipFile(_inJar.toFile()).withCloseable { zip -> zip.entries().collect { it.name } }
+        final _instrument = {
+            instrumentCode([IN_FOLDER_OPTION, _inJar, OUT_FOLDER_OPTION, _outJar, TRACE_FIELD_ACCESS_OPTION,
+                            TRACE_METHOD_CALL_OPTION])
+            final _ret = [_programDataFile.text]
+            new ZipFile(_outJar.toFile()).withCloseable { zip ->
+                // INFO: entries are written in order even though classes are transformed in parallel
+                assert zip.entries().collect { it.name } == _inNames
+                _ret.addAll(zip.entries().collect { [it.name, zip.getInputStream(it).bytes] }.sort { it[0] })
+            }
+            Files.delete(_programDataFile)
+            Files.delete(_outJar)
+            _ret
+        }
+
+        // INFO: ids are assigned deterministically even though program data is collected in parallel
+        final _result1 = _instrument()
+        assert _result1.size() > 3
+        (1..3).each { assert _instrument() == _result1 }
+        Files.delete(_inJar)
+    }
+
     @Test
     void withMethodNameRegexOption() {
         final _methodNameRegex = ".*exercise.*"
@@ -131,6 +245,49 @@ class CLITest extends AbstractCLITest {
         assertAllAndOnlyMatchingMethodsAreTraced(_traceLines, _methodNameRegex)
     }
 
+    @Test
+    void withCoverMethodsOption() {
+        assert instrumentCode([IN_FOLDER_OPTION, IN_FOLDER, OUT_FOLDER_OPTION, OUT_FOLDER]) == [1L, 1L]
+        final String[] _traceLines1 = removeThreadIdFromLog(executeInstrumentedCode().traceLines)
+        final _enteredMethods = _traceLines1.findAll { it ==~ /^$METHOD_ENTRY_TAG,.*/ }
+                .collect { it.split(',')[1] } as Set
+
+        setUpFixture()
+        assert instrumentCode([IN_FOLDER_OPTION, IN_FOLDER, OUT_FOLDER_OPTION, OUT_FOLDER, COVER_METHODS_OPTION,
+                               TRACE_METHOD_ARGUMENTS_OPTION, TRACE_METHOD_CALL_OPTION]) == [1L, 1L]
+
+        final ExecutionResult _executionResult = executeInstrumentedCode()
+        assert _executionResult.exitCode == 0
+
+        assertTraceLengthIs(_executionResult, 2)
+
+        final String[] _traceLines2 = removeThreadIdFromLog(_executionResult.traceLines)
+        assertFreqOfLogs(_traceLines2, 0)
+
+        assert _traceLines2[1] ==~ /^$METHOD_COVERAGE_TAG(,m\d+)+$/
+        assert _traceLines2[1].split(',').tail() as Set == _enteredMethods
+    }
+
+    @Test
+    void withTraceSwitchSystemProperty() {
+        assert instrumentCode([IN_FOLDER_OPTION, IN_FOLDER, OUT_FOLDER_OPTION, OUT_FOLDER, TRACE_ARRAY_ACCESS_OPTION,
+                               TRACE_FIELD_ACCESS_OPTION, TRACE_METHOD_ARGUMENTS_OPTION, TRACE_METHOD_CALL_OPTION,
+                               TRACE_METHOD_RETURN_VALUE_OPTION]) == [1L, 1L]
+
+        final ExecutionResult _executionResult1 = executeInstrumentedCode(["-D$TraceSwitch.SYSTEM_PROPERTY=none"])
+        assert _executionResult1.exitCode == 0
+
+        assertTraceLengthIs(_executionResult1, 1)
+
+        final ExecutionResult _executionResult2 = executeInstrumentedCode(["-D$TraceSwitch.SYSTEM_PROPERTY=en"])
+        assert _executionResult2.exitCode == 0
+
+        assertTraceLengthIs(_executionResult2, 51)
+
+        final String[] _traceLines = removeThreadIdFromLog(_executionResult2.traceLines)
+        assertFreqOfLogs(_traceLines, 25)
+    }
+
     @Test
     void withMethodNameRegexAndTraceArrayAccessOptions() {
         final _methodNameRegex = ".*exerciseStatic.*"
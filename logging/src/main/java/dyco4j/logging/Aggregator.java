@@ -0,0 +1,251 @@
+/*
+ * Copyright (c) 2017, Venkatesh-Prasad Ranganath
+ *
+ * BSD 3-clause License
+ *
+ * Author: Venkatesh-Prasad Ranganath (rvprasad)
+ *
+ */
+
+package dyco4j.logging;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collection;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentLinkedQueue;
+import java.util.concurrent.atomic.AtomicInteger;
+
+/*
+ * INFO
+ *
+ * An aggregator counts method entries (per method) and method calls (per call edge, i.e., caller, call-site id, and
+ * callee) instead of logging them.  Each thread counts in its own counter tables (see ThreadCounts) and the tables
+ * of all threads are merged when the counts are written.  The caller of a call is the method of the thread that was
+ * entered most recently (and not exited).
+ *
+ * When measuring latency, each thread also keeps a shadow stack of the entry times of its active methods.  Upon exit,
+ * the inclusive time (from entry to exit) and the exclusive time (inclusive time minus the inclusive times of the
+ * callees) of the method are counted in log-bucketed histograms, i.e., bucket b counts times in [2^(b-1), 2^b) ns.
+ * So, percentiles are approximated by the upper bound of their buckets (capped at the maximum time).
+ *
+ * Method ids of the form m<n> are counted as n.  Other method ids are mapped to negative ints.
+ */
+final class Aggregator {
+    static final String METHOD_COUNT_TAG = "mc";
+    static final String CALL_COUNT_TAG = "cc";
+    static final String LATENCY_TAG = "lt";
+    private static final int INCLUSIVE = 0;
+    private static final int EXCLUSIVE = 1;
+    private static final int UNKNOWN_METHOD = -1;
+    private final Collection<ThreadCounts> threadCounts = new ConcurrentLinkedQueue<>();
+    private final Map<String, Integer> name2methodId = new ConcurrentHashMap<>();
+    private final AtomicInteger nextMethodId = new AtomicInteger(UNKNOWN_METHOD - 1);
+    private final boolean measureLatency;
+
+    Aggregator() {
+        this(false);
+    }
+
+    /**
+     * @param measureLatency when true, the inclusive and exclusive times of methods are measured as well.
+     */
+    Aggregator(final boolean measureLatency) {
+        this.measureLatency = measureLatency;
+    }
+
+    ThreadCounts newThreadCounts() {
+        final ThreadCounts _ret = new ThreadCounts(this.measureLatency);
+        this.threadCounts.add(_ret);
+        return _ret;
+    }
+
+    int getMethodId(final String methodId) {
+        final int _ret = Sampler.getMethodId(methodId);
+        return _ret >= 0 ? _ret : this.name2methodId.computeIfAbsent(methodId,
+                k -> this.nextMethodId.getAndDecrement());
+    }
+
+    /*
+     * Writes the counts as records of the given thread into the given buffer.  The records are sorted by method ids
+     * and call edges.
+     */
+    void write(final TraceFormat format, final LogBuffer out, final long threadId) {
+        final CounterTable _methodCounts = new CounterTable();
+        final CounterTable _callCounts = new CounterTable();
+        final CounterTable _latencyCounts = new CounterTable();
+        final CounterTable _maxLatencies = new CounterTable();
+        for (final ThreadCounts _tmp : this.threadCounts) {
+            _tmp.methodCounts.forEach(_methodCounts::add);
+            _tmp.callCounts.forEach(_callCounts::add);
+            if (this.measureLatency) {
+                _tmp.latencyCounts.forEach(_latencyCounts::add);
+                _tmp.maxLatencies.forEach(_maxLatencies::max);
+            }
+        }
+
+        final Map<Integer, String> _methodId2name = new HashMap<>();
+        this.name2methodId.forEach((k, v) -> _methodId2name.put(v, k));
+        final LogBuffer _record = new LogBuffer(128);
+        for (final long[] _entry : getSortedEntries(_methodCounts)) {
+            _record.clear();
+            format.beginRecord(_record, threadId);
+            format.writeMessage(_record, METHOD_COUNT_TAG + "," + getName((int) _entry[0], _methodId2name) + "," +
+                    _entry[2]);
+            format.writeRecord(out, _record);
+        }
+        for (final long[] _entry : getSortedEntries(_callCounts)) {
+            _record.clear();
+            format.beginRecord(_record, threadId);
+            format.writeMessage(_record, CALL_COUNT_TAG + "," + getName((int) (_entry[0] >> 32), _methodId2name) +
+                    "," + (int) _entry[0] + "," + getName((int) _entry[1], _methodId2name) + "," + _entry[2]);
+            format.writeRecord(out, _record);
+        }
+        if (this.measureLatency)
+            writeLatencies(format, out, threadId, _latencyCounts, _maxLatencies, _methodId2name);
+    }
+
+    private static void writeLatencies(final TraceFormat format, final LogBuffer out, final long threadId,
+                                       final CounterTable latencyCounts, final CounterTable maxLatencies,
+                                       final Map<Integer, String> methodId2name) {
+        // INFO: histograms of each method and kind of time indexed by bucket
+        final Map<Long, long[]> _histograms = new HashMap<>();
+        latencyCounts.forEach((k, v, c) -> _histograms.computeIfAbsent(k >> 7, x -> new long[Long.SIZE + 1])
+                [(int) (k & 0x7F)] = c);
+        final Map<Long, Long> _maxLatencies = new HashMap<>();
+        maxLatencies.forEach((k, v, c) -> _maxLatencies.put(k, c - 1));
+
+        final LogBuffer _record = new LogBuffer(128);
+        for (final long[] _entry : getSortedEntries(maxLatencies)) {
+            final int _methodId = (int) (_entry[0] >> 1);
+            if ((_entry[0] & 1) != INCLUSIVE)
+                continue;
+
+            final StringBuilder _msg = new StringBuilder(LATENCY_TAG).append(',')
+                    .append(getName(_methodId, methodId2name));
+            for (final int _kind : new int[]{INCLUSIVE, EXCLUSIVE}) {
+                final long _key = getLatencyKey(_methodId, _kind);
+                final long[] _histogram = _histograms.get(_key);
+                final long _max = _maxLatencies.get(_key);
+                long _count = 0;
+                for (final long _tmp : _histogram)
+                    _count += _tmp;
+                if (_kind == INCLUSIVE)
+                    _msg.append(',').append(_count);
+                _msg.append(',').append(getPercentile(_histogram, _count, 50, _max));
+                _msg.append(',').append(getPercentile(_histogram, _count, 99, _max));
+                _msg.append(',').append(_max);
+            }
+
+            _record.clear();
+            format.beginRecord(_record, threadId);
+            format.writeMessage(_record, _msg.toString());
+            format.writeRecord(out, _record);
+        }
+    }
+
+    private static long getPercentile(final long[] histogram, final long count, final int percentile,
+                                      final long max) {
+        final long _rank = (count * percentile + 99) / 100;
+        long _tmp = 0;
+        for (int _bucket = 0; _bucket < histogram.length; _bucket++) {
+            _tmp += histogram[_bucket];
+            if (_tmp >= _rank)
+                return _bucket == 0 ? 0 : Math.min(max, _bucket == Long.SIZE ? Long.MAX_VALUE : (1L << _bucket) - 1);
+        }
+        return max;
+    }
+
+    private static long getLatencyKey(final int methodId, final int kind) {
+        return (long) methodId << 1 | kind;
+    }
+
+    private static String getName(final int methodId, final Map<Integer, String> methodId2name) {
+        if (methodId >= 0)
+            return "m" + methodId;
+        return methodId == UNKNOWN_METHOD ? "" : methodId2name.get(methodId);
+    }
+
+    // INFO: each entry is a triple of key, value, and count
+    private static List<long[]> getSortedEntries(final CounterTable table) {
+        final List<long[]> _ret = new ArrayList<>();
+        table.forEach((k, v, c) -> _ret.add(new long[]{k, v, c}));
+        _ret.sort((e1, e2) -> Long.compare(e1[0], e2[0]));
+        return _ret;
+    }
+
+    /*
+     * INFO
+     *
+     * The counts of a thread.  Only the owning thread updates these counts.
+     */
+    static final class ThreadCounts {
+        private final CounterTable methodCounts = new CounterTable();
+        // INFO: keyed by caller and call-site id with callee as the value
+        private final CounterTable callCounts = new CounterTable();
+        // INFO: keyed by method, kind of time (see getLatencyKey()), and bucket (in the lower 7 bits)
+        private final CounterTable latencyCounts;
+        // INFO: keyed by method and kind of time with 1 + maximum time as the count (as counts should be positive)
+        private final CounterTable maxLatencies;
+        private final boolean measureLatency;
+        private int[] activeMethods = new int[16];
+        private long[] entryTimes;
+        private long[] calleeTimes;
+        private int numOfActiveMethods = 0;
+
+        ThreadCounts(final boolean measureLatency) {
+            this.measureLatency = measureLatency;
+            this.latencyCounts = measureLatency ? new CounterTable() : null;
+            this.maxLatencies = measureLatency ? new CounterTable() : null;
+            this.entryTimes = measureLatency ? new long[this.activeMethods.length] : null;
+            this.calleeTimes = measureLatency ? new long[this.activeMethods.length] : null;
+        }
+
+        void countMethodEntry(final int methodId) {
+            this.methodCounts.increment(methodId, 0);
+            if (this.numOfActiveMethods == this.activeMethods.length) {
+                this.activeMethods = Arrays.copyOf(this.activeMethods, this.activeMethods.length * 2);
+                if (this.measureLatency) {
+                    this.entryTimes = Arrays.copyOf(this.entryTimes, this.activeMethods.length);
+                    this.calleeTimes = Arrays.copyOf(this.calleeTimes, this.activeMethods.length);
+                }
+            }
+            final int _frame = this.numOfActiveMethods++;
+            this.activeMethods[_frame] = methodId;
+            if (this.measureLatency) {
+                this.calleeTimes[_frame] = 0;
+                this.entryTimes[_frame] = System.nanoTime();
+            }
+        }
+
+        void countMethodExit() {
+            if (this.numOfActiveMethods == 0)
+                return;
+
+            final int _frame = --this.numOfActiveMethods;
+            if (this.measureLatency) {
+                final long _inclusiveTime = System.nanoTime() - this.entryTimes[_frame];
+                final int _methodId = this.activeMethods[_frame];
+                countLatency(getLatencyKey(_methodId, INCLUSIVE), _inclusiveTime);
+                countLatency(getLatencyKey(_methodId, EXCLUSIVE), _inclusiveTime - this.calleeTimes[_frame]);
+                if (_frame > 0)
+                    this.calleeTimes[_frame - 1] += _inclusiveTime;
+            }
+        }
+
+        void countMethodCall(final int methodId, final int callsiteId) {
+            final int _caller = this.numOfActiveMethods > 0 ? this.activeMethods[this.numOfActiveMethods - 1] :
+                    UNKNOWN_METHOD;
+            this.callCounts.increment((long) _caller << 32 | (callsiteId & 0xFFFFFFFFL), methodId);
+        }
+
+        private void countLatency(final long key, final long time) {
+            final long _time = Math.max(time, 0);
+            this.latencyCounts.increment(key << 7 | (Long.SIZE - Long.numberOfLeadingZeros(_time)), 0);
+            this.maxLatencies.max(key, 0, _time + 1);
+        }
+    }
+}
@@ -0,0 +1,200 @@
+/*
+ * Copyright (c) 2017, Venkatesh-Prasad Ranganath
+ *
+ * BSD 3-clause License
+ *
+ * Author: Venkatesh-Prasad Ranganath (rvprasad)
+ *
+ */
+
+package dyco4j.logging;
+
+import java.io.IOException;
+import java.io.InterruptedIOException;
+import java.io.OutputStream;
+import java.util.concurrent.ArrayBlockingQueue;
+import java.util.concurrent.BlockingQueue;
+
+/*
+ * INFO
+ *
+ * An async log stream copies the written bytes into fixed length blocks and hands full blocks to a writer thread
+ * that writes them into the underlying (compressing) stream.  So, logging threads pay only for the copy while the
+ * writer thread pays for compression and IO.
+ *
+ * A stream has a fixed number of blocks.  When all blocks are in use (i.e., the writer has fallen behind), the
+ * policy of the stream determines if a write should be admitted via admit().  Writers should call admit() before
+ * each write and skip the write if it is not admitted.  Writes are not thread-safe; Logger serializes them.
+ */
+final class AsyncLogStream extends OutputStream {
+    private static final LogBuffer CLOSE = new LogBuffer(0);
+    private static final LogBuffer ROTATE = new LogBuffer(0);
+    private final OutputStream out;
+    private final Policy policy;
+    private final int numOfBlocks;
+    private final int blockLength;
+    private final int blockCapacity;
+    private final int samplingRate;
+    private final BlockingQueue<LogBuffer> freeBlocks;
+    private final BlockingQueue<LogBuffer> fullBlocks;
+    private final Thread writer;
+    private final LoggerMetrics metrics;
+    private LogBuffer block;
+    private int numOfSkippedWrites;
+
+    AsyncLogStream(final OutputStream out, final Policy policy, final int numOfBlocks, final int blockLength,
+                   final int samplingRate, final LoggerMetrics metrics) {
+        if (numOfBlocks < 2)
+            throw new IllegalArgumentException("At least two blocks are required");
+        if (samplingRate < 1)
+            throw new IllegalArgumentException("Sampling rate should be positive");
+
+        this.out = out;
+        this.policy = policy;
+        this.numOfBlocks = numOfBlocks;
+        this.blockLength = blockLength;
+        this.samplingRate = samplingRate;
+        this.metrics = metrics;
+        this.freeBlocks = new ArrayBlockingQueue<>(numOfBlocks);
+        this.fullBlocks = new ArrayBlockingQueue<>(numOfBlocks);
+        for (int _i = 1; _i < numOfBlocks; _i++)
+            this.freeBlocks.add(new LogBuffer(blockLength));
+        this.block = new LogBuffer(blockLength);
+        this.blockCapacity = this.block.getBytes().length;
+
+        this.writer = new Thread(this::drain, "dyco4j-logging-writer");
+        this.writer.setDaemon(true);
+        this.writer.start();
+    }
+
+    /*
+     * Returns true if a write of the given length should be performed.
+     */
+    boolean admit(final int length) {
+        // INFO: a write that spills over n blocks is admitted only if n free blocks are available
+        if (this.policy == Policy.BLOCK ||
+                (this.block.length() + length - 1) / this.blockLength <= this.freeBlocks.size()) {
+            this.numOfSkippedWrites = 0;
+            return true;
+        }
+
+        // INFO: upon sampling, every samplingRate-th write is admitted (and blocks until a block is available)
+        return this.policy == Policy.SAMPLE && ++this.numOfSkippedWrites % this.samplingRate == 0;
+    }
+
+    int getNumOfBlocks() {
+        return this.numOfBlocks;
+    }
+
+    /*
+     * Returns the number of blocks waiting to be written by the writer thread.
+     */
+    int getNumOfFullBlocks() {
+        return this.fullBlocks.size();
+    }
+
+    boolean isSegmented() {
+        return this.out instanceof SegmentedLogStream;
+    }
+
+    /*
+     * Rotates the underlying segmented log stream after the writer thread has written the bytes written so far.
+     */
+    void rotate() throws IOException {
+        if (!isSegmented())
+            throw new IllegalStateException("Underlying stream is not segmented");
+
+        flush();
+        try {
+            this.fullBlocks.put(ROTATE);
+        } catch (final InterruptedException _e) {
+            Thread.currentThread().interrupt();
+            throw new InterruptedIOException();
+        }
+    }
+
+    @Override
+    public void write(final int b) throws IOException {
+        this.block.put(b);
+        if (this.block.length() >= this.blockLength)
+            handOver();
+    }
+
+    @Override
+    public void write(final byte[] b, final int off, final int len) throws IOException {
+        // INFO: chunks longer than the free space of a block are split across blocks so blocks never grow
+        int _off = off;
+        int _len = len;
+        while (_len > 0) {
+            final int _tmp = Math.min(_len, this.blockLength - this.block.length());
+            this.block.put(b, _off, _tmp);
+            _off += _tmp;
+            _len -= _tmp;
+            if (this.block.length() >= this.blockLength)
+                handOver();
+        }
+    }
+
+    @Override
+    public void flush() throws IOException {
+        if (this.block.length() > 0)
+            handOver();
+    }
+
+    @Override
+    public void close() throws IOException {
+        flush();
+        try {
+            this.fullBlocks.put(CLOSE);
+            this.writer.join();
+        } catch (final InterruptedException _e) {
+            Thread.currentThread().interrupt();
+            throw new InterruptedIOException();
+        }
+    }
+
+    private void handOver() throws IOException {
+        try {
+            this.fullBlocks.put(this.block);
+            this.block = this.freeBlocks.take();
+        } catch (final InterruptedException _e) {
+            Thread.currentThread().interrupt();
+            throw new InterruptedIOException();
+        }
+    }
+
+    private void drain() {
+        try {
+            for (LogBuffer _tmp = this.fullBlocks.take(); _tmp != CLOSE; _tmp = this.fullBlocks.take()) {
+                try {
+                    if (_tmp == ROTATE)
+                        ((SegmentedLogStream) this.out).rotate();
+                    else
+                        _tmp.writeTo(this.out);
+                } catch (final IOException _e) {
+                    LoggerMetrics.ioFailed(this.metrics, _e);
+                }
+                if (_tmp != ROTATE) {
+                    // INFO: grown blocks are replaced (not recycled) to bound the memory retained by the stream
+                    if (_tmp.getBytes().length > this.blockCapacity)
+                        _tmp = new LogBuffer(this.blockLength);
+                    else
+                        _tmp.clear();
+                    this.freeBlocks.put(_tmp);
+                }
+            }
+            this.out.flush();
+            this.out.close();
+        } catch (final IOException _e) {
+            LoggerMetrics.ioFailed(this.metrics, _e);
+        } catch (final InterruptedException _e) {
+            Thread.currentThread().interrupt();
+        }
+    }
+
+    enum Policy {
+        BLOCK,
+        DROP,
+        SAMPLE
+    }
+}
@@ -0,0 +1,195 @@
+/*
+ * Copyright (c) 2017, Venkatesh-Prasad Ranganath
+ *
+ * BSD 3-clause License
+ *
+ * Author: Venkatesh-Prasad Ranganath (rvprasad)
+ *
+ */
+
+package dyco4j.logging;
+
+import java.io.*;
+import java.nio.charset.StandardCharsets;
+import java.text.MessageFormat;
+import java.util.Arrays;
+import java.util.HashMap;
+import java.util.Map;
+
+/*
+ * INFO
+ *
+ * Decodes a binary trace (see BinaryTraceFormat) into the equivalent text trace.
+ */
+public final class BinaryTraceDecoder {
+    private static final String LINE_SEPARATOR = System.lineSeparator();
+    private final DataInputStream in;
+    private final Writer out;
+    private final Map<Long, String> threadId2prevRecord = new HashMap<>();
+    private long threadId = 0;
+
+    private BinaryTraceDecoder(final InputStream in, final Writer out) {
+        this.in = new DataInputStream(in);
+        this.out = out;
+    }
+
+    public static void main(final String[] args) throws IOException {
+        if (args.length != 2) {
+            System.err.println("Usage: java dyco4j.logging.BinaryTraceDecoder <binary trace file> <text trace file>");
+            System.exit(1);
+        }
+
+        final InputStream _tmp = new BufferedInputStream(new FileInputStream(args[0]));
+        try (final InputStream _in = TraceCodec.getCodecOfFile(args[0]).decode(_tmp);
+             final Writer _out = new BufferedWriter(
+                     new OutputStreamWriter(new FileOutputStream(args[1]), StandardCharsets.UTF_8))) {
+            decode(_in, _out);
+        }
+    }
+
+    public static void decode(final InputStream in, final Writer out) throws IOException {
+        new BinaryTraceDecoder(in, out).decode();
+    }
+
+    private void decode() throws IOException {
+        final byte[] _magic = new byte[BinaryTraceFormat.MAGIC.length];
+        this.in.readFully(_magic);
+        if (!Arrays.equals(_magic, BinaryTraceFormat.MAGIC))
+            throw new IOException("Not a binary trace");
+        final int _version = this.in.readUnsignedByte();
+        if (_version != BinaryTraceFormat.VERSION)
+            throw new IOException(MessageFormat.format("Unsupported binary trace version {0}", _version));
+        this.out.write(readString());
+        this.out.write(LINE_SEPARATOR);
+
+        for (int _tag = this.in.read(); _tag != -1; _tag = this.in.read()) {
+            if (_tag == BinaryTraceFormat.THREAD_TAG) {
+                this.threadId += readZigZag();
+            } else if (_tag == BinaryTraceFormat.REPEAT_TAG) {
+                final String _prevRecord = this.threadId2prevRecord.get(this.threadId);
+                if (_prevRecord == null)
+                    throw new IOException(MessageFormat.format("No record to repeat in thread {0}", this.threadId));
+                writeLine(_prevRecord + "," + readVarint());
+            } else if (_tag == BinaryTraceFormat.SEQUENCE_REPEAT_TAG) {
+                writeLine(this.threadId + "," + Logger.SEQUENCE_REPEAT_TAG + "," + readVarint() + "," + readVarint());
+            } else if (_tag == BinaryTraceFormat.SEQUENCE_NUMBER_TAG) {
+                final String _record = this.threadId + "," + readVarint() + "," +
+                        readRecord(this.in.readUnsignedByte());
+                this.threadId2prevRecord.put(this.threadId, _record);
+                writeLine(_record);
+            } else {
+                final String _record = this.threadId + "," + readRecord(_tag);
+                this.threadId2prevRecord.put(this.threadId, _record);
+                writeLine(_record);
+            }
+        }
+        this.out.flush();
+    }
+
+    private String readRecord(final int tag) throws IOException {
+        switch (tag) {
+            case BinaryTraceFormat.MESSAGE_TAG:
+                return readString();
+            case BinaryTraceFormat.COVERAGE_TAG: {
+                final StringBuilder _ret = new StringBuilder(Logger.METHOD_COVERAGE_TAG);
+                for (long _tmp = readVarint(); _tmp != 0; _tmp = readVarint())
+                    _ret.append(",m").append(_tmp - 1);
+                return _ret.toString();
+            }
+            case BinaryTraceFormat.METHOD_ENTRY_TAG:
+                return Logger.METHOD_ENTRY_TAG + ",m" + readVarint();
+            case BinaryTraceFormat.METHOD_EXIT_TAG:
+                return Logger.METHOD_EXIT_TAG + ",m" + readVarint() + "," + (char) this.in.readUnsignedByte();
+            case BinaryTraceFormat.TIMED_METHOD_ENTRY_TAG:
+                return Logger.METHOD_ENTRY_TAG + ",m" + readVarint() + "," + readVarint();
+            case BinaryTraceFormat.TIMED_METHOD_EXIT_TAG:
+                return Logger.METHOD_EXIT_TAG + ",m" + readVarint() + "," + (char) this.in.readUnsignedByte() + "," +
+                        readVarint();
+            case BinaryTraceFormat.METHOD_EXCEPTION_TAG:
+                return Logger.METHOD_EXCEPTION_TAG + "," + readValue() + "," + readString();
+            case BinaryTraceFormat.METHOD_ARG_TAG:
+                return Logger.METHOD_ARG_TAG + "," + readZigZag() + "," + readValue();
+            case BinaryTraceFormat.METHOD_RETURN_TAG: {
+                final String _value = readValue();
+                return _value == null ? Logger.METHOD_RETURN_TAG : Logger.METHOD_RETURN_TAG + "," + _value;
+            }
+            case BinaryTraceFormat.METHOD_CALL_TAG:
+                return Logger.METHOD_CALL_TAG + ",m" + readVarint() + "," + readVarint();
+            case BinaryTraceFormat.GET_FIELD_TAG:
+            case BinaryTraceFormat.PUT_FIELD_TAG: {
+                final Logger.FieldAction _action = tag == BinaryTraceFormat.GET_FIELD_TAG ?
+                        Logger.FieldAction.GETF : Logger.FieldAction.PUTF;
+                return _action + ",f" + readVarint() + "," + readValue() + "," + readValue();
+            }
+            case BinaryTraceFormat.GET_ARRAY_TAG:
+            case BinaryTraceFormat.PUT_ARRAY_TAG: {
+                final Logger.ArrayAction _action = tag == BinaryTraceFormat.GET_ARRAY_TAG ?
+                        Logger.ArrayAction.GETA : Logger.ArrayAction.PUTA;
+                return _action + "," + readZigZag() + "," + readValue() + "," + readValue();
+            }
+            default:
+                throw new IOException(MessageFormat.format("Unknown record tag {0}", tag));
+        }
+    }
+
+    private String readValue() throws IOException {
+        final int _kind = this.in.readUnsignedByte();
+        switch (_kind) {
+            case BinaryTraceFormat.NO_VALUE:
+                return null;
+            case BinaryTraceFormat.NULL_VALUE:
+                return Logger.NULL_VALUE;
+            case BinaryTraceFormat.TRUE_VALUE:
+                return Logger.TRUE_VALUE;
+            case BinaryTraceFormat.FALSE_VALUE:
+                return Logger.FALSE_VALUE;
+            case BinaryTraceFormat.UNINITIALIZED_THIS_VALUE:
+                return Logger.UNINITIALIZED_THIS_REP;
+            case BinaryTraceFormat.EMPTY_VALUE:
+                return "";
+            case 'f':
+                return Logger.FLOAT_TYPE_TAG + Float.intBitsToFloat(this.in.readInt());
+            case 'd':
+                return Logger.DOUBLE_TYPE_TAG + Double.longBitsToDouble(this.in.readLong());
+            case 'a':
+            case 'c':
+            case 'h':
+            case 'i':
+            case 'l':
+            case 'o':
+            case 's':
+            case 't':
+            case 'y':
+                return (char) _kind + ":" + readZigZag();
+            default:
+                throw new IOException(MessageFormat.format("Unknown value kind {0}", _kind));
+        }
+    }
+
+    private String readString() throws IOException {
+        final byte[] _tmp = new byte[(int) readVarint()];
+        this.in.readFully(_tmp);
+        return new String(_tmp, StandardCharsets.UTF_8);
+    }
+
+    private long readVarint() throws IOException {
+        long _ret = 0;
+        for (int _shift = 0; _shift < 64; _shift += 7) {
+            final int _b = this.in.readUnsignedByte();
+            _ret |= (long) (_b & 0x7F) << _shift;
+            if ((_b & 0x80) == 0)
+                return _ret;
+        }
+        throw new IOException("Malformed varint");
+    }
+
+    private long readZigZag() throws IOException {
+        final long _tmp = readVarint();
+        return (_tmp >>> 1) ^ -(_tmp & 1);
+    }
+
+    private void writeLine(final String line) throws IOException {
+        this.out.write(line);
+        this.out.write(LINE_SEPARATOR);
+    }
+}
@@ -0,0 +1,480 @@
+/*
+ * Copyright (c) 2017, Venkatesh-Prasad Ranganath
+ *
+ * BSD 3-clause License
+ *
+ * Author: Venkatesh-Prasad Ranganath (rvprasad)
+ *
+ */
+
+package dyco4j.logging;
+
+import java.nio.charset.StandardCharsets;
+
+/*
+ * INFO
+ *
+ * The binary trace starts with MAGIC, VERSION, and the creation time (as a string).  Each subsequent record starts
+ * with a one-byte tag followed by the payload of the record.
+ *   - THREAD_TAG <zig-zag varint delta from the previous thread id> (the thread of the subsequent records)
+ *   - MESSAGE_TAG <string>
+ *   - REPEAT_TAG <varint freq> (the previous record of the current thread was repeated freq more times)
+ *   - METHOD_ENTRY_TAG <varint method id>
+ *   - METHOD_EXIT_TAG <varint method id> <byte N|E>
+ *   - METHOD_EXCEPTION_TAG <value> <string>
+ *   - METHOD_ARG_TAG <zig-zag varint index> <value>
+ *   - METHOD_RETURN_TAG <value>
+ *   - METHOD_CALL_TAG <varint method id> <varint call-site id>
+ *   - (GET|PUT)_FIELD_TAG <varint field id> <value> <value>
+ *   - (GET|PUT)_ARRAY_TAG <zig-zag varint index> <value> <value>
+ *   - SEQUENCE_REPEAT_TAG <varint length> <varint freq> (the previous length records of the current thread were
+ *     repeated freq more times)
+ *   - TIMED_METHOD_ENTRY_TAG <varint method id> <varint elapsed time>
+ *   - TIMED_METHOD_EXIT_TAG <varint method id> <byte N|E> <varint elapsed time>
+ *   - SEQUENCE_NUMBER_TAG <varint sequence number> (the global sequence number of the subsequent record)
+ *   - COVERAGE_TAG <varint method id + 1>* <varint 0> (the methods covered since the previous coverage record)
+ *
+ * A string is its length in UTF-8 bytes as a varint followed by its UTF-8 bytes.  A value is a one-byte kind
+ * optionally followed by a payload: the single character type tags of Logger identify typed values with a zig-zag
+ * varint payload (floats and doubles have a fixed-length IEEE 754 payload) while the remaining kinds identify
+ * payload-free values.  Method and field ids m<n> and f<n> are encoded as n.
+ *
+ * Log statements that do not conform to these layouts are encoded as MESSAGE_TAG records.
+ */
+final class BinaryTraceFormat extends TraceFormat {
+    static final byte[] MAGIC = "DYCO4J".getBytes(StandardCharsets.US_ASCII);
+    static final int VERSION = 1;
+
+    static final int THREAD_TAG = 0;
+    static final int MESSAGE_TAG = 1;
+    static final int REPEAT_TAG = 2;
+    static final int METHOD_ENTRY_TAG = 3;
+    static final int METHOD_EXIT_TAG = 4;
+    static final int METHOD_EXCEPTION_TAG = 5;
+    static final int METHOD_ARG_TAG = 6;
+    static final int METHOD_RETURN_TAG = 7;
+    static final int METHOD_CALL_TAG = 8;
+    static final int GET_FIELD_TAG = 9;
+    static final int PUT_FIELD_TAG = 10;
+    static final int GET_ARRAY_TAG = 11;
+    static final int PUT_ARRAY_TAG = 12;
+    static final int SEQUENCE_REPEAT_TAG = 13;
+    static final int TIMED_METHOD_ENTRY_TAG = 14;
+    static final int TIMED_METHOD_EXIT_TAG = 15;
+    static final int SEQUENCE_NUMBER_TAG = 16;
+    static final int COVERAGE_TAG = 17;
+
+    static final int NO_VALUE = 0;
+    static final int NULL_VALUE = 1;
+    static final int TRUE_VALUE = 2;
+    static final int FALSE_VALUE = 3;
+    static final int UNINITIALIZED_THIS_VALUE = 4;
+    static final int EMPTY_VALUE = 5;
+
+    private static final String MAX_LONG_DIGITS = "9223372036854775807";
+    private static final String MIN_LONG_DIGITS = "9223372036854775808";
+
+    static boolean isCanonicalDecimal(final String s, final int from, final int to) {
+        final boolean _isNegative = from < to && s.charAt(from) == '-';
+        final int _begin = _isNegative ? from + 1 : from;
+        final int _numOfDigits = to - _begin;
+        if (_numOfDigits < 1 || _numOfDigits > 19)
+            return false;
+        if (s.charAt(_begin) == '0')
+            return _numOfDigits == 1 && !_isNegative;
+
+        for (int _i = _begin; _i < to; _i++) {
+            final char _c = s.charAt(_i);
+            if (_c < '0' || _c > '9')
+                return false;
+        }
+
+        if (_numOfDigits == 19) {
+            final String _limit = _isNegative ? MIN_LONG_DIGITS : MAX_LONG_DIGITS;
+            for (int _i = 0; _i < 19; _i++) {
+                final int _diff = s.charAt(_begin + _i) - _limit.charAt(_i);
+                if (_diff != 0)
+                    return _diff < 0;
+            }
+        }
+        return true;
+    }
+
+    static long parseDecimal(final String s, final int from, final int to) {
+        final boolean _isNegative = s.charAt(from) == '-';
+        long _ret = 0;
+        // INFO: accumulate as a negative value to handle Long.MIN_VALUE
+        for (int _i = _isNegative ? from + 1 : from; _i < to; _i++)
+            _ret = _ret * 10 - (s.charAt(_i) - '0');
+        return _isNegative ? _ret : -_ret;
+    }
+
+    private static void putString(final LogBuffer record, final String s) {
+        record.putVarint(LogBuffer.getUtf8Length(s));
+        record.putUtf8(s);
+    }
+
+    private static boolean putId(final LogBuffer record, final String id, final char prefix) {
+        return id != null && putId(record, id, 0, id.length(), prefix);
+    }
+
+    private static boolean putId(final LogBuffer record, final String id, final int from, final int to,
+                                 final char prefix) {
+        if (to - from < 2 || id.charAt(from) != prefix || id.charAt(from + 1) == '-' ||
+                !isCanonicalDecimal(id, from + 1, to))
+            return false;
+
+        record.putVarint(parseDecimal(id, from + 1, to));
+        return true;
+    }
+
+    private static boolean putValue(final LogBuffer record, final String value) {
+        if (value == null) {
+            return false;
+        } else if (value.isEmpty()) {
+            record.put(EMPTY_VALUE);
+        } else if (value.equals(Logger.NULL_VALUE)) {
+            record.put(NULL_VALUE);
+        } else if (value.equals(Logger.TRUE_VALUE)) {
+            record.put(TRUE_VALUE);
+        } else if (value.equals(Logger.FALSE_VALUE)) {
+            record.put(FALSE_VALUE);
+        } else if (value.equals(Logger.UNINITIALIZED_THIS_REP)) {
+            record.put(UNINITIALIZED_THIS_VALUE);
+        } else if (value.length() > 2 && value.charAt(1) == ':') {
+            final char _kind = value.charAt(0);
+            switch (_kind) {
+                case 'a':
+                case 'c':
+                case 'h':
+                case 'i':
+                case 'l':
+                case 'o':
+                case 's':
+                case 't':
+                case 'y':
+                    if (!isCanonicalDecimal(value, 2, value.length()))
+                        return false;
+                    record.put(_kind);
+                    record.putZigZag(parseDecimal(value, 2, value.length()));
+                    break;
+                case 'f': {
+                    final String _tmp = value.substring(2);
+                    try {
+                        final float _f = Float.parseFloat(_tmp);
+                        if (!Float.toString(_f).equals(_tmp))
+                            return false;
+                        record.put(_kind);
+                        record.putFixed32(Float.floatToRawIntBits(_f));
+                    } catch (final NumberFormatException _e) {
+                        return false;
+                    }
+                    break;
+                }
+                case 'd': {
+                    final String _tmp = value.substring(2);
+                    try {
+                        final double _d = Double.parseDouble(_tmp);
+                        if (!Double.toString(_d).equals(_tmp))
+                            return false;
+                        record.put(_kind);
+                        record.putFixed64(Double.doubleToRawLongBits(_d));
+                    } catch (final NumberFormatException _e) {
+                        return false;
+                    }
+                    break;
+                }
+                default:
+                    return false;
+            }
+        } else {
+            return false;
+        }
+        return true;
+    }
+
+    @Override
+    String getFileExtension() {
+        return ".bin";
+    }
+
+    @Override
+    void writeHeader(final LogBuffer out, final String date) {
+        out.put(MAGIC, 0, MAGIC.length);
+        out.put(VERSION);
+        putString(out, date);
+    }
+
+    @Override
+    void beginRecord(final LogBuffer record, final long threadId) {
+        // thread ids are captured by thread switch records
+    }
+
+    @Override
+    void writeRecord(final LogBuffer out, final LogBuffer record) {
+        out.put(record);
+    }
+
+    @Override
+    void writeRepeat(final LogBuffer out, final LogBuffer record, final int freq) {
+        out.put(REPEAT_TAG);
+        out.putVarint(freq);
+    }
+
+    @Override
+    void writeSequenceRepeat(final LogBuffer out, final long threadId, final int length, final int freq) {
+        out.put(SEQUENCE_REPEAT_TAG);
+        out.putVarint(length);
+        out.putVarint(freq);
+    }
+
+    @Override
+    void writeThreadSwitch(final LogBuffer out, final long prevThreadId, final long threadId) {
+        out.put(THREAD_TAG);
+        out.putZigZag(threadId - prevThreadId);
+    }
+
+    @Override
+    void writeSequenceNumber(final LogBuffer record, final long sequenceNumber) {
+        record.put(SEQUENCE_NUMBER_TAG);
+        record.putVarint(sequenceNumber);
+    }
+
+    @Override
+    void writeMessage(final LogBuffer record, final String msg) {
+        record.put(MESSAGE_TAG);
+        putString(record, String.valueOf(msg));
+    }
+
+    @Override
+    void writeCoverageHead(final LogBuffer record) {
+        record.put(COVERAGE_TAG);
+    }
+
+    @Override
+    void writeCoveredMethod(final LogBuffer record, final int methodId) {
+        record.putVarint(methodId + 1L);
+    }
+
+    @Override
+    void writeCoverageTail(final LogBuffer record) {
+        record.putVarint(0);
+    }
+
+    @Override
+    void writeArgument(final LogBuffer record, final byte index, final String value) {
+        final int _begin = record.length();
+        record.put(METHOD_ARG_TAG);
+        record.putZigZag(index);
+        if (!putValue(record, value))
+            writeMessage(record, _begin, Logger.METHOD_ARG_TAG, Byte.toString(index), value);
+    }
+
+    @Override
+    void writeArray(final LogBuffer record, final Logger.ArrayAction action, final int index, final String array,
+                    final String value) {
+        final int _begin = record.length();
+        record.put(action == Logger.ArrayAction.GETA ? GET_ARRAY_TAG : PUT_ARRAY_TAG);
+        record.putZigZag(index);
+        if (!putValue(record, array) || !putValue(record, value))
+            writeMessage(record, _begin, action.toString(), Integer.toString(index), array, value);
+    }
+
+    @Override
+    void writeMethodCall(final LogBuffer record, final String methodIdAndCallsiteId) {
+        final int _begin = record.length();
+        record.put(METHOD_CALL_TAG);
+        final int _sep = methodIdAndCallsiteId == null ? -1 : methodIdAndCallsiteId.indexOf(',');
+        final int _len = _sep < 0 ? 0 : methodIdAndCallsiteId.length();
+        if (_sep < 0 || !putId(record, methodIdAndCallsiteId, 0, _sep, 'm') ||
+                !isCanonicalDecimal(methodIdAndCallsiteId, _sep + 1, _len) ||
+                methodIdAndCallsiteId.charAt(_sep + 1) == '-') {
+            writeMessage(record, _begin, Logger.METHOD_CALL_TAG, methodIdAndCallsiteId);
+        } else {
+            record.putVarint(parseDecimal(methodIdAndCallsiteId, _sep + 1, _len));
+        }
+    }
+
+    @Override
+    void writeField(final LogBuffer record, final Logger.FieldAction action, final String fieldName,
+                    final String receiver, final String value) {
+        final int _begin = record.length();
+        record.put(action == Logger.FieldAction.GETF ? GET_FIELD_TAG : PUT_FIELD_TAG);
+        if (!putId(record, fieldName, 'f') || !putValue(record, receiver) ||
+                !putValue(record, value))
+            writeMessage(record, _begin, action.toString(), fieldName, receiver, value);
+    }
+
+    @Override
+    void writeMethodEntry(final LogBuffer record, final String methodId, final long elapsedTime) {
+        final int _begin = record.length();
+        final boolean _isTimed = elapsedTime != NO_ELAPSED_TIME;
+        record.put(_isTimed ? TIMED_METHOD_ENTRY_TAG : METHOD_ENTRY_TAG);
+        if (!putId(record, methodId, 'm'))
+            writeMessage(record, _begin, _isTimed ? new String[]{Logger.METHOD_ENTRY_TAG, methodId,
+                    String.valueOf(elapsedTime)} : new String[]{Logger.METHOD_ENTRY_TAG, methodId});
+        else if (_isTimed)
+            record.putVarint(elapsedTime);
+    }
+
+    @Override
+    void writeMethodExit(final LogBuffer record, final String methodId, final String returnKind,
+                         final long elapsedTime) {
+        final int _begin = record.length();
+        final boolean _isTimed = elapsedTime != NO_ELAPSED_TIME;
+        record.put(_isTimed ? TIMED_METHOD_EXIT_TAG : METHOD_EXIT_TAG);
+        if (putId(record, methodId, 'm') && ("N".equals(returnKind) ||
+                "E".equals(returnKind))) {
+            record.put(returnKind.charAt(0));
+            if (_isTimed)
+                record.putVarint(elapsedTime);
+        } else
+            writeMessage(record, _begin, _isTimed ? new String[]{Logger.METHOD_EXIT_TAG, methodId, returnKind,
+                    String.valueOf(elapsedTime)} : new String[]{Logger.METHOD_EXIT_TAG, methodId, returnKind});
+    }
+
+    @Override
+    void writeReturn(final LogBuffer record, final String value) {
+        final int _begin = record.length();
+        record.put(METHOD_RETURN_TAG);
+        if (value == null)
+            record.put(NO_VALUE);
+        else if (!putValue(record, value))
+            writeMessage(record, _begin, Logger.METHOD_RETURN_TAG, value);
+    }
+
+    @Override
+    void writeArgumentHead(final LogBuffer record, final byte index) {
+        record.put(METHOD_ARG_TAG);
+        record.putZigZag(index);
+    }
+
+    @Override
+    void writeArrayHead(final LogBuffer record, final Logger.ArrayAction action, final int index,
+                        final Object array) {
+        record.put(action == Logger.ArrayAction.GETA ? GET_ARRAY_TAG : PUT_ARRAY_TAG);
+        record.putZigZag(index);
+        writeValue(record, array);
+    }
+
+    @Override
+    void writeFieldHead(final LogBuffer record, final Logger.FieldAction action, final int fieldId,
+                        final Object receiver) {
+        record.put(action == Logger.FieldAction.GETF ? GET_FIELD_TAG : PUT_FIELD_TAG);
+        record.putVarint(fieldId);
+        if (receiver == null)
+            record.put(EMPTY_VALUE);
+        else
+            writeValue(record, receiver);
+    }
+
+    @Override
+    void writeReturnHead(final LogBuffer record) {
+        record.put(METHOD_RETURN_TAG);
+    }
+
+    @Override
+    void writeException(final LogBuffer record, final Throwable exception) {
+        record.put(METHOD_EXCEPTION_TAG);
+        writeValue(record, exception);
+        putString(record, exception.getClass().getName());
+    }
+
+    @Override
+    void writeMethodCall(final LogBuffer record, final int methodId, final int callsiteId) {
+        record.put(METHOD_CALL_TAG);
+        record.putVarint(methodId);
+        record.putVarint(callsiteId);
+    }
+
+    @Override
+    void writeMethodEntry(final LogBuffer record, final int methodId, final long elapsedTime) {
+        if (elapsedTime != NO_ELAPSED_TIME) {
+            record.put(TIMED_METHOD_ENTRY_TAG);
+            record.putVarint(methodId);
+            record.putVarint(elapsedTime);
+        } else {
+            record.put(METHOD_ENTRY_TAG);
+            record.putVarint(methodId);
+        }
+    }
+
+    @Override
+    void writeMethodExit(final LogBuffer record, final int methodId, final String returnKind,
+                         final long elapsedTime) {
+        if ("N".equals(returnKind) || "E".equals(returnKind)) {
+            final boolean _isTimed = elapsedTime != NO_ELAPSED_TIME;
+            record.put(_isTimed ? TIMED_METHOD_EXIT_TAG : METHOD_EXIT_TAG);
+            record.putVarint(methodId);
+            record.put(returnKind.charAt(0));
+            if (_isTimed)
+                record.putVarint(elapsedTime);
+        } else {
+            writeMethodExit(record, "m" + methodId, returnKind, elapsedTime);
+        }
+    }
+
+    @Override
+    void writeValue(final LogBuffer record, final boolean value) {
+        record.put(value ? TRUE_VALUE : FALSE_VALUE);
+    }
+
+    @Override
+    void writeValue(final LogBuffer record, final byte value) {
+        record.put('y');
+        record.putZigZag(value);
+    }
+
+    @Override
+    void writeValue(final LogBuffer record, final char value) {
+        record.put('c');
+        record.putZigZag(value);
+    }
+
+    @Override
+    void writeValue(final LogBuffer record, final short value) {
+        record.put('h');
+        record.putZigZag(value);
+    }
+
+    @Override
+    void writeValue(final LogBuffer record, final int value) {
+        record.put('i');
+        record.putZigZag(value);
+    }
+
+    @Override
+    void writeValue(final LogBuffer record, final long value) {
+        record.put('l');
+        record.putZigZag(value);
+    }
+
+    @Override
+    void writeValue(final LogBuffer record, final float value) {
+        record.put('f');
+        record.putFixed32(Float.floatToRawIntBits(value));
+    }
+
+    @Override
+    void writeValue(final LogBuffer record, final double value) {
+        record.put('d');
+        record.putFixed64(Double.doubleToRawLongBits(value));
+    }
+
+    @Override
+    void writeValue(final LogBuffer record, final Object value) {
+        if (value == Logger.UNINITIALIZED_THIS) {
+            record.put(UNINITIALIZED_THIS_VALUE);
+        } else if (value == null) {
+            record.put(NULL_VALUE);
+        } else {
+            record.put(Logger.getTypeTag(value).charAt(0));
+            record.putZigZag(System.identityHashCode(value));
+        }
+    }
+
+    private void writeMessage(final LogBuffer record, final int begin, final String... fields) {
+        record.setLength(begin);
+        writeMessage(record, String.join(",", fields));
+    }
+}
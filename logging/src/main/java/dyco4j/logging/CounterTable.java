@@ -0,0 +1,114 @@
+/*
+ * Copyright (c) 2017, Venkatesh-Prasad Ranganath
+ *
+ * BSD 3-clause License
+ *
+ * Author: Venkatesh-Prasad Ranganath (rvprasad)
+ *
+ */
+
+package dyco4j.logging;
+
+/*
+ * INFO
+ *
+ * A counter table maps long keys to counts (and an int value associated with the key) via open addressing with
+ * linear probing.  So, counting does not create objects.
+ *
+ * Only one thread increments the counts in a table.  Other threads may read a table via forEach() while it is being
+ * updated; such reads may miss the latest increments.
+ */
+final class CounterTable {
+    private static final int INITIAL_CAPACITY = 64;
+    private volatile Slots slots = new Slots(INITIAL_CAPACITY);
+    private int size = 0;
+
+    private static int getIndex(final long key, final int mask) {
+        final long _tmp = key * 0x9E3779B97F4A7C15L;
+        return (int) (_tmp ^ (_tmp >>> 32)) & mask;
+    }
+
+    void increment(final long key, final int value) {
+        add(key, value, 1);
+    }
+
+    synchronized void forEach(final Consumer consumer) {
+        final Slots _slots = this.slots;
+        for (int _i = 0; _i < _slots.keys.length; _i++)
+            if (_slots.counts[_i] > 0)
+                consumer.accept(_slots.keys[_i], _slots.values[_i], _slots.counts[_i]);
+    }
+
+    /*
+     * Adds the given count to the count of the given key.
+     */
+    void add(final long key, final int value, final long count) {
+        final Slots _slots = this.slots;
+        final int _mask = _slots.keys.length - 1;
+        for (int _i = getIndex(key, _mask); ; _i = (_i + 1) & _mask) {
+            if (_slots.counts[_i] == 0) {
+                _slots.keys[_i] = key;
+                _slots.values[_i] = value;
+                _slots.counts[_i] = count;
+                if (++this.size * 2 > _slots.keys.length)
+                    grow();
+                return;
+            } else if (_slots.keys[_i] == key) {
+                _slots.counts[_i] += count;
+                return;
+            }
+        }
+    }
+
+    /*
+     * Sets the count of the given key to the maximum of its count and the given count.
+     */
+    void max(final long key, final int value, final long count) {
+        final Slots _slots = this.slots;
+        final int _mask = _slots.keys.length - 1;
+        for (int _i = getIndex(key, _mask); ; _i = (_i + 1) & _mask) {
+            if (_slots.counts[_i] == 0) {
+                add(key, value, count);
+                return;
+            } else if (_slots.keys[_i] == key) {
+                if (_slots.counts[_i] < count)
+                    _slots.counts[_i] = count;
+                return;
+            }
+        }
+    }
+
+    private synchronized void grow() {
+        final Slots _old = this.slots;
+        final Slots _new = new Slots(_old.keys.length * 2);
+        final int _mask = _new.keys.length - 1;
+        for (int _i = 0; _i < _old.keys.length; _i++) {
+            if (_old.counts[_i] > 0) {
+                int _j = getIndex(_old.keys[_i], _mask);
+                while (_new.counts[_j] != 0)
+                    _j = (_j + 1) & _mask;
+                _new.keys[_j] = _old.keys[_i];
+                _new.values[_j] = _old.values[_i];
+                _new.counts[_j] = _old.counts[_i];
+            }
+        }
+        this.slots = _new;
+    }
+
+    @FunctionalInterface
+    interface Consumer {
+        void accept(long key, int value, long count);
+    }
+
+    private static final class Slots {
+        final long[] keys;
+        final int[] values;
+        final long[] counts;
+
+        Slots(final int capacity) {
+            this.keys = new long[capacity];
+            this.values = new int[capacity];
+            this.counts = new long[capacity];
+        }
+    }
+}
@@ -0,0 +1,107 @@
+/*
+ * Copyright (c) 2017, Venkatesh-Prasad Ranganath
+ *
+ * BSD 3-clause License
+ *
+ * Author: Venkatesh-Prasad Ranganath (rvprasad)
+ *
+ */
+
+package dyco4j.logging;
+
+import java.util.concurrent.atomic.AtomicIntegerArray;
+
+/*
+ * INFO
+ *
+ * A coverage map records which methods were executed as a bitmap indexed by int method ids.  Probes only read and
+ * (the first time) atomically set one bit of a preallocated bitmap; so, the cost of a probe is close to that of an
+ * array access.  The bitmap is grown (rarely) when a method id exceeds its length.
+ *
+ * Since bits are set and drained (cleared) atomically, a method covered by a thread while the bitmap is being
+ * drained is reported either in the current drain or in the next drain.  A method covered via a bitmap that is being
+ * replaced by a grown bitmap is covered again in the grown bitmap.
+ */
+final class CoverageMap {
+    private static final int INITIAL_LENGTH = 65536;
+    private static volatile AtomicIntegerArray coveredMethods = new AtomicIntegerArray(INITIAL_LENGTH >>> 5);
+    private static volatile boolean changed = false;
+
+    private CoverageMap() {
+    }
+
+    static void cover(final int methodId) {
+        final AtomicIntegerArray _tmp = coveredMethods;
+        final int _word = methodId >>> 5;
+        if (methodId >= 0 && _word < _tmp.length()) {
+            // INFO: covered methods are not written again to avoid contention on the cache lines of the bitmap
+            final int _bit = 1 << methodId;
+            if ((_tmp.get(_word) & _bit) == 0) {
+                setBits(_tmp, _word, _bit);
+                changed = true;
+                if (coveredMethods != _tmp)
+                    cover(methodId);
+            }
+        } else
+            grow(methodId);
+    }
+
+    static boolean hasChanged() {
+        return changed;
+    }
+
+    /*
+     * Writes a record of the ids of methods covered since the previous drain into the given record (after
+     * beginRecord()) and clears their bits.  Returns false (and writes nothing) if no method was covered.
+     */
+    static synchronized boolean drain(final TraceFormat format, final LogBuffer record) {
+        if (!changed)
+            return false;
+
+        changed = false;
+        final AtomicIntegerArray _tmp = coveredMethods;
+        boolean _ret = false;
+        for (int _i = 0; _i < _tmp.length(); _i++) {
+            if (_tmp.get(_i) == 0)
+                continue;
+
+            int _bits = _tmp.getAndSet(_i, 0);
+            if (!_ret && _bits != 0) {
+                format.writeCoverageHead(record);
+                _ret = true;
+            }
+            for (; _bits != 0; _bits &= _bits - 1)
+                format.writeCoveredMethod(record, (_i << 5) + Integer.numberOfTrailingZeros(_bits));
+        }
+        if (_ret)
+            format.writeCoverageTail(record);
+        return _ret;
+    }
+
+    private static void setBits(final AtomicIntegerArray bitmap, final int word, final int bits) {
+        for (int _old = bitmap.get(word); (_old & bits) != bits; _old = bitmap.get(word))
+            if (bitmap.compareAndSet(word, _old, _old | bits))
+                return;
+    }
+
+    private static synchronized void grow(final int methodId) {
+        if (methodId < 0)
+            throw new IllegalArgumentException("Method id should be non-negative");
+
+        final AtomicIntegerArray _old = coveredMethods;
+        final int _word = methodId >>> 5;
+        if (_word >= _old.length()) {
+            // INFO: the grown bitmap is published before the bits are moved so that probes that set bits in the old
+            // bitmap after the move see the grown bitmap (and cover again)
+            final AtomicIntegerArray _new = new AtomicIntegerArray(Math.max(_word + 1, _old.length() * 2));
+            coveredMethods = _new;
+            for (int _i = 0; _i < _old.length(); _i++) {
+                final int _bits = _old.getAndSet(_i, 0);
+                if (_bits != 0)
+                    setBits(_new, _i, _bits);
+            }
+        }
+        setBits(coveredMethods, _word, 1 << methodId);
+        changed = true;
+    }
+}
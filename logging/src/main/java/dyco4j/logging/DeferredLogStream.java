@@ -0,0 +1,95 @@
+/*
+ * Copyright (c) 2017, Venkatesh-Prasad Ranganath
+ *
+ * BSD 3-clause License
+ *
+ * Author: Venkatesh-Prasad Ranganath (rvprasad)
+ *
+ */
+
+package dyco4j.logging;
+
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.io.InterruptedIOException;
+import java.io.OutputStream;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.FutureTask;
+
+/*
+ * INFO
+ *
+ * A deferred log stream opens its stream (e.g., creates the trace file and sets up its compressor) on a background
+ * thread.  So, the class whose initialization bootstraps the logger does not wait for the stream.  Upto
+ * pendingLength bytes written before the stream is open are held in memory; further writes wait for the stream.
+ *
+ * Writes are not thread-safe; Logger (or the writer thread of an async log stream) serializes them.
+ */
+final class DeferredLogStream extends OutputStream {
+    private final FutureTask<OutputStream> opener;
+    private final int pendingLength;
+    private ByteArrayOutputStream pending = new ByteArrayOutputStream();
+    private OutputStream stream;
+
+    /**
+     * @param metrics when not null, the time taken to open the stream is counted in metrics.
+     */
+    DeferredLogStream(final Opener opener, final int pendingLength, final LoggerMetrics metrics) {
+        this.opener = new FutureTask<>(() -> {
+            final long _start = System.nanoTime();
+            final OutputStream _ret = opener.open();
+            if (metrics != null)
+                metrics.setStreamOpenTime(System.nanoTime() - _start);
+            return _ret;
+        });
+        this.pendingLength = pendingLength;
+        final Thread _tmp = new Thread(this.opener, "dyco4j-logging-opener");
+        _tmp.setDaemon(true);
+        _tmp.start();
+    }
+
+    @Override
+    public void write(final int b) throws IOException {
+        write(new byte[]{(byte) b}, 0, 1);
+    }
+
+    @Override
+    public void write(final byte[] b, final int off, final int len) throws IOException {
+        if (this.stream == null && !this.opener.isDone() && this.pending.size() + len <= this.pendingLength) {
+            this.pending.write(b, off, len);
+            return;
+        }
+        getStream().write(b, off, len);
+    }
+
+    @Override
+    public void flush() throws IOException {
+        getStream().flush();
+    }
+
+    @Override
+    public void close() throws IOException {
+        getStream().close();
+    }
+
+    private OutputStream getStream() throws IOException {
+        if (this.stream == null) {
+            try {
+                this.stream = this.opener.get();
+            } catch (final InterruptedException _e) {
+                Thread.currentThread().interrupt();
+                throw new InterruptedIOException("Interrupted while opening the log stream");
+            } catch (final ExecutionException _e) {
+                throw _e.getCause() instanceof IOException ? (IOException) _e.getCause() : new IOException(_e);
+            }
+            this.pending.writeTo(this.stream);
+            this.pending = null;
+        }
+        return this.stream;
+    }
+
+    @FunctionalInterface
+    interface Opener {
+        OutputStream open() throws IOException;
+    }
+}
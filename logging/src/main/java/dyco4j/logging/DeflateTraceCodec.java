@@ -0,0 +1,61 @@
+/*
+ * Copyright (c) 2017, Venkatesh-Prasad Ranganath
+ *
+ * BSD 3-clause License
+ *
+ * Author: Venkatesh-Prasad Ranganath (rvprasad)
+ *
+ */
+
+package dyco4j.logging;
+
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.OutputStream;
+import java.util.zip.GZIPInputStream;
+import java.util.zip.GZIPOutputStream;
+
+/*
+ * INFO
+ *
+ * Compresses traces with gzip at the given level.  With more than one thread, traces are compressed in parallel
+ * (see ParallelGzipStream).
+ */
+final class DeflateTraceCodec extends TraceCodec {
+    private final int level;
+    private final int numOfThreads;
+    private final int blockLength;
+
+    DeflateTraceCodec(final int level, final int numOfThreads, final int blockLength) {
+        this.level = level;
+        this.numOfThreads = numOfThreads;
+        this.blockLength = blockLength;
+    }
+
+    @Override
+    public String getName() {
+        return "deflate";
+    }
+
+    @Override
+    public String getFileExtension() {
+        return ".gz";
+    }
+
+    @Override
+    public OutputStream encode(final OutputStream out) throws IOException {
+        if (this.numOfThreads > 1)
+            return new ParallelGzipStream(out, this.level, this.blockLength, this.numOfThreads);
+
+        return new GZIPOutputStream(out) {
+            {
+                this.def.setLevel(DeflateTraceCodec.this.level);
+            }
+        };
+    }
+
+    @Override
+    public InputStream decode(final InputStream in) throws IOException {
+        return new GZIPInputStream(in);
+    }
+}
@@ -0,0 +1,81 @@
+/*
+ * Copyright (c) 2017, Venkatesh-Prasad Ranganath
+ *
+ * BSD 3-clause License
+ *
+ * Author: Venkatesh-Prasad Ranganath (rvprasad)
+ *
+ */
+
+package dyco4j.logging;
+
+import javax.management.JMException;
+import javax.management.ObjectName;
+import java.io.File;
+import java.io.IOException;
+import java.lang.management.ManagementFactory;
+import java.util.concurrent.atomic.AtomicInteger;
+
+/*
+ * INFO
+ *
+ * The flight recorder dumps the ring of the logger (see RingLogStream) on demand, i.e., when its dump operation is
+ * invoked via JMX or when its trigger file is created.  The trigger file is deleted upon dump; so, it can be created
+ * again (e.g., touch trace/dump) to trigger another dump.
+ */
+public final class FlightRecorder implements FlightRecorderMBean {
+    public static final String OBJECT_NAME = "dyco4j.logging:type=FlightRecorder";
+    private final AtomicInteger numOfDumps = new AtomicInteger();
+    private final LoggerMetrics metrics;
+
+    /**
+     * @param metrics when not null, failed dumps triggered via the trigger file are counted in metrics.
+     */
+    FlightRecorder(final LoggerMetrics metrics) {
+        this.metrics = metrics;
+    }
+
+    void register() {
+        try {
+            ManagementFactory.getPlatformMBeanServer().registerMBean(this, new ObjectName(OBJECT_NAME));
+        } catch (final JMException _e) {
+            // INFO: the recorder is registered by the first logger when there are many loggers (in many class loaders)
+        }
+    }
+
+    /*
+     * Starts a daemon thread that checks for the trigger file every interval milliseconds.
+     */
+    void watch(final File trigger, final long interval) {
+        final Thread _watcher = new Thread(() -> {
+            try {
+                while (true) {
+                    Thread.sleep(interval);
+                    if (trigger.delete()) {
+                        try {
+                            dump();
+                        } catch (final IOException _e) {
+                            LoggerMetrics.ioFailed(this.metrics, _e);
+                        }
+                    }
+                }
+            } catch (final InterruptedException _e) {
+                Thread.currentThread().interrupt();
+            }
+        }, "dyco4j-logging-flight-recorder");
+        _watcher.setDaemon(true);
+        _watcher.start();
+    }
+
+    @Override
+    public String dump() throws IOException {
+        final File _tmp = Logger.dump();
+        this.numOfDumps.incrementAndGet();
+        return _tmp.getPath();
+    }
+
+    @Override
+    public int getNumOfDumps() {
+        return this.numOfDumps.get();
+    }
+}
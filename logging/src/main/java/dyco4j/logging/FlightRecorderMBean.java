@@ -0,0 +1,21 @@
+/*
+ * Copyright (c) 2017, Venkatesh-Prasad Ranganath
+ *
+ * BSD 3-clause License
+ *
+ * Author: Venkatesh-Prasad Ranganath (rvprasad)
+ *
+ */
+
+package dyco4j.logging;
+
+import java.io.IOException;
+
+public interface FlightRecorderMBean {
+    /**
+     * @return the path of the trace file into which the ring was dumped.
+     */
+    String dump() throws IOException;
+
+    int getNumOfDumps();
+}
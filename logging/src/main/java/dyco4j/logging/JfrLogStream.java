@@ -0,0 +1,412 @@
+/*
+ * Copyright (c) 2017, Venkatesh-Prasad Ranganath
+ *
+ * BSD 3-clause License
+ *
+ * Author: Venkatesh-Prasad Ranganath (rvprasad)
+ *
+ */
+
+package dyco4j.logging;
+
+import jdk.jfr.Category;
+import jdk.jfr.Event;
+import jdk.jfr.EventType;
+import jdk.jfr.Label;
+import jdk.jfr.Name;
+import jdk.jfr.StackTrace;
+
+import java.io.OutputStream;
+import java.nio.charset.StandardCharsets;
+import java.util.Arrays;
+
+/*
+ * INFO
+ *
+ * In JFR output, log statements are committed as JDK Flight Recorder events instead of being written into traces.
+ * So, traces end up in the .jfr file of the recording alongside GC, lock, and IO events of the JVM.
+ *
+ * Method entries, method exits, field accesses, and array accesses are committed as events of their own types by
+ * the corresponding methods of Logger; other log statements are committed as record events (with the text of the
+ * record) by their thread logs.  Events are built only if they will be committed; so, nothing is allocated or
+ * formatted while no recording of the events is running (e.g., when the JVM is not started with
+ * -XX:StartFlightRecording).  As an event is committed by the thread that logged it, the thread and the time of the
+ * event are recorded by JFR.  The (global) sequence number of the log statement is kept to order events that happen
+ * within the resolution of the clock of JFR.
+ *
+ * A JFR log stream commits the records written by the logger itself (e.g., coverage and aggregates upon cleanup) as
+ * record events; it is written by one thread at a time.  This class requires jdk.jfr (Java 11+ or Java 8u262+); so,
+ * it is used only after LoggerInitializer.isJfrAvailable() confirms that jdk.jfr is available.
+ */
+final class JfrLogStream extends OutputStream {
+    // INFO: the types of events of the kinds of log statements (see LoggerMetrics)
+    private static final EventType[] KIND2TYPE = new EventType[LoggerMetrics.METHOD_EXIT + 1];
+
+    static {
+        Arrays.fill(KIND2TYPE, EventType.getEventType(RecordEvent.class));
+        KIND2TYPE[Sampler.Kind.en.ordinal()] = EventType.getEventType(MethodEntryEvent.class);
+        KIND2TYPE[LoggerMetrics.METHOD_EXIT] = EventType.getEventType(MethodExitEvent.class);
+        final EventType _fieldAccess = EventType.getEventType(FieldAccessEvent.class);
+        KIND2TYPE[Sampler.Kind.GETF.ordinal()] = _fieldAccess;
+        KIND2TYPE[Sampler.Kind.PUTF.ordinal()] = _fieldAccess;
+        final EventType _arrayAccess = EventType.getEventType(ArrayAccessEvent.class);
+        KIND2TYPE[Sampler.Kind.GETA.ordinal()] = _arrayAccess;
+        KIND2TYPE[Sampler.Kind.PUTA.ordinal()] = _arrayAccess;
+    }
+
+    private byte[] line = new byte[256];
+    private int lineLength = 0;
+    private boolean header = true;
+
+    /*
+     * Returns true if events of the given kind (see LoggerMetrics) are being recorded.
+     */
+    static boolean isEnabled(final int kind) {
+        return KIND2TYPE[kind].isEnabled();
+    }
+
+    static void commitMethodEntry(final int methodId, final Logger logger) {
+        final MethodEntryEvent _e = new MethodEntryEvent();
+        if (_e.shouldCommit())
+            _e.commit("m" + methodId, logger.nextSequenceNumber());
+    }
+
+    static void commitMethodEntry(final String methodId, final Logger logger) {
+        final MethodEntryEvent _e = new MethodEntryEvent();
+        if (_e.shouldCommit())
+            _e.commit(methodId, logger.nextSequenceNumber());
+    }
+
+    static void commitMethodExit(final int methodId, final String returnKind, final Logger logger) {
+        final MethodExitEvent _e = new MethodExitEvent();
+        if (_e.shouldCommit())
+            _e.commit("m" + methodId, returnKind, logger.nextSequenceNumber());
+    }
+
+    static void commitMethodExit(final String methodId, final String returnKind, final Logger logger) {
+        final MethodExitEvent _e = new MethodExitEvent();
+        if (_e.shouldCommit())
+            _e.commit(methodId, returnKind, logger.nextSequenceNumber());
+    }
+
+    static void commitFieldAccess(final Logger.FieldAction action, final String fieldName, final Object receiver,
+                                  final String value, final Logger logger) {
+        final FieldAccessEvent _e = new FieldAccessEvent();
+        if (_e.shouldCommit()) {
+            _e.begin(action, fieldName, receiver, logger.nextSequenceNumber());
+            _e.commit(value);
+        }
+    }
+
+    static void commitFieldAccess(final Logger.FieldAction action, final int fieldId, final Object receiver,
+                                  final boolean value, final Logger logger) {
+        final FieldAccessEvent _e = beginFieldAccess(action, fieldId, receiver, logger);
+        if (_e != null)
+            _e.commit(Logger.toString(value));
+    }
+
+    static void commitFieldAccess(final Logger.FieldAction action, final int fieldId, final Object receiver,
+                                  final byte value, final Logger logger) {
+        final FieldAccessEvent _e = beginFieldAccess(action, fieldId, receiver, logger);
+        if (_e != null)
+            _e.commit(Logger.toString(value));
+    }
+
+    static void commitFieldAccess(final Logger.FieldAction action, final int fieldId, final Object receiver,
+                                  final char value, final Logger logger) {
+        final FieldAccessEvent _e = beginFieldAccess(action, fieldId, receiver, logger);
+        if (_e != null)
+            _e.commit(Logger.toString(value));
+    }
+
+    static void commitFieldAccess(final Logger.FieldAction action, final int fieldId, final Object receiver,
+                                  final short value, final Logger logger) {
+        final FieldAccessEvent _e = beginFieldAccess(action, fieldId, receiver, logger);
+        if (_e != null)
+            _e.commit(Logger.toString(value));
+    }
+
+    static void commitFieldAccess(final Logger.FieldAction action, final int fieldId, final Object receiver,
+                                  final int value, final Logger logger) {
+        final FieldAccessEvent _e = beginFieldAccess(action, fieldId, receiver, logger);
+        if (_e != null)
+            _e.commit(Logger.toString(value));
+    }
+
+    static void commitFieldAccess(final Logger.FieldAction action, final int fieldId, final Object receiver,
+                                  final long value, final Logger logger) {
+        final FieldAccessEvent _e = beginFieldAccess(action, fieldId, receiver, logger);
+        if (_e != null)
+            _e.commit(Logger.toString(value));
+    }
+
+    static void commitFieldAccess(final Logger.FieldAction action, final int fieldId, final Object receiver,
+                                  final float value, final Logger logger) {
+        final FieldAccessEvent _e = beginFieldAccess(action, fieldId, receiver, logger);
+        if (_e != null)
+            _e.commit(Logger.toString(value));
+    }
+
+    static void commitFieldAccess(final Logger.FieldAction action, final int fieldId, final Object receiver,
+                                  final double value, final Logger logger) {
+        final FieldAccessEvent _e = beginFieldAccess(action, fieldId, receiver, logger);
+        if (_e != null)
+            _e.commit(Logger.toString(value));
+    }
+
+    static void commitFieldAccess(final Logger.FieldAction action, final int fieldId, final Object receiver,
+                                  final Object value, final Logger logger) {
+        final FieldAccessEvent _e = beginFieldAccess(action, fieldId, receiver, logger);
+        if (_e != null)
+            _e.commit(Logger.toString(value));
+    }
+
+    // INFO: values converted to strings by the program are recorded as they are
+    static void commitArrayAccess(final Logger.ArrayAction action, final int index, final Object array,
+                                  final String value, final Logger logger) {
+        final ArrayAccessEvent _e = beginArrayAccess(action, index, array, logger);
+        if (_e != null)
+            _e.commit(value);
+    }
+
+    static void commitArrayAccess(final Logger.ArrayAction action, final int index, final Object array,
+                                  final boolean value, final Logger logger) {
+        final ArrayAccessEvent _e = beginArrayAccess(action, index, array, logger);
+        if (_e != null)
+            _e.commit(Logger.toString(value));
+    }
+
+    static void commitArrayAccess(final Logger.ArrayAction action, final int index, final Object array,
+                                  final byte value, final Logger logger) {
+        final ArrayAccessEvent _e = beginArrayAccess(action, index, array, logger);
+        if (_e != null)
+            _e.commit(Logger.toString(value));
+    }
+
+    static void commitArrayAccess(final Logger.ArrayAction action, final int index, final Object array,
+                                  final char value, final Logger logger) {
+        final ArrayAccessEvent _e = beginArrayAccess(action, index, array, logger);
+        if (_e != null)
+            _e.commit(Logger.toString(value));
+    }
+
+    static void commitArrayAccess(final Logger.ArrayAction action, final int index, final Object array,
+                                  final short value, final Logger logger) {
+        final ArrayAccessEvent _e = beginArrayAccess(action, index, array, logger);
+        if (_e != null)
+            _e.commit(Logger.toString(value));
+    }
+
+    static void commitArrayAccess(final Logger.ArrayAction action, final int index, final Object array,
+                                  final int value, final Logger logger) {
+        final ArrayAccessEvent _e = beginArrayAccess(action, index, array, logger);
+        if (_e != null)
+            _e.commit(Logger.toString(value));
+    }
+
+    static void commitArrayAccess(final Logger.ArrayAction action, final int index, final Object array,
+                                  final long value, final Logger logger) {
+        final ArrayAccessEvent _e = beginArrayAccess(action, index, array, logger);
+        if (_e != null)
+            _e.commit(Logger.toString(value));
+    }
+
+    static void commitArrayAccess(final Logger.ArrayAction action, final int index, final Object array,
+                                  final float value, final Logger logger) {
+        final ArrayAccessEvent _e = beginArrayAccess(action, index, array, logger);
+        if (_e != null)
+            _e.commit(Logger.toString(value));
+    }
+
+    static void commitArrayAccess(final Logger.ArrayAction action, final int index, final Object array,
+                                  final double value, final Logger logger) {
+        final ArrayAccessEvent _e = beginArrayAccess(action, index, array, logger);
+        if (_e != null)
+            _e.commit(Logger.toString(value));
+    }
+
+    static void commitArrayAccess(final Logger.ArrayAction action, final int index, final Object array,
+                                  final Object value, final Logger logger) {
+        final ArrayAccessEvent _e = beginArrayAccess(action, index, array, logger);
+        if (_e != null)
+            _e.commit(Logger.toString(value));
+    }
+
+    /*
+     * Commits the given record that starts (after the id of the thread) at the given offset.
+     */
+    static void commitRecord(final LogBuffer record, final int offset, final Logger logger) {
+        final RecordEvent _e = new RecordEvent();
+        if (_e.shouldCommit())
+            _e.commit(record.getBytes(), offset, record.length(), logger.nextSequenceNumber());
+    }
+
+    @Override
+    public void write(final int b) {
+        if (b == '\n') {
+            commitLine();
+        } else {
+            if (this.lineLength == this.line.length)
+                this.line = Arrays.copyOf(this.line, this.line.length * 2);
+            this.line[this.lineLength++] = (byte) b;
+        }
+    }
+
+    @Override
+    public void write(final byte[] b, final int off, final int len) {
+        for (int _i = off; _i < off + len; _i++)
+            write(b[_i]);
+    }
+
+    private static FieldAccessEvent beginFieldAccess(final Logger.FieldAction action, final int fieldId,
+                                                     final Object receiver, final Logger logger) {
+        final FieldAccessEvent _e = new FieldAccessEvent();
+        if (!_e.shouldCommit())
+            return null;
+        _e.begin(action, "f" + fieldId, receiver, logger.nextSequenceNumber());
+        return _e;
+    }
+
+    private static ArrayAccessEvent beginArrayAccess(final Logger.ArrayAction action, final int index,
+                                                     final Object array, final Logger logger) {
+        final ArrayAccessEvent _e = new ArrayAccessEvent();
+        if (!_e.shouldCommit())
+            return null;
+        _e.begin(action, index, Logger.toString(array), logger.nextSequenceNumber());
+        return _e;
+    }
+
+    private void commitLine() {
+        int _length = this.lineLength;
+        if (_length > 0 && this.line[_length - 1] == '\r')
+            _length--;
+        this.lineLength = 0;
+        // INFO: the first line is the header of the trace
+        if (this.header) {
+            this.header = false;
+            return;
+        }
+
+        int _offset = 0;
+        while (_offset < _length && this.line[_offset] != ',')
+            _offset++;
+        final RecordEvent _e = new RecordEvent();
+        if (_e.shouldCommit())
+            _e.commit(this.line, _offset, _length, -1);
+    }
+
+    @Name("dyco4j.MethodEntry")
+    @Label("Method Entry")
+    @Category("DyCo4J")
+    @StackTrace(false)
+    static final class MethodEntryEvent extends Event {
+        @Label("Method")
+        String method;
+        @Label("Sequence Number")
+        long sequenceNumber;
+
+        void commit(final String method, final long sequenceNumber) {
+            this.method = method;
+            this.sequenceNumber = sequenceNumber;
+            commit();
+        }
+    }
+
+    @Name("dyco4j.MethodExit")
+    @Label("Method Exit")
+    @Category("DyCo4J")
+    @StackTrace(false)
+    static final class MethodExitEvent extends Event {
+        @Label("Method")
+        String method;
+        @Label("Return Kind")
+        String returnKind;
+        @Label("Sequence Number")
+        long sequenceNumber;
+
+        void commit(final String method, final String returnKind, final long sequenceNumber) {
+            this.method = method;
+            this.returnKind = returnKind;
+            this.sequenceNumber = sequenceNumber;
+            commit();
+        }
+    }
+
+    @Name("dyco4j.FieldAccess")
+    @Label("Field Access")
+    @Category("DyCo4J")
+    @StackTrace(false)
+    static final class FieldAccessEvent extends Event {
+        @Label("Action")
+        String action;
+        @Label("Field")
+        String field;
+        @Label("Receiver")
+        String receiver;
+        @Label("Value")
+        String value;
+        @Label("Sequence Number")
+        long sequenceNumber;
+
+        void begin(final Logger.FieldAction action, final String field, final Object receiver,
+                   final long sequenceNumber) {
+            this.action = action.toString();
+            this.field = field;
+            this.receiver = receiver == null ? "" : Logger.toString(receiver);
+            this.sequenceNumber = sequenceNumber;
+        }
+
+        void commit(final String value) {
+            this.value = value;
+            commit();
+        }
+    }
+
+    @Name("dyco4j.ArrayAccess")
+    @Label("Array Access")
+    @Category("DyCo4J")
+    @StackTrace(false)
+    static final class ArrayAccessEvent extends Event {
+        @Label("Action")
+        String action;
+        @Label("Index")
+        int index;
+        @Label("Array")
+        String array;
+        @Label("Value")
+        String value;
+        @Label("Sequence Number")
+        long sequenceNumber;
+
+        void begin(final Logger.ArrayAction action, final int index, final String array, final long sequenceNumber) {
+            this.action = action.toString();
+            this.index = index;
+            this.array = array;
+            this.sequenceNumber = sequenceNumber;
+        }
+
+        void commit(final String value) {
+            this.value = value;
+            commit();
+        }
+    }
+
+    @Name("dyco4j.Record")
+    @Label("Record")
+    @Category("DyCo4J")
+    @StackTrace(false)
+    static final class RecordEvent extends Event {
+        @Label("Record")
+        String record;
+        @Label("Sequence Number")
+        long sequenceNumber;
+
+        // INFO: the text of a record starts with a separator at the given offset
+        void commit(final byte[] bytes, final int offset, final int length, final long sequenceNumber) {
+            final int _start = Math.min(offset + 1, length);
+            this.record = new String(bytes, _start, length - _start, StandardCharsets.UTF_8);
+            this.sequenceNumber = sequenceNumber;
+            commit();
+        }
+    }
+}
@@ -0,0 +1,197 @@
+/*
+ * Copyright (c) 2017, Venkatesh-Prasad Ranganath
+ *
+ * BSD 3-clause License
+ *
+ * Author: Venkatesh-Prasad Ranganath (rvprasad)
+ *
+ */
+
+package dyco4j.logging;
+
+import java.io.IOException;
+import java.io.OutputStream;
+import java.util.Arrays;
+
+/*
+ * INFO
+ *
+ * A growable byte buffer with allocation-free methods to append decimal, varint, and UTF-8 encoded data.
+ */
+final class LogBuffer {
+    private byte[] bytes;
+    private int length;
+    private StringBuilder scratch;
+
+    LogBuffer(final int capacity) {
+        this.bytes = new byte[Math.max(capacity, 16)];
+    }
+
+    static int getUtf8Length(final CharSequence s) {
+        final int _len = s.length();
+        int _ret = 0;
+        for (int _i = 0; _i < _len; _i++) {
+            final char _c = s.charAt(_i);
+            if (_c < 0x80) {
+                _ret++;
+            } else if (_c < 0x800) {
+                _ret += 2;
+            } else if (Character.isHighSurrogate(_c) && _i + 1 < _len && Character.isLowSurrogate(s.charAt(_i + 1))) {
+                _ret += 4;
+                _i++;
+            } else if (Character.isSurrogate(_c)) {
+                _ret++;
+            } else {
+                _ret += 3;
+            }
+        }
+        return _ret;
+    }
+
+    int length() {
+        return this.length;
+    }
+
+    void setLength(final int length) {
+        this.length = length;
+    }
+
+    void clear() {
+        this.length = 0;
+    }
+
+    byte[] getBytes() {
+        return this.bytes;
+    }
+
+    void put(final int b) {
+        ensureCapacity(1);
+        this.bytes[this.length++] = (byte) b;
+    }
+
+    void put(final byte[] src, final int offset, final int length) {
+        ensureCapacity(length);
+        System.arraycopy(src, offset, this.bytes, this.length, length);
+        this.length += length;
+    }
+
+    void put(final LogBuffer src) {
+        put(src.bytes, 0, src.length);
+    }
+
+    void putDecimal(final long v) {
+        if (v < 0) {
+            put('-');
+        }
+
+        // INFO: work with negative values to handle Long.MIN_VALUE
+        long _tmp = v < 0 ? v : -v;
+        int _numOfDigits = 1;
+        while (_tmp <= -10) {
+            _tmp /= 10;
+            _numOfDigits++;
+        }
+
+        ensureCapacity(_numOfDigits);
+        _tmp = v < 0 ? v : -v;
+        for (int _i = this.length + _numOfDigits - 1; _i >= this.length; _i--) {
+            this.bytes[_i] = (byte) ('0' - (_tmp % 10));
+            _tmp /= 10;
+        }
+        this.length += _numOfDigits;
+    }
+
+    void putFloat(final float v) {
+        // INFO: StringBuilder formats floating point numbers like Float.toString() but without creating strings
+        getScratch().append(v);
+        putUtf8(this.scratch);
+    }
+
+    void putDouble(final double v) {
+        getScratch().append(v);
+        putUtf8(this.scratch);
+    }
+
+    void putVarint(final long v) {
+        ensureCapacity(10);
+        long _tmp = v;
+        while ((_tmp & ~0x7FL) != 0) {
+            this.bytes[this.length++] = (byte) ((_tmp & 0x7F) | 0x80);
+            _tmp >>>= 7;
+        }
+        this.bytes[this.length++] = (byte) _tmp;
+    }
+
+    void putZigZag(final long v) {
+        putVarint((v << 1) ^ (v >> 63));
+    }
+
+    void putFixed32(final int v) {
+        ensureCapacity(4);
+        for (int _i = 24; _i >= 0; _i -= 8)
+            this.bytes[this.length++] = (byte) (v >>> _i);
+    }
+
+    void putFixed64(final long v) {
+        ensureCapacity(8);
+        for (int _i = 56; _i >= 0; _i -= 8)
+            this.bytes[this.length++] = (byte) (v >>> _i);
+    }
+
+    void putUtf8(final CharSequence s) {
+        final int _len = s.length();
+        for (int _i = 0; _i < _len; _i++) {
+            final char _c = s.charAt(_i);
+            if (_c < 0x80) {
+                ensureCapacity(1);
+                this.bytes[this.length++] = (byte) _c;
+            } else if (_c < 0x800) {
+                ensureCapacity(2);
+                this.bytes[this.length++] = (byte) (0xC0 | (_c >> 6));
+                this.bytes[this.length++] = (byte) (0x80 | (_c & 0x3F));
+            } else if (Character.isHighSurrogate(_c) && _i + 1 < _len && Character.isLowSurrogate(s.charAt(_i + 1))) {
+                final int _cp = Character.toCodePoint(_c, s.charAt(++_i));
+                ensureCapacity(4);
+                this.bytes[this.length++] = (byte) (0xF0 | (_cp >> 18));
+                this.bytes[this.length++] = (byte) (0x80 | ((_cp >> 12) & 0x3F));
+                this.bytes[this.length++] = (byte) (0x80 | ((_cp >> 6) & 0x3F));
+                this.bytes[this.length++] = (byte) (0x80 | (_cp & 0x3F));
+            } else if (Character.isSurrogate(_c)) {
+                // INFO: like String.getBytes(), malformed surrogates are replaced by '?'
+                ensureCapacity(1);
+                this.bytes[this.length++] = (byte) '?';
+            } else {
+                ensureCapacity(3);
+                this.bytes[this.length++] = (byte) (0xE0 | (_c >> 12));
+                this.bytes[this.length++] = (byte) (0x80 | ((_c >> 6) & 0x3F));
+                this.bytes[this.length++] = (byte) (0x80 | (_c & 0x3F));
+            }
+        }
+    }
+
+    boolean contentEquals(final LogBuffer other) {
+        if (this.length != other.length)
+            return false;
+        for (int _i = 0; _i < this.length; _i++) {
+            if (this.bytes[_i] != other.bytes[_i])
+                return false;
+        }
+        return true;
+    }
+
+    void writeTo(final OutputStream out) throws IOException {
+        out.write(this.bytes, 0, this.length);
+    }
+
+    private StringBuilder getScratch() {
+        if (this.scratch == null)
+            this.scratch = new StringBuilder(32);
+        this.scratch.setLength(0);
+        return this.scratch;
+    }
+
+    private void ensureCapacity(final int extra) {
+        if (this.length + extra > this.bytes.length)
+            this.bytes = Arrays.copyOf(this.bytes, Math.max(this.bytes.length * 2, this.length + extra));
+    }
+}
@@ -9,10 +9,14 @@
 
 package dyco4j.logging;
 
-import java.io.PrintWriter;
+import java.io.File;
+import java.io.IOException;
+import java.io.OutputStream;
 import java.text.MessageFormat;
+import java.util.Collection;
 import java.util.Date;
-import java.util.Objects;
+import java.util.concurrent.ConcurrentLinkedQueue;
+import java.util.concurrent.atomic.AtomicLong;
 
 
 @SuppressWarnings("WeakerAccess")
@@ -23,6 +27,8 @@ public final class Logger {
     public static final String METHOD_ARG_TAG = "ar";
     public static final String METHOD_RETURN_TAG = "re";
     public static final String METHOD_CALL_TAG = "ca";
+    public static final String SEQUENCE_REPEAT_TAG = "rp";
+    public static final String METHOD_COVERAGE_TAG = "cv";
 
     public static final String ARRAY_TYPE_TAG = "a:";
     public static final String BOOLEAN_TYPE_TAG = "b:";
@@ -43,20 +49,93 @@ public final class Logger {
     public static final String UNINITIALIZED_THIS = "<uninitThis>";
     public static final String UNINITIALIZED_THIS_REP = MessageFormat.format("{0}{1}", OBJECT_TYPE_TAG,
             UNINITIALIZED_THIS);
+    private static final int MAX_THREAD_SWITCH_LENGTH = 11;
     private static Logger logger;
-    private final PrintWriter logWriter;
-    private volatile String prevMsg = null;
+    private final OutputStream logStream;
+    private final AsyncLogStream asyncLogStream;
+    private final RingLogStream ringLogStream;
+    private final TraceFormat format;
+    private final int threadBufferLength;
+    private final long segmentLength;
+    private final long segmentInterval;
+    private final Sampler sampler;
+    private final int maxSequenceLength;
+    private final Aggregator aggregator;
+    private final boolean timed;
+    private final ThreadTrace.Opener threadTraceOpener;
+    private final LoggerMetrics metrics;
+    private final boolean jfr;
+    private final AtomicLong sequenceNumber = new AtomicLong();
+    private final ThreadLocal<ThreadLog> threadLog;
+    private final Collection<ThreadLog> threadLogs = new ConcurrentLinkedQueue<>();
+    private final LogBuffer out = new LogBuffer(1024);
+    private final LogBuffer threadSwitch = new LogBuffer(16);
+    private final LogBuffer prevRecord = new LogBuffer(256);
+    private long prevThreadId;
+    private long streamThreadId;
     private volatile boolean clean = false;
-    private volatile int msgFreq = 1;
+    private int msgFreq = 0;
+    private long numOfDroppedStmts = 0;
+    private long segmentBytes = 0;
+    private long segmentStartTime;
 
-    private Logger(final PrintWriter pw) {
-        this.logWriter = pw;
-        writeLog((new Date()).toString());
+    private Logger(final LoggerConfig config) {
+        final OutputStream _stream = config.getLogStream();
+        this.logStream = _stream;
+        this.asyncLogStream = _stream instanceof AsyncLogStream ? (AsyncLogStream) _stream : null;
+        this.ringLogStream = _stream instanceof RingLogStream ? (RingLogStream) _stream : null;
+        this.format = config.getFormat();
+        this.threadBufferLength = config.getThreadBufferLength();
+        this.segmentLength = config.getSegmentLength();
+        this.segmentInterval = config.getSegmentInterval();
+        this.sampler = config.getSampler();
+        this.maxSequenceLength = config.getMaxSequenceLength();
+        this.aggregator = config.getAggregator();
+        this.timed = config.isTimed();
+        this.threadTraceOpener = config.getThreadTraceOpener();
+        this.metrics = config.getMetrics();
+        this.jfr = config.isJfr();
+        if (this.maxSequenceLength > 1 && this.threadBufferLength < 1)
+            throw new IllegalArgumentException("Compression of repeated sequences requires thread buffers");
+        final boolean _isSegmented = this.segmentLength > 0 || this.segmentInterval > 0;
+        if (_isSegmented && !(_stream instanceof SegmentedLogStream || this.ringLogStream != null ||
+                this.asyncLogStream != null && this.asyncLogStream.isSegmented()))
+            throw new IllegalArgumentException("Segments require a segmented log stream");
+        if (this.ringLogStream != null && this.segmentLength < 1)
+            throw new IllegalArgumentException("Ring log streams require segments of bounded length");
+        if (_isSegmented && this.threadTraceOpener != null)
+            throw new IllegalArgumentException("Thread traces cannot be segmented");
+        if (this.jfr && (this.threadBufferLength > 0 || this.threadTraceOpener != null))
+            throw new IllegalArgumentException("JFR events are neither buffered nor written into thread traces");
+        this.segmentStartTime = System.currentTimeMillis();
+
+        this.threadLog = ThreadLocal.withInitial(() -> {
+            // INFO: thread traces are not opened after cleanup as they would not be closed
+            final ThreadTrace.Opener _opener = this.clean ? null : this.threadTraceOpener;
+            final ThreadLog _tmp = new ThreadLog(this, this.format, Thread.currentThread(), this.threadBufferLength,
+                    _isSegmented, this.sampler, this.maxSequenceLength, this.aggregator, this.timed, _opener,
+                    this.metrics);
+            if (this.threadBufferLength > 0 || _opener != null)
+                this.threadLogs.add(_tmp);
+            return _tmp;
+        });
+        // INFO: the header of a ring is written when it is dumped
+        if (this.ringLogStream == null) {
+            this.format.writeHeader(this.out, (new Date()).toString());
+            writeOut();
+        }
+        if (this.metrics != null)
+            this.metrics.setLogger(this);
     }
 
     public static void log(final String msg) {
-        final String _sb = String.valueOf(Thread.currentThread().getId()) + "," + msg;
-        logger.writeLog(_sb);
+        // INFO: methods covered so far are logged before each message (e.g., the marker of an entry point)
+        if (CoverageMap.hasChanged())
+            logCoverage();
+
+        final ThreadLog _threadLog = logger.threadLog.get();
+        logger.format.writeMessage(_threadLog.beginRecord(), msg);
+        _threadLog.endRecord();
     }
 
     @SuppressWarnings("ConfusingArgumentToVarargsMethod")
@@ -64,41 +143,591 @@ public final class Logger {
         log(String.join(",", args));
     }
 
+    public static void logMethodCoverage(final int methodId) {
+        CoverageMap.cover(methodId);
+    }
+
     public static void logArgument(final byte index, final String val) {
-        log(METHOD_ARG_TAG, Byte.toString(index), val);
+        final ThreadLog _threadLog = logger.threadLog.get();
+        if (!_threadLog.sampleFrameEvent(Sampler.Kind.ar))
+            return;
+        logger.format.writeArgument(_threadLog.beginRecord(), index, val);
+        _threadLog.endRecord();
     }
 
     public static void logArray(final Object array, final int index, final String value, final ArrayAction action) {
-        log(action.toString(), Integer.toString(index), toString(array), value);
+        final ThreadLog _threadLog = logger.threadLog.get();
+        if (!_threadLog.sample(action))
+            return;
+        if (logger.jfr) {
+            JfrLogStream.commitArrayAccess(action, index, array, value, logger);
+            return;
+        }
+        logger.format.writeArray(_threadLog.beginRecord(), action, index, toString(array), value);
+        _threadLog.endRecord();
     }
 
     public static void logMethodCall(final String methodId) {
-        log(METHOD_CALL_TAG, methodId);
+        final ThreadLog _threadLog = logger.threadLog.get();
+        if (!_threadLog.sampleMethodCall(methodId))
+            return;
+        logger.format.writeMethodCall(_threadLog.beginRecord(), methodId);
+        _threadLog.endRecord();
     }
 
     public static void logException(final Throwable exception) {
-        log(METHOD_EXCEPTION_TAG, toString(exception), exception.getClass().getName());
+        final ThreadLog _threadLog = logger.threadLog.get();
+        if (_threadLog.sampleFrameEvent(Sampler.Kind.xp)) {
+            logger.format.writeException(_threadLog.beginRecord(), exception);
+            _threadLog.endRecord();
+        }
+
+        final RingLogStream _ring = logger.ringLogStream;
+        if (_ring != null && _ring.isDumpTrigger(exception)) {
+            try {
+                logger.dumpRing();
+            } catch (final IOException _e) {
+                LoggerMetrics.ioFailed(logger.metrics, _e);
+            }
+        }
     }
 
     public static void logField(final Object receiver, final String fieldValue, final String fieldName,
                                 final FieldAction action) {
-        log(action.toString(), fieldName, receiver == null ? "" : toString(receiver), fieldValue);
+        final ThreadLog _threadLog = logger.threadLog.get();
+        if (!_threadLog.sample(action))
+            return;
+        if (logger.jfr) {
+            JfrLogStream.commitFieldAccess(action, fieldName, receiver, fieldValue, logger);
+            return;
+        }
+        logger.format.writeField(_threadLog.beginRecord(), action, fieldName,
+                receiver == null ? "" : toString(receiver), fieldValue);
+        _threadLog.endRecord();
     }
 
     public static void logMethodEntry(final String methodId) {
-        log(METHOD_ENTRY_TAG, methodId);
+        final ThreadLog _threadLog = logger.threadLog.get();
+        if (!_threadLog.sampleMethodEntry(methodId))
+            return;
+        if (logger.jfr) {
+            JfrLogStream.commitMethodEntry(methodId, logger);
+            return;
+        }
+        logger.format.writeMethodEntry(_threadLog.beginRecord(), methodId, _threadLog.getElapsedTime());
+        _threadLog.endRecord();
     }
 
     public static void logMethodExit(final String methodId, final String returnKind) {
-        log(METHOD_EXIT_TAG, methodId, returnKind);
+        final ThreadLog _threadLog = logger.threadLog.get();
+        if (!_threadLog.sampleMethodExit())
+            return;
+        if (logger.jfr) {
+            JfrLogStream.commitMethodExit(methodId, returnKind, logger);
+            return;
+        }
+        logger.format.writeMethodExit(_threadLog.beginRecord(), methodId, returnKind,
+                _threadLog.getElapsedTime());
+        _threadLog.endRecord();
     }
 
     public static void logReturn(final String val) {
-        if (val != null) {
-            log(METHOD_RETURN_TAG, val);
-        } else {
-            log(METHOD_RETURN_TAG);
+        final ThreadLog _threadLog = logger.threadLog.get();
+        if (!_threadLog.sampleFrameEvent(Sampler.Kind.re))
+            return;
+        logger.format.writeReturn(_threadLog.beginRecord(), val);
+        _threadLog.endRecord();
+    }
+
+    /*
+     * INFO
+     *
+     * The following methods log typed values (and int ids of methods and fields) without creating strings.  The
+     * instrumentation uses these methods while the above methods cater to values that have been converted to
+     * strings via toString() methods.
+     */
+
+    public static void logMethodCall(final int methodId, final int callsiteId) {
+        final ThreadLog _threadLog = logger.threadLog.get();
+        if (!_threadLog.sampleMethodCall(methodId, callsiteId))
+            return;
+        logger.format.writeMethodCall(_threadLog.beginRecord(), methodId, callsiteId);
+        _threadLog.endRecord();
+    }
+
+    public static void logMethodEntry(final int methodId) {
+        final ThreadLog _threadLog = logger.threadLog.get();
+        if (!_threadLog.sampleMethodEntry(methodId))
+            return;
+        if (logger.jfr) {
+            JfrLogStream.commitMethodEntry(methodId, logger);
+            return;
         }
+        logger.format.writeMethodEntry(_threadLog.beginRecord(), methodId, _threadLog.getElapsedTime());
+        _threadLog.endRecord();
+    }
+
+    public static void logMethodExit(final int methodId, final String returnKind) {
+        final ThreadLog _threadLog = logger.threadLog.get();
+        if (!_threadLog.sampleMethodExit())
+            return;
+        if (logger.jfr) {
+            JfrLogStream.commitMethodExit(methodId, returnKind, logger);
+            return;
+        }
+        logger.format.writeMethodExit(_threadLog.beginRecord(), methodId, returnKind,
+                _threadLog.getElapsedTime());
+        _threadLog.endRecord();
+    }
+
+    public static void logArgument(final byte index, final boolean val) {
+        final ThreadLog _threadLog = logger.threadLog.get();
+        if (!_threadLog.sampleFrameEvent(Sampler.Kind.ar))
+            return;
+        final LogBuffer _record = _threadLog.beginRecord();
+        logger.format.writeArgumentHead(_record, index);
+        logger.format.writeValue(_record, val);
+        _threadLog.endRecord();
+    }
+
+    public static void logArgument(final byte index, final byte val) {
+        final ThreadLog _threadLog = logger.threadLog.get();
+        if (!_threadLog.sampleFrameEvent(Sampler.Kind.ar))
+            return;
+        final LogBuffer _record = _threadLog.beginRecord();
+        logger.format.writeArgumentHead(_record, index);
+        logger.format.writeValue(_record, val);
+        _threadLog.endRecord();
+    }
+
+    public static void logArgument(final byte index, final char val) {
+        final ThreadLog _threadLog = logger.threadLog.get();
+        if (!_threadLog.sampleFrameEvent(Sampler.Kind.ar))
+            return;
+        final LogBuffer _record = _threadLog.beginRecord();
+        logger.format.writeArgumentHead(_record, index);
+        logger.format.writeValue(_record, val);
+        _threadLog.endRecord();
+    }
+
+    public static void logArgument(final byte index, final short val) {
+        final ThreadLog _threadLog = logger.threadLog.get();
+        if (!_threadLog.sampleFrameEvent(Sampler.Kind.ar))
+            return;
+        final LogBuffer _record = _threadLog.beginRecord();
+        logger.format.writeArgumentHead(_record, index);
+        logger.format.writeValue(_record, val);
+        _threadLog.endRecord();
+    }
+
+    public static void logArgument(final byte index, final int val) {
+        final ThreadLog _threadLog = logger.threadLog.get();
+        if (!_threadLog.sampleFrameEvent(Sampler.Kind.ar))
+            return;
+        final LogBuffer _record = _threadLog.beginRecord();
+        logger.format.writeArgumentHead(_record, index);
+        logger.format.writeValue(_record, val);
+        _threadLog.endRecord();
+    }
+
+    public static void logArgument(final byte index, final long val) {
+        final ThreadLog _threadLog = logger.threadLog.get();
+        if (!_threadLog.sampleFrameEvent(Sampler.Kind.ar))
+            return;
+        final LogBuffer _record = _threadLog.beginRecord();
+        logger.format.writeArgumentHead(_record, index);
+        logger.format.writeValue(_record, val);
+        _threadLog.endRecord();
+    }
+
+    public static void logArgument(final byte index, final float val) {
+        final ThreadLog _threadLog = logger.threadLog.get();
+        if (!_threadLog.sampleFrameEvent(Sampler.Kind.ar))
+            return;
+        final LogBuffer _record = _threadLog.beginRecord();
+        logger.format.writeArgumentHead(_record, index);
+        logger.format.writeValue(_record, val);
+        _threadLog.endRecord();
+    }
+
+    public static void logArgument(final byte index, final double val) {
+        final ThreadLog _threadLog = logger.threadLog.get();
+        if (!_threadLog.sampleFrameEvent(Sampler.Kind.ar))
+            return;
+        final LogBuffer _record = _threadLog.beginRecord();
+        logger.format.writeArgumentHead(_record, index);
+        logger.format.writeValue(_record, val);
+        _threadLog.endRecord();
+    }
+
+    public static void logArgument(final byte index, final Object val) {
+        final ThreadLog _threadLog = logger.threadLog.get();
+        if (!_threadLog.sampleFrameEvent(Sampler.Kind.ar))
+            return;
+        final LogBuffer _record = _threadLog.beginRecord();
+        logger.format.writeArgumentHead(_record, index);
+        logger.format.writeValue(_record, val);
+        _threadLog.endRecord();
+    }
+
+    public static void logArray(final Object array, final int index, final boolean value,
+                                final ArrayAction action) {
+        final ThreadLog _threadLog = logger.threadLog.get();
+        if (!_threadLog.sample(action))
+            return;
+        if (logger.jfr) {
+            JfrLogStream.commitArrayAccess(action, index, array, value, logger);
+            return;
+        }
+        final LogBuffer _record = _threadLog.beginRecord();
+        logger.format.writeArrayHead(_record, action, index, array);
+        logger.format.writeValue(_record, value);
+        _threadLog.endRecord();
+    }
+
+    public static void logArray(final Object array, final int index, final byte value,
+                                final ArrayAction action) {
+        final ThreadLog _threadLog = logger.threadLog.get();
+        if (!_threadLog.sample(action))
+            return;
+        if (logger.jfr) {
+            JfrLogStream.commitArrayAccess(action, index, array, value, logger);
+            return;
+        }
+        final LogBuffer _record = _threadLog.beginRecord();
+        logger.format.writeArrayHead(_record, action, index, array);
+        logger.format.writeValue(_record, value);
+        _threadLog.endRecord();
+    }
+
+    public static void logArray(final Object array, final int index, final char value,
+                                final ArrayAction action) {
+        final ThreadLog _threadLog = logger.threadLog.get();
+        if (!_threadLog.sample(action))
+            return;
+        if (logger.jfr) {
+            JfrLogStream.commitArrayAccess(action, index, array, value, logger);
+            return;
+        }
+        final LogBuffer _record = _threadLog.beginRecord();
+        logger.format.writeArrayHead(_record, action, index, array);
+        logger.format.writeValue(_record, value);
+        _threadLog.endRecord();
+    }
+
+    public static void logArray(final Object array, final int index, final short value,
+                                final ArrayAction action) {
+        final ThreadLog _threadLog = logger.threadLog.get();
+        if (!_threadLog.sample(action))
+            return;
+        if (logger.jfr) {
+            JfrLogStream.commitArrayAccess(action, index, array, value, logger);
+            return;
+        }
+        final LogBuffer _record = _threadLog.beginRecord();
+        logger.format.writeArrayHead(_record, action, index, array);
+        logger.format.writeValue(_record, value);
+        _threadLog.endRecord();
+    }
+
+    public static void logArray(final Object array, final int index, final int value,
+                                final ArrayAction action) {
+        final ThreadLog _threadLog = logger.threadLog.get();
+        if (!_threadLog.sample(action))
+            return;
+        if (logger.jfr) {
+            JfrLogStream.commitArrayAccess(action, index, array, value, logger);
+            return;
+        }
+        final LogBuffer _record = _threadLog.beginRecord();
+        logger.format.writeArrayHead(_record, action, index, array);
+        logger.format.writeValue(_record, value);
+        _threadLog.endRecord();
+    }
+
+    public static void logArray(final Object array, final int index, final long value,
+                                final ArrayAction action) {
+        final ThreadLog _threadLog = logger.threadLog.get();
+        if (!_threadLog.sample(action))
+            return;
+        if (logger.jfr) {
+            JfrLogStream.commitArrayAccess(action, index, array, value, logger);
+            return;
+        }
+        final LogBuffer _record = _threadLog.beginRecord();
+        logger.format.writeArrayHead(_record, action, index, array);
+        logger.format.writeValue(_record, value);
+        _threadLog.endRecord();
+    }
+
+    public static void logArray(final Object array, final int index, final float value,
+                                final ArrayAction action) {
+        final ThreadLog _threadLog = logger.threadLog.get();
+        if (!_threadLog.sample(action))
+            return;
+        if (logger.jfr) {
+            JfrLogStream.commitArrayAccess(action, index, array, value, logger);
+            return;
+        }
+        final LogBuffer _record = _threadLog.beginRecord();
+        logger.format.writeArrayHead(_record, action, index, array);
+        logger.format.writeValue(_record, value);
+        _threadLog.endRecord();
+    }
+
+    public static void logArray(final Object array, final int index, final double value,
+                                final ArrayAction action) {
+        final ThreadLog _threadLog = logger.threadLog.get();
+        if (!_threadLog.sample(action))
+            return;
+        if (logger.jfr) {
+            JfrLogStream.commitArrayAccess(action, index, array, value, logger);
+            return;
+        }
+        final LogBuffer _record = _threadLog.beginRecord();
+        logger.format.writeArrayHead(_record, action, index, array);
+        logger.format.writeValue(_record, value);
+        _threadLog.endRecord();
+    }
+
+    public static void logArray(final Object array, final int index, final Object value,
+                                final ArrayAction action) {
+        final ThreadLog _threadLog = logger.threadLog.get();
+        if (!_threadLog.sample(action))
+            return;
+        if (logger.jfr) {
+            JfrLogStream.commitArrayAccess(action, index, array, value, logger);
+            return;
+        }
+        final LogBuffer _record = _threadLog.beginRecord();
+        logger.format.writeArrayHead(_record, action, index, array);
+        logger.format.writeValue(_record, value);
+        _threadLog.endRecord();
+    }
+
+    public static void logField(final Object receiver, final boolean fieldValue, final int fieldId,
+                                final FieldAction action) {
+        final ThreadLog _threadLog = logger.threadLog.get();
+        if (!_threadLog.sample(action))
+            return;
+        if (logger.jfr) {
+            JfrLogStream.commitFieldAccess(action, fieldId, receiver, fieldValue, logger);
+            return;
+        }
+        final LogBuffer _record = _threadLog.beginRecord();
+        logger.format.writeFieldHead(_record, action, fieldId, receiver);
+        logger.format.writeValue(_record, fieldValue);
+        _threadLog.endRecord();
+    }
+
+    public static void logField(final Object receiver, final byte fieldValue, final int fieldId,
+                                final FieldAction action) {
+        final ThreadLog _threadLog = logger.threadLog.get();
+        if (!_threadLog.sample(action))
+            return;
+        if (logger.jfr) {
+            JfrLogStream.commitFieldAccess(action, fieldId, receiver, fieldValue, logger);
+            return;
+        }
+        final LogBuffer _record = _threadLog.beginRecord();
+        logger.format.writeFieldHead(_record, action, fieldId, receiver);
+        logger.format.writeValue(_record, fieldValue);
+        _threadLog.endRecord();
+    }
+
+    public static void logField(final Object receiver, final char fieldValue, final int fieldId,
+                                final FieldAction action) {
+        final ThreadLog _threadLog = logger.threadLog.get();
+        if (!_threadLog.sample(action))
+            return;
+        if (logger.jfr) {
+            JfrLogStream.commitFieldAccess(action, fieldId, receiver, fieldValue, logger);
+            return;
+        }
+        final LogBuffer _record = _threadLog.beginRecord();
+        logger.format.writeFieldHead(_record, action, fieldId, receiver);
+        logger.format.writeValue(_record, fieldValue);
+        _threadLog.endRecord();
+    }
+
+    public static void logField(final Object receiver, final short fieldValue, final int fieldId,
+                                final FieldAction action) {
+        final ThreadLog _threadLog = logger.threadLog.get();
+        if (!_threadLog.sample(action))
+            return;
+        if (logger.jfr) {
+            JfrLogStream.commitFieldAccess(action, fieldId, receiver, fieldValue, logger);
+            return;
+        }
+        final LogBuffer _record = _threadLog.beginRecord();
+        logger.format.writeFieldHead(_record, action, fieldId, receiver);
+        logger.format.writeValue(_record, fieldValue);
+        _threadLog.endRecord();
+    }
+
+    public static void logField(final Object receiver, final int fieldValue, final int fieldId,
+                                final FieldAction action) {
+        final ThreadLog _threadLog = logger.threadLog.get();
+        if (!_threadLog.sample(action))
+            return;
+        if (logger.jfr) {
+            JfrLogStream.commitFieldAccess(action, fieldId, receiver, fieldValue, logger);
+            return;
+        }
+        final LogBuffer _record = _threadLog.beginRecord();
+        logger.format.writeFieldHead(_record, action, fieldId, receiver);
+        logger.format.writeValue(_record, fieldValue);
+        _threadLog.endRecord();
+    }
+
+    public static void logField(final Object receiver, final long fieldValue, final int fieldId,
+                                final FieldAction action) {
+        final ThreadLog _threadLog = logger.threadLog.get();
+        if (!_threadLog.sample(action))
+            return;
+        if (logger.jfr) {
+            JfrLogStream.commitFieldAccess(action, fieldId, receiver, fieldValue, logger);
+            return;
+        }
+        final LogBuffer _record = _threadLog.beginRecord();
+        logger.format.writeFieldHead(_record, action, fieldId, receiver);
+        logger.format.writeValue(_record, fieldValue);
+        _threadLog.endRecord();
+    }
+
+    public static void logField(final Object receiver, final float fieldValue, final int fieldId,
+                                final FieldAction action) {
+        final ThreadLog _threadLog = logger.threadLog.get();
+        if (!_threadLog.sample(action))
+            return;
+        if (logger.jfr) {
+            JfrLogStream.commitFieldAccess(action, fieldId, receiver, fieldValue, logger);
+            return;
+        }
+        final LogBuffer _record = _threadLog.beginRecord();
+        logger.format.writeFieldHead(_record, action, fieldId, receiver);
+        logger.format.writeValue(_record, fieldValue);
+        _threadLog.endRecord();
+    }
+
+    public static void logField(final Object receiver, final double fieldValue, final int fieldId,
+                                final FieldAction action) {
+        final ThreadLog _threadLog = logger.threadLog.get();
+        if (!_threadLog.sample(action))
+            return;
+        if (logger.jfr) {
+            JfrLogStream.commitFieldAccess(action, fieldId, receiver, fieldValue, logger);
+            return;
+        }
+        final LogBuffer _record = _threadLog.beginRecord();
+        logger.format.writeFieldHead(_record, action, fieldId, receiver);
+        logger.format.writeValue(_record, fieldValue);
+        _threadLog.endRecord();
+    }
+
+    public static void logField(final Object receiver, final Object fieldValue, final int fieldId,
+                                final FieldAction action) {
+        final ThreadLog _threadLog = logger.threadLog.get();
+        if (!_threadLog.sample(action))
+            return;
+        if (logger.jfr) {
+            JfrLogStream.commitFieldAccess(action, fieldId, receiver, fieldValue, logger);
+            return;
+        }
+        final LogBuffer _record = _threadLog.beginRecord();
+        logger.format.writeFieldHead(_record, action, fieldId, receiver);
+        logger.format.writeValue(_record, fieldValue);
+        _threadLog.endRecord();
+    }
+
+    public static void logReturn(final boolean val) {
+        final ThreadLog _threadLog = logger.threadLog.get();
+        if (!_threadLog.sampleFrameEvent(Sampler.Kind.re))
+            return;
+        final LogBuffer _record = _threadLog.beginRecord();
+        logger.format.writeReturnHead(_record);
+        logger.format.writeValue(_record, val);
+        _threadLog.endRecord();
+    }
+
+    public static void logReturn(final byte val) {
+        final ThreadLog _threadLog = logger.threadLog.get();
+        if (!_threadLog.sampleFrameEvent(Sampler.Kind.re))
+            return;
+        final LogBuffer _record = _threadLog.beginRecord();
+        logger.format.writeReturnHead(_record);
+        logger.format.writeValue(_record, val);
+        _threadLog.endRecord();
+    }
+
+    public static void logReturn(final char val) {
+        final ThreadLog _threadLog = logger.threadLog.get();
+        if (!_threadLog.sampleFrameEvent(Sampler.Kind.re))
+            return;
+        final LogBuffer _record = _threadLog.beginRecord();
+        logger.format.writeReturnHead(_record);
+        logger.format.writeValue(_record, val);
+        _threadLog.endRecord();
+    }
+
+    public static void logReturn(final short val) {
+        final ThreadLog _threadLog = logger.threadLog.get();
+        if (!_threadLog.sampleFrameEvent(Sampler.Kind.re))
+            return;
+        final LogBuffer _record = _threadLog.beginRecord();
+        logger.format.writeReturnHead(_record);
+        logger.format.writeValue(_record, val);
+        _threadLog.endRecord();
+    }
+
+    public static void logReturn(final int val) {
+        final ThreadLog _threadLog = logger.threadLog.get();
+        if (!_threadLog.sampleFrameEvent(Sampler.Kind.re))
+            return;
+        final LogBuffer _record = _threadLog.beginRecord();
+        logger.format.writeReturnHead(_record);
+        logger.format.writeValue(_record, val);
+        _threadLog.endRecord();
+    }
+
+    public static void logReturn(final long val) {
+        final ThreadLog _threadLog = logger.threadLog.get();
+        if (!_threadLog.sampleFrameEvent(Sampler.Kind.re))
+            return;
+        final LogBuffer _record = _threadLog.beginRecord();
+        logger.format.writeReturnHead(_record);
+        logger.format.writeValue(_record, val);
+        _threadLog.endRecord();
+    }
+
+    public static void logReturn(final float val) {
+        final ThreadLog _threadLog = logger.threadLog.get();
+        if (!_threadLog.sampleFrameEvent(Sampler.Kind.re))
+            return;
+        final LogBuffer _record = _threadLog.beginRecord();
+        logger.format.writeReturnHead(_record);
+        logger.format.writeValue(_record, val);
+        _threadLog.endRecord();
+    }
+
+    public static void logReturn(final double val) {
+        final ThreadLog _threadLog = logger.threadLog.get();
+        if (!_threadLog.sampleFrameEvent(Sampler.Kind.re))
+            return;
+        final LogBuffer _record = _threadLog.beginRecord();
+        logger.format.writeReturnHead(_record);
+        logger.format.writeValue(_record, val);
+        _threadLog.endRecord();
+    }
+
+    public static void logReturn(final Object val) {
+        final ThreadLog _threadLog = logger.threadLog.get();
+        if (!_threadLog.sampleFrameEvent(Sampler.Kind.re))
+            return;
+        final LogBuffer _record = _threadLog.beginRecord();
+        logger.format.writeReturnHead(_record);
+        logger.format.writeValue(_record, val);
+        _threadLog.endRecord();
     }
 
     public static String toString(final boolean v) {
@@ -139,32 +768,72 @@ public final class Logger {
         } else if (o == null) {
             return NULL_VALUE;
         } else {
-            final String _tmp;
-
-            if (o instanceof String) {
-                _tmp = STRING_TYPE_TAG;
-            } else if (o instanceof Throwable) {
-                _tmp = THROWABLE_TYPE_TAG;
-            } else if (o.getClass().isArray()) {
-                _tmp = ARRAY_TYPE_TAG;
-            } else {
-                _tmp = OBJECT_TYPE_TAG;
-            }
+            return getTypeTag(o) + System.identityHashCode(o);
+        }
+    }
 
-            return _tmp + System.identityHashCode(o);
+    static String getTypeTag(final Object o) {
+        if (o instanceof String) {
+            return STRING_TYPE_TAG;
+        } else if (o instanceof Throwable) {
+            return THROWABLE_TYPE_TAG;
+        } else if (o.getClass().isArray()) {
+            return ARRAY_TYPE_TAG;
+        } else {
+            return OBJECT_TYPE_TAG;
         }
     }
 
-    static void initialize(final PrintWriter logWriter) {
-        logger = new Logger(logWriter);
+    static void initialize(final OutputStream logStream) {
+        initialize(new LoggerConfig(logStream));
+    }
+
+    static void initialize(final LoggerConfig config) {
+        install(new Logger(config), config.getFlushInterval());
+    }
+
+    private static void logCoverage() {
+        // INFO: the record is abandoned (and reused by the next record) if another thread drained the coverage map
+        final ThreadLog _threadLog = logger.threadLog.get();
+        if (CoverageMap.drain(logger.format, _threadLog.beginRecord()))
+            _threadLog.endRecord();
+    }
+
+    private static void install(final Logger instance, final long flushInterval) {
+        logger = instance;
 
         java.lang.Runtime.getRuntime().addShutdownHook(new Thread(() -> {
             try {
-                logger.cleanup();
+                instance.cleanup();
             } catch (final Throwable _e) {
                 throw new RuntimeException(_e);
             }
         }));
+
+        if ((instance.threadBufferLength > 0 || instance.threadTraceOpener != null) && flushInterval > 0) {
+            final Thread _flusher = new Thread(() -> {
+                try {
+                    while (!instance.clean) {
+                        Thread.sleep(flushInterval);
+                        final long _start = System.nanoTime();
+                        instance.flushThreadLogs();
+                        if (instance.metrics != null)
+                            instance.metrics.countFlush(System.nanoTime() - _start);
+                    }
+                } catch (final InterruptedException _e) {
+                    Thread.currentThread().interrupt();
+                }
+            }, "dyco4j-logging-flusher");
+            _flusher.setDaemon(true);
+            _flusher.start();
+        }
+    }
+
+    /*
+     * Dumps the ring of the logger into a new trace file and returns the file.
+     */
+    static File dump() throws IOException {
+        return logger.dumpRing();
     }
 
     // This method is intended for testing purpose only.
@@ -172,36 +841,248 @@ public final class Logger {
         logger.cleanup();
     }
 
+    // This method is intended for testing purpose only.
+    static void flushThreadLogsForTest() {
+        logger.flushThreadLogs();
+    }
+
     @Override
     protected void finalize() throws Throwable {
         this.cleanup();
         super.finalize();
     }
 
-    private synchronized void cleanup() {
+    private void cleanup() {
+        // INFO: thread logs are closed outside this logger's monitor as thread logs acquire it while flushing
+        this.threadLogs.forEach(ThreadLog::close);
+        cleanupHelper();
+    }
+
+    private synchronized void cleanupHelper() {
         if (!this.clean) {
             writeLogHelper();
-            this.logWriter.flush();
-            this.logWriter.close();
+            if (this.aggregator != null) {
+                this.aggregator.write(this.format, this.out, Thread.currentThread().getId());
+                writeChunkHelper(Thread.currentThread().getId(), this.out);
+                this.out.clear();
+            }
+            final LogBuffer _coverage = new LogBuffer(64);
+            this.format.beginRecord(_coverage, Thread.currentThread().getId());
+            if (CoverageMap.drain(this.format, _coverage))
+                writeRecordHelper(_coverage);
+            if (this.numOfDroppedStmts > 0)
+                writeMessageHelper("dropped," + this.numOfDroppedStmts);
+            try {
+                if (this.ringLogStream != null && this.ringLogStream.dumpsOnExit())
+                    dumpHelper();
+                this.logStream.flush();
+                this.logStream.close();
+            } catch (final IOException _e) {
+                LoggerMetrics.ioFailed(this.metrics, _e);
+            }
             this.clean = true;
         }
     }
 
-    private synchronized void writeLog(final String msg) {
-        if (Objects.equals(this.prevMsg, msg)) {
-            this.msgFreq++;
-        } else {
-            writeLogHelper();
+    private File dumpRing() throws IOException {
+        if (this.ringLogStream == null)
+            throw new IllegalStateException("The logger does not record into a ring");
+
+        // INFO: thread logs are flushed outside this logger's monitor as thread logs acquire it while flushing
+        this.threadLogs.forEach(ThreadLog::flush);
+        synchronized (this) {
+            return dumpHelper();
+        }
+    }
+
+    private File dumpHelper() throws IOException {
+        writeLogHelper();
+        final LogBuffer _header = new LogBuffer(64);
+        this.format.writeHeader(_header, (new Date()).toString());
+        final long _threadId = this.ringLogStream.getStartThreadId();
+        if (_threadId != 0)
+            this.format.writeThreadSwitch(_header, 0, _threadId);
+        return this.ringLogStream.dump(_header);
+    }
+
+    private void writeMessageHelper(final String msg) {
+        final LogBuffer _record = new LogBuffer(64);
+        this.format.beginRecord(_record, Thread.currentThread().getId());
+        this.format.writeMessage(_record, msg);
+        writeRecordHelper(_record);
+    }
+
+    private void writeRecordHelper(final LogBuffer record) {
+        final long _threadId = Thread.currentThread().getId();
+        this.format.writeRecord(this.out, record);
+        writeChunkHelper(_threadId, this.out);
+        this.out.clear();
+    }
+
+    long nextSequenceNumber() {
+        return this.sequenceNumber.getAndIncrement();
+    }
+
+    boolean commitsJfrEvents() {
+        return this.jfr;
+    }
+
+    long getThreadBufferedBytes() {
+        long _ret = 0;
+        for (final ThreadLog _tmp : this.threadLogs)
+            _ret += _tmp.getBufferedBytes();
+        return _ret;
+    }
+
+    int getWriterQueueLength() {
+        return this.asyncLogStream != null ? this.asyncLogStream.getNumOfFullBlocks() : 0;
+    }
+
+    int getWriterQueueCapacity() {
+        return this.asyncLogStream != null ? this.asyncLogStream.getNumOfBlocks() : 0;
+    }
+
+    void writeLog(final long threadId, final LogBuffer record) {
+        final long _start = this.metrics != null ? System.nanoTime() : 0;
+        synchronized (this) {
+            if (this.metrics != null)
+                this.metrics.countLockWaitTime(System.nanoTime() - _start);
+
+            if (this.msgFreq > 0 && this.prevThreadId == threadId && record.contentEquals(this.prevRecord)) {
+                this.msgFreq++;
+            } else {
+                writeLogHelper();
+                rotateIfDue();
+
+                this.format.writeRecord(this.out, record);
+                if (admitAndWriteChunk(threadId, this.out, 1)) {
+                    this.prevRecord.clear();
+                    this.prevRecord.put(record);
+                    this.prevThreadId = threadId;
+                    this.msgFreq = 1;
+                }
+                this.out.clear();
+            }
+        }
+        if (this.metrics != null)
+            this.metrics.countWriteTime(System.nanoTime() - _start);
+    }
+
+    /*
+     * Returns false if the chunk was dropped.  numOfStmts is the number of log statements in the chunk.
+     */
+    boolean writeChunk(final long threadId, final LogBuffer chunk, final int numOfStmts) {
+        final long _start = this.metrics != null ? System.nanoTime() : 0;
+        final boolean _ret;
+        synchronized (this) {
+            if (this.metrics != null)
+                this.metrics.countLockWaitTime(System.nanoTime() - _start);
+
+            if (this.clean)
+                return false;
+
+            rotateIfDue();
+            _ret = admitAndWriteChunk(threadId, chunk, numOfStmts);
+        }
+        if (this.metrics != null)
+            this.metrics.countWriteTime(System.nanoTime() - _start);
+        return _ret;
+    }
 
-            this.logWriter.println(msg);
-            this.prevMsg = msg;
-            this.msgFreq = 1;
+    private boolean admitAndWriteChunk(final long threadId, final LogBuffer chunk, final int numOfStmts) {
+        if (this.clean)
+            return false;
+
+        // INFO: a chunk is dropped along with its thread switch to keep the trace decodable
+        if (this.asyncLogStream != null && !this.asyncLogStream.admit(chunk.length() + MAX_THREAD_SWITCH_LENGTH)) {
+            this.numOfDroppedStmts += numOfStmts;
+            if (this.metrics != null)
+                this.metrics.countDroppedEvents(numOfStmts);
+            return false;
         }
+
+        writeChunkHelper(threadId, chunk);
+        return true;
+    }
+
+    private void writeChunkHelper(final long threadId, final LogBuffer chunk) {
+        if (threadId != this.streamThreadId) {
+            this.threadSwitch.clear();
+            this.format.writeThreadSwitch(this.threadSwitch, this.streamThreadId, threadId);
+            this.streamThreadId = threadId;
+            try {
+                this.threadSwitch.writeTo(this.logStream);
+            } catch (final IOException _e) {
+                LoggerMetrics.ioFailed(this.metrics, _e);
+            }
+        }
+        try {
+            chunk.writeTo(this.logStream);
+        } catch (final IOException _e) {
+            LoggerMetrics.ioFailed(this.metrics, _e);
+        }
+        this.segmentBytes += chunk.length();
+    }
+
+    /*
+     * INFO
+     *
+     * Segments are rotated only between records (after writing pending repeats) so that each segment is a complete
+     * trace with a header and without references to records of previous segments.  Segments of a ring do not have
+     * headers; instead, a header is written before the segments upon dump.  So, the thread of the stream carries
+     * over into the next segment of a ring.
+     */
+    private void rotateIfDue() {
+        if ((this.segmentLength > 0 && this.segmentBytes >= this.segmentLength) ||
+                (this.segmentInterval > 0 &&
+                        System.currentTimeMillis() - this.segmentStartTime >= this.segmentInterval)) {
+            this.segmentBytes = 0;
+            this.segmentStartTime = System.currentTimeMillis();
+            if (this.ringLogStream != null) {
+                this.ringLogStream.rotate(this.streamThreadId);
+                return;
+            }
+
+            try {
+                if (this.asyncLogStream != null)
+                    this.asyncLogStream.rotate();
+                else
+                    ((SegmentedLogStream) this.logStream).rotate();
+            } catch (final IOException _e) {
+                LoggerMetrics.ioFailed(this.metrics, _e);
+            }
+            this.streamThreadId = 0;
+            this.format.writeHeader(this.out, (new Date()).toString());
+            writeOut();
+        }
+    }
+
+    private void writeOut() {
+        try {
+            this.out.writeTo(this.logStream);
+        } catch (final IOException _e) {
+            LoggerMetrics.ioFailed(this.metrics, _e);
+        }
+        this.out.clear();
     }
 
     private void writeLogHelper() {
         if (this.msgFreq > 1) {
-            this.logWriter.println(MessageFormat.format("{0},{1}", this.prevMsg, this.msgFreq - 1));
+            this.format.writeRepeat(this.out, this.prevRecord, this.msgFreq - 1);
+            admitAndWriteChunk(this.prevThreadId, this.out, this.msgFreq - 1);
+            this.out.clear();
+        }
+        this.msgFreq = 0;
+    }
+
+    private void flushThreadLogs() {
+        for (final ThreadLog _tmp : this.threadLogs) {
+            if (_tmp.isOwnerAlive()) {
+                _tmp.flush();
+            } else {
+                _tmp.close();
+                this.threadLogs.remove(_tmp);
+            }
         }
     }
 
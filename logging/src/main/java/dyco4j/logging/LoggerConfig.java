@@ -0,0 +1,196 @@
+/*
+ * Copyright (c) 2017, Venkatesh-Prasad Ranganath
+ *
+ * BSD 3-clause License
+ *
+ * Author: Venkatesh-Prasad Ranganath (rvprasad)
+ *
+ */
+
+package dyco4j.logging;
+
+import java.io.OutputStream;
+
+/*
+ * INFO
+ *
+ * A logger config holds the options of a logger.  Options that are not set take their defaults, i.e., text traces
+ * of plain (unbuffered, unsegmented, unsampled, and untimed) log statements written into the log stream.
+ */
+final class LoggerConfig {
+    private final OutputStream logStream;
+    private TraceFormat format = new TextTraceFormat();
+    private int threadBufferLength = 0;
+    private long flushInterval = 0;
+    private long segmentLength = 0;
+    private long segmentInterval = 0;
+    private Sampler sampler = null;
+    private int maxSequenceLength = 1;
+    private Aggregator aggregator = null;
+    private boolean timed = false;
+    private ThreadTrace.Opener threadTraceOpener = null;
+    private LoggerMetrics metrics = null;
+    private boolean jfr = false;
+
+    LoggerConfig(final OutputStream logStream) {
+        this.logStream = logStream;
+    }
+
+    LoggerConfig setFormat(final TraceFormat format) {
+        this.format = format;
+        return this;
+    }
+
+    /**
+     * @param threadBufferLength when positive, each thread buffers (upto this many bytes of) its log statements
+     *                           and compresses its repeated log statements independent of other threads.
+     */
+    LoggerConfig setThreadBufferLength(final int threadBufferLength) {
+        this.threadBufferLength = threadBufferLength;
+        return this;
+    }
+
+    /**
+     * @param flushInterval when positive (along with threadBufferLength or thread traces), the buffers of all
+     *                      threads are flushed into the trace every flushInterval milliseconds.
+     */
+    LoggerConfig setFlushInterval(final long flushInterval) {
+        this.flushInterval = flushInterval;
+        return this;
+    }
+
+    /**
+     * @param segmentLength when positive, a new segment of the trace is started once the current segment has at
+     *                      least segmentLength bytes (before compression).
+     */
+    LoggerConfig setSegmentLength(final long segmentLength) {
+        this.segmentLength = segmentLength;
+        return this;
+    }
+
+    /**
+     * @param segmentInterval when positive, a new segment of the trace is started at the first log statement after
+     *                        segmentInterval milliseconds since the start of the current segment.
+     */
+    LoggerConfig setSegmentInterval(final long segmentInterval) {
+        this.segmentInterval = segmentInterval;
+        return this;
+    }
+
+    /**
+     * @param sampler when not null, log statements are sampled by the sampler.
+     */
+    LoggerConfig setSampler(final Sampler sampler) {
+        this.sampler = sampler;
+        return this;
+    }
+
+    /**
+     * @param maxSequenceLength when greater than 1 (along with threadBufferLength), repeated sequences of upto
+     *                          maxSequenceLength log statements of a thread are compressed.
+     */
+    LoggerConfig setMaxSequenceLength(final int maxSequenceLength) {
+        this.maxSequenceLength = maxSequenceLength;
+        return this;
+    }
+
+    /**
+     * @param aggregator when not null, method entries and calls are counted by the aggregator instead of being
+     *                   logged and other log statements (except messages) are dropped.  The counts are written into
+     *                   the trace upon cleanup.
+     */
+    LoggerConfig setAggregator(final Aggregator aggregator) {
+        this.aggregator = aggregator;
+        return this;
+    }
+
+    /**
+     * @param timed when true, method entries and exits carry the nanoseconds elapsed since the previous method entry
+     *              or exit of the thread.
+     */
+    LoggerConfig setTimed(final boolean timed) {
+        this.timed = timed;
+        return this;
+    }
+
+    /**
+     * @param threadTraceOpener when not null, each thread writes its log statements (with global sequence numbers)
+     *                          into a thread trace opened by threadTraceOpener upon the first log statement of the
+     *                          thread.  Thread traces are closed when their threads die (upon flush) or upon
+     *                          cleanup.
+     */
+    LoggerConfig setThreadTraceOpener(final ThreadTrace.Opener threadTraceOpener) {
+        this.threadTraceOpener = threadTraceOpener;
+        return this;
+    }
+
+    /**
+     * @param metrics when not null, events, bytes, and times of logging are counted in metrics.
+     */
+    LoggerConfig setMetrics(final LoggerMetrics metrics) {
+        this.metrics = metrics;
+        return this;
+    }
+
+    /**
+     * @param jfr when true, log statements are committed as JDK Flight Recorder events (see JfrLogStream) instead of
+     *            being written into the log stream.  So, log statements are neither buffered nor written into thread
+     *            traces.
+     */
+    LoggerConfig setJfr(final boolean jfr) {
+        this.jfr = jfr;
+        return this;
+    }
+
+    OutputStream getLogStream() {
+        return this.logStream;
+    }
+
+    TraceFormat getFormat() {
+        return this.format;
+    }
+
+    int getThreadBufferLength() {
+        return this.threadBufferLength;
+    }
+
+    long getFlushInterval() {
+        return this.flushInterval;
+    }
+
+    long getSegmentLength() {
+        return this.segmentLength;
+    }
+
+    long getSegmentInterval() {
+        return this.segmentInterval;
+    }
+
+    Sampler getSampler() {
+        return this.sampler;
+    }
+
+    int getMaxSequenceLength() {
+        return this.maxSequenceLength;
+    }
+
+    Aggregator getAggregator() {
+        return this.aggregator;
+    }
+
+    boolean isTimed() {
+        return this.timed;
+    }
+
+    ThreadTrace.Opener getThreadTraceOpener() {
+        return this.threadTraceOpener;
+    }
+
+    LoggerMetrics getMetrics() {
+        return this.metrics;
+    }
+
+    boolean isJfr() {
+        return this.jfr;
+    }
+}
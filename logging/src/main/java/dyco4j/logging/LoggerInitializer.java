@@ -11,29 +11,176 @@ package dyco4j.logging;
 
 import java.io.*;
 import java.lang.management.ManagementFactory;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Paths;
 import java.text.MessageFormat;
+import java.util.HashSet;
 import java.util.Properties;
-import java.util.zip.GZIPOutputStream;
+import java.util.Set;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.FutureTask;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.TimeoutException;
 
 @SuppressWarnings("unused")
 public final class LoggerInitializer {
-    private static File traceFile;
+    // INFO: the number of bytes logged (before compression) while the trace file is being opened
+    private static final int PENDING_LENGTH = 1048576;
+    private static volatile File traceFile;
     private static volatile boolean initialized;
 
-    public static synchronized void initialize() throws IOException {
+    /*
+     * INFO
+     *
+     * This method is called upon the initialization of every instrumented class.  So, once the logger is
+     * initialized, it only reads a volatile field without acquiring any lock.
+     */
+    public static void initialize() throws IOException {
+        if (!initialized)
+            initializeHelper();
+    }
+
+    private static synchronized void initializeHelper() throws IOException {
         if (!initialized) {
+            final long _start = System.nanoTime();
             final Properties _properties = getProperties();
             final File _folder = new File(_properties.getProperty("traceFolder", "."));
-            if (!_folder.exists() && !_folder.mkdir())
-                throw new IOException(MessageFormat.format("Cannot create {0}", _folder.toString()));
-
-            final String _prefix = "trace_" + ManagementFactory.getRuntimeMXBean().getName().split("@")[0] + "_";
-            LoggerInitializer.traceFile = File.createTempFile(_prefix, ".gz", _folder);
-            final OutputStream _stream = new FileOutputStream(LoggerInitializer.traceFile, true);
-            final int _bufferLength = Integer.parseInt(_properties.getProperty("bufferLength", "10000000"));
-            final PrintWriter _logWriter =
-                    new PrintWriter(new BufferedOutputStream(new GZIPOutputStream(_stream), _bufferLength));
-            Logger.initialize(_logWriter);
+            final String _pid = getPid();
+            LoggerInitializer.traceFile = null;
+            final String _prefix = "trace_" + _pid + "_";
+            final String _traceOutput = _properties.getProperty("traceOutput", "stream");
+            final boolean _isJfr = _traceOutput.equals("jfr");
+            if (_isJfr && !isJfrAvailable())
+                throw new IllegalArgumentException("JFR output requires jdk.jfr (Java 11+ or Java 8u262+)");
+            // INFO: log statements other than method entries, method exits, and accesses are committed as text
+            final TraceFormat _format = _isJfr ? new TextTraceFormat() :
+                    getTraceFormat(_properties.getProperty("traceFormat", "text"));
+            final boolean _isPipe = _traceOutput.equals("pipe");
+            final boolean _isMapped = _traceOutput.equals("mapped");
+            // INFO: traces streamed over pipes are compressed by the collector
+            final String _codecName = _isPipe ? "none" : _properties.getProperty("traceCodec",
+                    _isMapped ? "none" : "deflate");
+            final TraceCodec _codec = TraceCodec.getCodec(_codecName, _properties);
+            // INFO: bytes held by a compressor would be lost if the JVM dies; so, mapped traces are not compressed
+            if (_isMapped && !(_codec instanceof NoneTraceCodec))
+                throw new IllegalArgumentException("Mapped output cannot be compressed");
+            final String _suffix = getTraceFileSuffix(_traceOutput, _format, _codec);
+            final LoggerMetrics _metrics = Boolean.parseBoolean(_properties.getProperty("loggerMetrics", "false")) ?
+                    new LoggerMetrics() : null;
+            final int _bufferLength = Integer.parseInt(_properties.getProperty("bufferLength",
+                    _isPipe ? "65536" : "10000000"));
+            final SegmentedLogStream.SegmentOpener _opener = f -> openTraceFile(f, _traceOutput, _codec,
+                    _bufferLength, _metrics, _properties);
+            final boolean _isRing = _traceOutput.equals("ring");
+            final int _ringLength = Integer.parseInt(_properties.getProperty("ringLength", "67108864"));
+            // INFO: the ring holds the latest seven to eight segments
+            final long _segmentLength = _isRing ? Math.max(_ringLength / 8, 1) :
+                    Long.parseLong(_properties.getProperty("traceSegmentLength", "0"));
+            final long _segmentInterval = _isRing ? 0 :
+                    Long.parseLong(_properties.getProperty("traceSegmentInterval", "0"));
+            final boolean _isPerThread = Boolean.parseBoolean(_properties.getProperty("traceFilePerThread",
+                    "false"));
+            if (_isPipe && (_segmentLength > 0 || _segmentInterval > 0 || _isPerThread))
+                throw new IllegalArgumentException("Pipe output cannot be segmented or split into thread traces");
+            final OutputStream _stream;
+            if (_isPipe) {
+                final File _pipe = new File(_properties.getProperty("tracePipe", "trace.pipe"));
+                final long _timeout = Long.parseLong(_properties.getProperty("tracePipeTimeout", "10000"));
+                final TraceCodec _fileCodec = TraceCodec.getCodec(_properties.getProperty("traceCodec", "deflate"),
+                        _properties);
+                LoggerInitializer.traceFile = _pipe;
+                _stream = new DeferredLogStream(() -> {
+                    final OutputStream _tmp = openPipe(_pipe, _pid, _timeout);
+                    if (_tmp != null)
+                        return encodeTraceStream(_tmp, _codec, _bufferLength, _metrics);
+
+                    // INFO: without a collector, the trace is written into a trace file as with stream output
+                    final File _file = createTraceFile(_folder, _prefix, _format.getFileExtension() +
+                            _fileCodec.getFileExtension());
+                    LoggerInitializer.traceFile = _file;
+                    return openTraceFile(_file, "stream", _fileCodec, _bufferLength, _metrics, _properties);
+                }, PENDING_LENGTH, _metrics);
+            } else if (_isJfr) {
+                _stream = new JfrLogStream();
+            } else if (_isRing || _segmentLength > 0 || _segmentInterval > 0) {
+                final SegmentedLogStream.SegmentNamer _namer = new TraceFileNamer(_folder, _prefix, _suffix);
+                if (_isRing) {
+                    final boolean _dumpOnExit = Boolean.parseBoolean(_properties.getProperty("ringDumpOnExit",
+                            "true"));
+                    _stream = new RingLogStream(_ringLength, _namer, _opener,
+                            getDumpExceptions(_properties.getProperty("ringDumpExceptions", "")), _dumpOnExit);
+                } else {
+                    final int _retention = Integer.parseInt(_properties.getProperty("traceSegmentRetention", "0"));
+                    _stream = new SegmentedLogStream(_namer, _opener, _retention, _isMapped ? 0 : PENDING_LENGTH,
+                            _metrics);
+                }
+            } else if (_isMapped) {
+                // INFO: mapped traces are written into the mapping from the start so that they survive crashes
+                final File _file = createTraceFile(_folder, _prefix, _suffix);
+                LoggerInitializer.traceFile = _file;
+                _stream = _opener.open(_file);
+            } else {
+                _stream = new DeferredLogStream(() -> {
+                    final File _file = createTraceFile(_folder, _prefix, _suffix);
+                    LoggerInitializer.traceFile = _file;
+                    return _opener.open(_file);
+                }, PENDING_LENGTH, _metrics);
+            }
+            final OutputStream _logStream = createAsyncLogStream(_properties, _stream, _metrics);
+            if ((_isRing || _isJfr) && _logStream != _stream)
+                throw new IllegalArgumentException(MessageFormat.format(
+                        "{0} output cannot be written by an async writer", _traceOutput));
+            // INFO: JFR events are committed as they are logged; so, they are neither buffered nor compressed
+            final int _threadBufferLength = _isJfr ? 0 :
+                    Integer.parseInt(_properties.getProperty("threadBufferLength", "0"));
+            final long _flushInterval = Long.parseLong(_properties.getProperty("flushInterval", "1000"));
+            final String _samplingRules = _properties.getProperty("samplingRules", "").trim();
+            final Sampler _sampler = _samplingRules.isEmpty() ? null : new Sampler(_samplingRules);
+            final int _maxSequenceLength = _isJfr ? 1 :
+                    Integer.parseInt(_properties.getProperty("maxRepeatedSequenceLength", "1"));
+            final boolean _traceTimestamps = Boolean.parseBoolean(_properties.getProperty("traceTimestamps",
+                    "false"));
+            final ThreadTrace.Opener _threadTraceOpener;
+            if (_isPerThread && !_isJfr) {
+                final int _threadTraceBufferLength = Integer.parseInt(_properties.getProperty(
+                        "threadTraceBufferLength", "65536"));
+                // INFO: thread traces are compressed in parallel by the threads that flush them; so, compressing
+                // each of them in parallel would only add a pool of compressors and blocks per thread trace
+                final Properties _threadTraceProperties = new Properties(_properties);
+                _threadTraceProperties.setProperty("compressionThreads", "1");
+                final TraceCodec _threadTraceCodec = TraceCodec.getCodec(_codecName, _threadTraceProperties);
+                _threadTraceOpener = i -> openTraceFile(createTraceFile(_folder, _prefix + i + "_", _suffix),
+                        _traceOutput, _threadTraceCodec, _threadTraceBufferLength, _metrics, _properties);
+            } else {
+                _threadTraceOpener = null;
+            }
+            final String _traceMode = _properties.getProperty("traceMode", "events");
+            final LoggerConfig _config = new LoggerConfig(_logStream).setFormat(_format).setMetrics(_metrics)
+                    .setJfr(_isJfr);
+            if (_traceMode.equals("aggregate") || _traceMode.equals("profile"))
+                Logger.initialize(_config.setAggregator(new Aggregator(_traceMode.equals("profile"))));
+            else if (_traceMode.equals("events"))
+                Logger.initialize(_config.setThreadBufferLength(_threadBufferLength).setFlushInterval(_flushInterval)
+                        .setSegmentLength(_segmentLength).setSegmentInterval(_segmentInterval).setSampler(_sampler)
+                        .setMaxSequenceLength(_maxSequenceLength).setTimed(_traceTimestamps)
+                        .setThreadTraceOpener(_threadTraceOpener));
+            else
+                throw new IllegalArgumentException(MessageFormat.format("Unknown trace mode {0}", _traceMode));
+            if (Boolean.parseBoolean(_properties.getProperty("traceSwitchMBean", "false")))
+                TraceSwitch.registerInBackground();
+            if (_metrics != null) {
+                _metrics.setBootstrapTime(System.nanoTime() - _start);
+                _metrics.register();
+            }
+            if (_isRing) {
+                final FlightRecorder _recorder = new FlightRecorder(_metrics);
+                _recorder.register();
+                final String _trigger = _properties.getProperty("ringDumpTriggerFile", "").trim();
+                if (!_trigger.isEmpty())
+                    _recorder.watch(new File(_trigger), Long.parseLong(_properties.getProperty(
+                            "ringDumpTriggerInterval", "1000")));
+            }
             LoggerInitializer.initialized = true;
         }
     }
@@ -48,6 +195,147 @@ public final class LoggerInitializer {
         LoggerInitializer.initialized = false;
     }
 
+    /*
+     * INFO
+     *
+     * JfrLogStream cannot check if jdk.jfr is available as its initialization fails without jdk.jfr.  So, this class
+     * (which does not refer to jdk.jfr) checks it before JfrLogStream is used.
+     */
+    static boolean isJfrAvailable() {
+        try {
+            Class.forName("jdk.jfr.Event", false, LoggerInitializer.class.getClassLoader());
+            return true;
+        } catch (final ClassNotFoundException _e) {
+            return false;
+        }
+    }
+
+    /*
+     * Returns the pid of the program.  /proc/self is read (where available) as the runtime MXBean starts the
+     * management infrastructure, which delays the bootstrap of the logger.
+     */
+    private static String getPid() {
+        try {
+            return Files.readSymbolicLink(Paths.get("/proc/self")).toString();
+        } catch (final IOException | UnsupportedOperationException _e) {
+            return ManagementFactory.getRuntimeMXBean().getName().split("@")[0];
+        }
+    }
+
+    /*
+     * Creates a new trace file (and the folder if needed).  This method is called by openers (off the bootstrap
+     * path) except with mapped output.
+     */
+    private static File createTraceFile(final File folder, final String prefix, final String suffix)
+            throws IOException {
+        if (!folder.exists() && !folder.mkdirs() && !folder.isDirectory())
+            throw new IOException(MessageFormat.format("Cannot create {0}", folder.toString()));
+
+        return File.createTempFile(prefix, suffix, folder);
+    }
+
+    private static String getTraceFileSuffix(final String traceOutput, final TraceFormat format,
+                                             final TraceCodec codec) {
+        if (!traceOutput.equals("stream") && !traceOutput.equals("mapped") && !traceOutput.equals("ring") &&
+                !traceOutput.equals("jfr") && !traceOutput.equals("pipe"))
+            throw new IllegalArgumentException(MessageFormat.format("Unknown trace output {0}", traceOutput));
+        return format.getFileExtension() + codec.getFileExtension();
+    }
+
+    private static OutputStream openTraceFile(final File file, final String traceOutput, final TraceCodec codec,
+                                              final int bufferLength, final LoggerMetrics metrics,
+                                              final Properties properties) throws IOException {
+        final OutputStream _tmp;
+        final boolean _isMapped = traceOutput.equals("mapped");
+        if (_isMapped) {
+            final int _segmentLength = Integer.parseInt(properties.getProperty("mappedSegmentLength", "67108864"));
+            _tmp = new MappedLogStream(file, _segmentLength);
+        } else {
+            _tmp = new FileOutputStream(file, true);
+        }
+
+        return encodeTraceStream(_tmp, codec, _isMapped ? 0 : bufferLength, metrics);
+    }
+
+    /*
+     * Returns a stream that encodes the written bytes into out via codec.  When bufferLength is 0, the returned
+     * stream is not buffered.
+     */
+    private static OutputStream encodeTraceStream(final OutputStream out, final TraceCodec codec,
+                                                  final int bufferLength, final LoggerMetrics metrics)
+            throws IOException {
+        final OutputStream _ret = metrics == null ? codec.encode(out) :
+                metrics.countUncompressedBytes(codec.encode(metrics.countCompressedBytes(out)));
+        return bufferLength > 0 ? new BufferedOutputStream(_ret, bufferLength) : _ret;
+    }
+
+    /*
+     * Opens the given pipe and writes the pid (as a line) for the collector to name the trace file.  Since opening a
+     * pipe blocks until the collector opens it, the pipe is opened on a daemon thread.  Returns null if the
+     * collector does not open the pipe within timeout milliseconds.
+     */
+    private static OutputStream openPipe(final File pipe, final String pid, final long timeout) throws IOException {
+        final FutureTask<OutputStream> _opener = new FutureTask<>(() -> new FileOutputStream(pipe, true));
+        final Thread _thread = new Thread(_opener, "dyco4j-logging-pipe-opener");
+        _thread.setDaemon(true);
+        _thread.start();
+        try {
+            final OutputStream _ret = _opener.get(timeout, TimeUnit.MILLISECONDS);
+            _ret.write((pid + "\n").getBytes(StandardCharsets.US_ASCII));
+            return _ret;
+        } catch (final TimeoutException _e) {
+            // INFO: opening the read end of the pipe completes the pending open; so, the opener thread does not linger
+            try {
+                new FileInputStream(pipe).close();
+                _opener.get().close();
+            } catch (final IOException | ExecutionException _ex) {
+                // INFO: the pipe is abandoned anyway
+            } catch (final InterruptedException _ex) {
+                Thread.currentThread().interrupt();
+            }
+            return null;
+        } catch (final InterruptedException _e) {
+            Thread.currentThread().interrupt();
+            throw new InterruptedIOException(MessageFormat.format("Interrupted while opening pipe {0}", pipe));
+        } catch (final ExecutionException _e) {
+            throw _e.getCause() instanceof IOException ? (IOException) _e.getCause() : new IOException(_e);
+        }
+    }
+
+    private static Set<String> getDumpExceptions(final String names) {
+        final Set<String> _ret = new HashSet<>();
+        for (final String _tmp : names.split(",")) {
+            final String _name = _tmp.trim();
+            if (!_name.isEmpty())
+                _ret.add(_name);
+        }
+        return _ret;
+    }
+
+    private static OutputStream createAsyncLogStream(final Properties properties, final OutputStream stream,
+                                                     final LoggerMetrics metrics) {
+        final String _policy = properties.getProperty("asyncWriterPolicy", "none");
+        if (_policy.equals("none"))
+            return stream;
+
+        final int _numOfBlocks = Integer.parseInt(properties.getProperty("asyncWriterBlocks", "64"));
+        final int _blockLength = Integer.parseInt(properties.getProperty("asyncWriterBlockLength", "65536"));
+        final int _samplingRate = Integer.parseInt(properties.getProperty("asyncWriterSamplingRate", "10"));
+        return new AsyncLogStream(stream, AsyncLogStream.Policy.valueOf(_policy.toUpperCase()), _numOfBlocks,
+                _blockLength, _samplingRate, metrics);
+    }
+
+    private static TraceFormat getTraceFormat(final String name) {
+        switch (name) {
+            case "text":
+                return new TextTraceFormat();
+            case "binary":
+                return new BinaryTraceFormat();
+            default:
+                throw new IllegalArgumentException(MessageFormat.format("Unknown trace format {0}", name));
+        }
+    }
+
     private static Properties getProperties() throws IOException {
         final Properties _tmp = new Properties();
         try (final InputStream _in1 = LoggerInitializer.class.getResourceAsStream("logging.properties")) {
@@ -56,4 +344,34 @@ public final class LoggerInitializer {
         }
         return _tmp;
     }
+
+    /*
+     * Names segments (and dumps) after the trace file of the first segment, which is created when the first segment
+     * is named.  So, no file is created while bootstrapping the logger.
+     */
+    private static final class TraceFileNamer implements SegmentedLogStream.SegmentNamer {
+        private final File folder;
+        private final String prefix;
+        private final String suffix;
+        private String baseName;
+
+        TraceFileNamer(final File folder, final String prefix, final String suffix) {
+            this.folder = folder;
+            this.prefix = prefix;
+            this.suffix = suffix;
+        }
+
+        @Override
+        public synchronized File name(final int index) throws IOException {
+            if (this.baseName == null) {
+                final File _tmp = createTraceFile(this.folder, this.prefix, "_0" + this.suffix);
+                LoggerInitializer.traceFile = _tmp;
+                final String _name = _tmp.getName();
+                this.baseName = _name.substring(0, _name.length() - this.suffix.length() - 2);
+                if (index == 0)
+                    return _tmp;
+            }
+            return new File(this.folder, this.baseName + "_" + index + this.suffix);
+        }
+    }
 }
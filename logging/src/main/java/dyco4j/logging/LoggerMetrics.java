@@ -0,0 +1,259 @@
+/*
+ * Copyright (c) 2017, Venkatesh-Prasad Ranganath
+ *
+ * BSD 3-clause License
+ *
+ * Author: Venkatesh-Prasad Ranganath (rvprasad)
+ *
+ */
+
+package dyco4j.logging;
+
+import javax.management.JMException;
+import javax.management.ObjectName;
+import java.io.FilterOutputStream;
+import java.io.IOException;
+import java.io.OutputStream;
+import java.lang.management.ManagementFactory;
+import java.util.Collections;
+import java.util.LinkedHashMap;
+import java.util.Map;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.LongAccumulator;
+import java.util.concurrent.atomic.LongAdder;
+
+/*
+ * INFO
+ *
+ * Logger metrics count what the logger does while the program runs.  Counters are updated by logging threads via
+ * LongAdders; so, threads do not contend on counters.  Occupancies of buffers and queues are read (without
+ * synchronization) when the metrics are queried.
+ *
+ * Events are counted by kind as in sampling rules (see Sampler) along with ex for method exits.  Event rates are
+ * computed over the interval between the current query and the previous query that is at least a second old.
+ */
+public final class LoggerMetrics implements LoggerMetricsMXBean {
+    public static final String OBJECT_NAME = "dyco4j.logging:type=LoggerMetrics";
+    static final int METHOD_EXIT = Sampler.Kind.values().length;
+    private static final long RATE_INTERVAL = TimeUnit.SECONDS.toNanos(1);
+    private final String[] kindNames = new String[METHOD_EXIT + 1];
+    private final LongAdder[] eventCounts = new LongAdder[METHOD_EXIT + 1];
+    private final LongAdder sampledOutEvents = new LongAdder();
+    private final LongAdder droppedEvents = new LongAdder();
+    private final LongAdder uncompressedBytes = new LongAdder();
+    private final LongAdder compressedBytes = new LongAdder();
+    private final LongAdder lockWaitTime = new LongAdder();
+    private final LongAdder writeTime = new LongAdder();
+    private final LongAdder numOfFlushes = new LongAdder();
+    private final LongAdder ioFailures = new LongAdder();
+    private final LongAccumulator maxFlushTime = new LongAccumulator(Math::max, 0);
+    private final long[] prevEventCounts = new long[METHOD_EXIT + 1];
+    private volatile long lastFlushTime;
+    private volatile long bootstrapTime;
+    private volatile long streamOpenTime;
+    private volatile Logger logger;
+    private long prevRateTime = System.nanoTime();
+    private Map<String, Double> eventRates = Collections.emptyMap();
+
+    LoggerMetrics() {
+        for (final Sampler.Kind _tmp : Sampler.Kind.values())
+            this.kindNames[_tmp.ordinal()] = _tmp.name();
+        this.kindNames[METHOD_EXIT] = Logger.METHOD_EXIT_TAG;
+        for (int _i = 0; _i < this.eventCounts.length; _i++)
+            this.eventCounts[_i] = new LongAdder();
+    }
+
+    void register() {
+        try {
+            ManagementFactory.getPlatformMBeanServer().registerMBean(this, new ObjectName(OBJECT_NAME));
+        } catch (final JMException _e) {
+            // INFO: the metrics are registered by the first logger when there are many loggers (in many class loaders)
+        }
+    }
+
+    void setLogger(final Logger logger) {
+        this.logger = logger;
+    }
+
+    /*
+     * Records the given failure to write (or open or close) a trace.  Like PrintWriter, logging does not disrupt the
+     * program being logged; so, failed writes are skipped and, when metrics are on, counted as IO failures.
+     */
+    static void ioFailed(final LoggerMetrics metrics, final IOException e) {
+        if (metrics != null)
+            metrics.ioFailures.increment();
+    }
+
+    /*
+     * kind is the ordinal of a Sampler.Kind or METHOD_EXIT.
+     */
+    void countEvent(final int kind, final boolean sampledOut) {
+        this.eventCounts[kind].increment();
+        if (sampledOut)
+            this.sampledOutEvents.increment();
+    }
+
+    void countDroppedEvents(final long numOfEvents) {
+        this.droppedEvents.add(numOfEvents);
+    }
+
+    void countLockWaitTime(final long time) {
+        this.lockWaitTime.add(time);
+    }
+
+    void countWriteTime(final long time) {
+        this.writeTime.add(time);
+    }
+
+    void countFlush(final long time) {
+        this.numOfFlushes.increment();
+        this.maxFlushTime.accumulate(time);
+        this.lastFlushTime = time;
+    }
+
+    void setBootstrapTime(final long time) {
+        this.bootstrapTime = time;
+    }
+
+    void setStreamOpenTime(final long time) {
+        this.streamOpenTime = time;
+    }
+
+    /*
+     * Returns a stream that counts the bytes written into the given (compressing) stream.
+     */
+    OutputStream countUncompressedBytes(final OutputStream out) {
+        return new CountingStream(out, this.uncompressedBytes);
+    }
+
+    /*
+     * Returns a stream that counts the bytes written into the given (file) stream.
+     */
+    OutputStream countCompressedBytes(final OutputStream out) {
+        return new CountingStream(out, this.compressedBytes);
+    }
+
+    @Override
+    public Map<String, Long> getEventCounts() {
+        final Map<String, Long> _ret = new LinkedHashMap<>();
+        for (int _i = 0; _i < this.eventCounts.length; _i++)
+            _ret.put(this.kindNames[_i], this.eventCounts[_i].sum());
+        return _ret;
+    }
+
+    @Override
+    public synchronized Map<String, Double> getEventRates() {
+        final long _now = System.nanoTime();
+        final long _interval = _now - this.prevRateTime;
+        if (_interval >= RATE_INTERVAL) {
+            final Map<String, Double> _ret = new LinkedHashMap<>();
+            for (int _i = 0; _i < this.eventCounts.length; _i++) {
+                final long _tmp = this.eventCounts[_i].sum();
+                _ret.put(this.kindNames[_i], (_tmp - this.prevEventCounts[_i]) * (double) RATE_INTERVAL / _interval);
+                this.prevEventCounts[_i] = _tmp;
+            }
+            this.eventRates = _ret;
+            this.prevRateTime = _now;
+        }
+        return this.eventRates;
+    }
+
+    @Override
+    public long getSampledOutEvents() {
+        return this.sampledOutEvents.sum();
+    }
+
+    @Override
+    public long getDroppedEvents() {
+        return this.droppedEvents.sum();
+    }
+
+    @Override
+    public long getUncompressedBytes() {
+        return this.uncompressedBytes.sum();
+    }
+
+    @Override
+    public long getCompressedBytes() {
+        return this.compressedBytes.sum();
+    }
+
+    @Override
+    public long getThreadBufferedBytes() {
+        final Logger _tmp = this.logger;
+        return _tmp != null ? _tmp.getThreadBufferedBytes() : 0;
+    }
+
+    @Override
+    public int getWriterQueueLength() {
+        final Logger _tmp = this.logger;
+        return _tmp != null ? _tmp.getWriterQueueLength() : 0;
+    }
+
+    @Override
+    public int getWriterQueueCapacity() {
+        final Logger _tmp = this.logger;
+        return _tmp != null ? _tmp.getWriterQueueCapacity() : 0;
+    }
+
+    @Override
+    public long getNumOfFlushes() {
+        return this.numOfFlushes.sum();
+    }
+
+    @Override
+    public long getLastFlushTime() {
+        return this.lastFlushTime;
+    }
+
+    @Override
+    public long getMaxFlushTime() {
+        return this.maxFlushTime.get();
+    }
+
+    @Override
+    public long getLockWaitTime() {
+        return this.lockWaitTime.sum();
+    }
+
+    @Override
+    public long getWriteTime() {
+        return this.writeTime.sum();
+    }
+
+    @Override
+    public long getIoFailures() {
+        return this.ioFailures.sum();
+    }
+
+    @Override
+    public long getBootstrapTime() {
+        return this.bootstrapTime;
+    }
+
+    @Override
+    public long getStreamOpenTime() {
+        return this.streamOpenTime;
+    }
+
+    private static final class CountingStream extends FilterOutputStream {
+        private final LongAdder counter;
+
+        CountingStream(final OutputStream out, final LongAdder counter) {
+            super(out);
+            this.counter = counter;
+        }
+
+        @Override
+        public void write(final int b) throws IOException {
+            this.out.write(b);
+            this.counter.increment();
+        }
+
+        @Override
+        public void write(final byte[] b, final int off, final int len) throws IOException {
+            this.out.write(b, off, len);
+            this.counter.add(len);
+        }
+    }
+}
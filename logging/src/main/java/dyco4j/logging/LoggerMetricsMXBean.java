@@ -0,0 +1,97 @@
+/*
+ * Copyright (c) 2017, Venkatesh-Prasad Ranganath
+ *
+ * BSD 3-clause License
+ *
+ * Author: Venkatesh-Prasad Ranganath (rvprasad)
+ *
+ */
+
+package dyco4j.logging;
+
+import java.util.Map;
+
+/**
+ * Times are in nanoseconds.
+ */
+public interface LoggerMetricsMXBean {
+    /**
+     * @return the number of events of each kind (en, ex, ar, re, xp, ca, GETA, PUTA, GETF, PUTF) logged so far.
+     */
+    Map<String, Long> getEventCounts();
+
+    /**
+     * @return the number of events of each kind logged per second since the previous query (that is at least a
+     * second old).
+     */
+    Map<String, Double> getEventRates();
+
+    /**
+     * @return the number of events dropped by sampling rules.
+     */
+    long getSampledOutEvents();
+
+    /**
+     * @return the number of log statements dropped (or sampled) by the writer thread.
+     */
+    long getDroppedEvents();
+
+    /**
+     * @return the number of bytes written into trace files before compression.
+     */
+    long getUncompressedBytes();
+
+    /**
+     * @return the number of bytes written into trace files after compression.
+     */
+    long getCompressedBytes();
+
+    /**
+     * @return the number of bytes held in the buffers of threads.
+     */
+    long getThreadBufferedBytes();
+
+    /**
+     * @return the number of blocks waiting to be written by the writer thread.
+     */
+    int getWriterQueueLength();
+
+    /**
+     * @return the number of blocks of the writer thread.
+     */
+    int getWriterQueueCapacity();
+
+    long getNumOfFlushes();
+
+    /**
+     * @return the time taken by the latest flush of the buffers of threads.
+     */
+    long getLastFlushTime();
+
+    long getMaxFlushTime();
+
+    /**
+     * @return the time spent by threads waiting to write into the trace.
+     */
+    long getLockWaitTime();
+
+    /**
+     * @return the time spent by threads writing into the trace (including the time spent waiting).
+     */
+    long getWriteTime();
+
+    /**
+     * @return the number of writes (opens and closes) of traces that failed (and were skipped).
+     */
+    long getIoFailures();
+
+    /**
+     * @return the time taken by the class initialization that bootstrapped the logger.
+     */
+    long getBootstrapTime();
+
+    /**
+     * @return the time taken (on a background thread) to open the trace file.
+     */
+    long getStreamOpenTime();
+}
@@ -0,0 +1,143 @@
+/*
+ * Copyright (c) 2017, Venkatesh-Prasad Ranganath
+ *
+ * BSD 3-clause License
+ *
+ * Author: Venkatesh-Prasad Ranganath (rvprasad)
+ *
+ */
+
+package dyco4j.logging;
+
+import java.io.DataInputStream;
+import java.io.EOFException;
+import java.io.IOException;
+import java.io.InputStream;
+import java.text.MessageFormat;
+import java.util.Arrays;
+
+/*
+ * INFO
+ *
+ * Decompresses the output of LzOutputStream.
+ */
+final class LzInputStream extends InputStream {
+    private final DataInputStream in;
+    private final byte[] block = new byte[LzOutputStream.BLOCK_LENGTH];
+    private byte[] compressedBlock = new byte[0];
+    private int blockLength;
+    private int blockPosition;
+    private boolean magicRead;
+
+    LzInputStream(final InputStream in) {
+        this.in = new DataInputStream(in);
+    }
+
+    private static int readLength(final byte[] src, final int[] pos, final int length) {
+        int _ret = length;
+        if (length == 15) {
+            int _b;
+            do {
+                _b = src[pos[0]++] & 0xFF;
+                _ret += _b;
+            } while (_b == 255);
+        }
+        return _ret;
+    }
+
+    /*
+     * Decompresses length bytes of src into dst that should have exactly expectedLength bytes.
+     */
+    private static void decompress(final byte[] src, final int length, final byte[] dst, final int expectedLength)
+            throws IOException {
+        try {
+            final int[] _pos = {0};
+            int _dstPos = 0;
+            while (true) {
+                final int _token = src[_pos[0]++] & 0xFF;
+                final int _numOfLiterals = readLength(src, _pos, _token >>> 4);
+                if (_dstPos + _numOfLiterals > expectedLength || _pos[0] + _numOfLiterals > length)
+                    throw new IOException("Corrupt LZ block");
+                System.arraycopy(src, _pos[0], dst, _dstPos, _numOfLiterals);
+                _pos[0] += _numOfLiterals;
+                _dstPos += _numOfLiterals;
+                if (_pos[0] >= length)
+                    break;
+
+                final int _offset = (src[_pos[0]] & 0xFF) | (src[_pos[0] + 1] & 0xFF) << 8;
+                _pos[0] += 2;
+                final int _matchLength = readLength(src, _pos, _token & 0xF) + LzOutputStream.MIN_MATCH;
+                if (_offset == 0 || _offset > _dstPos || _dstPos + _matchLength > expectedLength)
+                    throw new IOException("Corrupt LZ block");
+                // INFO: matches may overlap with the bytes being copied; so, bytes are copied one at a time
+                for (int _i = 0; _i < _matchLength; _i++, _dstPos++)
+                    dst[_dstPos] = dst[_dstPos - _offset];
+            }
+            if (_dstPos != expectedLength)
+                throw new IOException("Corrupt LZ block");
+        } catch (final ArrayIndexOutOfBoundsException _e) {
+            throw new IOException("Corrupt LZ block", _e);
+        }
+    }
+
+    @Override
+    public int read() throws IOException {
+        if (!fillBlock())
+            return -1;
+        return this.block[this.blockPosition++] & 0xFF;
+    }
+
+    @Override
+    public int read(final byte[] b, final int off, final int len) throws IOException {
+        if (len == 0)
+            return 0;
+        if (!fillBlock())
+            return -1;
+
+        final int _tmp = Math.min(len, this.blockLength - this.blockPosition);
+        System.arraycopy(this.block, this.blockPosition, b, off, _tmp);
+        this.blockPosition += _tmp;
+        return _tmp;
+    }
+
+    @Override
+    public void close() throws IOException {
+        this.in.close();
+    }
+
+    private boolean fillBlock() throws IOException {
+        if (!this.magicRead) {
+            final byte[] _magic = new byte[LzOutputStream.MAGIC.length];
+            this.in.readFully(_magic);
+            if (!Arrays.equals(_magic, LzOutputStream.MAGIC))
+                throw new IOException("Not an LZ stream");
+            this.magicRead = true;
+        }
+
+        while (this.blockPosition == this.blockLength) {
+            final int _length;
+            try {
+                _length = this.in.readInt();
+            } catch (final EOFException _e) {
+                return false;
+            }
+            if (_length < 1 || _length > LzOutputStream.BLOCK_LENGTH)
+                throw new IOException(MessageFormat.format("Invalid LZ block length {0}", _length));
+
+            final int _compressedLength = this.in.readInt();
+            if (_compressedLength == 0) {
+                this.in.readFully(this.block, 0, _length);
+            } else {
+                if (_compressedLength < 0 || _compressedLength > _length)
+                    throw new IOException(MessageFormat.format("Invalid LZ block length {0}", _compressedLength));
+                if (this.compressedBlock.length < _compressedLength)
+                    this.compressedBlock = new byte[LzOutputStream.BLOCK_LENGTH];
+                this.in.readFully(this.compressedBlock, 0, _compressedLength);
+                decompress(this.compressedBlock, _compressedLength, this.block, _length);
+            }
+            this.blockLength = _length;
+            this.blockPosition = 0;
+        }
+        return true;
+    }
+}
@@ -0,0 +1,174 @@
+/*
+ * Copyright (c) 2017, Venkatesh-Prasad Ranganath
+ *
+ * BSD 3-clause License
+ *
+ * Author: Venkatesh-Prasad Ranganath (rvprasad)
+ *
+ */
+
+package dyco4j.logging;
+
+import java.io.DataOutputStream;
+import java.io.IOException;
+import java.io.OutputStream;
+import java.nio.charset.StandardCharsets;
+import java.util.Arrays;
+
+/*
+ * INFO
+ *
+ * An LZ output stream compresses the written bytes in independent blocks of BLOCK_LENGTH bytes with a greedy LZ77
+ * scheme (similar to LZ4) that finds matches via a hash table of 4-byte sequences.  It compresses and decompresses
+ * much faster than deflate at the cost of compression ratio.
+ *
+ * A stream is MAGIC followed by blocks.  A block is its (uncompressed) length and its compressed length as 4-byte
+ * ints followed by its compressed bytes; a compressed length of 0 denotes a block stored uncompressed.  Compressed
+ * bytes are a sequence of
+ *  - a token byte with the number of literals in the high nibble and the length of the match minus MIN_MATCH in the
+ *    low nibble (where 15 denotes that the number continues as a sequence of bytes terminated by a byte below 255),
+ *  - the literals, and
+ *  - the 2-byte (little endian) offset of the match.
+ * The last sequence of a block has only literals.
+ */
+final class LzOutputStream extends OutputStream {
+    static final byte[] MAGIC = "DLZ1".getBytes(StandardCharsets.US_ASCII);
+    static final int BLOCK_LENGTH = 65536;
+    static final int MIN_MATCH = 4;
+    private static final int HASH_BITS = 14;
+    private final DataOutputStream out;
+    private final byte[] block = new byte[BLOCK_LENGTH];
+    private final byte[] compressedBlock = new byte[getMaxCompressedLength(BLOCK_LENGTH)];
+    private final int[] hashTable = new int[1 << HASH_BITS];
+    private int blockLength;
+    private boolean magicWritten;
+
+    LzOutputStream(final OutputStream out) {
+        this.out = new DataOutputStream(out);
+    }
+
+    private static int getMaxCompressedLength(final int length) {
+        return length + length / 255 + 16;
+    }
+
+    private static int readInt(final byte[] b, final int i) {
+        return (b[i] & 0xFF) | (b[i + 1] & 0xFF) << 8 | (b[i + 2] & 0xFF) << 16 | (b[i + 3] & 0xFF) << 24;
+    }
+
+    private static int writeLength(final byte[] dst, final int pos, final int length) {
+        int _pos = pos;
+        int _tmp = length;
+        while (_tmp >= 255) {
+            dst[_pos++] = (byte) 255;
+            _tmp -= 255;
+        }
+        dst[_pos++] = (byte) _tmp;
+        return _pos;
+    }
+
+    private static int writeLiterals(final byte[] src, final int start, final int end, final byte[] dst,
+                                     final int pos, final int matchLength) {
+        final int _numOfLiterals = end - start;
+        final int _matchLength = matchLength - MIN_MATCH;
+        int _pos = pos;
+        dst[_pos++] = (byte) (Math.min(_numOfLiterals, 15) << 4 | Math.min(Math.max(_matchLength, 0), 15));
+        if (_numOfLiterals >= 15)
+            _pos = writeLength(dst, _pos, _numOfLiterals - 15);
+        System.arraycopy(src, start, dst, _pos, _numOfLiterals);
+        return _pos + _numOfLiterals;
+    }
+
+    /*
+     * Compresses length bytes of src into dst and returns the compressed length.
+     */
+    private int compress(final byte[] src, final int length, final byte[] dst) {
+        Arrays.fill(this.hashTable, -1);
+        int _pos = 0;
+        int _anchor = 0;
+        int _i = 0;
+        while (_i + MIN_MATCH <= length) {
+            final int _seq = readInt(src, _i);
+            final int _hash = (_seq * -1640531535) >>> (32 - HASH_BITS);
+            final int _ref = this.hashTable[_hash];
+            this.hashTable[_hash] = _i;
+            if (_ref >= 0 && _i - _ref < 65536 && readInt(src, _ref) == _seq) {
+                int _matchLength = MIN_MATCH;
+                while (_i + _matchLength < length && src[_ref + _matchLength] == src[_i + _matchLength])
+                    _matchLength++;
+
+                _pos = writeLiterals(src, _anchor, _i, dst, _pos, _matchLength);
+                final int _offset = _i - _ref;
+                dst[_pos++] = (byte) _offset;
+                dst[_pos++] = (byte) (_offset >>> 8);
+                if (_matchLength - MIN_MATCH >= 15)
+                    _pos = writeLength(dst, _pos, _matchLength - MIN_MATCH - 15);
+
+                _i += _matchLength;
+                _anchor = _i;
+            } else {
+                _i++;
+            }
+        }
+        return writeLiterals(src, _anchor, length, dst, _pos, 0);
+    }
+
+    @Override
+    public void write(final int b) throws IOException {
+        this.block[this.blockLength++] = (byte) b;
+        if (this.blockLength == BLOCK_LENGTH)
+            writeBlock();
+    }
+
+    @Override
+    public void write(final byte[] b, final int off, final int len) throws IOException {
+        int _off = off;
+        int _len = len;
+        while (_len > 0) {
+            final int _tmp = Math.min(_len, BLOCK_LENGTH - this.blockLength);
+            System.arraycopy(b, _off, this.block, this.blockLength, _tmp);
+            this.blockLength += _tmp;
+            _off += _tmp;
+            _len -= _tmp;
+            if (this.blockLength == BLOCK_LENGTH)
+                writeBlock();
+        }
+    }
+
+    @Override
+    public void flush() throws IOException {
+        if (this.blockLength > 0)
+            writeBlock();
+        this.out.flush();
+    }
+
+    @Override
+    public void close() throws IOException {
+        try {
+            flush();
+            if (!this.magicWritten) {
+                this.out.write(MAGIC);
+                this.magicWritten = true;
+            }
+        } finally {
+            this.out.close();
+        }
+    }
+
+    private void writeBlock() throws IOException {
+        if (!this.magicWritten) {
+            this.out.write(MAGIC);
+            this.magicWritten = true;
+        }
+
+        final int _compressedLength = compress(this.block, this.blockLength, this.compressedBlock);
+        this.out.writeInt(this.blockLength);
+        if (_compressedLength < this.blockLength) {
+            this.out.writeInt(_compressedLength);
+            this.out.write(this.compressedBlock, 0, _compressedLength);
+        } else {
+            this.out.writeInt(0);
+            this.out.write(this.block, 0, this.blockLength);
+        }
+        this.blockLength = 0;
+    }
+}
@@ -0,0 +1,40 @@
+/*
+ * Copyright (c) 2017, Venkatesh-Prasad Ranganath
+ *
+ * BSD 3-clause License
+ *
+ * Author: Venkatesh-Prasad Ranganath (rvprasad)
+ *
+ */
+
+package dyco4j.logging;
+
+import java.io.InputStream;
+import java.io.OutputStream;
+
+/*
+ * INFO
+ *
+ * Compresses traces with a fast LZ77 codec (see LzOutputStream).  It trades compression ratio for speed.
+ */
+final class LzTraceCodec extends TraceCodec {
+    @Override
+    public String getName() {
+        return "lz";
+    }
+
+    @Override
+    public String getFileExtension() {
+        return ".dlz";
+    }
+
+    @Override
+    public OutputStream encode(final OutputStream out) {
+        return new LzOutputStream(out);
+    }
+
+    @Override
+    public InputStream decode(final InputStream in) {
+        return new LzInputStream(in);
+    }
+}
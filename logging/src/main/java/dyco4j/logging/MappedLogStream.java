@@ -0,0 +1,82 @@
+/*
+ * Copyright (c) 2017, Venkatesh-Prasad Ranganath
+ *
+ * BSD 3-clause License
+ *
+ * Author: Venkatesh-Prasad Ranganath (rvprasad)
+ *
+ */
+
+package dyco4j.logging;
+
+import java.io.File;
+import java.io.IOException;
+import java.io.OutputStream;
+import java.io.RandomAccessFile;
+import java.nio.MappedByteBuffer;
+import java.nio.channels.FileChannel;
+
+/*
+ * INFO
+ *
+ * A mapped log stream writes into a memory-mapped region of a file.  The region is grown in fixed length segments.
+ * Since the OS owns the mapped pages, the written bytes reach the file even if the JVM dies without closing the
+ * stream; in such cases, the file will be padded with zero bytes upto the end of the last segment.  Upon closing,
+ * the file is truncated to the written bytes.
+ */
+final class MappedLogStream extends OutputStream {
+    private final RandomAccessFile file;
+    private final FileChannel channel;
+    private final int segmentLength;
+    private MappedByteBuffer segment;
+    private long segmentPosition;
+
+    MappedLogStream(final File file, final int segmentLength) throws IOException {
+        if (segmentLength < 1)
+            throw new IllegalArgumentException("Segment length should be positive");
+
+        this.file = new RandomAccessFile(file, "rw");
+        this.channel = this.file.getChannel();
+        this.segmentLength = segmentLength;
+        this.segmentPosition = 0;
+        this.segment = this.channel.map(FileChannel.MapMode.READ_WRITE, 0, segmentLength);
+    }
+
+    @Override
+    public void write(final int b) throws IOException {
+        if (!this.segment.hasRemaining())
+            mapNextSegment();
+        this.segment.put((byte) b);
+    }
+
+    @Override
+    public void write(final byte[] b, final int off, final int len) throws IOException {
+        int _off = off;
+        int _len = len;
+        while (_len > 0) {
+            if (!this.segment.hasRemaining())
+                mapNextSegment();
+            final int _tmp = Math.min(_len, this.segment.remaining());
+            this.segment.put(b, _off, _tmp);
+            _off += _tmp;
+            _len -= _tmp;
+        }
+    }
+
+    @Override
+    public void flush() {
+        this.segment.force();
+    }
+
+    @Override
+    public void close() throws IOException {
+        flush();
+        this.channel.truncate(this.segmentPosition + this.segment.position());
+        this.file.close();
+    }
+
+    private void mapNextSegment() throws IOException {
+        this.segmentPosition += this.segment.position();
+        this.segment = this.channel.map(FileChannel.MapMode.READ_WRITE, this.segmentPosition, this.segmentLength);
+    }
+}
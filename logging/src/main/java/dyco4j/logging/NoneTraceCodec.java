@@ -0,0 +1,40 @@
+/*
+ * Copyright (c) 2017, Venkatesh-Prasad Ranganath
+ *
+ * BSD 3-clause License
+ *
+ * Author: Venkatesh-Prasad Ranganath (rvprasad)
+ *
+ */
+
+package dyco4j.logging;
+
+import java.io.InputStream;
+import java.io.OutputStream;
+
+/*
+ * INFO
+ *
+ * Writes traces as is.  Useful when disks are fast and traces are compressed later (or not at all).
+ */
+final class NoneTraceCodec extends TraceCodec {
+    @Override
+    public String getName() {
+        return "none";
+    }
+
+    @Override
+    public String getFileExtension() {
+        return "";
+    }
+
+    @Override
+    public OutputStream encode(final OutputStream out) {
+        return out;
+    }
+
+    @Override
+    public InputStream decode(final InputStream in) {
+        return in;
+    }
+}
@@ -0,0 +1,138 @@
+/*
+ * Copyright (c) 2017, Venkatesh-Prasad Ranganath
+ *
+ * BSD 3-clause License
+ *
+ * Author: Venkatesh-Prasad Ranganath (rvprasad)
+ *
+ */
+
+package dyco4j.logging;
+
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.io.InterruptedIOException;
+import java.io.OutputStream;
+import java.util.ArrayDeque;
+import java.util.Arrays;
+import java.util.Deque;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.zip.GZIPOutputStream;
+
+/*
+ * INFO
+ *
+ * A parallel gzip stream cuts the written bytes into fixed length blocks, compresses each block into an independent
+ * gzip member on a pool of worker threads, and writes the members into the underlying stream in the order of the
+ * blocks.  Since gzip readers (e.g., gzip -d, GZIPInputStream) read concatenated members as one stream, the result
+ * is read like the output of a single GZIPOutputStream.
+ *
+ * To bound memory, at most two blocks per worker are in flight; writes wait for the oldest block when this limit is
+ * reached.  Writes are not thread-safe; Logger serializes them.
+ */
+final class ParallelGzipStream extends OutputStream {
+    private final OutputStream out;
+    private final int level;
+    private final int maxPendingBlocks;
+    private final ExecutorService workers;
+    private final Deque<Future<byte[]>> pendingBlocks = new ArrayDeque<>();
+    private final byte[] block;
+    private int blockLength;
+
+    ParallelGzipStream(final OutputStream out, final int level, final int blockLength, final int numOfWorkers) {
+        if (blockLength < 1)
+            throw new IllegalArgumentException("Block length should be positive");
+        if (numOfWorkers < 1)
+            throw new IllegalArgumentException("Number of workers should be positive");
+
+        this.out = out;
+        this.level = level;
+        this.maxPendingBlocks = numOfWorkers * 2;
+        this.block = new byte[blockLength];
+        this.blockLength = 0;
+
+        final AtomicInteger _numOfWorkers = new AtomicInteger();
+        this.workers = Executors.newFixedThreadPool(numOfWorkers, r -> {
+            final Thread _tmp = new Thread(r, "dyco4j-logging-compressor-" + _numOfWorkers.getAndIncrement());
+            _tmp.setDaemon(true);
+            return _tmp;
+        });
+    }
+
+    private static byte[] compress(final byte[] block, final int level) throws IOException {
+        final ByteArrayOutputStream _tmp = new ByteArrayOutputStream(block.length / 4 + 64);
+        try (final GZIPOutputStream _gzip = new GZIPOutputStream(_tmp, block.length) {
+            {
+                this.def.setLevel(level);
+            }
+        }) {
+            _gzip.write(block);
+        }
+        return _tmp.toByteArray();
+    }
+
+    @Override
+    public void write(final int b) throws IOException {
+        this.block[this.blockLength++] = (byte) b;
+        if (this.blockLength == this.block.length)
+            submitBlock();
+    }
+
+    @Override
+    public void write(final byte[] b, final int off, final int len) throws IOException {
+        int _off = off;
+        int _len = len;
+        while (_len > 0) {
+            final int _tmp = Math.min(_len, this.block.length - this.blockLength);
+            System.arraycopy(b, _off, this.block, this.blockLength, _tmp);
+            this.blockLength += _tmp;
+            _off += _tmp;
+            _len -= _tmp;
+            if (this.blockLength == this.block.length)
+                submitBlock();
+        }
+    }
+
+    @Override
+    public void flush() throws IOException {
+        if (this.blockLength > 0)
+            submitBlock();
+        while (!this.pendingBlocks.isEmpty())
+            writeOldestBlock();
+        this.out.flush();
+    }
+
+    @Override
+    public void close() throws IOException {
+        try {
+            flush();
+        } finally {
+            this.workers.shutdown();
+            this.out.close();
+        }
+    }
+
+    private void submitBlock() throws IOException {
+        if (this.pendingBlocks.size() >= this.maxPendingBlocks)
+            writeOldestBlock();
+
+        final byte[] _block = Arrays.copyOf(this.block, this.blockLength);
+        this.pendingBlocks.addLast(this.workers.submit(() -> compress(_block, this.level)));
+        this.blockLength = 0;
+    }
+
+    private void writeOldestBlock() throws IOException {
+        try {
+            this.out.write(this.pendingBlocks.removeFirst().get());
+        } catch (final InterruptedException _e) {
+            Thread.currentThread().interrupt();
+            throw new InterruptedIOException();
+        } catch (final ExecutionException _e) {
+            throw new IOException("Compression failed", _e.getCause());
+        }
+    }
+}
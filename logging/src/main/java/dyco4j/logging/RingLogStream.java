@@ -0,0 +1,158 @@
+/*
+ * Copyright (c) 2017, Venkatesh-Prasad Ranganath
+ *
+ * BSD 3-clause License
+ *
+ * Author: Venkatesh-Prasad Ranganath (rvprasad)
+ *
+ */
+
+package dyco4j.logging;
+
+import java.io.File;
+import java.io.IOException;
+import java.io.OutputStream;
+import java.nio.ByteBuffer;
+import java.util.ArrayDeque;
+import java.util.Collections;
+import java.util.Deque;
+import java.util.HashSet;
+import java.util.Set;
+
+/*
+ * INFO
+ *
+ * A ring log stream (flight recorder) keeps the latest bytes written into it in a fixed length (off-heap) ring and
+ * writes them into a new trace file only when dumped.  So, logging costs memory writes but no IO.
+ *
+ * Like a segmented log stream, Logger decides when to start a new segment (via rotate()) so that each segment is a
+ * complete trace without a header.  When the ring is full, the oldest segments are overwritten as a whole.  Since
+ * thread switches are relative to the previous thread, each segment remembers the thread of the stream at its start.
+ * So, a dump (a header and the thread switch to that thread followed by the segments in the ring) can be decoded.
+ * Writes longer than the ring are dropped.
+ *
+ * Writes and dumps are not thread-safe; Logger serializes them.
+ */
+final class RingLogStream extends OutputStream {
+    private static final int DUMP_BLOCK_LENGTH = 65536;
+    private static final long MIN_EXCEPTION_DUMP_INTERVAL = 1000;
+    private final ByteBuffer ring;
+    private final int capacity;
+    private final SegmentedLogStream.SegmentNamer dumpNamer;
+    private final SegmentedLogStream.SegmentOpener dumpOpener;
+    private final Set<String> dumpExceptions;
+    private final boolean dumpOnExit;
+    // INFO: positions are offsets from the beginning of the stream; so, they only grow
+    private final Deque<Long> segmentStarts = new ArrayDeque<>();
+    private final Deque<Long> segmentThreadIds = new ArrayDeque<>();
+    private long start = 0;
+    private long end = 0;
+    private int numOfDumps = 0;
+    private volatile long lastDumpTime = 0;
+
+    /**
+     * @param dumpExceptions are the names of exceptions (and their subclasses) that trigger a dump when logged.
+     * @param dumpOnExit     when true, the ring is dumped when the logger is cleaned up.
+     */
+    RingLogStream(final int capacity, final SegmentedLogStream.SegmentNamer dumpNamer,
+                  final SegmentedLogStream.SegmentOpener dumpOpener, final Set<String> dumpExceptions,
+                  final boolean dumpOnExit) {
+        if (capacity < 1)
+            throw new IllegalArgumentException("Capacity should be positive");
+
+        this.ring = ByteBuffer.allocateDirect(capacity);
+        this.capacity = capacity;
+        this.dumpNamer = dumpNamer;
+        this.dumpOpener = dumpOpener;
+        this.dumpExceptions = Collections.unmodifiableSet(new HashSet<>(dumpExceptions));
+        this.dumpOnExit = dumpOnExit;
+        this.segmentStarts.add(0L);
+        this.segmentThreadIds.add(0L);
+    }
+
+    boolean dumpsOnExit() {
+        return this.dumpOnExit;
+    }
+
+    /*
+     * Returns true if the given exception (that is being logged) should trigger a dump.  Dumps triggered by
+     * exceptions are at least MIN_EXCEPTION_DUMP_INTERVAL milliseconds apart.
+     */
+    boolean isDumpTrigger(final Throwable exception) {
+        if (this.dumpExceptions.isEmpty() ||
+                System.currentTimeMillis() - this.lastDumpTime < MIN_EXCEPTION_DUMP_INTERVAL)
+            return false;
+
+        for (Class<?> _tmp = exception.getClass(); _tmp != null; _tmp = _tmp.getSuperclass())
+            if (this.dumpExceptions.contains(_tmp.getName()))
+                return true;
+        return false;
+    }
+
+    /*
+     * threadId is the thread of the stream at the start of the new segment.
+     */
+    void rotate(final long threadId) {
+        if (this.end > this.segmentStarts.getLast()) {
+            this.segmentStarts.addLast(this.end);
+            this.segmentThreadIds.addLast(threadId);
+        }
+    }
+
+    /*
+     * Returns the thread of the stream at the start of the oldest segment in the ring.
+     */
+    long getStartThreadId() {
+        return this.segmentThreadIds.getFirst();
+    }
+
+    /*
+     * Writes the given header followed by the contents of the ring into a new trace file and returns the file.
+     */
+    File dump(final LogBuffer header) throws IOException {
+        this.lastDumpTime = System.currentTimeMillis();
+        final File _ret = this.dumpNamer.name(this.numOfDumps++);
+        try (final OutputStream _out = this.dumpOpener.open(_ret)) {
+            header.writeTo(_out);
+            final byte[] _tmp = new byte[DUMP_BLOCK_LENGTH];
+            long _i = this.start;
+            while (_i < this.end) {
+                final int _pos = (int) (_i % this.capacity);
+                final int _len = (int) Math.min(Math.min(_tmp.length, this.end - _i), this.capacity - _pos);
+                this.ring.position(_pos);
+                this.ring.get(_tmp, 0, _len);
+                _out.write(_tmp, 0, _len);
+                _i += _len;
+            }
+        }
+        return _ret;
+    }
+
+    @Override
+    public void write(final int b) throws IOException {
+        write(new byte[]{(byte) b}, 0, 1);
+    }
+
+    @Override
+    public void write(final byte[] b, final int off, final int len) throws IOException {
+        // INFO: a write that does not fit in the ring would overwrite the beginning of the current segment
+        if (this.end + len - this.segmentStarts.getLast() > this.capacity)
+            return;
+
+        while (this.end + len - this.start > this.capacity) {
+            this.segmentStarts.removeFirst();
+            this.segmentThreadIds.removeFirst();
+            this.start = this.segmentStarts.getFirst();
+        }
+
+        final int _pos = (int) (this.end % this.capacity);
+        final int _len = Math.min(len, this.capacity - _pos);
+        this.ring.position(_pos);
+        this.ring.put(b, off, _len);
+        if (_len < len) {
+            this.ring.position(0);
+            this.ring.put(b, off + _len, len - _len);
+        }
+        this.end += len;
+    }
+}
@@ -0,0 +1,156 @@
+/*
+ * Copyright (c) 2017, Venkatesh-Prasad Ranganath
+ *
+ * BSD 3-clause License
+ *
+ * Author: Venkatesh-Prasad Ranganath (rvprasad)
+ *
+ */
+
+package dyco4j.logging;
+
+import java.text.MessageFormat;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.regex.Matcher;
+import java.util.regex.Pattern;
+
+/*
+ * INFO
+ *
+ * A sampler decides which log statements are kept based on sampling rules.  A rule is of the form
+ * <target>:<limit> where
+ *  - target is a method id (e.g., m12) or an event kind (en, ar, re, xp, ca, GETA, PUTA, GETF, PUTF) and
+ *  - limit is either 1/N (keep one in N events) or N/s (keep at most N events per second).
+ * Rules of method ids apply to the entries of the methods and override the rule of en event kind.
+ *
+ * 1-in-N limits are counted per thread (see ThreadLog) while per second limits are shared by all threads.
+ */
+final class Sampler {
+    private static final Pattern RULE_PATTERN = Pattern.compile("^(m(\\d{1,9})|[A-Za-z]{2,4}):(1/(\\d+)|(\\d+)/s)$");
+    private final Rule[] methodRules;
+    private final Rule[] kindRules = new Rule[Kind.values().length];
+    private final int numOfRules;
+
+    Sampler(final String rules) {
+        final List<Rule> _rules = new ArrayList<>();
+        final List<Integer> _methodIds = new ArrayList<>();
+        int _maxMethodId = -1;
+        for (final String _tmp : rules.split(",")) {
+            final String _rule = _tmp.trim();
+            if (_rule.isEmpty())
+                continue;
+
+            final Matcher _m = RULE_PATTERN.matcher(_rule);
+            if (!_m.matches())
+                throw new IllegalArgumentException(MessageFormat.format("Invalid sampling rule {0}", _rule));
+
+            final int _slot = _rules.size();
+            final Rule _tmp1 = _m.group(4) != null ? new Rule(_slot, Integer.parseInt(_m.group(4)), 0) :
+                    new Rule(_slot, 0, Integer.parseInt(_m.group(5)));
+            if (_tmp1.oneInN < 1 && _tmp1.perSecond < 1)
+                throw new IllegalArgumentException(MessageFormat.format("Invalid sampling rule {0}", _rule));
+            _rules.add(_tmp1);
+            if (_m.group(2) != null) {
+                final int _methodId = Integer.parseInt(_m.group(2));
+                _methodIds.add(_methodId);
+                _maxMethodId = Math.max(_maxMethodId, _methodId);
+            } else {
+                _methodIds.add(-1);
+                this.kindRules[Kind.getKind(_m.group(1)).ordinal()] = _tmp1;
+            }
+        }
+
+        this.numOfRules = _rules.size();
+        this.methodRules = new Rule[_maxMethodId + 1];
+        for (int _i = 0; _i < this.numOfRules; _i++)
+            if (_methodIds.get(_i) >= 0)
+                this.methodRules[_methodIds.get(_i)] = _rules.get(_i);
+    }
+
+    /*
+     * Returns the int id of the given method id if it is of the form m<digits>; -1 otherwise.
+     */
+    static int getMethodId(final String methodId) {
+        final int _len = methodId.length();
+        if (_len < 2 || _len > 10 || methodId.charAt(0) != 'm')
+            return -1;
+
+        int _ret = 0;
+        for (int _i = 1; _i < _len; _i++) {
+            final char _c = methodId.charAt(_i);
+            if (_c < '0' || _c > '9')
+                return -1;
+            _ret = _ret * 10 + (_c - '0');
+        }
+        return _ret;
+    }
+
+    int getNumOfRules() {
+        return this.numOfRules;
+    }
+
+    boolean sampleMethodEntry(final int methodId, final int[] counters) {
+        final Rule _tmp = methodId >= 0 && methodId < this.methodRules.length ? this.methodRules[methodId] : null;
+        return _tmp != null ? _tmp.sample(counters) : sample(Kind.en, counters);
+    }
+
+    boolean sample(final Kind kind, final int[] counters) {
+        final Rule _tmp = this.kindRules[kind.ordinal()];
+        return _tmp == null || _tmp.sample(counters);
+    }
+
+    enum Kind {
+        en,
+        ar,
+        re,
+        xp,
+        ca,
+        GETA,
+        PUTA,
+        GETF,
+        PUTF;
+
+        static Kind getKind(final String name) {
+            for (final Kind _tmp : values())
+                if (_tmp.name().equals(name))
+                    return _tmp;
+            throw new IllegalArgumentException(MessageFormat.format("Unknown event kind {0}. Expected one of {1}",
+                    name, Arrays.toString(values())));
+        }
+    }
+
+    private static final class Rule {
+        private final int slot;
+        private final int oneInN;
+        private final int perSecond;
+        // INFO: the current second (upper 32 bits) and the number of events kept in the current second
+        private final AtomicLong window = new AtomicLong();
+
+        Rule(final int slot, final int oneInN, final int perSecond) {
+            this.slot = slot;
+            this.oneInN = oneInN;
+            this.perSecond = perSecond;
+        }
+
+        boolean sample(final int[] counters) {
+            if (this.oneInN > 0) {
+                final int _tmp = counters[this.slot];
+                counters[this.slot] = _tmp + 1 == this.oneInN ? 0 : _tmp + 1;
+                return _tmp == 0;
+            }
+
+            final long _second = System.nanoTime() / 1000000000L;
+            while (true) {
+                final long _window = this.window.get();
+                final long _count = _window >>> 32 == (_second & 0xFFFFFFFFL) ? _window & 0xFFFFFFFFL : 0;
+                if (_count >= this.perSecond)
+                    return false;
+                if (this.window.compareAndSet(_window, (_second << 32) | (_count + 1)))
+                    return true;
+            }
+        }
+    }
+}
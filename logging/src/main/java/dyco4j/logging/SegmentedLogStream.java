@@ -0,0 +1,95 @@
+/*
+ * Copyright (c) 2017, Venkatesh-Prasad Ranganath
+ *
+ * BSD 3-clause License
+ *
+ * Author: Venkatesh-Prasad Ranganath (rvprasad)
+ *
+ */
+
+package dyco4j.logging;
+
+import java.io.File;
+import java.io.IOException;
+import java.io.OutputStream;
+import java.util.ArrayDeque;
+import java.util.Deque;
+
+/*
+ * INFO
+ *
+ * A segmented log stream writes into a sequence of numbered segment files.  Logger decides when to start a new
+ * segment (via rotate()) so that each segment is a complete trace.  When retention is positive, only the newest
+ * retention number of segments are kept.
+ *
+ * Like a deferred log stream, the first segment can be named and opened on a background thread.  So, the class whose
+ * initialization bootstraps the logger does not wait for the segment (or create its file).
+ */
+final class SegmentedLogStream extends OutputStream {
+    private final SegmentNamer segmentNamer;
+    private final SegmentOpener segmentOpener;
+    private final int retention;
+    private final Deque<File> segments = new ArrayDeque<>();
+    private OutputStream segment;
+    private int numOfSegments = 0;
+
+    /**
+     * @param pendingLength when positive, the first segment is opened on a background thread while upto
+     *                      pendingLength bytes are held in memory (see DeferredLogStream).
+     * @param metrics       when not null, the time taken to open the first segment is counted in metrics.
+     */
+    SegmentedLogStream(final SegmentNamer segmentNamer, final SegmentOpener segmentOpener, final int retention,
+                       final int pendingLength, final LoggerMetrics metrics) throws IOException {
+        this.segmentNamer = segmentNamer;
+        this.segmentOpener = segmentOpener;
+        this.retention = retention;
+        this.segment = pendingLength > 0 ? new DeferredLogStream(this::openSegment, pendingLength, metrics) :
+                openSegment();
+    }
+
+    void rotate() throws IOException {
+        this.segment.close();
+        this.segment = openSegment();
+        while (this.retention > 0 && this.segments.size() > this.retention) {
+            final File _tmp = this.segments.removeFirst();
+            if (!_tmp.delete())
+                _tmp.deleteOnExit();
+        }
+    }
+
+    @Override
+    public void write(final int b) throws IOException {
+        this.segment.write(b);
+    }
+
+    @Override
+    public void write(final byte[] b, final int off, final int len) throws IOException {
+        this.segment.write(b, off, len);
+    }
+
+    @Override
+    public void flush() throws IOException {
+        this.segment.flush();
+    }
+
+    @Override
+    public void close() throws IOException {
+        this.segment.close();
+    }
+
+    private OutputStream openSegment() throws IOException {
+        final File _tmp = this.segmentNamer.name(this.numOfSegments++);
+        this.segments.addLast(_tmp);
+        return this.segmentOpener.open(_tmp);
+    }
+
+    @FunctionalInterface
+    interface SegmentNamer {
+        File name(int index) throws IOException;
+    }
+
+    @FunctionalInterface
+    interface SegmentOpener {
+        OutputStream open(File file) throws IOException;
+    }
+}
@@ -0,0 +1,286 @@
+/*
+ * Copyright (c) 2017, Venkatesh-Prasad Ranganath
+ *
+ * BSD 3-clause License
+ *
+ * Author: Venkatesh-Prasad Ranganath (rvprasad)
+ *
+ */
+
+package dyco4j.logging;
+
+/*
+ * INFO
+ *
+ * Each record is a line of comma separated values starting with the id of the logging thread.
+ */
+final class TextTraceFormat extends TraceFormat {
+    private static final String LINE_SEPARATOR = System.lineSeparator();
+
+    @Override
+    String getFileExtension() {
+        return "";
+    }
+
+    @Override
+    void writeHeader(final LogBuffer out, final String date) {
+        out.putUtf8(date);
+        out.putUtf8(LINE_SEPARATOR);
+    }
+
+    @Override
+    void beginRecord(final LogBuffer record, final long threadId) {
+        record.putDecimal(threadId);
+    }
+
+    @Override
+    void writeRecord(final LogBuffer out, final LogBuffer record) {
+        out.put(record);
+        out.putUtf8(LINE_SEPARATOR);
+    }
+
+    @Override
+    void writeRepeat(final LogBuffer out, final LogBuffer record, final int freq) {
+        out.put(record);
+        out.put(',');
+        out.putDecimal(freq);
+        out.putUtf8(LINE_SEPARATOR);
+    }
+
+    @Override
+    void writeSequenceRepeat(final LogBuffer out, final long threadId, final int length, final int freq) {
+        out.putDecimal(threadId);
+        putField(out, Logger.SEQUENCE_REPEAT_TAG);
+        out.put(',');
+        out.putDecimal(length);
+        out.put(',');
+        out.putDecimal(freq);
+        out.putUtf8(LINE_SEPARATOR);
+    }
+
+    @Override
+    void writeThreadSwitch(final LogBuffer out, final long prevThreadId, final long threadId) {
+        // every record carries the thread id
+    }
+
+    @Override
+    void writeSequenceNumber(final LogBuffer record, final long sequenceNumber) {
+        record.put(',');
+        record.putDecimal(sequenceNumber);
+    }
+
+    @Override
+    void writeMessage(final LogBuffer record, final String msg) {
+        putField(record, msg);
+    }
+
+    @Override
+    void writeCoverageHead(final LogBuffer record) {
+        putField(record, Logger.METHOD_COVERAGE_TAG);
+    }
+
+    @Override
+    void writeCoveredMethod(final LogBuffer record, final int methodId) {
+        putId(record, 'm', methodId);
+    }
+
+    @Override
+    void writeCoverageTail(final LogBuffer record) {
+    }
+
+    @Override
+    void writeArgument(final LogBuffer record, final byte index, final String value) {
+        putField(record, Logger.METHOD_ARG_TAG);
+        record.put(',');
+        record.putDecimal(index);
+        putField(record, value);
+    }
+
+    @Override
+    void writeArray(final LogBuffer record, final Logger.ArrayAction action, final int index, final String array,
+                    final String value) {
+        putField(record, action.toString());
+        record.put(',');
+        record.putDecimal(index);
+        putField(record, array);
+        putField(record, value);
+    }
+
+    @Override
+    void writeMethodCall(final LogBuffer record, final String methodIdAndCallsiteId) {
+        putField(record, Logger.METHOD_CALL_TAG);
+        putField(record, methodIdAndCallsiteId);
+    }
+
+    @Override
+    void writeField(final LogBuffer record, final Logger.FieldAction action, final String fieldName,
+                    final String receiver, final String value) {
+        putField(record, action.toString());
+        putField(record, fieldName);
+        putField(record, receiver);
+        putField(record, value);
+    }
+
+    @Override
+    void writeMethodEntry(final LogBuffer record, final String methodId, final long elapsedTime) {
+        putField(record, Logger.METHOD_ENTRY_TAG);
+        putField(record, methodId);
+        putElapsedTime(record, elapsedTime);
+    }
+
+    @Override
+    void writeMethodExit(final LogBuffer record, final String methodId, final String returnKind,
+                         final long elapsedTime) {
+        putField(record, Logger.METHOD_EXIT_TAG);
+        putField(record, methodId);
+        putField(record, returnKind);
+        putElapsedTime(record, elapsedTime);
+    }
+
+    @Override
+    void writeReturn(final LogBuffer record, final String value) {
+        putField(record, Logger.METHOD_RETURN_TAG);
+        if (value != null)
+            putField(record, value);
+    }
+
+    @Override
+    void writeArgumentHead(final LogBuffer record, final byte index) {
+        putField(record, Logger.METHOD_ARG_TAG);
+        record.put(',');
+        record.putDecimal(index);
+    }
+
+    @Override
+    void writeArrayHead(final LogBuffer record, final Logger.ArrayAction action, final int index,
+                        final Object array) {
+        putField(record, action.toString());
+        record.put(',');
+        record.putDecimal(index);
+        writeValue(record, array);
+    }
+
+    @Override
+    void writeFieldHead(final LogBuffer record, final Logger.FieldAction action, final int fieldId,
+                        final Object receiver) {
+        putField(record, action.toString());
+        putId(record, 'f', fieldId);
+        if (receiver == null)
+            record.put(',');
+        else
+            writeValue(record, receiver);
+    }
+
+    @Override
+    void writeReturnHead(final LogBuffer record) {
+        putField(record, Logger.METHOD_RETURN_TAG);
+    }
+
+    @Override
+    void writeException(final LogBuffer record, final Throwable exception) {
+        putField(record, Logger.METHOD_EXCEPTION_TAG);
+        writeValue(record, exception);
+        putField(record, exception.getClass().getName());
+    }
+
+    @Override
+    void writeMethodCall(final LogBuffer record, final int methodId, final int callsiteId) {
+        putField(record, Logger.METHOD_CALL_TAG);
+        putId(record, 'm', methodId);
+        record.put(',');
+        record.putDecimal(callsiteId);
+    }
+
+    @Override
+    void writeMethodEntry(final LogBuffer record, final int methodId, final long elapsedTime) {
+        putField(record, Logger.METHOD_ENTRY_TAG);
+        putId(record, 'm', methodId);
+        putElapsedTime(record, elapsedTime);
+    }
+
+    @Override
+    void writeMethodExit(final LogBuffer record, final int methodId, final String returnKind,
+                         final long elapsedTime) {
+        putField(record, Logger.METHOD_EXIT_TAG);
+        putId(record, 'm', methodId);
+        putField(record, returnKind);
+        putElapsedTime(record, elapsedTime);
+    }
+
+    @Override
+    void writeValue(final LogBuffer record, final boolean value) {
+        putField(record, value ? Logger.TRUE_VALUE : Logger.FALSE_VALUE);
+    }
+
+    @Override
+    void writeValue(final LogBuffer record, final byte value) {
+        putField(record, Logger.BYTE_TYPE_TAG);
+        record.putDecimal(value);
+    }
+
+    @Override
+    void writeValue(final LogBuffer record, final char value) {
+        putField(record, Logger.CHAR_TYPE_TAG);
+        record.putDecimal(value);
+    }
+
+    @Override
+    void writeValue(final LogBuffer record, final short value) {
+        putField(record, Logger.SHORT_TYPE_TAG);
+        record.putDecimal(value);
+    }
+
+    @Override
+    void writeValue(final LogBuffer record, final int value) {
+        putField(record, Logger.INT_TYPE_TAG);
+        record.putDecimal(value);
+    }
+
+    @Override
+    void writeValue(final LogBuffer record, final long value) {
+        putField(record, Logger.LONG_TYPE_TAG);
+        record.putDecimal(value);
+    }
+
+    @Override
+    void writeValue(final LogBuffer record, final float value) {
+        putField(record, Logger.FLOAT_TYPE_TAG);
+        record.putFloat(value);
+    }
+
+    @Override
+    void writeValue(final LogBuffer record, final double value) {
+        putField(record, Logger.DOUBLE_TYPE_TAG);
+        record.putDouble(value);
+    }
+
+    @Override
+    void writeValue(final LogBuffer record, final Object value) {
+        if (value == Logger.UNINITIALIZED_THIS) {
+            putField(record, Logger.UNINITIALIZED_THIS_REP);
+        } else if (value == null) {
+            putField(record, Logger.NULL_VALUE);
+        } else {
+            putField(record, Logger.getTypeTag(value));
+            record.putDecimal(System.identityHashCode(value));
+        }
+    }
+
+    private static void putElapsedTime(final LogBuffer record, final long elapsedTime) {
+        if (elapsedTime != NO_ELAPSED_TIME) {
+            record.put(',');
+            record.putDecimal(elapsedTime);
+        }
+    }
+
+    private static void putId(final LogBuffer record, final char prefix, final int id) {
+        record.put(',');
+        record.put(prefix);
+        record.putDecimal(id);
+    }
+
+    private static void putField(final LogBuffer record, final String field) {
+        record.put(',');
+        record.putUtf8(String.valueOf(field));
+    }
+}
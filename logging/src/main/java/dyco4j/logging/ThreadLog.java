@@ -0,0 +1,497 @@
+/*
+ * Copyright (c) 2017, Venkatesh-Prasad Ranganath
+ *
+ * BSD 3-clause License
+ *
+ * Author: Venkatesh-Prasad Ranganath (rvprasad)
+ *
+ */
+
+package dyco4j.logging;
+
+import java.lang.ref.WeakReference;
+import java.text.MessageFormat;
+import java.util.Arrays;
+import java.util.Queue;
+import java.util.concurrent.ConcurrentLinkedQueue;
+import java.util.concurrent.atomic.AtomicReference;
+
+/*
+ * INFO
+ *
+ * A thread log holds the record (log statement) being built by its thread.  When thread buffers are enabled, it
+ * also buffers the records of its thread and compresses repeated records (and repeated sequences of records) of its
+ * thread.  Only the owning thread appends to a thread log.  Hence, threads do not contend with each other while
+ * logging.
+ *
+ * The buffer is handed over between the owner and the threads that drain it (the flusher, the shutdown hook, and ring
+ * dumps) without locks.  The owner takes the buffer for each record by swapping it out of state and puts it back
+ * after the record.  Other threads take the buffer only while it is idle (in state) by swapping in BUSY.  If the
+ * owner finds the buffer busy, it queues a copy of its record and carries on; queued records are written (before any
+ * later record) by the next thread that takes the buffer.  So, the owner never waits for other threads while logging
+ * and the order of records of the thread is preserved.  A thread log is closed by swapping in CLOSED; records logged
+ * after a thread log is closed bypass the buffer.
+ */
+final class ThreadLog {
+    static final int MAX_SEQUENCE_LENGTH = 64;
+    private static final int RECORD_LENGTH = 256;
+    private static final LogBuffer BUSY = new LogBuffer(0);
+    private static final LogBuffer CLOSED = new LogBuffer(0);
+    private final Logger logger;
+    private final TraceFormat format;
+    private final WeakReference<Thread> owner;
+    private final long threadId;
+    private final LogBuffer buffer;
+    private final int bufferLength;
+    private final boolean selfContainedChunks;
+    private final Sampler sampler;
+    private final int[] samplingCounters;
+    private final Aggregator aggregator;
+    private final Aggregator.ThreadCounts threadCounts;
+    private final boolean timed;
+    private final ThreadTrace threadTrace;
+    private final LoggerMetrics metrics;
+    private final boolean jfr;
+    // INFO: holds the buffer while it is idle, null while the owner writes, BUSY while drained, and CLOSED once closed
+    private final AtomicReference<LogBuffer> state;
+    private final Queue<LogBuffer> pendingRecords = new ConcurrentLinkedQueue<>();
+    private long timestamp;
+    // INFO: a stack of bits that records if the entries of the active methods of the thread were kept
+    private long[] keptFrames = new long[1];
+    private int numOfFrames = 0;
+    private final LogBuffer[] history;
+    private final LogBuffer[] heldRecords;
+    private final LogBuffer record = new LogBuffer(RECORD_LENGTH);
+    private int recordOffset = 0;
+    private int historyLength = 0;
+    private int historyEnd = 0;
+    private int numOfHeldRecords = 0;
+    private long candidatePeriods = 0;
+    private int period = 0;
+    private int freq = 0;
+    private int numOfStmts = 0;
+
+    /**
+     * @param selfContainedChunks when true, repeats of a record are not carried over across chunks.  So, chunks can
+     *                            be decoded independent of each other.
+     * @param sampler             when not null, log statements are sampled by the sampler.
+     * @param maxSequenceLength   is the maximum length of repeated sequences of records that are compressed.
+     * @param aggregator          when not null, method entries and calls are counted by the aggregator instead of
+     *                            being logged and other log statements (except messages) are dropped.
+     * @param timed               when true, method entries and exits carry the nanoseconds elapsed since the
+     *                            previous method entry or exit of the thread.
+     * @param threadTraceOpener   when not null, the records of the thread are written (with global sequence
+     *                            numbers) into a thread trace opened by threadTraceOpener instead of the logger.
+     * @param metrics             when not null, the events of the thread are counted in metrics.
+     */
+    ThreadLog(final Logger logger, final TraceFormat format, final Thread owner, final int bufferLength,
+              final boolean selfContainedChunks, final Sampler sampler, final int maxSequenceLength,
+              final Aggregator aggregator, final boolean timed, final ThreadTrace.Opener threadTraceOpener,
+              final LoggerMetrics metrics) {
+        if (maxSequenceLength < 1 || maxSequenceLength > MAX_SEQUENCE_LENGTH)
+            throw new IllegalArgumentException(MessageFormat.format("Sequence length should be in [1, {0}]",
+                    MAX_SEQUENCE_LENGTH));
+
+        this.logger = logger;
+        this.format = format;
+        this.owner = new WeakReference<>(owner);
+        this.threadId = owner.getId();
+        this.bufferLength = bufferLength;
+        this.selfContainedChunks = selfContainedChunks;
+        this.buffer = new LogBuffer(bufferLength > 0 ? bufferLength : 0);
+        this.state = new AtomicReference<>(this.buffer);
+        this.sampler = sampler;
+        this.samplingCounters = sampler != null ? new int[sampler.getNumOfRules()] : null;
+        this.aggregator = aggregator;
+        this.threadCounts = aggregator != null ? aggregator.newThreadCounts() : null;
+        this.timed = timed;
+        this.timestamp = System.nanoTime();
+        this.threadTrace = threadTraceOpener != null ? new ThreadTrace(format, threadTraceOpener, this.threadId,
+                metrics) : null;
+        this.metrics = metrics;
+        this.jfr = logger.commitsJfrEvents();
+        this.history = new LogBuffer[maxSequenceLength];
+        this.heldRecords = new LogBuffer[maxSequenceLength];
+        for (int _i = 0; _i < maxSequenceLength; _i++) {
+            this.history[_i] = new LogBuffer(RECORD_LENGTH);
+            this.heldRecords[_i] = new LogBuffer(RECORD_LENGTH);
+        }
+    }
+
+    long getThreadId() {
+        return this.threadId;
+    }
+
+    /*
+     * Returns the nanoseconds elapsed since the previous call if the thread log is timed; NO_ELAPSED_TIME otherwise.
+     */
+    long getElapsedTime() {
+        if (!this.timed)
+            return TraceFormat.NO_ELAPSED_TIME;
+
+        final long _now = System.nanoTime();
+        final long _ret = _now - this.timestamp;
+        this.timestamp = _now;
+        return _ret;
+    }
+
+    /*
+     * INFO
+     *
+     * The following methods return true if the corresponding log statement should be logged.  To keep the trace
+     * well-nested, the arguments, return value, exception, and exit of a method are dropped if its entry was
+     * dropped.  So, these methods should be called for every log statement when sampling.
+     *
+     * When aggregating, these methods count method entries and calls and return false.
+     *
+     * When metrics are collected, these methods also count the events (and the events dropped by sampling).
+     *
+     * When JFR events are committed, these methods also return false if the events are not being recorded.
+     */
+
+    boolean sampleMethodEntry(final int methodId) {
+        if (this.threadCounts != null) {
+            this.threadCounts.countMethodEntry(methodId);
+            return count(Sampler.Kind.en.ordinal(), false);
+        }
+        if (this.sampler == null)
+            return count(Sampler.Kind.en.ordinal(), true);
+
+        final boolean _ret = this.sampler.sampleMethodEntry(methodId, this.samplingCounters);
+        if (this.numOfFrames == this.keptFrames.length * 64)
+            this.keptFrames = Arrays.copyOf(this.keptFrames, this.keptFrames.length * 2);
+        final int _frame = this.numOfFrames++;
+        if (_ret)
+            this.keptFrames[_frame >>> 6] |= 1L << _frame;
+        else
+            this.keptFrames[_frame >>> 6] &= ~(1L << _frame);
+        return count(Sampler.Kind.en.ordinal(), _ret);
+    }
+
+    boolean sampleMethodEntry(final String methodId) {
+        if (this.threadCounts != null) {
+            this.threadCounts.countMethodEntry(this.aggregator.getMethodId(methodId));
+            return count(Sampler.Kind.en.ordinal(), false);
+        }
+        return this.sampler == null ? count(Sampler.Kind.en.ordinal(), true) :
+                sampleMethodEntry(Sampler.getMethodId(methodId));
+    }
+
+    boolean sampleMethodExit() {
+        if (this.threadCounts != null) {
+            this.threadCounts.countMethodExit();
+            return count(LoggerMetrics.METHOD_EXIT, false);
+        }
+        if (this.sampler == null)
+            return count(LoggerMetrics.METHOD_EXIT, true);
+
+        final boolean _ret = isCurrentFrameKept();
+        if (this.numOfFrames > 0)
+            this.numOfFrames--;
+        return count(LoggerMetrics.METHOD_EXIT, _ret);
+    }
+
+    boolean sampleMethodCall(final int methodId, final int callsiteId) {
+        if (this.threadCounts != null) {
+            this.threadCounts.countMethodCall(methodId, callsiteId);
+            return count(Sampler.Kind.ca.ordinal(), false);
+        }
+        return sample(Sampler.Kind.ca);
+    }
+
+    boolean sampleMethodCall(final String methodIdAndCallsiteId) {
+        if (this.threadCounts != null) {
+            final int _sep = methodIdAndCallsiteId.lastIndexOf(',');
+            try {
+                this.threadCounts.countMethodCall(
+                        this.aggregator.getMethodId(methodIdAndCallsiteId.substring(0, Math.max(_sep, 0))),
+                        Integer.parseInt(methodIdAndCallsiteId.substring(_sep + 1)));
+            } catch (final NumberFormatException _e) {
+                // INFO: malformed calls are not counted
+            }
+            return count(Sampler.Kind.ca.ordinal(), false);
+        }
+        return sample(Sampler.Kind.ca);
+    }
+
+    boolean sampleFrameEvent(final Sampler.Kind kind) {
+        return count(kind.ordinal(), this.threadCounts == null &&
+                (this.sampler == null || isCurrentFrameKept() && this.sampler.sample(kind, this.samplingCounters)));
+    }
+
+    boolean sample(final Sampler.Kind kind) {
+        return count(kind.ordinal(), this.threadCounts == null &&
+                (this.sampler == null || this.sampler.sample(kind, this.samplingCounters)));
+    }
+
+    boolean sample(final Logger.ArrayAction action) {
+        return sample(action == Logger.ArrayAction.GETA ? Sampler.Kind.GETA : Sampler.Kind.PUTA);
+    }
+
+    boolean sample(final Logger.FieldAction action) {
+        return sample(action == Logger.FieldAction.GETF ? Sampler.Kind.GETF : Sampler.Kind.PUTF);
+    }
+
+    LogBuffer beginRecord() {
+        this.record.clear();
+        this.format.beginRecord(this.record, this.threadId);
+        this.recordOffset = this.record.length();
+        if (this.threadTrace != null)
+            this.format.writeSequenceNumber(this.record, this.logger.nextSequenceNumber());
+        return this.record;
+    }
+
+    void endRecord() {
+        if (this.bufferLength <= 0 && this.threadTrace == null) {
+            if (this.jfr)
+                JfrLogStream.commitRecord(this.record, this.recordOffset, this.logger);
+            else
+                this.logger.writeLog(this.threadId, this.record);
+            return;
+        }
+
+        final LogBuffer _state = this.state.getAndSet(null);
+        if (_state == this.buffer) {
+            try {
+                writePendingRecords();
+                write(this.record);
+            } finally {
+                // INFO: an ordered write suffices as the threads that take the buffer read state atomically
+                this.state.lazySet(this.buffer);
+            }
+        } else if (_state == CLOSED) {
+            this.state.set(CLOSED);
+            if (this.threadTrace == null)
+                this.logger.writeLog(this.threadId, this.record);
+        } else {
+            final LogBuffer _tmp = new LogBuffer(this.record.length());
+            _tmp.put(this.record);
+            this.pendingRecords.add(_tmp);
+        }
+    }
+
+    /*
+     * Drains the buffer unless the owner is writing into it; then, the buffer is drained by the owner when it is full
+     * or by the next flush.
+     */
+    void flush() {
+        final LogBuffer _state = this.state.get();
+        if (_state == this.buffer && this.state.compareAndSet(_state, BUSY)) {
+            try {
+                writePendingRecords();
+                flushHelper();
+            } finally {
+                this.state.set(this.buffer);
+            }
+        }
+    }
+
+    /*
+     * Closes the thread log once its owner is done with the current record (if any).  Records that the owner queues
+     * while the thread log is being closed are dropped as are the records logged after the logger is cleaned up.
+     */
+    void close() {
+        for (LogBuffer _state = this.state.get(); _state != this.buffer || !this.state.compareAndSet(_state, BUSY);
+             _state = this.state.get()) {
+            if (_state == CLOSED)
+                return;
+            Thread.yield();
+        }
+
+        try {
+            writePendingRecords();
+            endRepetition();
+            flushHelper();
+            if (this.threadTrace != null)
+                this.threadTrace.close();
+        } finally {
+            this.state.set(CLOSED);
+        }
+    }
+
+    int getBufferedBytes() {
+        return this.buffer.length();
+    }
+
+    boolean isOwnerAlive() {
+        final Thread _tmp = this.owner.get();
+        return _tmp != null && _tmp.isAlive();
+    }
+
+    /*
+     * The following methods should be called only by the thread that holds the buffer.
+     */
+
+    private void write(final LogBuffer record) {
+        if (this.bufferLength > 0)
+            writeLog(record);
+        else
+            this.threadTrace.writeRecord(record);
+    }
+
+    private void writePendingRecords() {
+        for (LogBuffer _tmp = this.pendingRecords.poll(); _tmp != null; _tmp = this.pendingRecords.poll())
+            write(_tmp);
+    }
+
+    private void flushHelper() {
+        if (this.selfContainedChunks) {
+            endRepetition();
+            this.historyLength = 0;
+        }
+
+        if (this.buffer.length() > 0) {
+            // INFO: repetitions of a dropped chunk are dropped as they cannot be decoded without the chunk
+            final int _numOfPendingStmts = this.period * this.freq;
+            if (this.threadTrace != null)
+                this.threadTrace.writeChunk(this.buffer);
+            else if (!this.logger.writeChunk(this.threadId, this.buffer, this.numOfStmts + _numOfPendingStmts)) {
+                this.historyLength = 0;
+                this.period = 0;
+                this.freq = 0;
+                this.candidatePeriods = 0;
+            }
+            this.buffer.clear();
+            this.numOfStmts = 0;
+        }
+    }
+
+    private boolean count(final int kind, final boolean kept) {
+        if (this.metrics != null)
+            this.metrics.countEvent(kind, !kept && this.sampler != null);
+        // INFO: JFR events are built only while they are recorded
+        return kept && (!this.jfr || JfrLogStream.isEnabled(kind));
+    }
+
+    private boolean isCurrentFrameKept() {
+        // INFO: log statements outside of any (logged) method are kept
+        final int _frame = this.numOfFrames - 1;
+        return _frame < 0 || (this.keptFrames[_frame >>> 6] & 1L << _frame) != 0;
+    }
+
+    /*
+     * INFO
+     *
+     * The history holds the last few records of the thread as they appear in the uncompressed trace.  A record that
+     * matches the record p records back in the history may start a repetition of the last p records (sequence).
+     * Such records are held back (and p is a candidate period) until either p records match the sequence (and the
+     * repetition is committed with the smallest such p) or a record does not match any candidate sequence (and the
+     * held records are written).  Once a repetition is committed, the number of complete repetitions is counted
+     * while records match the sequence.  When a record breaks the repetition, the repetition is written as a repeat
+     * record followed by the held records of the incomplete repetition.
+     *
+     * Since the history holds repeated records, a sequence may span repetitions of shorter sequences, e.g., the
+     * body of an outer loop may span repetitions of the body of an inner loop.
+     */
+    private void writeLog(final LogBuffer record) {
+        if (this.period > 0) {
+            if (record.contentEquals(getHistory(this.period - this.numOfHeldRecords))) {
+                if (this.numOfHeldRecords + 1 == this.period) {
+                    this.freq++;
+                    this.numOfHeldRecords = 0;
+                } else {
+                    holdRecord(record);
+                }
+                return;
+            }
+            endRepetition();
+        } else if (this.numOfHeldRecords > 0) {
+            long _candidates = this.candidatePeriods;
+            for (long _tmp = _candidates; _tmp != 0; _tmp &= _tmp - 1) {
+                final int _period = Long.numberOfTrailingZeros(_tmp) + 1;
+                if (!record.contentEquals(getHistory(_period - this.numOfHeldRecords)))
+                    _candidates &= ~(1L << (_period - 1));
+            }
+            if (_candidates != 0) {
+                final int _period = Long.numberOfTrailingZeros(_candidates) + 1;
+                if (_period == this.numOfHeldRecords + 1) {
+                    this.period = _period;
+                    this.freq = 1;
+                    this.numOfHeldRecords = 0;
+                    this.candidatePeriods = 0;
+                } else {
+                    this.candidatePeriods = _candidates;
+                    holdRecord(record);
+                }
+                return;
+            }
+            endRepetition();
+        }
+
+        long _candidates = 0;
+        for (int _i = 1; _i <= this.historyLength; _i++)
+            if (record.contentEquals(getHistory(_i)))
+                _candidates |= 1L << (_i - 1);
+        if ((_candidates & 1) != 0) {
+            this.period = 1;
+            this.freq = 1;
+        } else if (_candidates != 0) {
+            this.candidatePeriods = _candidates;
+            holdRecord(record);
+        } else {
+            writeRecord(record);
+            if (this.buffer.length() >= this.bufferLength)
+                flushHelper();
+        }
+    }
+
+    /*
+     * Writes the current repetition (if any) and the held records.
+     */
+    private void endRepetition() {
+        if (this.freq > 0) {
+            if (this.period == 1)
+                this.format.writeRepeat(this.buffer, getHistory(1), this.freq);
+            else
+                this.format.writeSequenceRepeat(this.buffer, this.threadId, this.period, this.freq);
+            this.numOfStmts += this.period * this.freq;
+
+            // INFO: once the history is filled with repetitions, only the phase of the sequence matters
+            final long _numOfRecords = (long) this.period * this.freq;
+            final long _len = this.history.length;
+            final long _tmp = _numOfRecords <= _len + this.period ? _numOfRecords :
+                    _len + (_numOfRecords - _len) % this.period;
+            for (long _i = 0; _i < _tmp; _i++)
+                addToHistory(getHistory(this.period));
+        }
+        this.period = 0;
+        this.freq = 0;
+        this.candidatePeriods = 0;
+
+        final int _numOfHeldRecords = this.numOfHeldRecords;
+        this.numOfHeldRecords = 0;
+        for (int _i = 0; _i < _numOfHeldRecords; _i++)
+            writeRecord(this.heldRecords[_i]);
+    }
+
+    /*
+     * Returns the record that was written k records ago.
+     */
+    private LogBuffer getHistory(final int k) {
+        final int _len = this.history.length;
+        return this.history[(this.historyEnd - k + _len) % _len];
+    }
+
+    private void holdRecord(final LogBuffer record) {
+        final LogBuffer _tmp = this.heldRecords[this.numOfHeldRecords++];
+        _tmp.clear();
+        _tmp.put(record);
+    }
+
+    private void writeRecord(final LogBuffer record) {
+        this.format.writeRecord(this.buffer, record);
+        this.numOfStmts++;
+        addToHistory(record);
+    }
+
+    private void addToHistory(final LogBuffer record) {
+        final LogBuffer _tmp = this.history[this.historyEnd];
+        if (_tmp != record) {
+            _tmp.clear();
+            _tmp.put(record);
+        }
+        this.historyEnd = (this.historyEnd + 1) % this.history.length;
+        if (this.historyLength < this.history.length)
+            this.historyLength++;
+    }
+}
@@ -0,0 +1,88 @@
+/*
+ * Copyright (c) 2017, Venkatesh-Prasad Ranganath
+ *
+ * BSD 3-clause License
+ *
+ * Author: Venkatesh-Prasad Ranganath (rvprasad)
+ *
+ */
+
+package dyco4j.logging;
+
+import java.io.IOException;
+import java.io.OutputStream;
+import java.util.Date;
+
+/*
+ * INFO
+ *
+ * A thread trace writes the records of one thread into a trace file of its own (with its own buffer and compressor).
+ * So, threads do not contend with each other while writing traces.  The records of thread traces carry sequence
+ * numbers that are global across threads; so, the order of records across threads can be rebuilt by merging thread
+ * traces on sequence numbers.
+ *
+ * A thread trace is written and closed only by the thread that holds the buffer of its thread log (see ThreadLog);
+ * so, it needs no locks.
+ */
+final class ThreadTrace {
+    private final TraceFormat format;
+    private final OutputStream stream;
+    private final LoggerMetrics metrics;
+    private final LogBuffer out = new LogBuffer(256);
+    private boolean closed = false;
+
+    ThreadTrace(final TraceFormat format, final Opener opener, final long threadId, final LoggerMetrics metrics) {
+        this.format = format;
+        this.metrics = metrics;
+        OutputStream _stream;
+        try {
+            _stream = opener.open(threadId);
+        } catch (final IOException _e) {
+            LoggerMetrics.ioFailed(metrics, _e);
+            _stream = null;
+        }
+        this.stream = _stream;
+        this.format.writeHeader(this.out, (new Date()).toString());
+        this.format.writeThreadSwitch(this.out, 0, threadId);
+        writeOut();
+    }
+
+    void writeRecord(final LogBuffer record) {
+        this.format.writeRecord(this.out, record);
+        writeOut();
+    }
+
+    void writeChunk(final LogBuffer chunk) {
+        if (this.closed || this.stream == null)
+            return;
+
+        try {
+            chunk.writeTo(this.stream);
+        } catch (final IOException _e) {
+            LoggerMetrics.ioFailed(this.metrics, _e);
+        }
+    }
+
+    void close() {
+        if (this.closed || this.stream == null)
+            return;
+
+        this.closed = true;
+        try {
+            this.stream.flush();
+            this.stream.close();
+        } catch (final IOException _e) {
+            LoggerMetrics.ioFailed(this.metrics, _e);
+        }
+    }
+
+    private void writeOut() {
+        writeChunk(this.out);
+        this.out.clear();
+    }
+
+    @FunctionalInterface
+    interface Opener {
+        OutputStream open(long threadId) throws IOException;
+    }
+}
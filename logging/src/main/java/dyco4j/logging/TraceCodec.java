@@ -0,0 +1,96 @@
+/*
+ * Copyright (c) 2017, Venkatesh-Prasad Ranganath
+ *
+ * BSD 3-clause License
+ *
+ * Author: Venkatesh-Prasad Ranganath (rvprasad)
+ *
+ */
+
+package dyco4j.logging;
+
+import java.io.*;
+import java.text.MessageFormat;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import java.util.Properties;
+import java.util.ServiceLoader;
+import java.util.zip.Deflater;
+
+/*
+ * INFO
+ *
+ * A trace codec compresses the bytes of a trace (in any trace format) into a trace file and decompresses them.  The
+ * extension of a trace file identifies its codec.
+ *
+ * Besides the built-in codecs (none, deflate, and lz), codecs can be provided as services (via META-INF/services)
+ * and selected by their names.
+ */
+public abstract class TraceCodec {
+    private static final int BUFFER_LENGTH = 65536;
+
+    public static void main(final String[] args) throws IOException {
+        if (args.length != 2) {
+            System.err.println("Usage: java dyco4j.logging.TraceCodec <trace file> <decompressed trace file>");
+            System.exit(1);
+        }
+
+        final TraceCodec _codec = getCodecOfFile(args[0]);
+        try (final InputStream _in = _codec.decode(new BufferedInputStream(new FileInputStream(args[0])));
+             final OutputStream _out = new BufferedOutputStream(new FileOutputStream(args[1]))) {
+            final byte[] _tmp = new byte[BUFFER_LENGTH];
+            for (int _len = _in.read(_tmp); _len != -1; _len = _in.read(_tmp))
+                _out.write(_tmp, 0, _len);
+        }
+    }
+
+    /*
+     * Returns the codec with the given name.  Built-in codecs are configured via the given properties.
+     */
+    static TraceCodec getCodec(final String name, final Properties properties) {
+        switch (name) {
+            case "none":
+                return new NoneTraceCodec();
+            case "deflate": {
+                final int _level = Integer.parseInt(properties.getProperty("compressionLevel", "-1"));
+                final int _numOfThreads = Integer.parseInt(properties.getProperty("compressionThreads", "1"));
+                final int _blockLength = Integer.parseInt(properties.getProperty("compressionBlockLength",
+                        "1048576"));
+                return new DeflateTraceCodec(_level, _numOfThreads, _blockLength);
+            }
+            case "lz":
+                return new LzTraceCodec();
+            default:
+                for (final TraceCodec _codec : ServiceLoader.load(TraceCodec.class))
+                    if (_codec.getName().equals(name))
+                        return _codec;
+                throw new IllegalArgumentException(MessageFormat.format("Unknown trace codec {0}", name));
+        }
+    }
+
+    /*
+     * Returns the codec that can decode the given trace file based on its extension.
+     */
+    static TraceCodec getCodecOfFile(final String fileName) {
+        final List<TraceCodec> _codecs = new ArrayList<>(Arrays.asList(
+                new DeflateTraceCodec(Deflater.DEFAULT_COMPRESSION, 1, BUFFER_LENGTH), new LzTraceCodec()));
+        for (final TraceCodec _codec : ServiceLoader.load(TraceCodec.class))
+            _codecs.add(_codec);
+        for (final TraceCodec _codec : _codecs)
+            if (fileName.endsWith(_codec.getFileExtension()))
+                return _codec;
+        return new NoneTraceCodec();
+    }
+
+    public abstract String getName();
+
+    /*
+     * Returns the extension (including the leading dot) of the trace files written by this codec.
+     */
+    public abstract String getFileExtension();
+
+    public abstract OutputStream encode(OutputStream out) throws IOException;
+
+    public abstract InputStream decode(InputStream in) throws IOException;
+}
@@ -0,0 +1,124 @@
+/*
+ * Copyright (c) 2017, Venkatesh-Prasad Ranganath
+ *
+ * BSD 3-clause License
+ *
+ * Author: Venkatesh-Prasad Ranganath (rvprasad)
+ *
+ */
+
+package dyco4j.logging;
+
+import java.io.*;
+import java.text.MessageFormat;
+import java.util.Arrays;
+
+/*
+ * INFO
+ *
+ * A trace collector reads the traces streamed by logged programs (with pipe trace output) over a named pipe and
+ * writes them into trace files as the logger would with stream trace output.  So, the compression and the storage
+ * of traces happen in the collector process instead of the logged program.
+ *
+ * The collector writes a trace file for each program that opens (and closes) the pipe; programs should not share a
+ * pipe at the same time.  The format of a trace is identified by its header.  A program may precede its trace with
+ * its pid (as a line) to name the trace file trace_<pid>_* as the logger would.
+ */
+public final class TraceCollector {
+    private static final int BUFFER_LENGTH = 65536;
+    private static final int MAX_PID_LINE_LENGTH = 32;
+
+    private TraceCollector() {
+    }
+
+    public static void main(final String[] args) throws IOException {
+        if (args.length < 2 || args.length > 3) {
+            System.err.println("Usage: java dyco4j.logging.TraceCollector <pipe> <trace folder> [<trace codec>]");
+            System.exit(1);
+        }
+
+        final File _pipe = new File(args[0]);
+        if (!_pipe.exists())
+            createPipe(_pipe);
+        final File _folder = new File(args[1]);
+        if (!_folder.exists() && !_folder.mkdirs())
+            throw new IOException(MessageFormat.format("Cannot create {0}", _folder.toString()));
+
+        // INFO: built-in codecs are configured via system properties, e.g., -DcompressionLevel=9
+        final TraceCodec _codec = TraceCodec.getCodec(args.length == 3 ? args[2] : "deflate",
+                System.getProperties());
+        while (true) {
+            final File _tmp = collect(_pipe, _folder, _codec);
+            if (_tmp != null)
+                System.out.println(MessageFormat.format("Collected {0}", _tmp.getPath()));
+        }
+    }
+
+    /*
+     * Creates a named pipe via mkfifo.
+     */
+    static void createPipe(final File pipe) throws IOException {
+        final Process _process = new ProcessBuilder("mkfifo", pipe.getPath()).inheritIO().start();
+        try {
+            if (_process.waitFor() != 0)
+                throw new IOException(MessageFormat.format("Cannot create pipe {0}", pipe.toString()));
+        } catch (final InterruptedException _e) {
+            Thread.currentThread().interrupt();
+            throw new InterruptedIOException(MessageFormat.format("Interrupted while creating pipe {0}",
+                    pipe.toString()));
+        }
+    }
+
+    /*
+     * Waits for a program to open the pipe, writes the trace of the program into a new trace file in the given
+     * folder, and returns the trace file.  Returns null if the program did not write a trace.
+     */
+    static File collect(final File pipe, final File folder, final TraceCodec codec) throws IOException {
+        try (final InputStream _in = new BufferedInputStream(new FileInputStream(pipe), BUFFER_LENGTH)) {
+            final byte[] _tmp = new byte[BUFFER_LENGTH];
+            final String _pid = readPid(_in);
+            _in.mark(BinaryTraceFormat.MAGIC.length);
+            int _len = 0;
+            while (_len < BinaryTraceFormat.MAGIC.length) {
+                final int _n = _in.read(_tmp, _len, BinaryTraceFormat.MAGIC.length - _len);
+                if (_n == -1)
+                    break;
+                _len += _n;
+            }
+            if (_len == 0)
+                return null;
+            _in.reset();
+
+            final TraceFormat _format = Arrays.equals(Arrays.copyOf(_tmp, BinaryTraceFormat.MAGIC.length),
+                    BinaryTraceFormat.MAGIC) ? new BinaryTraceFormat() : new TextTraceFormat();
+            final String _prefix = _pid == null ? "trace_" : "trace_" + _pid + "_";
+            final File _ret = File.createTempFile(_prefix, _format.getFileExtension() + codec.getFileExtension(),
+                    folder);
+            try (final OutputStream _out = codec.encode(new BufferedOutputStream(new FileOutputStream(_ret),
+                    BUFFER_LENGTH))) {
+                for (int _n = _in.read(_tmp); _n != -1; _n = _in.read(_tmp))
+                    _out.write(_tmp, 0, _n);
+            }
+            return _ret;
+        }
+    }
+
+    /*
+     * Reads the pid that precedes the trace (as a line of digits) and returns it.  Returns null (and reads nothing)
+     * if the trace is not preceded by a pid.
+     */
+    private static String readPid(final InputStream in) throws IOException {
+        in.mark(MAX_PID_LINE_LENGTH);
+        final StringBuilder _ret = new StringBuilder();
+        for (int _i = 0; _i < MAX_PID_LINE_LENGTH; _i++) {
+            final int _c = in.read();
+            if (_c == '\n' && _ret.length() > 0)
+                return _ret.toString();
+            if (_c < '0' || _c > '9')
+                break;
+            _ret.append((char) _c);
+        }
+        in.reset();
+        return null;
+    }
+}
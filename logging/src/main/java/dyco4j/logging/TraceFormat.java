@@ -0,0 +1,109 @@
+/*
+ * Copyright (c) 2017, Venkatesh-Prasad Ranganath
+ *
+ * BSD 3-clause License
+ *
+ * Author: Venkatesh-Prasad Ranganath (rvprasad)
+ *
+ */
+
+package dyco4j.logging;
+
+/*
+ * INFO
+ *
+ * A trace format encodes log statements (records) into bytes.  A record is encoded without its terminator via
+ * write*() methods (after beginRecord()) and then terminated via writeRecord() or writeRepeat().
+ *
+ * Records of typed values are encoded via a write*Head() method followed by a writeValue() method.  These methods
+ * encode primitive values and object ids without creating intermediate strings.
+ *
+ * Records of method entries and exits optionally carry the nanoseconds elapsed since the previous such record of the
+ * thread; NO_ELAPSED_TIME denotes the absence of elapsed time.
+ */
+abstract class TraceFormat {
+    static final long NO_ELAPSED_TIME = -1;
+
+    abstract String getFileExtension();
+
+    abstract void writeHeader(LogBuffer out, String date);
+
+    abstract void beginRecord(LogBuffer record, long threadId);
+
+    abstract void writeRecord(LogBuffer out, LogBuffer record);
+
+    abstract void writeRepeat(LogBuffer out, LogBuffer record, int freq);
+
+    /*
+     * Writes a record stating that the previous length records of the thread were repeated freq more times.
+     */
+    abstract void writeSequenceRepeat(LogBuffer out, long threadId, int length, int freq);
+
+    abstract void writeThreadSwitch(LogBuffer out, long prevThreadId, long threadId);
+
+    /*
+     * Writes the global sequence number of the record (after beginRecord()).
+     */
+    abstract void writeSequenceNumber(LogBuffer record, long sequenceNumber);
+
+    abstract void writeMessage(LogBuffer record, String msg);
+
+    /*
+     * Writes the head of a record of covered methods (after beginRecord()).  Each covered method is then written via
+     * writeCoveredMethod() and the record is completed via writeCoverageTail().
+     */
+    abstract void writeCoverageHead(LogBuffer record);
+
+    abstract void writeCoveredMethod(LogBuffer record, int methodId);
+
+    abstract void writeCoverageTail(LogBuffer record);
+
+    abstract void writeArgument(LogBuffer record, byte index, String value);
+
+    abstract void writeArray(LogBuffer record, Logger.ArrayAction action, int index, String array, String value);
+
+    abstract void writeMethodCall(LogBuffer record, String methodIdAndCallsiteId);
+
+    abstract void writeField(LogBuffer record, Logger.FieldAction action, String fieldName, String receiver,
+                             String value);
+
+    abstract void writeMethodEntry(LogBuffer record, String methodId, long elapsedTime);
+
+    abstract void writeMethodExit(LogBuffer record, String methodId, String returnKind, long elapsedTime);
+
+    abstract void writeReturn(LogBuffer record, String value);
+
+    abstract void writeArgumentHead(LogBuffer record, byte index);
+
+    abstract void writeArrayHead(LogBuffer record, Logger.ArrayAction action, int index, Object array);
+
+    abstract void writeFieldHead(LogBuffer record, Logger.FieldAction action, int fieldId, Object receiver);
+
+    abstract void writeReturnHead(LogBuffer record);
+
+    abstract void writeException(LogBuffer record, Throwable exception);
+
+    abstract void writeMethodCall(LogBuffer record, int methodId, int callsiteId);
+
+    abstract void writeMethodEntry(LogBuffer record, int methodId, long elapsedTime);
+
+    abstract void writeMethodExit(LogBuffer record, int methodId, String returnKind, long elapsedTime);
+
+    abstract void writeValue(LogBuffer record, boolean value);
+
+    abstract void writeValue(LogBuffer record, byte value);
+
+    abstract void writeValue(LogBuffer record, char value);
+
+    abstract void writeValue(LogBuffer record, short value);
+
+    abstract void writeValue(LogBuffer record, int value);
+
+    abstract void writeValue(LogBuffer record, long value);
+
+    abstract void writeValue(LogBuffer record, float value);
+
+    abstract void writeValue(LogBuffer record, double value);
+
+    abstract void writeValue(LogBuffer record, Object value);
+}
@@ -0,0 +1,146 @@
+/*
+ * Copyright (c) 2017, Venkatesh-Prasad Ranganath
+ *
+ * BSD 3-clause License
+ *
+ * Author: Venkatesh-Prasad Ranganath (rvprasad)
+ *
+ */
+
+package dyco4j.logging;
+
+import javax.management.JMException;
+import javax.management.ObjectName;
+import java.lang.management.ManagementFactory;
+import java.text.MessageFormat;
+import java.util.ArrayList;
+import java.util.List;
+
+/*
+ * INFO
+ *
+ * The trace switch turns the tracing of kinds of events on and off at runtime.  The instrumentation tests the bit of
+ * the kind of an event in enabledKinds before preparing the arguments of the corresponding logging method; so, the
+ * cost of a disabled event is that of a volatile read and a branch.
+ *
+ * Kinds are named as in sampling rules (see Sampler) with en covering both method entries and exits and cv covering
+ * method coverage probes.  When tracing is turned on (off) in the middle of a method, the trace will contain the
+ * exit (entry) of the method without its entry (exit).
+ */
+public final class TraceSwitch implements TraceSwitchMBean {
+    public static final int METHOD_ENTRY_EXIT = 1;
+    public static final int METHOD_ARGUMENT = 1 << 1;
+    public static final int METHOD_RETURN = 1 << 2;
+    public static final int METHOD_EXCEPTION = 1 << 3;
+    public static final int METHOD_CALL = 1 << 4;
+    public static final int ARRAY_GET = 1 << 5;
+    public static final int ARRAY_PUT = 1 << 6;
+    public static final int FIELD_GET = 1 << 7;
+    public static final int FIELD_PUT = 1 << 8;
+    public static final int METHOD_COVERAGE = 1 << 9;
+    public static final String SYSTEM_PROPERTY = "dyco4j.logging.trace";
+    public static final String OBJECT_NAME = "dyco4j.logging:type=TraceSwitch";
+    private static final String[] KIND_NAMES = {Logger.METHOD_ENTRY_TAG, Logger.METHOD_ARG_TAG,
+            Logger.METHOD_RETURN_TAG, Logger.METHOD_EXCEPTION_TAG, Logger.METHOD_CALL_TAG,
+            Logger.ArrayAction.GETA.toString(), Logger.ArrayAction.PUTA.toString(),
+            Logger.FieldAction.GETF.toString(), Logger.FieldAction.PUTF.toString(), Logger.METHOD_COVERAGE_TAG};
+    private static final int ALL_KINDS = (1 << KIND_NAMES.length) - 1;
+
+    // INFO: read by instrumented code
+    public static volatile int enabledKinds = getKindsOfProperty(System.getProperty(SYSTEM_PROPERTY, "all"));
+
+    /*
+     * Returns the bits of the given comma separated list of kinds.  all and none denote all kinds and no kinds,
+     * respectively.
+     */
+    static int getKinds(final String kinds) {
+        int _ret = 0;
+        for (final String _tmp : kinds.split(",")) {
+            final String _kind = _tmp.trim();
+            if (_kind.isEmpty() || _kind.equals("none"))
+                continue;
+            if (_kind.equals("all")) {
+                _ret = ALL_KINDS;
+                continue;
+            }
+
+            final int _i = indexOf(_kind);
+            if (_i < 0)
+                throw new IllegalArgumentException(MessageFormat.format("Unknown event kind {0}", _kind));
+            _ret |= 1 << _i;
+        }
+        return _ret;
+    }
+
+    /*
+     * Returns the bits of the kinds given via the system property.  Unlike setEnabledKinds(), unknown kinds do not
+     * fail as this class is initialized by the guards of instrumented code; instead, a warning is printed and all
+     * kinds are traced.
+     */
+    static int getKindsOfProperty(final String kinds) {
+        try {
+            return getKinds(kinds);
+        } catch (final IllegalArgumentException _e) {
+            System.err.println(MessageFormat.format("dyco4j: ignoring {0} system property ({1}); tracing all kinds",
+                    SYSTEM_PROPERTY, _e.getMessage()));
+            return ALL_KINDS;
+        }
+    }
+
+    static String getKindNames(final int kinds) {
+        if ((kinds & ALL_KINDS) == ALL_KINDS)
+            return "all";
+
+        final List<String> _ret = new ArrayList<>();
+        for (int _i = 0; _i < KIND_NAMES.length; _i++)
+            if ((kinds & 1 << _i) != 0)
+                _ret.add(KIND_NAMES[_i]);
+        return _ret.isEmpty() ? "none" : String.join(",", _ret);
+    }
+
+    static void register() {
+        try {
+            ManagementFactory.getPlatformMBeanServer().registerMBean(new TraceSwitch(),
+                    new ObjectName(OBJECT_NAME));
+        } catch (final JMException _e) {
+            // INFO: the switch is registered by the first logger when there are many loggers (in many class loaders)
+        }
+    }
+
+    /*
+     * Registers the switch on a daemon thread so that the logger does not wait for the platform MBean server to
+     * start.  The switch works without the MBean (via enabledKinds and the system property).
+     */
+    static void registerInBackground() {
+        final Thread _tmp = new Thread(TraceSwitch::register, "dyco4j-logging-trace-switch");
+        _tmp.setDaemon(true);
+        _tmp.start();
+    }
+
+    private static int indexOf(final String kind) {
+        for (int _i = 0; _i < KIND_NAMES.length; _i++)
+            if (KIND_NAMES[_i].equals(kind))
+                return _i;
+        return -1;
+    }
+
+    @Override
+    public boolean isEnabled() {
+        return enabledKinds != 0;
+    }
+
+    @Override
+    public void setEnabled(final boolean enabled) {
+        enabledKinds = enabled ? ALL_KINDS : 0;
+    }
+
+    @Override
+    public String getEnabledKinds() {
+        return getKindNames(enabledKinds);
+    }
+
+    @Override
+    public void setEnabledKinds(final String kinds) {
+        enabledKinds = getKinds(kinds);
+    }
+}
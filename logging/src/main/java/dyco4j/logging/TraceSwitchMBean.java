@@ -0,0 +1,27 @@
+/*
+ * Copyright (c) 2017, Venkatesh-Prasad Ranganath
+ *
+ * BSD 3-clause License
+ *
+ * Author: Venkatesh-Prasad Ranganath (rvprasad)
+ *
+ */
+
+package dyco4j.logging;
+
+public interface TraceSwitchMBean {
+    boolean isEnabled();
+
+    /**
+     * @param enabled when true (false), all kinds of events are traced (not traced).
+     */
+    void setEnabled(boolean enabled);
+
+    String getEnabledKinds();
+
+    /**
+     * @param kinds comma separated list of kinds of events to trace (en, ar, re, xp, ca, GETA, PUTA, GETF, PUTF, cv),
+     *              all, or none.
+     */
+    void setEnabledKinds(String kinds);
+}
@@ -0,0 +1,161 @@
+/*
+ * Copyright (c) 2017, Venkatesh-Prasad Ranganath
+ *
+ * BSD 3-clause License
+ *
+ * Author: Venkatesh-Prasad Ranganath (rvprasad)
+ *
+ */
+package dyco4j.logging;
+
+import org.junit.Test;
+
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.StringWriter;
+import java.nio.charset.StandardCharsets;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertTrue;
+
+public final class AggregatorTest {
+    private static final int NUM_OF_THREADS = 4;
+
+    private static void callMethods() {
+        Logger.logMethodCall(1, 0);
+        Logger.logMethodEntry(1);
+        Logger.logArgument((byte) 0, 3);
+        for (int _i = 0; _i < 10; _i++) {
+            Logger.logMethodCall(2, 0);
+            Logger.logMethodEntry(2);
+            Logger.logField(null, _i, 4, Logger.FieldAction.GETF);
+            Logger.logReturn(_i);
+            Logger.logMethodExit(2, "N");
+            Logger.logMethodCall("Lpkg/Cls;m(I)V,1");
+            Logger.logMethodEntry("Lpkg/Cls;m(I)V");
+            Logger.logMethodCall("m2,0");
+            Logger.logMethodEntry("m2");
+            Logger.logException(new RuntimeException());
+            Logger.logMethodExit("m2", "E");
+            Logger.logMethodExit("Lpkg/Cls;m(I)V", "N");
+        }
+        Logger.logMethodExit(1, "N");
+    }
+
+    private static List<String> getCounts(final TraceFormat format) throws Exception {
+        final ByteArrayOutputStream _logStore = new ByteArrayOutputStream();
+        Logger.initialize(new LoggerConfig(_logStore).setFormat(format).setAggregator(new Aggregator()));
+        final List<Thread> _threads = new ArrayList<>();
+        for (int _i = 0; _i < NUM_OF_THREADS; _i++)
+            _threads.add(new Thread(AggregatorTest::callMethods));
+        for (final Thread _t : _threads)
+            _t.start();
+        for (final Thread _t : _threads)
+            _t.join();
+        Logger.log("a message");
+        Logger.cleanupForTest();
+
+        final String _trace;
+        if (format instanceof BinaryTraceFormat) {
+            final StringWriter _tmp = new StringWriter();
+            BinaryTraceDecoder.decode(new ByteArrayInputStream(_logStore.toByteArray()), _tmp);
+            _trace = _tmp.toString();
+        } else {
+            _trace = new String(_logStore.toByteArray(), StandardCharsets.UTF_8);
+        }
+        final String[] _lines = _trace.split(System.lineSeparator());
+        final String _prefix = Thread.currentThread().getId() + ",";
+        final List<String> _ret = new ArrayList<>();
+        for (int _i = 1; _i < _lines.length; _i++)
+            _ret.add(_lines[_i].substring(_prefix.length()));
+        return _ret;
+    }
+
+    @Test
+    public void testCountsOfMethodsAndCalls() throws Exception {
+        for (final TraceFormat _format : Arrays.asList(new TextTraceFormat(), new BinaryTraceFormat())) {
+            assertEquals(Arrays.asList(
+                    "a message",
+                    "mc,Lpkg/Cls;m(I)V,40",
+                    "mc,m1,4",
+                    "mc,m2,80",
+                    "cc,Lpkg/Cls;m(I)V,0,m2,40",
+                    "cc,,0,m1,4",
+                    "cc,m1,0,m2,40",
+                    "cc,m1,1,Lpkg/Cls;m(I)V,40"), getCounts(_format));
+        }
+    }
+
+    @Test
+    public void testLatencies() throws Exception {
+        final ByteArrayOutputStream _logStore = new ByteArrayOutputStream();
+        Logger.initialize(new LoggerConfig(_logStore).setAggregator(new Aggregator(true)));
+        Logger.logMethodEntry(1);
+        for (int _i = 0; _i < 4; _i++) {
+            Logger.logMethodEntry(2);
+            Thread.sleep(10);
+            Logger.logMethodExit(2, "N");
+        }
+        Logger.logMethodEntry("Lpkg/Cls;m(I)V");
+        Logger.logMethodExit("Lpkg/Cls;m(I)V", "E");
+        Logger.logMethodExit(1, "N");
+        Logger.logMethodExit(1, "N");
+        Logger.cleanupForTest();
+
+        final String[] _lines = new String(_logStore.toByteArray(), StandardCharsets.UTF_8)
+                .split(System.lineSeparator());
+        final String _prefix = Thread.currentThread().getId() + ",";
+        final List<String> _methods = new ArrayList<>();
+        final Map<String, long[]> _latencies = new HashMap<>();
+        for (final String _line : _lines) {
+            final String[] _fields = _line.split(",");
+            if (_line.startsWith(_prefix + Aggregator.LATENCY_TAG + ",")) {
+                _methods.add(_fields[2]);
+                final long[] _tmp = new long[7];
+                for (int _i = 0; _i < 7; _i++)
+                    _tmp[_i] = Long.parseLong(_fields[_i + 3]);
+                _latencies.put(_fields[2], _tmp);
+            }
+        }
+        assertEquals(Arrays.asList("Lpkg/Cls;m(I)V", "m1", "m2"), _methods);
+
+        // INFO: count, inclusive p50, p99, and max, and exclusive p50, p99, and max
+        final long[] _m1 = _latencies.get("m1");
+        final long[] _m2 = _latencies.get("m2");
+        assertEquals(1, _m1[0]);
+        assertEquals(4, _m2[0]);
+        for (final long[] _tmp : _latencies.values()) {
+            assertTrue(_tmp[1] <= _tmp[2] && _tmp[2] <= _tmp[3]);
+            assertTrue(_tmp[4] <= _tmp[5] && _tmp[5] <= _tmp[6]);
+            assertTrue(_tmp[6] <= _tmp[3]);
+        }
+        assertTrue(_m2[1] >= 10000000L);
+        assertTrue(_m2[4] >= 10000000L);
+        assertTrue(_m1[3] >= 40000000L);
+        // INFO: m1 is called once; so, its inclusive and exclusive times differ by the inclusive times of its callees
+        assertTrue(_m1[3] - _m1[6] >= 40000000L);
+    }
+
+    @Test
+    public void testCounterTableGrows() {
+        final CounterTable _table = new CounterTable();
+        for (int _i = 0; _i < 10000; _i++)
+            for (int _j = 0; _j <= _i % 3; _j++)
+                _table.increment((long) _i << 32 | _i, -_i);
+
+        final long[] _counts = new long[4];
+        _table.forEach((k, v, c) -> {
+            assertEquals(k >> 32, (int) k);
+            assertEquals(-v, (int) k);
+            assertEquals((int) k % 3 + 1, c);
+            _counts[(int) c]++;
+        });
+        assertEquals(Arrays.asList(0L, 3334L, 3333L, 3333L), Arrays.asList(_counts[0], _counts[1], _counts[2],
+                _counts[3]));
+    }
+}
@@ -0,0 +1,130 @@
+/*
+ * Copyright (c) 2017, Venkatesh-Prasad Ranganath
+ *
+ * BSD 3-clause License
+ *
+ * Author: Venkatesh-Prasad Ranganath (rvprasad)
+ *
+ */
+package dyco4j.logging;
+
+import org.junit.Test;
+
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.io.StringWriter;
+import java.nio.charset.StandardCharsets;
+import java.util.concurrent.CountDownLatch;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertTrue;
+
+public final class AsyncLogStreamTest {
+    private static final int NUM_OF_STMTS = 1000;
+
+    private static String[] logAndGetContent(final AsyncLogStream.Policy policy, final TraceFormat format,
+                                             final int threadBufferLength) throws Exception {
+        final CountDownLatch _latch = new CountDownLatch(1);
+        final ByteArrayOutputStream _logStore = new ByteArrayOutputStream() {
+            @Override
+            public synchronized void write(final byte[] b, final int off, final int len) {
+                try {
+                    // INFO: the writer thread is stalled until all log statements have been logged (except when
+                    // sampling as sampling blocks for sampled log statements)
+                    if (policy == AsyncLogStream.Policy.SAMPLE)
+                        Thread.sleep(1);
+                    else
+                        _latch.await();
+                } catch (final InterruptedException _e) {
+                    throw new RuntimeException(_e);
+                }
+                super.write(b, off, len);
+            }
+        };
+        final AsyncLogStream _stream = new AsyncLogStream(_logStore, policy, 2, 64, 10, null);
+        Logger.initialize(new LoggerConfig(_stream).setFormat(format).setThreadBufferLength(threadBufferLength));
+        if (policy == AsyncLogStream.Policy.BLOCK)
+            _latch.countDown();
+        for (int _i = 0; _i < NUM_OF_STMTS; _i++)
+            Logger.log("test message " + _i);
+        _latch.countDown();
+        Logger.cleanupForTest();
+
+        final String _content;
+        if (format instanceof BinaryTraceFormat) {
+            final StringWriter _tmp = new StringWriter();
+            BinaryTraceDecoder.decode(new ByteArrayInputStream(_logStore.toByteArray()), _tmp);
+            _content = _tmp.toString();
+        } else {
+            _content = new String(_logStore.toByteArray(), StandardCharsets.UTF_8);
+        }
+        return _content.split(System.lineSeparator());
+    }
+
+    private static void checkDroppedStmts(final String[] content) {
+        final String _prefix = Thread.currentThread().getId() + ",";
+        int _prev = -1;
+        for (int _i = 1; _i < content.length - 1; _i++) {
+            final String _msg = content[_i].substring(_prefix.length());
+            final int _tmp = Integer.parseInt(_msg.substring("test message ".length()));
+            assertTrue(_tmp > _prev);
+            _prev = _tmp;
+        }
+
+        final String _last = content[content.length - 1];
+        assertTrue(_last.matches("^\\d+,dropped,\\d+$"));
+        final int _numOfDroppedStmts = Integer.parseInt(_last.substring(_last.lastIndexOf(',') + 1));
+        assertEquals(NUM_OF_STMTS, content.length - 2 + _numOfDroppedStmts);
+    }
+
+    @Test
+    public void testBlockPolicy() throws Exception {
+        final String[] _tmp = logAndGetContent(AsyncLogStream.Policy.BLOCK, new TextTraceFormat(), 0);
+        assertEquals(NUM_OF_STMTS + 1, _tmp.length);
+        for (int _i = 0; _i < NUM_OF_STMTS; _i++)
+            assertEquals(Thread.currentThread().getId() + ",test message " + _i, _tmp[_i + 1]);
+    }
+
+    @Test
+    public void testDropPolicy() throws Exception {
+        final String[] _tmp = logAndGetContent(AsyncLogStream.Policy.DROP, new TextTraceFormat(), 0);
+        assertTrue(_tmp.length < NUM_OF_STMTS / 2);
+        checkDroppedStmts(_tmp);
+    }
+
+    @Test
+    public void testDropPolicyWithBinaryFormatAndThreadBuffers() throws Exception {
+        final String[] _tmp = logAndGetContent(AsyncLogStream.Policy.DROP, new BinaryTraceFormat(), 40);
+        checkDroppedStmts(_tmp);
+    }
+
+    @Test
+    public void testSamplePolicy() throws Exception {
+        final String[] _tmp = logAndGetContent(AsyncLogStream.Policy.SAMPLE, new TextTraceFormat(), 0);
+        checkDroppedStmts(_tmp);
+    }
+
+    @Test
+    public void testOversizedWriteIsSplitAcrossBlocks() throws IOException {
+        final ByteArrayOutputStream _logStore = new ByteArrayOutputStream();
+        final AsyncLogStream _stream = new AsyncLogStream(_logStore, AsyncLogStream.Policy.BLOCK, 2, 64, 10, null);
+        final byte[] _chunk = new byte[1000];
+        for (int _i = 0; _i < _chunk.length; _i++)
+            _chunk[_i] = (byte) _i;
+        _stream.write(_chunk, 0, _chunk.length);
+        _stream.write('a');
+        _stream.close();
+
+        final byte[] _tmp = _logStore.toByteArray();
+        assertEquals(_chunk.length + 1, _tmp.length);
+        for (int _i = 0; _i < _chunk.length; _i++)
+            assertEquals(_chunk[_i], _tmp[_i]);
+        assertEquals('a', _tmp[_chunk.length]);
+    }
+
+    @Test(expected = IllegalArgumentException.class)
+    public void testTooFewBlocks() throws IOException {
+        new AsyncLogStream(new ByteArrayOutputStream(), AsyncLogStream.Policy.DROP, 1, 64, 10, null);
+    }
+}
@@ -0,0 +1,190 @@
+/*
+ * Copyright (c) 2017, Venkatesh-Prasad Ranganath
+ *
+ * BSD 3-clause License
+ *
+ * Author: Venkatesh-Prasad Ranganath (rvprasad)
+ *
+ */
+package dyco4j.logging;
+
+import org.junit.Test;
+
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.io.StringWriter;
+import java.nio.charset.StandardCharsets;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.stream.Collectors;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertTrue;
+
+public final class BinaryTraceDecoderTest {
+    private static final Object OBJECT = new Object();
+    private static final int[] ARRAY = new int[1];
+    private static final Throwable EXCEPTION = new IllegalStateException();
+
+    private static void logEvents() {
+        Logger.logMethodEntry("m3");
+        Logger.logArgument((byte) 0, Logger.toString(OBJECT));
+        Logger.logArgument((byte) 1, Logger.toString(-42));
+        Logger.logArgument((byte) 2, Logger.toString(Long.MIN_VALUE));
+        Logger.logArgument((byte) 3, Logger.toString(3.14f));
+        Logger.logArgument((byte) 4, Logger.toString(-2.5e-300));
+        Logger.logArgument((byte) 5, Logger.toString(true));
+        Logger.logArgument((byte) 6, Logger.toString('\u00e9'));
+        Logger.logArgument((byte) 7, Logger.UNINITIALIZED_THIS_REP);
+        Logger.logArgument((byte) 8, Logger.NULL_VALUE);
+        Logger.logMethodCall("m5,2");
+        Logger.logMethodCall("m5,2");
+        Logger.logMethodCall("m5,2");
+        Logger.logMethodCall("Lpkg/Cls;m(I)V,7");
+        Logger.logField(null, Logger.toString((short) 7), "f1", Logger.FieldAction.PUTF);
+        Logger.logField("receiver", Logger.toString((byte) -1), "f2", Logger.FieldAction.GETF);
+        Logger.logField("receiver", "not a value", "f2", Logger.FieldAction.GETF);
+        Logger.logArray(ARRAY, 0, Logger.toString(1), Logger.ArrayAction.PUTA);
+        Logger.logArray(ARRAY, -1, Logger.toString(1), Logger.ArrayAction.GETA);
+        Logger.logException(EXCEPTION);
+        Logger.logReturn(null);
+        Logger.logReturn(Logger.toString("s"));
+        Logger.logMethodExit("m3", "N");
+        Logger.logMethodExit("m03", "E");
+        Logger.logMethodCoverage(70000);
+        Logger.logMethodCoverage(3);
+        Logger.log("a message, with a comma");
+        Logger.log("a message, with a comma");
+        Logger.logMethodEntry(4);
+        Logger.logArgument((byte) 0, OBJECT);
+        Logger.logArgument((byte) 1, Float.NaN);
+        Logger.logArgument((byte) 2, Character.MAX_VALUE);
+        Logger.logMethodCall(5, 2);
+        Logger.logField(null, -3L, 1, Logger.FieldAction.GETF);
+        Logger.logField(OBJECT, (Object) "value", 2, Logger.FieldAction.PUTF);
+        Logger.logArray(ARRAY, 0, Integer.MIN_VALUE, Logger.ArrayAction.PUTA);
+        Logger.logArray(ARRAY, 0, false, Logger.ArrayAction.GETA);
+        Logger.logReturn(-0.0);
+        Logger.logMethodExit(4, "N");
+        Logger.log("a message with non-ASCII characters \u00e9\u20ac\uD83D\uDE00");
+    }
+
+    private static byte[] getTrace(final TraceFormat format, final int threadBufferLength)
+            throws InterruptedException {
+        final ByteArrayOutputStream _logStore = new ByteArrayOutputStream();
+        Logger.initialize(new LoggerConfig(_logStore).setFormat(format).setThreadBufferLength(threadBufferLength));
+        final Thread _t1 = new Thread(BinaryTraceDecoderTest::logEvents);
+        final Thread _t2 = new Thread(BinaryTraceDecoderTest::logEvents);
+        _t1.start();
+        _t1.join();
+        logEvents();
+        _t2.start();
+        _t2.join();
+        logEvents();
+        Logger.cleanupForTest();
+        return _logStore.toByteArray();
+    }
+
+    private static String decode(final byte[] trace) throws IOException {
+        final StringWriter _tmp = new StringWriter();
+        BinaryTraceDecoder.decode(new ByteArrayInputStream(trace), _tmp);
+        return _tmp.toString();
+    }
+
+    // INFO: thread ids and the interleaving of threads differ across runs; so, the logs of threads are compared
+    private static List<String> getThreadLogs(final String trace) {
+        final String[] _lines = trace.split(System.lineSeparator());
+        final Map<String, StringBuilder> _threadId2log = new HashMap<>();
+        for (int _i = 1; _i < _lines.length; _i++) {
+            final int _sep = _lines[_i].indexOf(',');
+            _threadId2log.computeIfAbsent(_lines[_i].substring(0, _sep), k -> new StringBuilder())
+                         .append(_lines[_i].substring(_sep)).append(System.lineSeparator());
+        }
+        return _threadId2log.values().stream().map(StringBuilder::toString).sorted().collect(Collectors.toList());
+    }
+
+    private static void checkTraces(final int threadBufferLength) throws IOException, InterruptedException {
+        final byte[] _textTrace = getTrace(new TextTraceFormat(), threadBufferLength);
+        final List<String> _text = getThreadLogs(new String(_textTrace, StandardCharsets.UTF_8));
+        final List<String> _binary = getThreadLogs(decode(getTrace(new BinaryTraceFormat(), threadBufferLength)));
+        assertEquals(3, _text.size());
+        assertEquals(_text, _binary);
+    }
+
+    @Test
+    public void testDecodeWithSharedBuffer() throws Exception {
+        checkTraces(0);
+    }
+
+    @Test
+    public void testDecodeWithThreadBuffers() throws Exception {
+        checkTraces(64);
+    }
+
+    @Test
+    public void testBinaryTraceIsSmallerThanTextTrace() throws Exception {
+        final Runnable _r = () -> {
+            for (int _i = 0; _i < 1000; _i++) {
+                Logger.logMethodEntry("m" + _i);
+                Logger.logArgument((byte) 0, Logger.toString(OBJECT));
+                Logger.logArgument((byte) 1, Logger.toString(_i));
+                Logger.logMethodCall("m" + (_i + 1) + ",3");
+                Logger.logReturn(Logger.toString(_i % 2 == 0));
+                Logger.logMethodExit("m" + _i, "N");
+            }
+        };
+
+        final ByteArrayOutputStream _textStore = new ByteArrayOutputStream();
+        Logger.initialize(_textStore);
+        _r.run();
+        Logger.cleanupForTest();
+
+        final ByteArrayOutputStream _binaryStore = new ByteArrayOutputStream();
+        Logger.initialize(new LoggerConfig(_binaryStore).setFormat(new BinaryTraceFormat()));
+        _r.run();
+        Logger.cleanupForTest();
+
+        assertTrue(_binaryStore.size() < _textStore.size() / 2);
+    }
+
+    @Test
+    public void testDecodeWithTimestamps() throws Exception {
+        for (final TraceFormat _format : new TraceFormat[]{new TextTraceFormat(), new BinaryTraceFormat()}) {
+            final ByteArrayOutputStream _logStore = new ByteArrayOutputStream();
+            Logger.initialize(new LoggerConfig(_logStore).setFormat(_format).setTimed(true));
+            Logger.logMethodEntry(1);
+            Logger.logMethodEntry("m2");
+            Logger.logReturn(3);
+            Thread.sleep(10);
+            Logger.logMethodExit("m2", "N");
+            Logger.logMethodEntry("Lpkg/Cls;m(I)V");
+            Logger.logMethodExit("Lpkg/Cls;m(I)V", "E");
+            Logger.logMethodExit(1, "X");
+            Logger.cleanupForTest();
+
+            final String _trace = _format instanceof BinaryTraceFormat ? decode(_logStore.toByteArray()) :
+                    new String(_logStore.toByteArray(), StandardCharsets.UTF_8);
+            final String[] _lines = _trace.split(System.lineSeparator());
+            final String _prefix = Thread.currentThread().getId() + ",";
+            final String[] _expected = {"en,m1,", "en,m2,", "re,i:3", "ex,m2,N,", "en,Lpkg/Cls;m(I)V,",
+                    "ex,Lpkg/Cls;m(I)V,E,", "ex,m1,X,"};
+            assertEquals(_expected.length + 1, _lines.length);
+            for (int _i = 0; _i < _expected.length; _i++) {
+                final String _line = _lines[_i + 1].substring(_prefix.length());
+                assertTrue(_line, _line.startsWith(_expected[_i]));
+                if (_expected[_i].endsWith(",")) {
+                    final long _elapsedTime = Long.parseLong(_line.substring(_expected[_i].length()));
+                    assertTrue(_elapsedTime >= (_i == 3 ? 10000000L : 0L));
+                }
+            }
+        }
+    }
+
+    @Test(expected = IOException.class)
+    public void testDecodeWithInvalidMagic() throws Exception {
+        final byte[] _tmp = "trace".getBytes(StandardCharsets.US_ASCII);
+        BinaryTraceDecoder.decode(new ByteArrayInputStream(_tmp), new StringWriter());
+    }
+}
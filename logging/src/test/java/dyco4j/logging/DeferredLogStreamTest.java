@@ -0,0 +1,75 @@
+/*
+ * Copyright (c) 2017, Venkatesh-Prasad Ranganath
+ *
+ * BSD 3-clause License
+ *
+ * Author: Venkatesh-Prasad Ranganath (rvprasad)
+ *
+ */
+package dyco4j.logging;
+
+import org.junit.Test;
+
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.util.concurrent.CountDownLatch;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertTrue;
+
+public final class DeferredLogStreamTest {
+    private static void write(final DeferredLogStream stream, final String s) throws IOException {
+        final byte[] _tmp = s.getBytes(StandardCharsets.UTF_8);
+        stream.write(_tmp, 0, _tmp.length);
+    }
+
+    @Test
+    public void testWritesBeforeOpenAreHeld() throws Exception {
+        final CountDownLatch _latch = new CountDownLatch(1);
+        final ByteArrayOutputStream _store = new ByteArrayOutputStream();
+        final LoggerMetrics _metrics = new LoggerMetrics();
+        final DeferredLogStream _stream = new DeferredLogStream(() -> {
+            try {
+                _latch.await();
+            } catch (final InterruptedException _e) {
+                throw new IOException(_e);
+            }
+            return _store;
+        }, 8, _metrics);
+        write(_stream, "abcd");
+        write(_stream, "efgh");
+        assertEquals(0, _store.size());
+
+        // INFO: the write that does not fit in the pending bytes waits for the stream
+        _latch.countDown();
+        write(_stream, "ij");
+        assertEquals("abcdefghij", new String(_store.toByteArray(), StandardCharsets.UTF_8));
+        write(_stream, "kl");
+        _stream.close();
+        assertEquals("abcdefghijkl", new String(_store.toByteArray(), StandardCharsets.UTF_8));
+        assertTrue(_metrics.getStreamOpenTime() > 0);
+    }
+
+    @Test
+    public void testLogger() throws Exception {
+        final ByteArrayOutputStream _store = new ByteArrayOutputStream();
+        Logger.initialize(new DeferredLogStream(() -> _store, 1024, null));
+        Logger.log("test message");
+        Logger.cleanupForTest();
+
+        final String[] _lines = new String(_store.toByteArray(), StandardCharsets.UTF_8).split(
+                System.lineSeparator());
+        assertEquals(2, _lines.length);
+        assertEquals(Thread.currentThread().getId() + ",test message", _lines[1]);
+    }
+
+    @Test(expected = IOException.class)
+    public void testOpenFailure() throws Exception {
+        final DeferredLogStream _stream = new DeferredLogStream(() -> {
+            throw new IOException("cannot open");
+        }, 1024, null);
+        write(_stream, "abcd");
+        _stream.flush();
+    }
+}
@@ -0,0 +1,212 @@
+/*
+ * Copyright (c) 2017, Venkatesh-Prasad Ranganath
+ *
+ * BSD 3-clause License
+ *
+ * Author: Venkatesh-Prasad Ranganath (rvprasad)
+ *
+ */
+package dyco4j.logging;
+
+import jdk.jfr.Recording;
+import jdk.jfr.consumer.RecordedEvent;
+import jdk.jfr.consumer.RecordingFile;
+import org.junit.Test;
+
+import java.io.File;
+import java.io.FileWriter;
+import java.io.Writer;
+import java.lang.reflect.InvocationTargetException;
+import java.lang.reflect.Method;
+import java.net.URL;
+import java.net.URLClassLoader;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.stream.Collectors;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertTrue;
+import static org.junit.Assert.fail;
+import static org.junit.Assume.assumeTrue;
+
+public final class JfrLogStreamTest {
+    private static List<RecordedEvent> record(final Runnable logStmts) throws Exception {
+        return record(logStmts, () -> {
+        });
+    }
+
+    /*
+     * Returns the events of the log statements of logStmts; the log statements of unrecordedStmts are logged before
+     * the recording is started.
+     */
+    private static List<RecordedEvent> record(final Runnable logStmts, final Runnable unrecordedStmts)
+            throws Exception {
+        assumeTrue(LoggerInitializer.isJfrAvailable());
+
+        final File _file = File.createTempFile("trace", ".jfr", new File("build", "tmp"));
+        Logger.initialize(new LoggerConfig(new JfrLogStream()).setJfr(true));
+        try (final Recording _recording = new Recording()) {
+            unrecordedStmts.run();
+            _recording.start();
+            logStmts.run();
+            Logger.cleanupForTest();
+            _recording.stop();
+            _recording.dump(_file.toPath());
+        }
+
+        final List<RecordedEvent> _ret = new ArrayList<>();
+        for (final RecordedEvent _e : RecordingFile.readAllEvents(_file.toPath()))
+            if (_e.getEventType().getName().startsWith("dyco4j."))
+                _ret.add(_e);
+        assertTrue(_file.delete());
+        return _ret;
+    }
+
+    @Test
+    public void testEvents() throws Exception {
+        final Object _array = new int[2];
+        final List<RecordedEvent> _events = record(() -> {
+            Logger.logMethodEntry(1);
+            Logger.logField(null, 3, 2, Logger.FieldAction.PUTF);
+            Logger.logArray(_array, 1, 4, Logger.ArrayAction.GETA);
+            Logger.logMethodExit(1, "N");
+            Logger.log("test message");
+        });
+
+        assertEquals(5, _events.size());
+        final List<String> _names = _events.stream().map(e -> e.getEventType().getName())
+                .collect(Collectors.toList());
+        assertTrue(_names.contains("dyco4j.MethodEntry"));
+        assertTrue(_names.contains("dyco4j.MethodExit"));
+        assertTrue(_names.contains("dyco4j.FieldAccess"));
+        assertTrue(_names.contains("dyco4j.ArrayAccess"));
+        assertTrue(_names.contains("dyco4j.Record"));
+
+        for (final RecordedEvent _e : _events) {
+            assertEquals(Thread.currentThread().getName(), _e.getThread().getJavaName());
+            switch (_e.getEventType().getName()) {
+                case "dyco4j.MethodEntry":
+                    assertEquals("m1", _e.getString("method"));
+                    assertEquals(0L, _e.getLong("sequenceNumber"));
+                    break;
+                case "dyco4j.MethodExit":
+                    assertEquals("m1", _e.getString("method"));
+                    assertEquals("N", _e.getString("returnKind"));
+                    assertEquals(3L, _e.getLong("sequenceNumber"));
+                    break;
+                case "dyco4j.FieldAccess":
+                    assertEquals("PUTF", _e.getString("action"));
+                    assertEquals("f2", _e.getString("field"));
+                    assertEquals("", _e.getString("receiver"));
+                    assertEquals("i:3", _e.getString("value"));
+                    break;
+                case "dyco4j.ArrayAccess":
+                    assertEquals("GETA", _e.getString("action"));
+                    assertEquals(1, _e.getInt("index"));
+                    assertEquals("a:" + System.identityHashCode(_array), _e.getString("array"));
+                    assertEquals("i:4", _e.getString("value"));
+                    break;
+                default:
+                    assertEquals("test message", _e.getString("record"));
+            }
+        }
+    }
+
+    @Test
+    public void testEventsOnlyWhileRecorded() throws Exception {
+        final List<RecordedEvent> _events = record(() -> {
+            Logger.logMethodEntry(1);
+            Logger.logMethodExit(1, "N");
+        }, () -> {
+            Logger.logMethodEntry(2);
+            Logger.log("test message");
+        });
+
+        assertEquals(2, _events.size());
+        assertEquals("m1", _events.get(0).getString("method"));
+        assertEquals(0L, _events.get(0).getLong("sequenceNumber"));
+        assertEquals(1L, _events.get(1).getLong("sequenceNumber"));
+    }
+
+    @Test
+    public void testEventsOfThreads() throws Exception {
+        final Runnable _logStmts = () -> {
+            for (int _i = 0; _i < 100; _i++) {
+                Logger.logMethodEntry(1);
+                Logger.logMethodExit(1, "N");
+            }
+        };
+        final List<RecordedEvent> _events = record(() -> {
+            final Thread _t1 = new Thread(_logStmts);
+            final Thread _t2 = new Thread(_logStmts);
+            _t1.start();
+            _t2.start();
+            try {
+                _t1.join();
+                _t2.join();
+            } catch (final InterruptedException _e) {
+                throw new RuntimeException(_e);
+            }
+        });
+
+        assertEquals(400, _events.size());
+        assertEquals(2L, _events.stream().map(e -> e.getThread().getJavaThreadId()).distinct().count());
+        assertEquals(400L, _events.stream().map(e -> e.getLong("sequenceNumber")).distinct().count());
+    }
+
+    @Test
+    public void testJfrOutputWithoutJfr() throws Exception {
+        final File _properties = File.createTempFile("logging", ".properties", new File("build", "tmp"));
+        try (final Writer _writer = new FileWriter(_properties)) {
+            _writer.write("traceOutput=jfr\ntraceFolder=build/tmp\n");
+        }
+        final URL _classes = LoggerInitializer.class.getProtectionDomain().getCodeSource().getLocation();
+        try (final NoJfrClassLoader _loader = new NoJfrClassLoader(_classes, _properties.toURI().toURL())) {
+            final Class<?> _initializer = _loader.loadClass(LoggerInitializer.class.getName());
+            final Method _isJfrAvailable = _initializer.getDeclaredMethod("isJfrAvailable");
+            _isJfrAvailable.setAccessible(true);
+            assertFalse((Boolean) _isJfrAvailable.invoke(null));
+            try {
+                _initializer.getMethod("initialize").invoke(null);
+                fail();
+            } catch (final InvocationTargetException _e) {
+                assertTrue(_e.getCause() instanceof IllegalArgumentException);
+            }
+        } finally {
+            assertTrue(_properties.delete());
+        }
+    }
+
+    // INFO: loads the classes of the logger itself (with the given logging properties) and hides jdk.jfr
+    private static final class NoJfrClassLoader extends URLClassLoader {
+        private final URL properties;
+
+        NoJfrClassLoader(final URL classes, final URL properties) {
+            super(new URL[]{classes}, JfrLogStreamTest.class.getClassLoader());
+            this.properties = properties;
+        }
+
+        @Override
+        protected Class<?> loadClass(final String name, final boolean resolve) throws ClassNotFoundException {
+            if (name.startsWith("jdk.jfr."))
+                throw new ClassNotFoundException(name);
+            if (!name.startsWith("dyco4j.logging."))
+                return super.loadClass(name, resolve);
+
+            synchronized (getClassLoadingLock(name)) {
+                Class<?> _ret = findLoadedClass(name);
+                if (_ret == null)
+                    _ret = findClass(name);
+                if (resolve)
+                    resolveClass(_ret);
+                return _ret;
+            }
+        }
+
+        @Override
+        public URL getResource(final String name) {
+            return name.equals("dyco4j/logging/logging.properties") ? this.properties : super.getResource(name);
+        }
+    }
+}
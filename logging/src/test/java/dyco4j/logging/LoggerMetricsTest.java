@@ -0,0 +1,142 @@
+/*
+ * Copyright (c) 2017, Venkatesh-Prasad Ranganath
+ *
+ * BSD 3-clause License
+ *
+ * Author: Venkatesh-Prasad Ranganath (rvprasad)
+ *
+ */
+package dyco4j.logging;
+
+import org.junit.Test;
+
+import javax.management.MBeanServer;
+import javax.management.ObjectName;
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.OutputStream;
+import java.lang.management.ManagementFactory;
+import java.util.Map;
+import java.util.Properties;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertTrue;
+
+public final class LoggerMetricsTest {
+    private static void logEvents() {
+        for (int _i = 0; _i < 10; _i++) {
+            Logger.logMethodEntry(1);
+            Logger.logArgument((byte) 0, _i);
+            Logger.logMethodCall(2, 0);
+            Logger.logReturn(_i);
+            Logger.logMethodExit(1, "N");
+        }
+    }
+
+    @Test
+    public void testEventCounts() {
+        final LoggerMetrics _metrics = new LoggerMetrics();
+        Logger.initialize(new LoggerConfig(new ByteArrayOutputStream()).setSampler(new Sampler("en:1/2"))
+                .setMetrics(_metrics));
+        logEvents();
+        Logger.cleanupForTest();
+
+        final Map<String, Long> _counts = _metrics.getEventCounts();
+        assertEquals(10L, _counts.get(Logger.METHOD_ENTRY_TAG).longValue());
+        assertEquals(10L, _counts.get(Logger.METHOD_EXIT_TAG).longValue());
+        assertEquals(10L, _counts.get(Logger.METHOD_ARG_TAG).longValue());
+        assertEquals(10L, _counts.get(Logger.METHOD_RETURN_TAG).longValue());
+        assertEquals(10L, _counts.get(Logger.METHOD_CALL_TAG).longValue());
+        assertEquals(0L, _counts.get(Logger.METHOD_EXCEPTION_TAG).longValue());
+        // INFO: the argument, return, and exit of every other entry are dropped along with the entry
+        assertEquals(20L, _metrics.getSampledOutEvents());
+        assertTrue(_metrics.getWriteTime() >= _metrics.getLockWaitTime());
+        assertEquals(0, _metrics.getWriterQueueCapacity());
+    }
+
+    @Test
+    public void testBytes() throws Exception {
+        final LoggerMetrics _metrics = new LoggerMetrics();
+        final ByteArrayOutputStream _logStore = new ByteArrayOutputStream();
+        final TraceCodec _codec = TraceCodec.getCodec("deflate", new Properties());
+        Logger.initialize(new LoggerConfig(_metrics.countUncompressedBytes(_codec.encode(
+                _metrics.countCompressedBytes(_logStore)))).setThreadBufferLength(1000).setMetrics(_metrics));
+        logEvents();
+        assertTrue(_metrics.getThreadBufferedBytes() > 0);
+        Logger.cleanupForTest();
+        assertEquals(0, _metrics.getThreadBufferedBytes());
+
+        final ByteArrayOutputStream _trace = new ByteArrayOutputStream();
+        try (final InputStream _in = _codec.decode(new ByteArrayInputStream(_logStore.toByteArray()))) {
+            final byte[] _tmp = new byte[1024];
+            for (int _n = _in.read(_tmp); _n > 0; _n = _in.read(_tmp))
+                _trace.write(_tmp, 0, _n);
+        }
+        assertEquals(_trace.size(), _metrics.getUncompressedBytes());
+        assertEquals(_logStore.size(), _metrics.getCompressedBytes());
+    }
+
+    @Test
+    public void testDroppedEvents() {
+        final LoggerMetrics _metrics = new LoggerMetrics();
+        final AsyncLogStream _stream = new AsyncLogStream(new ByteArrayOutputStream() {
+            @Override
+            public synchronized void write(final byte[] b, final int off, final int len) {
+                try {
+                    Thread.sleep(10);
+                } catch (final InterruptedException _e) {
+                    Thread.currentThread().interrupt();
+                }
+                super.write(b, off, len);
+            }
+        }, AsyncLogStream.Policy.DROP, 2, 16, 1, _metrics);
+        Logger.initialize(new LoggerConfig(_stream).setMetrics(_metrics));
+        assertEquals(2, _metrics.getWriterQueueCapacity());
+        for (int _i = 0; _i < 100; _i++)
+            Logger.log("test message " + _i);
+        Logger.cleanupForTest();
+
+        assertTrue(_metrics.getDroppedEvents() > 0);
+        assertTrue(_metrics.getDroppedEvents() <= 100);
+    }
+
+    @Test
+    public void testIoFailures() {
+        final LoggerMetrics _metrics = new LoggerMetrics();
+        Logger.initialize(new LoggerConfig(new OutputStream() {
+            @Override
+            public void write(final int b) throws IOException {
+                throw new IOException("disk full");
+            }
+        }).setMetrics(_metrics));
+        // INFO: failed writes are skipped and counted; they are not thrown into the program being logged
+        Logger.log("test message");
+        assertTrue(_metrics.getIoFailures() > 0);
+        final long _tmp = _metrics.getIoFailures();
+        logEvents();
+        Logger.cleanupForTest();
+        assertTrue(_metrics.getIoFailures() > _tmp);
+    }
+
+    @Test
+    public void testMXBean() throws Exception {
+        final LoggerMetrics _metrics = new LoggerMetrics();
+        _metrics.register();
+        try {
+            Logger.initialize(new LoggerConfig(new ByteArrayOutputStream()).setMetrics(_metrics));
+            logEvents();
+            Logger.cleanupForTest();
+
+            final MBeanServer _server = ManagementFactory.getPlatformMBeanServer();
+            final ObjectName _name = new ObjectName(LoggerMetrics.OBJECT_NAME);
+            assertEquals(0L, _server.getAttribute(_name, "SampledOutEvents"));
+            assertEquals(0L, _server.getAttribute(_name, "DroppedEvents"));
+            assertEquals(0L, _server.getAttribute(_name, "IoFailures"));
+            assertTrue(_server.getAttribute(_name, "EventCounts").toString().contains("value=10"));
+        } finally {
+            ManagementFactory.getPlatformMBeanServer().unregisterMBean(new ObjectName(LoggerMetrics.OBJECT_NAME));
+        }
+    }
+}
@@ -12,9 +12,12 @@ import org.junit.After;
 import org.junit.Before;
 import org.junit.Test;
 
-import java.io.PrintWriter;
-import java.io.StringWriter;
+import java.io.ByteArrayOutputStream;
+import java.nio.charset.StandardCharsets;
 import java.text.MessageFormat;
+import java.util.Arrays;
+import java.util.List;
+import java.util.stream.Collectors;
 
 import static org.junit.Assert.assertEquals;
 import static org.junit.Assert.assertNotEquals;
@@ -22,12 +25,12 @@ import static org.junit.Assert.assertTrue;
 
 @SuppressWarnings("ALL")
 public final class LoggerTest {
-    private StringWriter logStore;
+    private ByteArrayOutputStream logStore;
 
     @Before
     public void setUp() throws Exception {
-        logStore = new StringWriter();
-        Logger.initialize(new PrintWriter(logStore));
+        logStore = new ByteArrayOutputStream();
+        Logger.initialize(logStore);
     }
 
     @After
@@ -194,6 +197,58 @@ public final class LoggerTest {
         assertEquals(_expected, getContent()[1]);
     }
 
+    @Test
+    public void testLogMethodCoverage() throws Exception {
+        Logger.logMethodCoverage(7);
+        Logger.logMethodCoverage(3);
+        Logger.logMethodCoverage(7);
+        Logger.log("test 1");
+        Logger.log("test 2");
+        Logger.logMethodCoverage(100000);
+        Logger.logMethodCoverage(3);
+        Logger.cleanupForTest();
+
+        final long _threadId = Thread.currentThread().getId();
+        final String[] _tmp1 = getContent();
+        assertEquals(MessageFormat.format("{0},{1},m3,m7", String.valueOf(_threadId), Logger.METHOD_COVERAGE_TAG),
+                _tmp1[1]);
+        assertEquals(_threadId + ",test 1", _tmp1[2]);
+        assertEquals(_threadId + ",test 2", _tmp1[3]);
+        assertEquals(MessageFormat.format("{0},{1},m3,m100000", String.valueOf(_threadId),
+                Logger.METHOD_COVERAGE_TAG), _tmp1[4]);
+        assertEquals(5, _tmp1.length);
+    }
+
+    @Test
+    public void testLogMethodCoverageWhileDraining() throws Exception {
+        final int _numOfMethods = 4096;
+        final Thread[] _threads = new Thread[4];
+        for (int _i = 0; _i < _threads.length; _i++) {
+            final int _offset = _i;
+            _threads[_i] = new Thread(() -> {
+                for (int _j = _offset; _j < _numOfMethods; _j += _threads.length) {
+                    Logger.logMethodCoverage(_j);
+                    Logger.log("test");
+                }
+            });
+            _threads[_i].start();
+        }
+        for (final Thread _t : _threads)
+            _t.join();
+        Logger.cleanupForTest();
+
+        final boolean[] _covered = new boolean[_numOfMethods];
+        final String _tag = "," + Logger.METHOD_COVERAGE_TAG + ",";
+        for (final String _line : getContent()) {
+            final int _idx = _line.indexOf(_tag);
+            if (_idx > 0)
+                for (final String _id : _line.substring(_idx + _tag.length()).split(","))
+                    _covered[Integer.parseInt(_id.substring(1))] = true;
+        }
+        for (int _i = 0; _i < _numOfMethods; _i++)
+            assertTrue("m" + _i, _covered[_i]);
+    }
+
     @Test
     public void testLogStringForIdenticalLogStmts() throws Exception {
         final String _msg1 = "test message 1";
@@ -216,6 +271,72 @@ public final class LoggerTest {
         assertEquals(_expected4, _tmp1[4]);
     }
 
+    @Test
+    public void testLogStringForIdenticalLogStmtsWithThreadBuffers() throws Exception {
+        logStore = new ByteArrayOutputStream();
+        Logger.initialize(new LoggerConfig(logStore).setThreadBufferLength(1000));
+        final String _msg1 = "test message 1";
+        Logger.log(_msg1);
+        Logger.log(_msg1);
+        Logger.log(_msg1);
+        final String _msg2 = "test message 2";
+        Logger.log(_msg2);
+        Logger.log(_msg2);
+        assertEquals(1, getContent().length);
+        Logger.cleanupForTest();
+
+        final String[] _tmp1 = getContent();
+        final String _expected1 = MessageFormat.format("{0},{1}", Thread.currentThread().getId(), _msg1);
+        assertEquals(_expected1, _tmp1[1]);
+        final String _expected2 = MessageFormat.format("{0},{1},2", Thread.currentThread().getId(), _msg1);
+        assertEquals(_expected2, _tmp1[2]);
+        final String _expected3 = MessageFormat.format("{0},{1}", Thread.currentThread().getId(), _msg2);
+        assertEquals(_expected3, _tmp1[3]);
+        final String _expected4 = MessageFormat.format("{0},{1},1", Thread.currentThread().getId(), _msg2);
+        assertEquals(_expected4, _tmp1[4]);
+    }
+
+    @Test
+    public void testLogStringForFullThreadBuffer() throws Exception {
+        logStore = new ByteArrayOutputStream();
+        Logger.initialize(new LoggerConfig(logStore).setThreadBufferLength(1));
+        final String _msg = "test message";
+        Logger.log(_msg);
+
+        final String _expected = MessageFormat.format("{0},{1}", Thread.currentThread().getId(), _msg);
+        assertEquals(_expected, getContent()[1]);
+    }
+
+    @Test
+    public void testLogStringForMultipleThreadsWithThreadBuffers() throws Exception {
+        logStore = new ByteArrayOutputStream();
+        Logger.initialize(new LoggerConfig(logStore).setThreadBufferLength(10));
+        final Runnable _r = () -> {
+            for (int _i = 0; _i < 100; _i++) {
+                Logger.log("test message " + _i);
+                Logger.log("test message " + _i);
+            }
+        };
+        final Thread _t1 = new Thread(_r);
+        final Thread _t2 = new Thread(_r);
+        _t1.start();
+        _t2.start();
+        _t1.join();
+        _t2.join();
+        Logger.cleanupForTest();
+
+        final List<String> _lines = Arrays.asList(getContent());
+        for (final Thread _t : Arrays.asList(_t1, _t2)) {
+            final String _prefix = _t.getId() + ",";
+            final List<String> _tmp = _lines.stream().filter(l -> l.startsWith(_prefix)).collect(Collectors.toList());
+            assertEquals(200, _tmp.size());
+            for (int _i = 0; _i < 100; _i++) {
+                assertEquals(MessageFormat.format("{0}test message {1}", _prefix, _i), _tmp.get(2 * _i));
+                assertEquals(MessageFormat.format("{0}test message {1},1", _prefix, _i), _tmp.get(2 * _i + 1));
+            }
+        }
+    }
+
     @Test
     public void testLogVarArgsForMultipleLogStmts() throws Exception {
         final String[] _msg1 = new String[]{"test", "message", "1"};
@@ -244,6 +365,48 @@ public final class LoggerTest {
         assertEquals(_expected, getContent()[1]);
     }
 
+    @Test
+    public void testTypedLogMethodsMatchStringLogMethods() throws Exception {
+        final Object _receiver = new Object();
+        final int[] _array = new int[1];
+        final Exception _exception = new RuntimeException();
+
+        Logger.logMethodEntry(3);
+        Logger.logArgument((byte) 0, (Object) Logger.UNINITIALIZED_THIS);
+        Logger.logArgument((byte) 1, 'c');
+        Logger.logArgument((byte) 2, -1.5f);
+        Logger.logMethodCall(4, 1234);
+        Logger.logField(null, true, 5, Logger.FieldAction.PUTF);
+        Logger.logField(_receiver, Long.MIN_VALUE, 6, Logger.FieldAction.GETF);
+        Logger.logArray(_array, 0, (short) -7, Logger.ArrayAction.PUTA);
+        Logger.logArray(_array, 1, (Object) null, Logger.ArrayAction.GETA);
+        Logger.logException(_exception);
+        Logger.logReturn(Double.MIN_VALUE);
+        Logger.logReturn((byte) 8);
+        Logger.logMethodExit(3, "E");
+        final String[] _typed = getContent();
+
+        setUp();
+        Logger.logMethodEntry("m3");
+        Logger.logArgument((byte) 0, Logger.toString((Object) Logger.UNINITIALIZED_THIS));
+        Logger.logArgument((byte) 1, Logger.toString('c'));
+        Logger.logArgument((byte) 2, Logger.toString(-1.5f));
+        Logger.logMethodCall("m4,1234");
+        Logger.logField(null, Logger.toString(true), "f5", Logger.FieldAction.PUTF);
+        Logger.logField(_receiver, Logger.toString(Long.MIN_VALUE), "f6", Logger.FieldAction.GETF);
+        Logger.logArray(_array, 0, Logger.toString((short) -7), Logger.ArrayAction.PUTA);
+        Logger.logArray(_array, 1, Logger.toString((Object) null), Logger.ArrayAction.GETA);
+        Logger.logException(_exception);
+        Logger.logReturn(Logger.toString(Double.MIN_VALUE));
+        Logger.logReturn(Logger.toString((byte) 8));
+        Logger.logMethodExit("m3", "E");
+        final String[] _untyped = getContent();
+
+        assertEquals(14, _typed.length);
+        for (int _i = 1; _i < _typed.length; _i++)
+            assertEquals(_untyped[_i], _typed[_i]);
+    }
+
     @Test
     public void testToStringWithBoolean() throws Exception {
         final boolean _tmp1 = true;
@@ -350,6 +513,6 @@ public final class LoggerTest {
     }
 
     private String[] getContent() {
-        return logStore.toString().split(System.lineSeparator());
+        return new String(logStore.toByteArray(), StandardCharsets.UTF_8).split(System.lineSeparator());
     }
 }
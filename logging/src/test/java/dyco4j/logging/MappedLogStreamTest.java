@@ -0,0 +1,62 @@
+/*
+ * Copyright (c) 2017, Venkatesh-Prasad Ranganath
+ *
+ * BSD 3-clause License
+ *
+ * Author: Venkatesh-Prasad Ranganath (rvprasad)
+ *
+ */
+package dyco4j.logging;
+
+import org.junit.After;
+import org.junit.Before;
+import org.junit.Test;
+
+import java.io.File;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertTrue;
+
+public final class MappedLogStreamTest {
+    private File traceFile;
+
+    @Before
+    public void setUp() throws Exception {
+        traceFile = File.createTempFile("trace_", "", new File("build", "tmp"));
+    }
+
+    @After
+    public void tearDown() throws Exception {
+        assertTrue(traceFile.delete());
+    }
+
+    @Test
+    public void testLogAcrossSegments() throws Exception {
+        Logger.initialize(new MappedLogStream(traceFile, 16));
+        for (int _i = 0; _i < 100; _i++)
+            Logger.log("test message " + _i);
+        Logger.cleanupForTest();
+
+        final String[] _tmp = new String(Files.readAllBytes(traceFile.toPath()), StandardCharsets.UTF_8)
+                .split(System.lineSeparator());
+        assertEquals(101, _tmp.length);
+        for (int _i = 0; _i < 100; _i++)
+            assertEquals(Thread.currentThread().getId() + ",test message " + _i, _tmp[_i + 1]);
+    }
+
+    @Test
+    public void testTraceIsReadableBeforeClose() throws Exception {
+        final MappedLogStream _stream = new MappedLogStream(traceFile, 1024);
+        Logger.initialize(_stream);
+        Logger.log("test message 1");
+        Logger.log("test message 2");
+
+        final String _expected = Thread.currentThread().getId() + ",test message 1";
+        final byte[] _bytes = Files.readAllBytes(traceFile.toPath());
+        assertEquals(1024, _bytes.length);
+        assertEquals(_expected, new String(_bytes, StandardCharsets.UTF_8).split(System.lineSeparator())[1]);
+        Logger.cleanupForTest();
+    }
+}
@@ -0,0 +1,100 @@
+/*
+ * Copyright (c) 2017, Venkatesh-Prasad Ranganath
+ *
+ * BSD 3-clause License
+ *
+ * Author: Venkatesh-Prasad Ranganath (rvprasad)
+ *
+ */
+package dyco4j.logging;
+
+import org.junit.Test;
+
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.nio.charset.StandardCharsets;
+import java.util.zip.Deflater;
+import java.util.zip.GZIPInputStream;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertTrue;
+
+public final class ParallelGzipStreamTest {
+    private static byte[] decompress(final byte[] bytes) throws IOException {
+        final ByteArrayOutputStream _ret = new ByteArrayOutputStream();
+        try (final InputStream _in = new GZIPInputStream(new ByteArrayInputStream(bytes))) {
+            final byte[] _tmp = new byte[4096];
+            for (int _len = _in.read(_tmp); _len != -1; _len = _in.read(_tmp))
+                _ret.write(_tmp, 0, _len);
+        }
+        return _ret.toByteArray();
+    }
+
+    // INFO: every gzip member starts with the magic bytes followed by the deflate method and no flags
+    private static int getNumOfMembers(final byte[] bytes) {
+        int _ret = 0;
+        for (int _i = 0; _i < bytes.length - 3; _i++)
+            if (bytes[_i] == 0x1f && bytes[_i + 1] == (byte) 0x8b && bytes[_i + 2] == 8 && bytes[_i + 3] == 0)
+                _ret++;
+        return _ret;
+    }
+
+    @Test
+    public void testLogIsReadAsSingleGzipStream() throws Exception {
+        final ByteArrayOutputStream _logStore = new ByteArrayOutputStream();
+        Logger.initialize(new ParallelGzipStream(_logStore, Deflater.BEST_SPEED, 1000, 4));
+        for (int _i = 0; _i < 1000; _i++)
+            Logger.log("test message " + _i);
+        Logger.cleanupForTest();
+
+        final byte[] _compressed = _logStore.toByteArray();
+        assertTrue(getNumOfMembers(_compressed) > 10);
+        final String[] _tmp = new String(decompress(_compressed), StandardCharsets.UTF_8)
+                .split(System.lineSeparator());
+        assertEquals(1001, _tmp.length);
+        for (int _i = 0; _i < 1000; _i++)
+            assertEquals(Thread.currentThread().getId() + ",test message " + _i, _tmp[_i + 1]);
+    }
+
+    @Test
+    public void testWritesAcrossBlocksAndFlushes() throws Exception {
+        final ByteArrayOutputStream _expected = new ByteArrayOutputStream();
+        final ByteArrayOutputStream _tmp = new ByteArrayOutputStream();
+        try (final ParallelGzipStream _stream = new ParallelGzipStream(_tmp, Deflater.DEFAULT_COMPRESSION, 7, 2)) {
+            for (int _i = 0; _i < 500; _i++) {
+                final byte[] _bytes = ("chunk " + _i).getBytes(StandardCharsets.US_ASCII);
+                _stream.write(_bytes, 0, _bytes.length);
+                _stream.write('\n');
+                _expected.write(_bytes, 0, _bytes.length);
+                _expected.write('\n');
+                if (_i % 100 == 0) {
+                    _stream.flush();
+                    assertEquals(_expected.size(), decompress(_tmp.toByteArray()).length);
+                }
+            }
+        }
+        assertEquals(new String(_expected.toByteArray(), StandardCharsets.US_ASCII),
+                new String(decompress(_tmp.toByteArray()), StandardCharsets.US_ASCII));
+    }
+
+    @Test
+    public void testCompressionLevel() throws Exception {
+        final byte[] _bytes = new byte[100000];
+        for (int _i = 0; _i < _bytes.length; _i++)
+            _bytes[_i] = (byte) (_i % 251);
+
+        final ByteArrayOutputStream _stored = new ByteArrayOutputStream();
+        try (final ParallelGzipStream _stream = new ParallelGzipStream(_stored, Deflater.NO_COMPRESSION, 10000, 2)) {
+            _stream.write(_bytes);
+        }
+        final ByteArrayOutputStream _compressed = new ByteArrayOutputStream();
+        try (final ParallelGzipStream _stream = new ParallelGzipStream(_compressed, Deflater.BEST_COMPRESSION, 10000,
+                2)) {
+            _stream.write(_bytes);
+        }
+        assertTrue(_stored.size() > _bytes.length);
+        assertTrue(_compressed.size() < _bytes.length / 10);
+    }
+}
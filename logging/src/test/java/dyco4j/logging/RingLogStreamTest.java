@@ -0,0 +1,156 @@
+/*
+ * Copyright (c) 2017, Venkatesh-Prasad Ranganath
+ *
+ * BSD 3-clause License
+ *
+ * Author: Venkatesh-Prasad Ranganath (rvprasad)
+ *
+ */
+package dyco4j.logging;
+
+import org.junit.Test;
+
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.File;
+import java.io.StringWriter;
+import java.nio.charset.StandardCharsets;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertTrue;
+
+public final class RingLogStreamTest {
+    private static final int NUM_OF_STMTS = 500;
+
+    private static RingLogStream createRing(final int capacity, final Set<String> dumpExceptions,
+                                            final Map<File, ByteArrayOutputStream> dumps) {
+        return new RingLogStream(capacity, i -> new File("dump_" + i),
+                f -> dumps.computeIfAbsent(f, k -> new ByteArrayOutputStream()), dumpExceptions, true);
+    }
+
+    private static String getDump(final Map<File, ByteArrayOutputStream> dumps, final int i) {
+        return new String(dumps.get(new File("dump_" + i)).toByteArray(), StandardCharsets.UTF_8);
+    }
+
+    private static void write(final RingLogStream ring, final String s) throws Exception {
+        final byte[] _tmp = s.getBytes(StandardCharsets.UTF_8);
+        ring.write(_tmp, 0, _tmp.length);
+    }
+
+    private static LogBuffer getHeader() {
+        final LogBuffer _ret = new LogBuffer(1);
+        _ret.put((byte) 'H');
+        return _ret;
+    }
+
+    // INFO: checks that the dump has a header followed by a suffix of the logged statements
+    private static void checkDump(final String dump) {
+        final List<String> _lines = Arrays.asList(dump.split(System.lineSeparator()));
+        assertTrue(_lines.get(0).matches("^\\D.*\\d{4}$"));
+        final List<String> _stmts = _lines.subList(1, _lines.size());
+        assertTrue(_stmts.size() > 10);
+        assertTrue(_stmts.size() < NUM_OF_STMTS);
+
+        final int _offset = NUM_OF_STMTS - _stmts.size();
+        for (int _i = 0; _i < _stmts.size(); _i++)
+            assertEquals(Thread.currentThread().getId() + ",test message " + (_i + _offset), _stmts.get(_i));
+    }
+
+    private static void logStmts() {
+        for (int _i = 0; _i < NUM_OF_STMTS; _i++)
+            Logger.log("test message " + _i);
+    }
+
+    @Test
+    public void testEvictionOfWholeSegments() throws Exception {
+        final Map<File, ByteArrayOutputStream> _dumps = new LinkedHashMap<>();
+        final RingLogStream _ring = createRing(10, Collections.emptySet(), _dumps);
+        write(_ring, "aaaa");
+        _ring.rotate(0);
+        write(_ring, "bbbb");
+        _ring.rotate(0);
+        write(_ring, "cc");
+        _ring.dump(getHeader());
+        assertEquals("Haaaabbbbcc", getDump(_dumps, 0));
+
+        // INFO: the oldest segment is overwritten as a whole and the latest segment wraps around the end of the ring
+        write(_ring, "cc");
+        _ring.dump(getHeader());
+        assertEquals("Hbbbbcccc", getDump(_dumps, 1));
+    }
+
+    @Test
+    public void testOversizedWritesAreDropped() throws Exception {
+        final Map<File, ByteArrayOutputStream> _dumps = new LinkedHashMap<>();
+        final RingLogStream _ring = createRing(8, Collections.emptySet(), _dumps);
+        write(_ring, "aaaa");
+        _ring.rotate(0);
+        write(_ring, "bbbbbbbbb");
+        write(_ring, "cc");
+        _ring.dump(getHeader());
+        assertEquals("Haaaacc", getDump(_dumps, 0));
+    }
+
+    @Test
+    public void testTextDumpOnExit() throws Exception {
+        final Map<File, ByteArrayOutputStream> _dumps = new LinkedHashMap<>();
+        Logger.initialize(new LoggerConfig(createRing(1024, Collections.emptySet(), _dumps)).setSegmentLength(128));
+        logStmts();
+        Logger.cleanupForTest();
+
+        assertEquals(1, _dumps.size());
+        checkDump(getDump(_dumps, 0));
+    }
+
+    @Test
+    public void testBinaryDumpWithThreadBuffers() throws Exception {
+        final Map<File, ByteArrayOutputStream> _dumps = new LinkedHashMap<>();
+        Logger.initialize(new LoggerConfig(createRing(1024, Collections.emptySet(), _dumps))
+                .setFormat(new BinaryTraceFormat()).setThreadBufferLength(100).setSegmentLength(128));
+        logStmts();
+        final File _dump = Logger.dump();
+        Logger.cleanupForTest();
+
+        assertEquals(2, _dumps.size());
+        for (final ByteArrayOutputStream _tmp : _dumps.values()) {
+            final StringWriter _trace = new StringWriter();
+            BinaryTraceDecoder.decode(new ByteArrayInputStream(_tmp.toByteArray()), _trace);
+            checkDump(_trace.toString());
+        }
+        assertEquals(new File("dump_0"), _dump);
+    }
+
+    @Test
+    public void testDumpOnException() throws Exception {
+        final Map<File, ByteArrayOutputStream> _dumps = new LinkedHashMap<>();
+        Logger.initialize(new LoggerConfig(createRing(1024, Collections.singleton("java.lang.RuntimeException"),
+                _dumps)).setSegmentLength(128));
+        logStmts();
+        Logger.logException(new Exception());
+        assertTrue(_dumps.isEmpty());
+        Logger.logException(new IllegalStateException());
+        assertEquals(1, _dumps.size());
+        // INFO: dumps triggered by exceptions are throttled
+        Logger.logException(new IllegalStateException());
+        assertEquals(1, _dumps.size());
+        Logger.cleanupForTest();
+
+        final List<String> _lines = new ArrayList<>(Arrays.asList(getDump(_dumps, 0).split(
+                System.lineSeparator())));
+        assertTrue(_lines.remove(_lines.size() - 1).endsWith(",java.lang.IllegalStateException"));
+        assertTrue(_lines.remove(_lines.size() - 1).endsWith(",java.lang.Exception"));
+        checkDump(String.join(System.lineSeparator(), _lines));
+    }
+
+    @Test(expected = IllegalArgumentException.class)
+    public void testRingWithoutSegments() {
+        Logger.initialize(createRing(1024, Collections.emptySet(), new LinkedHashMap<>()));
+    }
+}
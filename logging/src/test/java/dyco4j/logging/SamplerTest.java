@@ -0,0 +1,141 @@
+/*
+ * Copyright (c) 2017, Venkatesh-Prasad Ranganath
+ *
+ * BSD 3-clause License
+ *
+ * Author: Venkatesh-Prasad Ranganath (rvprasad)
+ *
+ */
+package dyco4j.logging;
+
+import org.junit.Test;
+
+import java.io.ByteArrayOutputStream;
+import java.nio.charset.StandardCharsets;
+import java.util.ArrayDeque;
+import java.util.Arrays;
+import java.util.Deque;
+import java.util.List;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertTrue;
+
+public final class SamplerTest {
+    private static List<String> getLogStmts(final Runnable r, final String rules, final int threadBufferLength) {
+        final ByteArrayOutputStream _logStore = new ByteArrayOutputStream();
+        Logger.initialize(new LoggerConfig(_logStore).setThreadBufferLength(threadBufferLength)
+                .setSampler(new Sampler(rules)));
+        r.run();
+        Logger.cleanupForTest();
+        final String[] _lines = new String(_logStore.toByteArray(), StandardCharsets.UTF_8)
+                .split(System.lineSeparator());
+        final String _prefix = Thread.currentThread().getId() + ",";
+        final List<String> _ret = Arrays.asList(Arrays.copyOfRange(_lines, 1, _lines.length));
+        _ret.replaceAll(s -> s.substring(_prefix.length()));
+        return _ret;
+    }
+
+    private static long count(final List<String> stmts, final String prefix) {
+        return stmts.stream().filter(s -> s.startsWith(prefix)).count();
+    }
+
+    private static void assertWellNested(final List<String> stmts) {
+        final Deque<String> _stack = new ArrayDeque<>();
+        for (final String _stmt : stmts) {
+            final String[] _tmp = _stmt.split(",");
+            if (_tmp[0].equals(Logger.METHOD_ENTRY_TAG))
+                _stack.push(_tmp[1]);
+            else if (_tmp[0].equals(Logger.METHOD_EXIT_TAG))
+                assertEquals(_stack.pop(), _tmp[1]);
+            else if (_tmp[0].equals(Logger.METHOD_ARG_TAG) || _tmp[0].equals(Logger.METHOD_RETURN_TAG))
+                assertTrue(!_stack.isEmpty());
+        }
+        assertTrue(_stack.isEmpty());
+    }
+
+    private static void callMethods() {
+        for (int _i = 0; _i < 10; _i++) {
+            Logger.logMethodEntry(1);
+            Logger.logArgument((byte) 0, _i);
+            Logger.logMethodCall(2, 0);
+            Logger.logMethodEntry(2);
+            Logger.logArgument((byte) 0, -_i);
+            Logger.logReturn(_i);
+            Logger.logMethodExit(2, "N");
+            Logger.logReturn(-_i);
+            Logger.logMethodExit(1, "N");
+        }
+    }
+
+    private static void checkMethodSampling(final int threadBufferLength) {
+        final List<String> _stmts = getLogStmts(SamplerTest::callMethods, "m1:1/5", threadBufferLength);
+        assertWellNested(_stmts);
+        assertEquals(2, count(_stmts, "en,m1"));
+        assertEquals(2, count(_stmts, "ex,m1"));
+        assertEquals(10, count(_stmts, "en,m2"));
+        assertEquals(10, count(_stmts, "ex,m2"));
+        assertEquals(10, count(_stmts, "ca,m2"));
+        assertEquals(12, count(_stmts, "ar,"));
+        assertEquals(12, count(_stmts, "re,"));
+        assertEquals(Arrays.asList("en,m1", "ar,0,i:0", "ca,m2,0", "en,m2", "ar,0,i:0", "re,i:0", "ex,m2,N",
+                "re,i:0", "ex,m1,N", "ca,m2,0", "en,m2", "ar,0,i:-1"), _stmts.subList(0, 12));
+    }
+
+    @Test
+    public void testMethodSamplingIsWellNested() {
+        checkMethodSampling(0);
+    }
+
+    @Test
+    public void testMethodSamplingWithThreadBuffers() {
+        checkMethodSampling(64);
+    }
+
+    @Test
+    public void testEventKindSampling() {
+        final List<String> _stmts = getLogStmts(() -> {
+            final int[] _array = new int[10];
+            for (int _i = 0; _i < 10; _i++) {
+                Logger.logArray(_array, _i, _i, Logger.ArrayAction.PUTA);
+                Logger.logArray(_array, _i, _i, Logger.ArrayAction.GETA);
+                Logger.logField(null, _i, 3, Logger.FieldAction.GETF);
+                Logger.logMethodEntry("m" + _i);
+                Logger.logReturn(_i);
+                Logger.logMethodExit("m" + _i, "N");
+            }
+        }, "GETA:1/4, GETF:1/10, re:1/2, en:1/3, m4:1/1", 0);
+        assertWellNested(_stmts);
+        assertEquals(10, count(_stmts, "PUTA"));
+        assertEquals(3, count(_stmts, "GETA"));
+        assertEquals(1, count(_stmts, "GETF"));
+        assertEquals(Arrays.asList("en,m0", "re,i:0", "en,m3", "en,m4", "re,i:4", "en,m7"),
+                _stmts.stream().filter(s -> s.startsWith("en") || s.startsWith("re"))
+                      .collect(java.util.stream.Collectors.toList()));
+    }
+
+    @Test
+    public void testRateLimit() {
+        final List<String> _stmts = getLogStmts(() -> {
+            for (int _i = 0; _i < 1000; _i++) {
+                Logger.logMethodEntry(3);
+                Logger.logArgument((byte) 0, _i);
+                Logger.logMethodExit(3, "N");
+            }
+        }, "m3:5/s", 0);
+        assertWellNested(_stmts);
+        // INFO: logging may straddle two seconds
+        final long _tmp = count(_stmts, "en,m3");
+        assertTrue(_tmp >= 5 && _tmp <= 10);
+        assertEquals(_tmp, count(_stmts, "ar,"));
+    }
+
+    @Test(expected = IllegalArgumentException.class)
+    public void testInvalidRule() {
+        new Sampler("m1:2/5");
+    }
+
+    @Test(expected = IllegalArgumentException.class)
+    public void testUnknownEventKind() {
+        new Sampler("XYZ:1/5");
+    }
+}
@@ -0,0 +1,139 @@
+/*
+ * Copyright (c) 2017, Venkatesh-Prasad Ranganath
+ *
+ * BSD 3-clause License
+ *
+ * Author: Venkatesh-Prasad Ranganath (rvprasad)
+ *
+ */
+package dyco4j.logging;
+
+import org.junit.Test;
+
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.File;
+import java.io.FileOutputStream;
+import java.io.StringWriter;
+import java.nio.charset.StandardCharsets;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertTrue;
+
+public final class SegmentedLogStreamTest {
+    private static final int NUM_OF_STMTS = 500;
+
+    private static void logStmts() {
+        for (int _i = 0; _i < NUM_OF_STMTS; _i++)
+            Logger.log("test message " + _i / 3);
+    }
+
+    // INFO: expands repeats so that the log statements of segments can be compared with the logged statements
+    private static List<String> getLogStmts(final String segment) {
+        final List<String> _ret = new ArrayList<>();
+        final String[] _lines = segment.split(System.lineSeparator());
+        for (int _i = 1; _i < _lines.length; _i++) {
+            final String[] _tmp = _lines[_i].split(",");
+            final String _stmt = _tmp[0] + "," + _tmp[1];
+            final int _freq = _tmp.length == 3 ? Integer.parseInt(_tmp[2]) : 1;
+            for (int _j = 0; _j < _freq; _j++)
+                _ret.add(_stmt);
+        }
+        return _ret;
+    }
+
+    private static List<String> getExpectedLogStmts() {
+        final List<String> _ret = new ArrayList<>();
+        for (int _i = 0; _i < NUM_OF_STMTS; _i++)
+            _ret.add(Thread.currentThread().getId() + ",test message " + _i / 3);
+        return _ret;
+    }
+
+    private static Map<File, ByteArrayOutputStream> logIntoSegments(final TraceFormat format,
+                                                                    final int threadBufferLength) throws Exception {
+        final Map<File, ByteArrayOutputStream> _segments = new LinkedHashMap<>();
+        // INFO: the first segment is opened on a background thread
+        final SegmentedLogStream _stream = new SegmentedLogStream(i -> new File("segment_" + i),
+                f -> _segments.computeIfAbsent(f, k -> new ByteArrayOutputStream()), 0, 1024, null);
+        Logger.initialize(new LoggerConfig(_stream).setFormat(format).setThreadBufferLength(threadBufferLength)
+                .setSegmentLength(256));
+        logStmts();
+        Logger.cleanupForTest();
+        return _segments;
+    }
+
+    @Test
+    public void testSegmentsBySize() throws Exception {
+        final Map<File, ByteArrayOutputStream> _segments = logIntoSegments(new TextTraceFormat(), 0);
+        assertTrue(_segments.size() > 10);
+
+        final List<String> _stmts = new ArrayList<>();
+        for (final ByteArrayOutputStream _segment : _segments.values()) {
+            final String _tmp = new String(_segment.toByteArray(), StandardCharsets.UTF_8);
+            assertTrue(_tmp.split(System.lineSeparator())[0].matches("^\\D.*\\d{4}$"));
+            _stmts.addAll(getLogStmts(_tmp));
+        }
+        assertEquals(getExpectedLogStmts(), _stmts);
+    }
+
+    @Test
+    public void testBinarySegmentsWithThreadBuffersAreIndependent() throws Exception {
+        final Map<File, ByteArrayOutputStream> _segments = logIntoSegments(new BinaryTraceFormat(), 100);
+        assertTrue(_segments.size() > 10);
+
+        final List<String> _stmts = new ArrayList<>();
+        for (final ByteArrayOutputStream _segment : _segments.values()) {
+            final StringWriter _tmp = new StringWriter();
+            BinaryTraceDecoder.decode(new ByteArrayInputStream(_segment.toByteArray()), _tmp);
+            _stmts.addAll(getLogStmts(_tmp.toString()));
+        }
+        assertEquals(getExpectedLogStmts(), _stmts);
+    }
+
+    @Test
+    public void testSegmentsByInterval() throws Exception {
+        final Map<File, ByteArrayOutputStream> _segments = new LinkedHashMap<>();
+        final SegmentedLogStream _stream = new SegmentedLogStream(i -> new File("segment_" + i),
+                f -> _segments.computeIfAbsent(f, k -> new ByteArrayOutputStream()), 0, 0, null);
+        Logger.initialize(new LoggerConfig(_stream).setSegmentInterval(50));
+        Logger.log("test message 1");
+        Thread.sleep(100);
+        Logger.log("test message 2");
+        Logger.cleanupForTest();
+
+        assertEquals(2, _segments.size());
+        final String _prefix = Thread.currentThread().getId() + ",";
+        assertEquals(Arrays.asList(_prefix + "test message 1"),
+                getLogStmts(new String(_segments.get(new File("segment_0")).toByteArray(), StandardCharsets.UTF_8)));
+        assertEquals(Arrays.asList(_prefix + "test message 2"),
+                getLogStmts(new String(_segments.get(new File("segment_1")).toByteArray(), StandardCharsets.UTF_8)));
+    }
+
+    @Test
+    public void testRetention() throws Exception {
+        final File _folder = new File("build", "tmp");
+        final SegmentedLogStream _stream = new SegmentedLogStream(i -> new File(_folder, "segment_" + i),
+                f -> new FileOutputStream(f), 2, 0, null);
+        Logger.initialize(new LoggerConfig(_stream).setSegmentLength(256));
+        logStmts();
+        Logger.cleanupForTest();
+
+        final File[] _files = _folder.listFiles((d, n) -> n.startsWith("segment_"));
+        assertEquals(2, _files.length);
+        Arrays.sort(_files, (f1, f2) -> Long.compare(f1.length(), f2.length()));
+        for (final File _file : _files) {
+            assertTrue(Integer.parseInt(_file.getName().substring("segment_".length())) > 10);
+            assertTrue(_file.delete());
+        }
+    }
+
+    @Test(expected = IllegalArgumentException.class)
+    public void testSegmentsWithoutSegmentedLogStream() throws Exception {
+        Logger.initialize(new LoggerConfig(new ByteArrayOutputStream()).setSegmentLength(256));
+    }
+}
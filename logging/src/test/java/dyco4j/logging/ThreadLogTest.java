@@ -0,0 +1,159 @@
+/*
+ * Copyright (c) 2017, Venkatesh-Prasad Ranganath
+ *
+ * BSD 3-clause License
+ *
+ * Author: Venkatesh-Prasad Ranganath (rvprasad)
+ *
+ */
+package dyco4j.logging;
+
+import org.junit.Test;
+
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.io.StringWriter;
+import java.nio.charset.StandardCharsets;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import java.util.Random;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertTrue;
+
+public final class ThreadLogTest {
+    private static String getTrace(final Runnable r, final TraceFormat format, final int maxSequenceLength)
+            throws IOException {
+        final ByteArrayOutputStream _logStore = new ByteArrayOutputStream();
+        Logger.initialize(new LoggerConfig(_logStore).setFormat(format).setThreadBufferLength(64)
+                .setMaxSequenceLength(maxSequenceLength));
+        r.run();
+        Logger.cleanupForTest();
+        if (format instanceof TextTraceFormat)
+            return new String(_logStore.toByteArray(), StandardCharsets.UTF_8);
+
+        final StringWriter _tmp = new StringWriter();
+        BinaryTraceDecoder.decode(new ByteArrayInputStream(_logStore.toByteArray()), _tmp);
+        return _tmp.toString();
+    }
+
+    private static List<String> getLines(final String trace) {
+        final String[] _lines = trace.split(System.lineSeparator());
+        final String _prefix = Thread.currentThread().getId() + ",";
+        final List<String> _ret = new ArrayList<>();
+        for (int _i = 1; _i < _lines.length; _i++)
+            _ret.add(_lines[_i].substring(_prefix.length()));
+        return _ret;
+    }
+
+    // INFO: only method entries (en,m<n>) and exits (ex,m<n>,N) are logged by the tests
+    private static List<String> expand(final List<String> lines) {
+        final List<String> _ret = new ArrayList<>();
+        for (final String _line : lines) {
+            final String[] _tmp = _line.split(",");
+            if (_tmp[0].equals(Logger.SEQUENCE_REPEAT_TAG)) {
+                final int _length = Integer.parseInt(_tmp[1]);
+                final List<String> _sequence = new ArrayList<>(_ret.subList(_ret.size() - _length, _ret.size()));
+                for (int _i = Integer.parseInt(_tmp[2]); _i > 0; _i--)
+                    _ret.addAll(_sequence);
+            } else if (_tmp.length == (_tmp[0].equals(Logger.METHOD_ENTRY_TAG) ? 3 : 4)) {
+                final String _record = _line.substring(0, _line.lastIndexOf(','));
+                for (int _i = Integer.parseInt(_tmp[_tmp.length - 1]); _i > 0; _i--)
+                    _ret.add(_record);
+            } else {
+                _ret.add(_line);
+            }
+        }
+        return _ret;
+    }
+
+    private static void callGetters() {
+        for (int _i = 0; _i < 100; _i++) {
+            Logger.logMethodEntry(1);
+            Logger.logMethodExit(1, "N");
+        }
+        for (int _i = 0; _i < 50; _i++) {
+            Logger.logMethodEntry(2);
+            Logger.logMethodEntry(3);
+            Logger.logMethodExit(3, "N");
+            Logger.logMethodEntry(3);
+            Logger.logMethodExit(3, "N");
+            Logger.logMethodExit(2, "N");
+        }
+    }
+
+    private static void callRandomMethods() {
+        final Random _random = new Random(0);
+        for (int _i = 0; _i < 5000; _i++) {
+            final int _tmp = _random.nextInt(6);
+            final int _count = _random.nextInt(3) == 0 ? _random.nextInt(20) : 1;
+            for (int _j = 0; _j < _count; _j++) {
+                if (_tmp < 3) {
+                    Logger.logMethodEntry(_tmp);
+                } else {
+                    Logger.logMethodEntry(_tmp);
+                    Logger.logMethodExit(_tmp, "N");
+                    Logger.logMethodEntry(_tmp + 1);
+                }
+            }
+        }
+    }
+
+    @Test
+    public void testRepeatedSequencesOfLoops() throws Exception {
+        for (final TraceFormat _format : Arrays.asList(new TextTraceFormat(), new BinaryTraceFormat())) {
+            final List<String> _lines = getLines(getTrace(ThreadLogTest::callGetters, _format, 8));
+            assertEquals(Arrays.asList("en,m1", "ex,m1,N", "rp,2,99", "en,m2", "en,m3", "ex,m3,N", "rp,2,1",
+                    "ex,m2,N", "rp,6,49"), _lines);
+        }
+    }
+
+    @Test
+    public void testRepeatedSequencesAreLossless() throws Exception {
+        final List<String> _expected = expand(getLines(getTrace(ThreadLogTest::callRandomMethods,
+                new TextTraceFormat(), 1)));
+        assertTrue(_expected.size() > 10000);
+        for (final TraceFormat _format : Arrays.asList(new TextTraceFormat(), new BinaryTraceFormat())) {
+            for (final int _maxSequenceLength : Arrays.asList(2, 3, 8, ThreadLog.MAX_SEQUENCE_LENGTH)) {
+                final List<String> _lines = getLines(getTrace(ThreadLogTest::callRandomMethods, _format,
+                        _maxSequenceLength));
+                assertEquals(_expected, expand(_lines));
+            }
+        }
+    }
+
+    @Test
+    public void testRepeatedSequencesAreLosslessWhileFlushed() throws Exception {
+        final List<String> _expected = expand(getLines(getTrace(ThreadLogTest::callRandomMethods,
+                new TextTraceFormat(), 1)));
+        final List<String> _lines = getLines(getTrace(() -> {
+            final Thread _flusher = new Thread(() -> {
+                while (!Thread.currentThread().isInterrupted())
+                    Logger.flushThreadLogsForTest();
+            });
+            _flusher.start();
+            callRandomMethods();
+            _flusher.interrupt();
+            try {
+                _flusher.join();
+            } catch (final InterruptedException _e) {
+                throw new RuntimeException(_e);
+            }
+        }, new TextTraceFormat(), 8));
+        assertEquals(_expected, expand(_lines));
+    }
+
+    @Test
+    public void testRepeatedSequencesShrinkTrace() throws Exception {
+        final int _plain = getTrace(ThreadLogTest::callRandomMethods, new TextTraceFormat(), 1).length();
+        final int _compressed = getTrace(ThreadLogTest::callRandomMethods, new TextTraceFormat(), 8).length();
+        assertTrue(_compressed < _plain * 2 / 3);
+    }
+
+    @Test(expected = IllegalArgumentException.class)
+    public void testRepeatedSequencesWithoutThreadBuffers() throws Exception {
+        Logger.initialize(new LoggerConfig(new ByteArrayOutputStream()).setMaxSequenceLength(8));
+    }
+}
@@ -0,0 +1,135 @@
+/*
+ * Copyright (c) 2017, Venkatesh-Prasad Ranganath
+ *
+ * BSD 3-clause License
+ *
+ * Author: Venkatesh-Prasad Ranganath (rvprasad)
+ *
+ */
+package dyco4j.logging;
+
+import org.junit.Test;
+
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.io.StringWriter;
+import java.nio.charset.StandardCharsets;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import java.util.Map;
+import java.util.TreeSet;
+import java.util.concurrent.ConcurrentHashMap;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertTrue;
+
+public final class ThreadTraceTest {
+    private static final Runnable LOG_STMTS = () -> {
+        for (int _i = 0; _i < 100; _i++) {
+            Logger.logMethodEntry(1);
+            Logger.logMethodExit(1, "N");
+        }
+    };
+
+    private static Map<Long, ClosableStore> logInThreads(final TraceFormat format, final int threadBufferLength,
+                                                         final ByteArrayOutputStream logStore)
+            throws InterruptedException {
+        final Map<Long, ClosableStore> _ret = new ConcurrentHashMap<>();
+        final ThreadTrace.Opener _opener = i -> {
+            final ClosableStore _tmp = new ClosableStore();
+            _ret.put(i, _tmp);
+            return _tmp;
+        };
+        Logger.initialize(new LoggerConfig(logStore).setFormat(format).setThreadBufferLength(threadBufferLength)
+                .setThreadTraceOpener(_opener));
+        final Thread _t1 = new Thread(LOG_STMTS);
+        final Thread _t2 = new Thread(LOG_STMTS);
+        _t1.start();
+        _t2.start();
+        _t1.join();
+        _t2.join();
+        Logger.cleanupForTest();
+        return _ret;
+    }
+
+    private static List<String> getLines(final TraceFormat format, final byte[] trace) throws IOException {
+        final String _trace;
+        if (format instanceof TextTraceFormat)
+            _trace = new String(trace, StandardCharsets.UTF_8);
+        else {
+            final StringWriter _tmp = new StringWriter();
+            BinaryTraceDecoder.decode(new ByteArrayInputStream(trace), _tmp);
+            _trace = _tmp.toString();
+        }
+        return Arrays.asList(_trace.split(System.lineSeparator()));
+    }
+
+    private static void checkThreadTraces(final TraceFormat format, final int threadBufferLength) throws Exception {
+        final ByteArrayOutputStream _logStore = new ByteArrayOutputStream();
+        final Map<Long, ClosableStore> _stores = logInThreads(format, threadBufferLength, _logStore);
+
+        // INFO: only the header is written into the trace of the logger
+        assertEquals(1, getLines(format, _logStore.toByteArray()).size());
+        assertEquals(2, _stores.size());
+        final TreeSet<Long> _seqs = new TreeSet<>();
+        for (final Map.Entry<Long, ClosableStore> _e : _stores.entrySet()) {
+            assertTrue(_e.getValue().closed);
+            final List<String> _lines = getLines(format, _e.getValue().toByteArray());
+            assertEquals(201, _lines.size());
+            long _prevSeq = -1;
+            final List<String> _msgs = new ArrayList<>();
+            for (final String _line : _lines.subList(1, _lines.size())) {
+                final String[] _tmp = _line.split(",", 3);
+                assertEquals(_e.getKey().longValue(), Long.parseLong(_tmp[0]));
+                final long _seq = Long.parseLong(_tmp[1]);
+                assertTrue(_seq > _prevSeq);
+                assertTrue(_seqs.add(_seq));
+                _prevSeq = _seq;
+                _msgs.add(_tmp[2]);
+            }
+            for (int _i = 0; _i < 100; _i++) {
+                assertEquals("en,m1", _msgs.get(2 * _i));
+                assertEquals("ex,m1,N", _msgs.get(2 * _i + 1));
+            }
+        }
+        assertEquals(399L, _seqs.last().longValue());
+    }
+
+    @Test
+    public void testTextThreadTraces() throws Exception {
+        checkThreadTraces(new TextTraceFormat(), 0);
+    }
+
+    @Test
+    public void testBinaryThreadTraces() throws Exception {
+        checkThreadTraces(new BinaryTraceFormat(), 0);
+    }
+
+    @Test
+    public void testTextThreadTracesWithThreadBuffers() throws Exception {
+        checkThreadTraces(new TextTraceFormat(), 64);
+    }
+
+    @Test
+    public void testBinaryThreadTracesWithThreadBuffers() throws Exception {
+        checkThreadTraces(new BinaryTraceFormat(), 64);
+    }
+
+    @Test(expected = IllegalArgumentException.class)
+    public void testSegmentedThreadTraces() {
+        Logger.initialize(new LoggerConfig(new ByteArrayOutputStream()).setSegmentLength(1024)
+                .setThreadTraceOpener(i -> new ByteArrayOutputStream()));
+    }
+
+    private static final class ClosableStore extends ByteArrayOutputStream {
+        private boolean closed = false;
+
+        @Override
+        public void close() throws IOException {
+            this.closed = true;
+            super.close();
+        }
+    }
+}
@@ -0,0 +1,117 @@
+/*
+ * Copyright (c) 2017, Venkatesh-Prasad Ranganath
+ *
+ * BSD 3-clause License
+ *
+ * Author: Venkatesh-Prasad Ranganath (rvprasad)
+ *
+ */
+package dyco4j.logging;
+
+import org.junit.Test;
+
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.OutputStream;
+import java.util.Arrays;
+import java.util.Properties;
+import java.util.Random;
+
+import static org.junit.Assert.assertArrayEquals;
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertTrue;
+
+public final class TraceCodecTest {
+    private static byte[] getTrace() {
+        final ByteArrayOutputStream _logStore = new ByteArrayOutputStream();
+        Logger.initialize(_logStore);
+        for (int _i = 0; _i < 20000; _i++) {
+            Logger.logMethodEntry("m" + _i % 100);
+            Logger.logArgument((byte) 0, Logger.toString(_i));
+            Logger.logMethodExit("m" + _i % 100, "N");
+        }
+        Logger.cleanupForTest();
+        return _logStore.toByteArray();
+    }
+
+    private static byte[] encode(final TraceCodec codec, final byte[] bytes) throws IOException {
+        final ByteArrayOutputStream _ret = new ByteArrayOutputStream();
+        try (final OutputStream _out = codec.encode(_ret)) {
+            _out.write(bytes, 0, bytes.length / 3);
+            _out.flush();
+            _out.write(bytes, bytes.length / 3, bytes.length - bytes.length / 3);
+        }
+        return _ret.toByteArray();
+    }
+
+    private static byte[] decode(final TraceCodec codec, final byte[] bytes) throws IOException {
+        final ByteArrayOutputStream _ret = new ByteArrayOutputStream();
+        try (final InputStream _in = codec.decode(new ByteArrayInputStream(bytes))) {
+            final byte[] _tmp = new byte[1000];
+            for (int _len = _in.read(_tmp); _len != -1; _len = _in.read(_tmp))
+                _ret.write(_tmp, 0, _len);
+        }
+        return _ret.toByteArray();
+    }
+
+    private static TraceCodec getCodec(final String name) {
+        final Properties _tmp = new Properties();
+        _tmp.setProperty("compressionLevel", "9");
+        return TraceCodec.getCodec(name, _tmp);
+    }
+
+    @Test
+    public void testRoundTrip() throws Exception {
+        final byte[] _trace = getTrace();
+        for (final String _name : Arrays.asList("none", "deflate", "lz")) {
+            final TraceCodec _codec = getCodec(_name);
+            assertEquals(_name, _codec.getName());
+            assertArrayEquals(_name, _trace, decode(_codec, encode(_codec, _trace)));
+        }
+    }
+
+    @Test
+    public void testCompressionRatios() throws Exception {
+        final byte[] _trace = getTrace();
+        final int _none = encode(getCodec("none"), _trace).length;
+        final int _deflate = encode(getCodec("deflate"), _trace).length;
+        final int _lz = encode(getCodec("lz"), _trace).length;
+        assertEquals(_trace.length, _none);
+        assertTrue(_lz < _none / 3);
+        assertTrue(_deflate < _lz);
+    }
+
+    @Test
+    public void testLzWithIncompressibleAndEmptyData() throws Exception {
+        final byte[] _bytes = new byte[LzOutputStream.BLOCK_LENGTH * 2 + 17];
+        new Random(0).nextBytes(_bytes);
+        final TraceCodec _codec = getCodec("lz");
+        final byte[] _encoded = encode(_codec, _bytes);
+        assertTrue(_encoded.length < _bytes.length + 64);
+        assertArrayEquals(_bytes, decode(_codec, _encoded));
+        assertArrayEquals(new byte[0], decode(_codec, encode(_codec, new byte[0])));
+    }
+
+    @Test(expected = IOException.class)
+    public void testLzWithCorruptData() throws Exception {
+        final TraceCodec _codec = getCodec("lz");
+        final byte[] _encoded = encode(_codec, getTrace());
+        for (int _i = LzOutputStream.MAGIC.length + 8; _i < _encoded.length; _i += 7)
+            _encoded[_i] = (byte) 0xFF;
+        decode(_codec, _encoded);
+    }
+
+    @Test
+    public void testCodecOfFile() {
+        assertEquals("deflate", TraceCodec.getCodecOfFile("trace_1_2.bin.gz").getName());
+        assertEquals("lz", TraceCodec.getCodecOfFile("trace_1_2.dlz").getName());
+        assertEquals("none", TraceCodec.getCodecOfFile("trace_1_2.bin").getName());
+    }
+
+    @Test(expected = IllegalArgumentException.class)
+    public void testUnknownCodec() {
+        getCodec("unknown");
+    }
+}
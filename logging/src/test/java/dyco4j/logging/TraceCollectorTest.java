@@ -0,0 +1,96 @@
+/*
+ * Copyright (c) 2017, Venkatesh-Prasad Ranganath
+ *
+ * BSD 3-clause License
+ *
+ * Author: Venkatesh-Prasad Ranganath (rvprasad)
+ *
+ */
+package dyco4j.logging;
+
+import org.junit.Test;
+
+import java.io.*;
+import java.nio.charset.StandardCharsets;
+import java.util.Properties;
+import java.util.concurrent.atomic.AtomicReference;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertTrue;
+import static org.junit.Assume.assumeNoException;
+
+public final class TraceCollectorTest {
+    private static final int NUM_OF_STMTS = 100;
+
+    private static String collect(final TraceFormat format, final String expectedExtension, final String pid)
+            throws Exception {
+        final File _folder = new File("build", "tmp");
+        final File _pipe = new File(_folder, "trace.pipe");
+        if (_pipe.exists())
+            assertTrue(_pipe.delete());
+        try {
+            TraceCollector.createPipe(_pipe);
+        } catch (final IOException _e) {
+            assumeNoException(_e);
+        }
+
+        final AtomicReference<File> _trace = new AtomicReference<>();
+        final Thread _collector = new Thread(() -> {
+            try {
+                _trace.set(TraceCollector.collect(_pipe, _folder, TraceCodec.getCodec("deflate", new Properties())));
+            } catch (final IOException _e) {
+                throw new RuntimeException(_e);
+            }
+        });
+        _collector.start();
+        final OutputStream _out = new BufferedOutputStream(new FileOutputStream(_pipe), 1024);
+        if (pid != null)
+            _out.write((pid + "\n").getBytes(StandardCharsets.US_ASCII));
+        Logger.initialize(new LoggerConfig(_out).setFormat(format));
+        for (int _i = 0; _i < NUM_OF_STMTS; _i++)
+            Logger.log("test message " + _i);
+        Logger.cleanupForTest();
+        _collector.join();
+        assertTrue(_pipe.delete());
+
+        final File _file = _trace.get();
+        assertTrue(_file.getName().startsWith(pid == null ? "trace_" : "trace_" + pid + "_"));
+        assertTrue(_file.getName().endsWith(expectedExtension));
+        final ByteArrayOutputStream _tmp = new ByteArrayOutputStream();
+        try (final InputStream _in = TraceCodec.getCodecOfFile(_file.getName()).decode(new FileInputStream(_file))) {
+            final byte[] _buf = new byte[1024];
+            for (int _n = _in.read(_buf); _n != -1; _n = _in.read(_buf))
+                _tmp.write(_buf, 0, _n);
+        }
+        assertTrue(_file.delete());
+
+        if (format instanceof TextTraceFormat)
+            return new String(_tmp.toByteArray(), StandardCharsets.UTF_8);
+        final StringWriter _ret = new StringWriter();
+        BinaryTraceDecoder.decode(new ByteArrayInputStream(_tmp.toByteArray()), _ret);
+        return _ret.toString();
+    }
+
+    private static void checkTrace(final String trace) {
+        final String[] _lines = trace.split(System.lineSeparator());
+        assertEquals(NUM_OF_STMTS + 1, _lines.length);
+        for (int _i = 0; _i < NUM_OF_STMTS; _i++)
+            assertEquals(Thread.currentThread().getId() + ",test message " + _i, _lines[_i + 1]);
+    }
+
+    @Test
+    public void testTextTrace() throws Exception {
+        checkTrace(collect(new TextTraceFormat(), ".gz", null));
+    }
+
+    @Test
+    public void testBinaryTrace() throws Exception {
+        checkTrace(collect(new BinaryTraceFormat(), ".bin.gz", null));
+    }
+
+    @Test
+    public void testTraceWithPid() throws Exception {
+        checkTrace(collect(new TextTraceFormat(), ".gz", "1234"));
+        checkTrace(collect(new BinaryTraceFormat(), ".bin.gz", "1234"));
+    }
+}
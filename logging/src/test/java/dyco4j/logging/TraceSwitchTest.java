@@ -0,0 +1,81 @@
+/*
+ * Copyright (c) 2017, Venkatesh-Prasad Ranganath
+ *
+ * BSD 3-clause License
+ *
+ * Author: Venkatesh-Prasad Ranganath (rvprasad)
+ *
+ */
+package dyco4j.logging;
+
+import org.junit.After;
+import org.junit.Test;
+
+import javax.management.Attribute;
+import javax.management.MBeanServer;
+import javax.management.ObjectName;
+import java.io.ByteArrayOutputStream;
+import java.io.PrintStream;
+import java.lang.management.ManagementFactory;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertTrue;
+
+public final class TraceSwitchTest {
+    @After
+    public void tearDown() {
+        TraceSwitch.enabledKinds = TraceSwitch.getKinds("all");
+    }
+
+    @Test
+    public void testKinds() {
+        assertEquals(0, TraceSwitch.getKinds("none"));
+        assertEquals(0, TraceSwitch.getKinds(""));
+        assertEquals(TraceSwitch.METHOD_ENTRY_EXIT | TraceSwitch.FIELD_PUT | TraceSwitch.METHOD_COVERAGE,
+                TraceSwitch.getKinds("en, PUTF,cv"));
+        assertEquals("en,PUTF,cv", TraceSwitch.getKindNames(TraceSwitch.getKinds("cv,PUTF,en")));
+        assertEquals("all", TraceSwitch.getKindNames(TraceSwitch.getKinds("all")));
+        assertEquals("none", TraceSwitch.getKindNames(0));
+        assertEquals("all", TraceSwitch.getKindNames(TraceSwitch.enabledKinds));
+    }
+
+    @Test(expected = IllegalArgumentException.class)
+    public void testUnknownKind() {
+        TraceSwitch.getKinds("en,ex");
+    }
+
+    @Test
+    public void testUnknownKindInProperty() {
+        final PrintStream _err = System.err;
+        final ByteArrayOutputStream _tmp = new ByteArrayOutputStream();
+        System.setErr(new PrintStream(_tmp, true));
+        try {
+            assertEquals(TraceSwitch.getKinds("all"), TraceSwitch.getKindsOfProperty("entry"));
+        } finally {
+            System.setErr(_err);
+        }
+        assertTrue(_tmp.toString().contains("Unknown event kind entry"));
+        assertEquals(TraceSwitch.FIELD_GET, TraceSwitch.getKindsOfProperty("GETF"));
+    }
+
+    @Test
+    public void testMBean() throws Exception {
+        TraceSwitch.register();
+        TraceSwitch.register();
+
+        final MBeanServer _server = ManagementFactory.getPlatformMBeanServer();
+        final ObjectName _name = new ObjectName(TraceSwitch.OBJECT_NAME);
+        _server.setAttribute(_name, new Attribute("Enabled", false));
+        assertEquals(0, TraceSwitch.enabledKinds);
+        assertFalse((Boolean) _server.getAttribute(_name, "Enabled"));
+
+        _server.setAttribute(_name, new Attribute("EnabledKinds", "ca,GETA"));
+        assertEquals(TraceSwitch.METHOD_CALL | TraceSwitch.ARRAY_GET, TraceSwitch.enabledKinds);
+        assertEquals("ca,GETA", _server.getAttribute(_name, "EnabledKinds"));
+
+        _server.setAttribute(_name, new Attribute("Enabled", true));
+        assertTrue((Boolean) _server.getAttribute(_name, "Enabled"));
+        assertEquals("all", _server.getAttribute(_name, "EnabledKinds"));
+    }
+}